@@ -8,9 +8,12 @@ import android.os.Bundle;
 import androidx.annotation.NonNull;
 
 import com.craxiom.networksurvey.services.NetworkSurveyService;
+import com.craxiom.networksurvey.util.FixHistory;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 
 import timber.log.Timber;
 
@@ -24,11 +27,23 @@ import timber.log.Timber;
  */
 public class GpsListener implements LocationListener
 {
+    // Enough for 10 minutes of fixes at 1 Hz, which covers the longest location batch and BLE report delay
+    private static final int FIX_HISTORY_CAPACITY = 600;
+    // A fix further than this from the time of a scan result is not used for it
+    private static final long MAX_FIX_GAP_NANOS = TimeUnit.SECONDS.toNanos(30);
+
     private final Set<LocationListener> listeners = new CopyOnWriteArraySet<>();
+    private final FixHistory<Location> fixHistory = new FixHistory<>(FIX_HISTORY_CAPACITY, Location::getElapsedRealtimeNanos);
 
     private Location latestLocation;
     private Runnable gnssTimeoutCallback;
 
+    // The fix that the distance travelled is measured from. It only moves once the device has moved further than the
+    // accuracy of the fixes, so the position noise of a stationary device is not counted as distance.
+    private Location distanceAnchor;
+    private volatile double distanceTravelledMeters;
+    private volatile double speedMetersPerSecond = Double.NaN;
+
     /**
      * Adds a callback so that the the caller can check for a GNSS timeout. This will be called whenever a new location
      * is received. This works out nicely because the timeout can start counting down once we know we have a good GPS
@@ -85,9 +100,35 @@ public class GpsListener implements LocationListener
     @Override
     public void onLocationChanged(Location location)
     {
+        // A fix that is older than the newest one in the history (e.g. from another provider) is not added to it
+        if (location != null) fixHistory.add(location);
         updateLocation(location);
     }
 
+    /**
+     * Receives the fixes from a batched location request in one call. Every fix goes into the history so that records
+     * can be back-filled with the fix from the time of their scan, but the listeners are only notified once, with the
+     * newest fix.
+     */
+    @Override
+    public void onLocationChanged(@NonNull List<Location> locations)
+    {
+        if (locations.isEmpty()) return;
+
+        final int last = locations.size() - 1;
+        for (int i = 0; i < last; i++)
+        {
+            final Location location = locations.get(i);
+            fixHistory.add(location);
+            updateMotion(latestLocation, location);
+            latestLocation = location;
+        }
+
+        final Location newestLocation = locations.get(last);
+        fixHistory.add(newestLocation);
+        updateLocation(newestLocation);
+    }
+
     @Override
     public void onStatusChanged(String provider, int status, Bundle extras)
     {
@@ -144,6 +185,40 @@ public class GpsListener implements LocationListener
         return latestLocation;
     }
 
+    /**
+     * Looks up where the device was at a specific time, such as the time a scan result was seen.
+     *
+     * @param elapsedRealtimeNanos The time in the {@code SystemClock.elapsedRealtimeNanos()} time base, or 0 for now.
+     * @return The fix closest to the requested time, or the latest location if there is no fix close enough to it.
+     * @since 1.7.0
+     */
+    public Location getLocationAt(long elapsedRealtimeNanos)
+    {
+        if (elapsedRealtimeNanos <= 0) return latestLocation;
+
+        final Location location = fixHistory.getNearest(elapsedRealtimeNanos, MAX_FIX_GAP_NANOS);
+        return location != null ? location : latestLocation;
+    }
+
+    /**
+     * @return The latest speed in meters per second, either as reported with the fix or as calculated from the last
+     * two fixes, or {@link Double#NaN} if the speed is not known.
+     * @since 1.7.0
+     */
+    public double getSpeedMetersPerSecond()
+    {
+        return speedMetersPerSecond;
+    }
+
+    /**
+     * @return The total distance in meters the device has travelled since this listener was created.
+     * @since 1.7.0
+     */
+    public double getDistanceTravelledMeters()
+    {
+        return distanceTravelledMeters;
+    }
+
     /**
      * Updates the cached location with the newly provided location.
      *
@@ -151,6 +226,7 @@ public class GpsListener implements LocationListener
      */
     private void updateLocation(Location newLocation)
     {
+        updateMotion(latestLocation, newLocation);
         latestLocation = newLocation;
 
         if (newLocation != null)
@@ -172,4 +248,45 @@ public class GpsListener implements LocationListener
             }
         }
     }
+
+    /**
+     * Updates the speed and the distance travelled from a new fix.
+     *
+     * @param previousLocation The previous fix, or null if there is none.
+     * @param newLocation      The new fix, or null if the location is no longer available.
+     * @since 1.7.0
+     */
+    private void updateMotion(Location previousLocation, Location newLocation)
+    {
+        if (newLocation == null)
+        {
+            speedMetersPerSecond = Double.NaN;
+            return;
+        }
+
+        if (newLocation.hasSpeed())
+        {
+            speedMetersPerSecond = newLocation.getSpeed();
+        } else if (previousLocation != null)
+        {
+            final long elapsedNanos = newLocation.getElapsedRealtimeNanos() - previousLocation.getElapsedRealtimeNanos();
+            if (elapsedNanos > 0)
+            {
+                speedMetersPerSecond = previousLocation.distanceTo(newLocation) / (elapsedNanos / 1_000_000_000d);
+            }
+        }
+
+        if (distanceAnchor == null)
+        {
+            distanceAnchor = newLocation;
+            return;
+        }
+
+        final float distanceMeters = distanceAnchor.distanceTo(newLocation);
+        if (distanceMeters > Math.max(distanceAnchor.getAccuracy(), newLocation.getAccuracy()))
+        {
+            distanceTravelledMeters += distanceMeters;
+            distanceAnchor = newLocation;
+        }
+    }
 }
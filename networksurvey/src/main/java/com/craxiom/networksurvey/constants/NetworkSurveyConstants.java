@@ -100,6 +100,64 @@ public class NetworkSurveyConstants
     public static final String PROPERTY_MQTT_GNSS_STREAM_ENABLED = "gnss_stream_enabled";
     public static final String PROPERTY_MQTT_DEVICE_STATUS_STREAM_ENABLED = "device_status_stream_enabled";
 
+    public static final String DEFAULT_MQTT_TOPIC_POLICY = "all";
+    public static final String PROPERTY_MQTT_CELLULAR_TOPIC_POLICY = "mqtt_cellular_topic_policy";
+    public static final String PROPERTY_MQTT_WIFI_TOPIC_POLICY = "mqtt_wifi_topic_policy";
+    public static final String PROPERTY_MQTT_BLUETOOTH_TOPIC_POLICY = "mqtt_bluetooth_topic_policy";
+    public static final String PROPERTY_MQTT_GNSS_TOPIC_POLICY = "mqtt_gnss_topic_policy";
+    public static final String PROPERTY_MQTT_DEVICE_STATUS_TOPIC_POLICY = "mqtt_device_status_topic_policy";
+
+    public static final String DEFAULT_MQTT_SURVEY_TOPIC_QOS = "0";
+    public static final String DEFAULT_MQTT_DEVICE_STATUS_TOPIC_QOS = "1";
+    public static final String PROPERTY_MQTT_CELLULAR_TOPIC_QOS = "mqtt_cellular_topic_qos";
+    public static final String PROPERTY_MQTT_WIFI_TOPIC_QOS = "mqtt_wifi_topic_qos";
+    public static final String PROPERTY_MQTT_BLUETOOTH_TOPIC_QOS = "mqtt_bluetooth_topic_qos";
+    public static final String PROPERTY_MQTT_GNSS_TOPIC_QOS = "mqtt_gnss_topic_qos";
+    public static final String PROPERTY_MQTT_DEVICE_STATUS_TOPIC_QOS = "mqtt_device_status_topic_qos";
+
+    public static final boolean DEFAULT_CELLULAR_CHANGE_DETECTION = false;
+    public static final int DEFAULT_CELLULAR_CHANGE_THRESHOLD_DB = 3;
+    public static final int DEFAULT_CELLULAR_CHANGE_HEARTBEAT_SECONDS = 60;
+    public static final String PROPERTY_CELLULAR_CHANGE_DETECTION = "cellular_change_detection";
+    public static final String PROPERTY_CELLULAR_CHANGE_THRESHOLD_DB = "cellular_change_threshold_db";
+    public static final String PROPERTY_CELLULAR_CHANGE_HEARTBEAT_SECONDS = "cellular_change_heartbeat_seconds";
+
+    public static final boolean DEFAULT_GNSS_AGGREGATION = false;
+    public static final String PROPERTY_GNSS_AGGREGATION = "gnss_aggregation";
+
+    public static final boolean DEFAULT_BLUETOOTH_SIGHTING_MERGE = false;
+    public static final String PROPERTY_BLUETOOTH_SIGHTING_MERGE = "bluetooth_sighting_merge";
+
+    public static final boolean DEFAULT_ADAPTIVE_SCAN_RATE = false;
+    public static final int DEFAULT_ADAPTIVE_SCAN_DISTANCE_METERS = 50;
+    public static final int DEFAULT_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS = 2;
+    public static final int DEFAULT_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS = 60;
+    public static final String PROPERTY_ADAPTIVE_SCAN_RATE = "adaptive_scan_rate";
+    public static final String PROPERTY_ADAPTIVE_SCAN_DISTANCE_METERS = "adaptive_scan_distance_meters";
+    public static final String PROPERTY_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS = "adaptive_scan_min_interval_seconds";
+    public static final String PROPERTY_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS = "adaptive_scan_max_interval_seconds";
+
+    public static final boolean DEFAULT_DUTY_CYCLE = false;
+    public static final int DEFAULT_DUTY_CYCLE_ACTIVE_SECONDS = 30;
+    public static final int DEFAULT_DUTY_CYCLE_PERIOD_SECONDS = 300;
+    public static final String PROPERTY_DUTY_CYCLE = "duty_cycle";
+    public static final String PROPERTY_DUTY_CYCLE_ACTIVE_SECONDS = "duty_cycle_active_seconds";
+    public static final String PROPERTY_DUTY_CYCLE_PERIOD_SECONDS = "duty_cycle_period_seconds";
+
+    public static final boolean DEFAULT_LOCATION_BATCHING = false;
+    public static final int DEFAULT_LOCATION_BATCH_MAX_DELAY_SECONDS = 60;
+    public static final String PROPERTY_LOCATION_BATCHING = "location_batching";
+    public static final String PROPERTY_LOCATION_BATCH_MAX_DELAY_SECONDS = "location_batch_max_delay_seconds";
+
+    public static final boolean DEFAULT_RECORD_FILTER = false;
+    public static final String PROPERTY_RECORD_FILTER = "record_filter";
+    public static final String PROPERTY_RECORD_FILTER_PLMNS = "record_filter_plmns";
+    public static final String PROPERTY_RECORD_FILTER_EARFCNS = "record_filter_earfcns";
+    public static final String PROPERTY_RECORD_FILTER_MIN_RSRP = "record_filter_min_rsrp";
+    public static final String PROPERTY_RECORD_FILTER_WIFI_SSID_PREFIXES = "record_filter_wifi_ssid_prefixes";
+    public static final String PROPERTY_RECORD_FILTER_WIFI_BSSID_PREFIXES = "record_filter_wifi_bssid_prefixes";
+    public static final String PROPERTY_RECORD_FILTER_BLUETOOTH_TYPES = "record_filter_bluetooth_types";
+
     // Stored Preferences not exposed via the Settings UI
     public static final String PROPERTY_NETWORK_SURVEY_CONNECTION_HOST = "connection_host";
     public static final String PROPERTY_NETWORK_SURVEY_CONNECTION_PORT = "connection_port";
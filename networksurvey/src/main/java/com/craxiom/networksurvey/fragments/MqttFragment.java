@@ -9,15 +9,22 @@ import static com.craxiom.mqttlibrary.MqttConstants.PROPERTY_MQTT_USERNAME;
 import static com.craxiom.networksurvey.util.PreferenceUtils.populatePrefsFromMqttConnectionSettings;
 
 import android.Manifest;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewStub;
 import android.widget.Button;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -32,6 +39,7 @@ import com.craxiom.networksurvey.R;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.fragments.model.MqttConnectionSettings;
 import com.craxiom.networksurvey.mqtt.MqttConnectionInfo;
+import com.craxiom.networksurvey.mqtt.MqttPublishMetrics;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
 
 import timber.log.Timber;
@@ -44,11 +52,14 @@ import timber.log.Timber;
  */
 public class MqttFragment extends AConnectionFragment<NetworkSurveyService.SurveyServiceBinder>
 {
+    private static final long PUBLISH_METRICS_REFRESH_MS = 2_000;
+
     private SwitchCompat cellularStreamToggleSwitch;
     private SwitchCompat wifiStreamToggleSwitch;
     private SwitchCompat bluetoothStreamToggleSwitch;
     private SwitchCompat gnssStreamToggleSwitch;
     private SwitchCompat deviceStatusStreamToggleSwitch;
+    private TextView publishMetricsTextView;
 
     private boolean cellularStreamEnabled = true;
     private boolean wifiStreamEnabled = true;
@@ -56,6 +67,11 @@ public class MqttFragment extends AConnectionFragment<NetworkSurveyService.Surve
     private boolean gnssStreamEnabled = true;
     private boolean deviceStatusStreamEnabled = true;
 
+    private final Handler publishMetricsHandler = new Handler(Looper.getMainLooper());
+    private final Runnable publishMetricsRefresher = this::refreshPublishMetrics;
+    private final ServiceConnection publishMetricsServiceConnection = new PublishMetricsServiceConnection();
+    private NetworkSurveyService publishMetricsService;
+
     private final ActivityResultLauncher<String> cameraPermissionRequestLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
                 if (isGranted)
@@ -94,6 +110,7 @@ public class MqttFragment extends AConnectionFragment<NetworkSurveyService.Surve
         bluetoothStreamToggleSwitch = inflatedStub.findViewById(R.id.streamBluetoothToggleSwitch);
         gnssStreamToggleSwitch = inflatedStub.findViewById(R.id.streamGnssToggleSwitch);
         deviceStatusStreamToggleSwitch = inflatedStub.findViewById(R.id.streamDeviceStatusToggleSwitch);
+        publishMetricsTextView = inflatedStub.findViewById(R.id.mqttPublishMetricsTextView);
 
         Button scanCodeButton = inflatedStub.findViewById(R.id.code_scan_button);
         scanCodeButton.setOnClickListener(v -> {
@@ -109,6 +126,32 @@ public class MqttFragment extends AConnectionFragment<NetworkSurveyService.Surve
         });
     }
 
+    @Override
+    public void onResume()
+    {
+        super.onResume();
+
+        final Context applicationContext = requireContext().getApplicationContext();
+        applicationContext.bindService(new Intent(applicationContext, NetworkSurveyService.class),
+                publishMetricsServiceConnection, Context.BIND_ABOVE_CLIENT);
+    }
+
+    @Override
+    public void onPause()
+    {
+        publishMetricsHandler.removeCallbacks(publishMetricsRefresher);
+        publishMetricsService = null;
+        try
+        {
+            requireContext().getApplicationContext().unbindService(publishMetricsServiceConnection);
+        } catch (Throwable t)
+        {
+            Timber.e(t, "Could not unbind the service because it is not bound.");
+        }
+
+        super.onPause();
+    }
+
     @Override
     protected Context getApplicationContext()
     {
@@ -224,6 +267,42 @@ public class MqttFragment extends AConnectionFragment<NetworkSurveyService.Surve
                 .build();
     }
 
+    /**
+     * Shows the latest MQTT publish metrics from the service, along with the reconnect and connection failure counts
+     * once there are any, and schedules the next refresh while the fragment is visible.
+     *
+     * @since 1.7.0
+     */
+    private void refreshPublishMetrics()
+    {
+        final NetworkSurveyService service = publishMetricsService;
+        if (service == null || publishMetricsTextView == null) return;
+
+        final MqttPublishMetrics metrics = service.getMqttPublishMetrics();
+        String metricsText;
+        if (metrics == null || metrics.getPacketCount() + metrics.getFailedCount() + metrics.getDroppedCount() == 0)
+        {
+            metricsText = getString(R.string.mqtt_publish_metrics_unavailable);
+        } else
+        {
+            metricsText = getString(R.string.mqtt_publish_metrics, metrics.getPublishedCount(),
+                    metrics.getFailedCount(), metrics.getTimedOutCount(), metrics.getDroppedCount(),
+                    metrics.getInFlightCount(), metrics.getQueuedCount(), metrics.getP50LatencyMicros() / 1_000,
+                    metrics.getP99LatencyMicros() / 1_000);
+        }
+
+        final int reconnectCount = service.getMqttReconnectCount();
+        final int connectionFailureCount = service.getMqttConnectionFailureCount();
+        if (reconnectCount + connectionFailureCount > 0)
+        {
+            metricsText += "\n" + getString(R.string.mqtt_connection_metrics, reconnectCount, connectionFailureCount);
+        }
+
+        publishMetricsTextView.setText(metricsText);
+
+        publishMetricsHandler.postDelayed(publishMetricsRefresher, PUBLISH_METRICS_REFRESH_MS);
+    }
+
     /**
      * @return True if the {@link Manifest.permission#CAMERA} permission has been granted. False otherwise.
      * @since 1.7.0
@@ -238,4 +317,25 @@ public class MqttFragment extends AConnectionFragment<NetworkSurveyService.Surve
 
         return true;
     }
+
+    /**
+     * A separate binding to the survey service that is only used to read the MQTT publish metrics.
+     */
+    private class PublishMetricsServiceConnection implements ServiceConnection
+    {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder)
+        {
+            publishMetricsService = (NetworkSurveyService) ((NetworkSurveyService.SurveyServiceBinder) binder).getService();
+            publishMetricsHandler.removeCallbacks(publishMetricsRefresher);
+            refreshPublishMetrics();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name)
+        {
+            publishMetricsService = null;
+            publishMetricsHandler.removeCallbacks(publishMetricsRefresher);
+        }
+    }
 }
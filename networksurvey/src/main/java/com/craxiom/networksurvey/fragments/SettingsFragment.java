@@ -41,7 +41,26 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
             NetworkSurveyConstants.PROPERTY_BLUETOOTH_SCAN_INTERVAL_SECONDS,
             NetworkSurveyConstants.PROPERTY_GNSS_SCAN_INTERVAL_SECONDS,
             NetworkSurveyConstants.PROPERTY_DEVICE_STATUS_SCAN_INTERVAL_SECONDS,
-            NetworkSurveyConstants.PROPERTY_MQTT_START_ON_BOOT};
+            NetworkSurveyConstants.PROPERTY_MQTT_START_ON_BOOT,
+            NetworkSurveyConstants.PROPERTY_MQTT_CELLULAR_TOPIC_QOS,
+            NetworkSurveyConstants.PROPERTY_MQTT_WIFI_TOPIC_QOS,
+            NetworkSurveyConstants.PROPERTY_MQTT_BLUETOOTH_TOPIC_QOS,
+            NetworkSurveyConstants.PROPERTY_MQTT_GNSS_TOPIC_QOS,
+            NetworkSurveyConstants.PROPERTY_MQTT_DEVICE_STATUS_TOPIC_QOS,
+            NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_DETECTION,
+            NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_THRESHOLD_DB,
+            NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_HEARTBEAT_SECONDS,
+            NetworkSurveyConstants.PROPERTY_GNSS_AGGREGATION,
+            NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_RATE,
+            NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_DISTANCE_METERS,
+            NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS,
+            NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS,
+            NetworkSurveyConstants.PROPERTY_DUTY_CYCLE,
+            NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_ACTIVE_SECONDS,
+            NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_PERIOD_SECONDS,
+            NetworkSurveyConstants.PROPERTY_LOCATION_BATCHING,
+            NetworkSurveyConstants.PROPERTY_LOCATION_BATCH_MAX_DELAY_SECONDS,
+            NetworkSurveyConstants.PROPERTY_BLUETOOTH_SIGHTING_MERGE};
 
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey)
@@ -55,6 +74,14 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
         setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_BLUETOOTH_SCAN_INTERVAL_SECONDS));
         setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_GNSS_SCAN_INTERVAL_SECONDS));
         setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_DEVICE_STATUS_SCAN_INTERVAL_SECONDS));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_THRESHOLD_DB));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_HEARTBEAT_SECONDS));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_DISTANCE_METERS));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_ACTIVE_SECONDS));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_PERIOD_SECONDS));
+        setPreferenceAsIntegerOnly(findPreference(NetworkSurveyConstants.PROPERTY_LOCATION_BATCH_MAX_DELAY_SECONDS));
 
         updateUiForMdmIfNecessary();
     }
@@ -104,6 +131,38 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
             case NetworkSurveyConstants.PROPERTY_DEVICE_STATUS_SCAN_INTERVAL_SECONDS:
                 defaultValue = NetworkSurveyConstants.DEFAULT_DEVICE_STATUS_SCAN_INTERVAL_SECONDS;
                 break;
+
+            case NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_THRESHOLD_DB:
+                defaultValue = NetworkSurveyConstants.DEFAULT_CELLULAR_CHANGE_THRESHOLD_DB;
+                break;
+
+            case NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_HEARTBEAT_SECONDS:
+                defaultValue = NetworkSurveyConstants.DEFAULT_CELLULAR_CHANGE_HEARTBEAT_SECONDS;
+                break;
+
+            case NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_DISTANCE_METERS:
+                defaultValue = NetworkSurveyConstants.DEFAULT_ADAPTIVE_SCAN_DISTANCE_METERS;
+                break;
+
+            case NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS:
+                defaultValue = NetworkSurveyConstants.DEFAULT_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS;
+                break;
+
+            case NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS:
+                defaultValue = NetworkSurveyConstants.DEFAULT_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS;
+                break;
+
+            case NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_ACTIVE_SECONDS:
+                defaultValue = NetworkSurveyConstants.DEFAULT_DUTY_CYCLE_ACTIVE_SECONDS;
+                break;
+
+            case NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_PERIOD_SECONDS:
+                defaultValue = NetworkSurveyConstants.DEFAULT_DUTY_CYCLE_PERIOD_SECONDS;
+                break;
+
+            case NetworkSurveyConstants.PROPERTY_LOCATION_BATCH_MAX_DELAY_SECONDS:
+                defaultValue = NetworkSurveyConstants.DEFAULT_LOCATION_BATCH_MAX_DELAY_SECONDS;
+                break;
         }
 
         if (defaultValue != -1)
@@ -206,6 +265,25 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
         updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_GNSS_SCAN_INTERVAL_SECONDS);
         updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_DEVICE_STATUS_SCAN_INTERVAL_SECONDS);
         updateBooleanPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_MQTT_START_ON_BOOT);
+        updateDropDownPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_MQTT_CELLULAR_TOPIC_QOS);
+        updateDropDownPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_MQTT_WIFI_TOPIC_QOS);
+        updateDropDownPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_MQTT_BLUETOOTH_TOPIC_QOS);
+        updateDropDownPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_MQTT_GNSS_TOPIC_QOS);
+        updateDropDownPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_MQTT_DEVICE_STATUS_TOPIC_QOS);
+        updateBooleanPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_DETECTION);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_THRESHOLD_DB);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_HEARTBEAT_SECONDS);
+        updateBooleanPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_GNSS_AGGREGATION);
+        updateBooleanPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_RATE);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_DISTANCE_METERS);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS);
+        updateBooleanPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_DUTY_CYCLE);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_ACTIVE_SECONDS);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_PERIOD_SECONDS);
+        updateBooleanPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_LOCATION_BATCHING);
+        updateIntPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_LOCATION_BATCH_MAX_DELAY_SECONDS);
+        updateBooleanPreferenceForMdm(preferenceScreen, mdmProperties, NetworkSurveyConstants.PROPERTY_BLUETOOTH_SIGHTING_MERGE);
     }
 
     /**
@@ -316,4 +394,35 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
             Timber.wtf(e, "Could not find the int preference or update the UI component for %s", preferenceKey);
         }
     }
+
+    /**
+     * Updates a drop down preference with an MDM value, if it exists and is one of the preference's values. The shared
+     * preferences are also updated, so that values are retained when MDM control is off.
+     *
+     * @param preferenceScreen The preference screen
+     * @param mdmProperties    The map of mdm provided properties.
+     * @param preferenceKey    The preference key
+     * @since 1.7.0
+     */
+    private void updateDropDownPreferenceForMdm(PreferenceScreen preferenceScreen, Bundle mdmProperties, String preferenceKey)
+    {
+        try
+        {
+            final DropDownPreference preference = preferenceScreen.findPreference(preferenceKey);
+
+            if (preference != null && mdmProperties.containsKey(preferenceKey))
+            {
+                final String mdmStringProperty = mdmProperties.getString(preferenceKey);
+
+                if (mdmStringProperty != null && preference.findIndexOfValue(mdmStringProperty) != -1)
+                {
+                    preference.setEnabled(false);
+                    preference.setValue(mdmStringProperty);
+                }
+            }
+        } catch (Exception e)
+        {
+            Timber.wtf(e, "Could not find the drop down preference or update the UI component for %s", preferenceKey);
+        }
+    }
 }
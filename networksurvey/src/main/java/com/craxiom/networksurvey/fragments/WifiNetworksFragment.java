@@ -206,6 +206,13 @@ public class WifiNetworksFragment extends Fragment implements IWifiSurveyRecordL
         });
     }
 
+    @Override
+    public void onCachedWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords)
+    {
+        // The cached results are still the latest known state, so they are displayed like a new scan
+        onWifiBeaconSurveyRecords(wifiBeaconRecords);
+    }
+
     /**
      * Updates the view with the information stored in the view model.
      *
@@ -63,6 +63,9 @@ public interface ICellularSurveyRecordListener
      * associated with a single cellular scan (not really a scan, but an snapshot in time of what towers the phone can
      * see). The individual methods were used prior to this listener method being added and if a listener consumes from
      * both types of methods, then it will receive duplicate records.
+     * <p>
+     * On a multi-SIM device the individual protocol listener methods receive the records for every SIM, but this
+     * method only receives the batches for the default data subscription.
      *
      * @param cellularGroup the next group/batch of cellular survey records.
      * @since 1.6.0
@@ -12,9 +12,21 @@ import java.util.List;
 public interface IWifiSurveyRecordListener
 {
     /**
-     * Called when a new collection of 802.11 Beacon Survey Records are ready.
+     * Called when a new collection of 802.11 Beacon Survey Records are ready. The records are always from a new scan.
      *
      * @param wifiBeaconRecords the list of 802.11 Beacon Records.
      */
     void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords);
+
+    /**
+     * Called when the OS did not run a new scan and handed back the cached results of an earlier scan. The records are
+     * not numbered (the record number is 0) and must not be logged or streamed as new observations, so only a listener
+     * that displays the results should override this method.
+     *
+     * @param wifiBeaconRecords the list of cached 802.11 Beacon Records.
+     * @since 1.7.0
+     */
+    default void onCachedWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords)
+    {
+    }
 }
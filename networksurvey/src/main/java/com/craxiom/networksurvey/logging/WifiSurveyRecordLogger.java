@@ -2,20 +2,16 @@ package com.craxiom.networksurvey.logging;
 
 import android.os.Looper;
 
-import com.craxiom.messaging.WifiBeaconRecordData;
-import com.craxiom.messaging.wifi.CipherSuite;
 import com.craxiom.messaging.wifi.EncryptionType;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.constants.WifiBeaconMessageConstants;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
+import com.craxiom.networksurvey.model.WifiScanBatch;
 import com.craxiom.networksurvey.services.NetworkSurveyService;
-import com.craxiom.networksurvey.util.IOUtils;
-import com.craxiom.networksurvey.util.MathUtils;
 
 import java.sql.SQLException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.core.srs.SpatialReferenceSystem;
@@ -96,76 +92,7 @@ public class WifiSurveyRecordLogger extends SurveyRecordLogger implements IWifiS
                 {
                     if (geoPackage != null)
                     {
-                        final WifiBeaconRecordData data = wifiRecordWrapper.getWifiBeaconRecord().getData();
-                        FeatureDao featureDao = geoPackage.getFeatureDao(WifiBeaconMessageConstants.WIFI_BEACON_RECORDS_TABLE_NAME);
-                        FeatureRow row = featureDao.newRow();
-
-                        Point fix = new Point(data.getLongitude(), data.getLatitude(), (double) data.getAltitude());
-
-                        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
-                        geomData.setGeometry(fix);
-
-                        row.setGeometry(geomData);
-
-                        row.setValue(WifiBeaconMessageConstants.TIME_COLUMN, IOUtils.getEpochFromRfc3339(data.getDeviceTime()));
-                        row.setValue(WifiBeaconMessageConstants.MISSION_ID_COLUMN, data.getMissionId());
-                        row.setValue(WifiBeaconMessageConstants.RECORD_NUMBER_COLUMN, data.getRecordNumber());
-                        row.setValue(WifiBeaconMessageConstants.ACCURACY, MathUtils.roundAccuracy(data.getAccuracy()));
-
-                        final String sourceAddress = data.getSourceAddress();
-                        if (!sourceAddress.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.SOURCE_ADDRESS_COLUMN, sourceAddress);
-                        }
-
-                        final String bssid = data.getBssid();
-                        if (!bssid.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.BSSID_COLUMN, bssid);
-                        }
-
-                        final String ssid = data.getSsid();
-                        if (!ssid.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.SSID_COLUMN, ssid);
-                        }
-
-                        if (data.hasSignalStrength())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.SIGNAL_STRENGTH_COLUMN, data.getSignalStrength().getValue());
-                        }
-
-                        if (data.hasChannel())
-                        {
-                            setShortValue(row, WifiBeaconMessageConstants.CHANNEL_COLUMN, data.getChannel().getValue());
-                        }
-
-                        if (data.hasFrequencyMhz())
-                        {
-                            setIntValue(row, WifiBeaconMessageConstants.FREQUENCY_MHZ_COLUMN, data.getFrequencyMhz().getValue());
-                        }
-
-                        final EncryptionType encryptionType = data.getEncryptionType();
-                        if (encryptionType != EncryptionType.UNKNOWN)
-                        {
-                            row.setValue(WifiBeaconMessageConstants.ENCRYPTION_TYPE_COLUMN, WifiBeaconMessageConstants.getEncryptionTypeString(encryptionType));
-                        }
-
-                        if (data.hasWps())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.WPS_COLUMN, data.getWps().getValue());
-                        }
-
-                        final List<CipherSuite> cipherSuitesList = data.getCipherSuitesList();
-                        if (!cipherSuitesList.isEmpty())
-                        {
-                            row.setValue(WifiBeaconMessageConstants.CIPHER_SUITES_COLUMN,
-                                    cipherSuitesList.stream().map(WifiBeaconMessageConstants::getCipherSuiteString)
-                                            .collect(Collectors.joining(";")));
-                        }
-
-                        featureDao.insert(row);
-
+                        writeWifiBeaconRow(wifiRecordWrapper.getBatch(), wifiRecordWrapper.getBatchIndex());
                         checkIfRolloverNeeded();
                     }
                 } catch (Exception e)
@@ -175,4 +102,71 @@ public class WifiSurveyRecordLogger extends SurveyRecordLogger implements IWifiS
             }
         });
     }
+
+    /**
+     * Writes a single access point straight from the columns of the scan batch, so that no protobuf record needs to be
+     * built for it when the logger is the only consumer. Must be called while holding the geoPackageLock.
+     *
+     * @param batch The Wi-Fi scan batch.
+     * @param index The position of the access point in the batch.
+     * @since 1.7.0
+     */
+    private void writeWifiBeaconRow(WifiScanBatch batch, int index) throws SQLException
+    {
+        FeatureDao featureDao = geoPackage.getFeatureDao(WifiBeaconMessageConstants.WIFI_BEACON_RECORDS_TABLE_NAME);
+        FeatureRow row = featureDao.newRow();
+
+        // The protobuf defaults to 0 for the location fields when the location is not known, so do the same here
+        Point fix = batch.hasLocation() ? new Point(batch.getLongitude(), batch.getLatitude(), (double) batch.getAltitude())
+                : new Point(0d, 0d, 0d);
+
+        GeoPackageGeometryData geomData = new GeoPackageGeometryData(WGS84_SRS);
+        geomData.setGeometry(fix);
+
+        row.setGeometry(geomData);
+
+        row.setValue(WifiBeaconMessageConstants.TIME_COLUMN, batch.getDeviceTimeMs());
+        row.setValue(WifiBeaconMessageConstants.MISSION_ID_COLUMN, batch.getMissionId());
+        row.setValue(WifiBeaconMessageConstants.RECORD_NUMBER_COLUMN, batch.getRecordNumber(index));
+        row.setValue(WifiBeaconMessageConstants.ACCURACY, batch.hasLocation() ? batch.getAccuracy() : 0);
+
+        final String bssid = batch.getBssid(index);
+        if (bssid != null && !bssid.isEmpty())
+        {
+            row.setValue(WifiBeaconMessageConstants.BSSID_COLUMN, bssid);
+        }
+
+        final String ssid = batch.getSsid(index);
+        if (ssid != null && !ssid.isEmpty())
+        {
+            row.setValue(WifiBeaconMessageConstants.SSID_COLUMN, ssid);
+        }
+
+        row.setValue(WifiBeaconMessageConstants.SIGNAL_STRENGTH_COLUMN, (float) batch.getSignalStrength(index));
+
+        final short channel = batch.getChannel(index);
+        if (channel != -1)
+        {
+            setShortValue(row, WifiBeaconMessageConstants.CHANNEL_COLUMN, channel);
+        }
+
+        final int frequency = batch.getFrequencyMhz(index);
+        if (frequency != 0)
+        {
+            setIntValue(row, WifiBeaconMessageConstants.FREQUENCY_MHZ_COLUMN, frequency);
+        }
+
+        final EncryptionType encryptionType = batch.getEncryptionType(index);
+        if (encryptionType != EncryptionType.UNKNOWN)
+        {
+            row.setValue(WifiBeaconMessageConstants.ENCRYPTION_TYPE_COLUMN, WifiBeaconMessageConstants.getEncryptionTypeString(encryptionType));
+        }
+
+        if (batch.hasWps(index))
+        {
+            row.setValue(WifiBeaconMessageConstants.WPS_COLUMN, batch.supportsWps(index));
+        }
+
+        featureDao.insert(row);
+    }
 }
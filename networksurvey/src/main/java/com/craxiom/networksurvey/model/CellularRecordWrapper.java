@@ -1,5 +1,7 @@
 package com.craxiom.networksurvey.model;
 
+import android.telephony.SubscriptionManager;
+
 import com.google.protobuf.GeneratedMessageV3;
 
 /**
@@ -12,9 +14,29 @@ public class CellularRecordWrapper
     public final CellularProtocol cellularProtocol;
     public final GeneratedMessageV3 cellularRecord;
 
+    /**
+     * The ID of the SIM subscription the record was scanned with, or
+     * {@link SubscriptionManager#INVALID_SUBSCRIPTION_ID} on a single SIM device.
+     * <p>
+     * This is only for the UI, which receives the wrapped records. The messaging API records that are logged and
+     * streamed don't have a field for the subscription, so it is not included in those.
+     *
+     * @since 1.7.0
+     */
+    public final int subscriptionId;
+
     public CellularRecordWrapper(CellularProtocol cellularProtocol, GeneratedMessageV3 cellularRecord)
+    {
+        this(cellularProtocol, cellularRecord, SubscriptionManager.INVALID_SUBSCRIPTION_ID);
+    }
+
+    /**
+     * @since 1.7.0
+     */
+    public CellularRecordWrapper(CellularProtocol cellularProtocol, GeneratedMessageV3 cellularRecord, int subscriptionId)
     {
         this.cellularProtocol = cellularProtocol;
         this.cellularRecord = cellularRecord;
+        this.subscriptionId = subscriptionId;
     }
 }
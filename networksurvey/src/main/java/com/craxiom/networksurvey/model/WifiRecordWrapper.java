@@ -5,14 +5,21 @@ import com.craxiom.messaging.WifiBeaconRecord;
 /**
  * Wraps the {@link com.craxiom.messaging.WifiBeaconRecord} so that we can include the Android Specific
  * {@link android.net.wifi.ScanResult#capabilities} string.  This allow us to display the capabilities string in the UI.
+ * <p>
+ * Every wrapper points at one access point in a {@link WifiScanBatch}. When the wrapper is created from a scan batch,
+ * the protobuf record is only built the first time {@link #getWifiBeaconRecord()} is called.
  *
  * @since 0.1.2
  */
 public class WifiRecordWrapper
 {
-    private final WifiBeaconRecord wifiBeaconRecord;
+    private final WifiScanBatch batch;
+    private final int batchIndex;
     private final String capabilitiesString;
 
+    // Built on first use for batch backed wrappers. If two consumers race, both build an equal immutable record.
+    private volatile WifiBeaconRecord wifiBeaconRecord;
+
     /**
      * @param wifiBeaconRecord   The protobuf defined Wi-Fi record object.
      * @param capabilitiesString The capabilities string from {@link android.net.wifi.ScanResult#capabilities}
@@ -21,15 +28,62 @@ public class WifiRecordWrapper
     {
         this.wifiBeaconRecord = wifiBeaconRecord;
         this.capabilitiesString = capabilitiesString;
+        batch = WifiScanBatch.fromRecord(wifiBeaconRecord, capabilitiesString);
+        batchIndex = 0;
+    }
+
+    /**
+     * @param batch      The scan batch that holds the values for the access point.
+     * @param batchIndex The position of the access point in the batch.
+     * @since 1.7.0
+     */
+    public WifiRecordWrapper(WifiScanBatch batch, int batchIndex)
+    {
+        this.batch = batch;
+        this.batchIndex = batchIndex;
+        capabilitiesString = batch.getCapabilities(batchIndex);
     }
 
     public WifiBeaconRecord getWifiBeaconRecord()
     {
-        return wifiBeaconRecord;
+        WifiBeaconRecord record = wifiBeaconRecord;
+        if (record == null)
+        {
+            record = batch.toWifiBeaconRecord(batchIndex);
+            wifiBeaconRecord = record;
+        }
+        return record;
     }
 
     public String getCapabilitiesString()
     {
         return capabilitiesString;
     }
+
+    /**
+     * @return The scan batch that backs this wrapper.
+     * @since 1.7.0
+     */
+    public WifiScanBatch getBatch()
+    {
+        return batch;
+    }
+
+    /**
+     * @return True if the record came from a new scan, false if the OS handed back cached results of an earlier scan.
+     * @since 1.7.0
+     */
+    public boolean isFresh()
+    {
+        return batch.isFresh();
+    }
+
+    /**
+     * @return The position of the access point in {@link #getBatch()}.
+     * @since 1.7.0
+     */
+    public int getBatchIndex()
+    {
+        return batchIndex;
+    }
 }
@@ -0,0 +1,324 @@
+package com.craxiom.networksurvey.model;
+
+import com.craxiom.messaging.WifiBeaconRecord;
+import com.craxiom.messaging.WifiBeaconRecordData;
+import com.craxiom.messaging.wifi.EncryptionType;
+import com.craxiom.networksurvey.BuildConfig;
+import com.craxiom.networksurvey.constants.WifiBeaconMessageConstants;
+import com.craxiom.networksurvey.util.IOUtils;
+import com.craxiom.networksurvey.util.MathUtils;
+import com.craxiom.networksurvey.util.ProtobufValueCache;
+import com.craxiom.networksurvey.util.WifiCapabilitiesUtils;
+
+/**
+ * A compact, column oriented representation of one Wi-Fi scan batch. The fields that are shared by every record in the
+ * batch (location, device, mission, and time) are stored once, and the per access point fields are stored in parallel
+ * primitive arrays that are indexed by the position of the access point in the batch.
+ * <p>
+ * The {@link WifiBeaconRecord} protobuf message for an access point is only built when a consumer asks for it (see
+ * {@link WifiRecordWrapper#getWifiBeaconRecord()}). Consumers that only need the field values, such as the GeoPackage
+ * logger, can read them straight from the columns so a logging only session does not build any Wi-Fi protobuf messages.
+ * <p>
+ * Each index is written once by {@link #set(int, String, String, int, int, String)} before the batch is handed to the
+ * listeners, and is only read after that.
+ *
+ * @since 1.7.0
+ */
+public class WifiScanBatch
+{
+    private static final byte WPS_UNKNOWN = -1;
+    private static final byte WPS_NOT_SUPPORTED = 0;
+    private static final byte WPS_SUPPORTED = 1;
+
+    private final int firstRecordNumber;
+    private final String deviceSerialNumber;
+    private final String deviceName;
+    private final String missionId;
+    private final long deviceTimeMs;
+    private final String deviceTime;
+
+    private boolean fresh = true;
+    private boolean hasLocation;
+    private double latitude;
+    private double longitude;
+    private float altitude;
+    private int accuracy;
+
+    private final String[] bssids;
+    private final String[] ssids;
+    private final int[] signalStrengths;
+    private final int[] frequenciesMhz;
+    private final short[] channels;
+    private final EncryptionType[] encryptionTypes;
+    private final byte[] wps;
+    private final String[] capabilities;
+
+    /**
+     * @param size               The number of access points in the batch.
+     * @param firstRecordNumber  The record number of the first access point. The rest are numbered consecutively.
+     * @param deviceSerialNumber The device serial number that is set on every record.
+     * @param deviceName         The device name that is set on every record, or null if it is not set.
+     * @param missionId          The mission ID that is set on every record.
+     * @param deviceTimeMs       The scan time in milliseconds since the epoch.
+     * @param deviceTime         The scan time as an RFC 3339 string.
+     */
+    public WifiScanBatch(int size, int firstRecordNumber, String deviceSerialNumber, String deviceName,
+                         String missionId, long deviceTimeMs, String deviceTime)
+    {
+        this.firstRecordNumber = firstRecordNumber;
+        this.deviceSerialNumber = deviceSerialNumber;
+        this.deviceName = deviceName;
+        this.missionId = missionId;
+        this.deviceTimeMs = deviceTimeMs;
+        this.deviceTime = deviceTime;
+
+        bssids = new String[size];
+        ssids = new String[size];
+        signalStrengths = new int[size];
+        frequenciesMhz = new int[size];
+        channels = new short[size];
+        encryptionTypes = new EncryptionType[size];
+        wps = new byte[size];
+        capabilities = new String[size];
+    }
+
+    /**
+     * Creates a batch that holds a single access point from an already built protobuf record, so that a record that
+     * was not created from a scan can be handled the same way as the rest (e.g. written to the GeoPackage log file).
+     *
+     * @param wifiBeaconRecord The protobuf defined Wi-Fi record.
+     * @param capabilities     The Android capabilities string, or null if it is not known.
+     * @return A batch of size one.
+     */
+    public static WifiScanBatch fromRecord(WifiBeaconRecord wifiBeaconRecord, String capabilities)
+    {
+        final WifiBeaconRecordData data = wifiBeaconRecord.getData();
+        final String deviceName = data.getDeviceName();
+
+        final WifiScanBatch batch = new WifiScanBatch(1, data.getRecordNumber(), data.getDeviceSerialNumber(),
+                deviceName.isEmpty() ? null : deviceName, data.getMissionId(),
+                IOUtils.getEpochFromRfc3339(data.getDeviceTime()), data.getDeviceTime());
+        batch.setLocation(data.getLatitude(), data.getLongitude(), data.getAltitude(), data.getAccuracy());
+        batch.set(0, data.getBssid(), data.getSsid().isEmpty() ? null : data.getSsid(),
+                (int) data.getSignalStrength().getValue(),
+                data.hasFrequencyMhz() ? data.getFrequencyMhz().getValue() : 0, capabilities);
+        return batch;
+    }
+
+    /**
+     * Marks the batch as cached, which means the OS did not run a new scan and handed back the results of an earlier
+     * scan. A cached batch is still fine to display, but its access points must not be logged as new observations.
+     *
+     * @param fresh True if the batch holds the results of a new scan.
+     */
+    public void setFresh(boolean fresh)
+    {
+        this.fresh = fresh;
+    }
+
+    /**
+     * @return True if the batch holds the results of a new scan, false if it holds cached results.
+     */
+    public boolean isFresh()
+    {
+        return fresh;
+    }
+
+    /**
+     * Sets the location of the device when the scan was performed. If this is never called the records don't have a
+     * location.
+     */
+    public void setLocation(double latitude, double longitude, float altitude, float accuracy)
+    {
+        hasLocation = true;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitude = altitude;
+        this.accuracy = MathUtils.roundAccuracy(accuracy);
+    }
+
+    /**
+     * Stores the values for a single access point.
+     *
+     * @param index          The position of the access point in the batch.
+     * @param bssid          The BSSID.
+     * @param ssid           The SSID, or null if it is not known.
+     * @param signalStrength The signal strength in dBm.
+     * @param frequencyMhz   The frequency in MHz, or 0 or -1 if it is not known.
+     * @param capabilities   The Android capabilities string, or null if it is not known.
+     */
+    public void set(int index, String bssid, String ssid, int signalStrength, int frequencyMhz, String capabilities)
+    {
+        bssids[index] = bssid;
+        ssids[index] = ssid;
+        signalStrengths[index] = signalStrength;
+        frequenciesMhz[index] = frequencyMhz == -1 ? 0 : frequencyMhz;
+        channels[index] = WifiBeaconMessageConstants.convertFrequencyToChannelNumber(frequencyMhz);
+        this.capabilities[index] = capabilities;
+
+        if (capabilities != null && !capabilities.isEmpty())
+        {
+            encryptionTypes[index] = WifiCapabilitiesUtils.getEncryptionType(capabilities);
+            wps[index] = WifiCapabilitiesUtils.supportsWps(capabilities) ? WPS_SUPPORTED : WPS_NOT_SUPPORTED;
+        } else
+        {
+            encryptionTypes[index] = EncryptionType.UNKNOWN;
+            wps[index] = WPS_UNKNOWN;
+        }
+    }
+
+    public int size()
+    {
+        return bssids.length;
+    }
+
+    public boolean hasLocation()
+    {
+        return hasLocation;
+    }
+
+    public double getLatitude()
+    {
+        return latitude;
+    }
+
+    public double getLongitude()
+    {
+        return longitude;
+    }
+
+    public float getAltitude()
+    {
+        return altitude;
+    }
+
+    public int getAccuracy()
+    {
+        return accuracy;
+    }
+
+    public String getMissionId()
+    {
+        return missionId;
+    }
+
+    public long getDeviceTimeMs()
+    {
+        return deviceTimeMs;
+    }
+
+    public int getRecordNumber(int index)
+    {
+        return firstRecordNumber + index;
+    }
+
+    public String getBssid(int index)
+    {
+        return bssids[index];
+    }
+
+    /**
+     * @return The SSID, or null if it is not known.
+     */
+    public String getSsid(int index)
+    {
+        return ssids[index];
+    }
+
+    public int getSignalStrength(int index)
+    {
+        return signalStrengths[index];
+    }
+
+    /**
+     * @return The frequency in MHz, or 0 if it is not known.
+     */
+    public int getFrequencyMhz(int index)
+    {
+        return frequenciesMhz[index];
+    }
+
+    /**
+     * @return The channel number, or -1 if it is not known.
+     */
+    public short getChannel(int index)
+    {
+        return channels[index];
+    }
+
+    public EncryptionType getEncryptionType(int index)
+    {
+        return encryptionTypes[index];
+    }
+
+    public boolean hasWps(int index)
+    {
+        return wps[index] != WPS_UNKNOWN;
+    }
+
+    public boolean supportsWps(int index)
+    {
+        return wps[index] == WPS_SUPPORTED;
+    }
+
+    /**
+     * @return The Android capabilities string, or null if it is not known.
+     */
+    public String getCapabilities(int index)
+    {
+        return capabilities[index];
+    }
+
+    /**
+     * Builds the protobuf message for a single access point. This is the same message that the survey record
+     * processor used to build for every access point up front.
+     *
+     * @param index The position of the access point in the batch.
+     * @return A new Wi-Fi beacon record.
+     */
+    public WifiBeaconRecord toWifiBeaconRecord(int index)
+    {
+        final WifiBeaconRecordData.Builder dataBuilder = WifiBeaconRecordData.newBuilder();
+
+        if (hasLocation)
+        {
+            dataBuilder.setLatitude(latitude);
+            dataBuilder.setLongitude(longitude);
+            dataBuilder.setAltitude(altitude);
+            dataBuilder.setAccuracy(accuracy);
+        }
+
+        dataBuilder.setDeviceSerialNumber(deviceSerialNumber);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
+        dataBuilder.setDeviceTime(deviceTime);
+        dataBuilder.setMissionId(missionId);
+        dataBuilder.setRecordNumber(getRecordNumber(index));
+
+        dataBuilder.setBssid(bssids[index]);
+        dataBuilder.setSignalStrength(ProtobufValueCache.floatValue(signalStrengths[index]));
+
+        final String ssid = ssids[index];
+        if (ssid != null) dataBuilder.setSsid(ssid);
+
+        final short channel = channels[index];
+        if (channel != -1) dataBuilder.setChannel(ProtobufValueCache.int32Value(channel));
+
+        final int frequency = frequenciesMhz[index];
+        if (frequency != 0) dataBuilder.setFrequencyMhz(ProtobufValueCache.int32Value(frequency));
+
+        // TODO At some point it would be nice to add the Cipher Suites and AKM Suites, but I can't seem to get
+        //  enough information for that.
+
+        final EncryptionType encryptionType = encryptionTypes[index];
+        if (encryptionType != EncryptionType.UNKNOWN) dataBuilder.setEncryptionType(encryptionType);
+
+        if (hasWps(index)) dataBuilder.setWps(ProtobufValueCache.boolValue(supportsWps(index)));
+
+        final WifiBeaconRecord.Builder recordBuilder = WifiBeaconRecord.newBuilder();
+        recordBuilder.setMessageType(WifiBeaconMessageConstants.WIFI_BEACON_RECORD_MESSAGE_TYPE);
+        recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
+        recordBuilder.setData(dataBuilder);
+
+        return recordBuilder.build();
+    }
+}
@@ -4,6 +4,7 @@ import android.content.Context;
 
 import com.amazonaws.services.iot.client.AWSIotException;
 import com.amazonaws.services.iot.client.AWSIotMqttClient;
+import com.amazonaws.services.iot.client.AWSIotQos;
 import com.craxiom.messaging.BluetoothRecord;
 import com.craxiom.messaging.CdmaRecord;
 import com.craxiom.messaging.DeviceStatus;
@@ -13,7 +14,6 @@ import com.craxiom.messaging.LteRecord;
 import com.craxiom.messaging.NrRecord;
 import com.craxiom.messaging.PhoneState;
 import com.craxiom.messaging.UmtsRecord;
-import com.craxiom.messaging.WifiBeaconRecord;
 import com.craxiom.mqttlibrary.IConnectionStateListener;
 import com.craxiom.mqttlibrary.connection.BrokerConnectionInfo;
 import com.craxiom.mqttlibrary.connection.ConnectionState;
@@ -25,9 +25,13 @@ import com.craxiom.networksurvey.listeners.IGnssSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
 import com.google.protobuf.MessageOrBuilder;
-import com.google.protobuf.util.JsonFormat;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import timber.log.Timber;
 
@@ -55,34 +59,149 @@ public class MqttConnection implements ICellularSurveyRecordListener, IWifiSurve
     public static final String AWS_ACCESS_KEY_ID = "AWS_ACCESS_KEY_ID";
     public static final String AWS_SECRET_ACCESS_KEY = "AWS_SECRET_ACCESS_KEY";
 
-    private String mqttClientId = "mqttclientId";
-    private AWSIotMqttClient client;
+    private volatile AWSIotMqttClient client;
 
-    private final JsonFormat.Printer jsonFormatter;
+    private final MqttPublisher publisher;
+    private final Map<String, MqttTopicPolicy> topicPolicies = new ConcurrentHashMap<>();
+    private final Set<IConnectionStateListener> connectionStateListeners = new CopyOnWriteArraySet<>();
+    private final AtomicInteger reconnectCount = new AtomicInteger();
+    private final AtomicInteger connectionFailureCount = new AtomicInteger();
+    private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
+    private volatile boolean connectedSinceConnect;
 
     public MqttConnection() {
-        jsonFormatter = JsonFormat.printer().preservingProtoFieldNames().omittingInsignificantWhitespace();
+        this(new MqttPublisher());
+    }
+
+    /**
+     * Creates a connection that hands its messages off to the provided publisher. Used by the tests to size the
+     * publisher for their synthetic record streams.
+     */
+    MqttConnection(MqttPublisher publisher) {
+        this.publisher = publisher;
+
+        // The device status messages are low rate and are what a remote monitor uses to know the device is alive, so
+        // ask the broker to acknowledge them. The survey records are high rate and are sent fire and forget. These are
+        // the defaults until the service applies the QoS settings with setTopicQos.
+        publisher.setDefaultQos(AWSIotQos.QOS0);
+        publisher.setTopicQos(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, AWSIotQos.QOS1);
     }
 
     /**
      * Send the provided Protobuf message to the MQTT Broker.
      * <p>
-     * The Protobuf message is formatted as JSON and then published to the specified topic.
+     * The message is handed off to the {@link MqttPublisher} without blocking. The publisher thread formats the
+     * Protobuf message as JSON and then publishes it to the specified topic.
      *
      * @param mqttMessageTopic The MQTT Topic to publish the message to.
      * @param message          The Protobuf message to format as JSON and send to the MQTT Broker.
      */
     protected void publishMessage(String mqttMessageTopic, MessageOrBuilder message) {
-        try {
-            final String messageJson = jsonFormatter.print(message);
-            Timber.d("Publishing to topic " + mqttMessageTopic + " message " + messageJson);
+        final MqttTopicPolicy policy = topicPolicies.get(mqttMessageTopic);
+        if (policy != null && !policy.shouldPublish(message)) return;
+
+        publisher.enqueue(mqttMessageTopic, message);
+    }
 
-            if (client != null) {
-                client.publish(mqttMessageTopic, messageJson);
+    /**
+     * Sets the rate limit and sampling policies for each of the MQTT topics. Each cellular protocol topic gets its own
+     * instance of the cellular policy. See {@link MqttTopicPolicy#parse(String)} for the format of the specifications.
+     *
+     * @param cellularPolicy     The policy specification for the GSM, CDMA, UMTS, LTE, and NR topics.
+     * @param wifiPolicy         The policy specification for the 802.11 beacon topic.
+     * @param bluetoothPolicy    The policy specification for the Bluetooth topic.
+     * @param gnssPolicy         The policy specification for the GNSS topic.
+     * @param deviceStatusPolicy The policy specification for the device status topic.
+     * @since 1.7.0
+     */
+    public void setTopicPolicies(String cellularPolicy, String wifiPolicy, String bluetoothPolicy, String gnssPolicy,
+                                 String deviceStatusPolicy) {
+        logTopicPolicyCounters();
+
+        topicPolicies.put(MQTT_GSM_MESSAGE_TOPIC, MqttTopicPolicy.parse(cellularPolicy));
+        topicPolicies.put(MQTT_CDMA_MESSAGE_TOPIC, MqttTopicPolicy.parse(cellularPolicy));
+        topicPolicies.put(MQTT_UMTS_MESSAGE_TOPIC, MqttTopicPolicy.parse(cellularPolicy));
+        topicPolicies.put(MQTT_LTE_MESSAGE_TOPIC, MqttTopicPolicy.parse(cellularPolicy));
+        topicPolicies.put(MQTT_NR_MESSAGE_TOPIC, MqttTopicPolicy.parse(cellularPolicy));
+        topicPolicies.put(MQTT_WIFI_BEACON_MESSAGE_TOPIC, MqttTopicPolicy.parse(wifiPolicy));
+        topicPolicies.put(MQTT_BLUETOOTH_MESSAGE_TOPIC, MqttTopicPolicy.parse(bluetoothPolicy));
+        topicPolicies.put(MQTT_GNSS_MESSAGE_TOPIC, MqttTopicPolicy.parse(gnssPolicy));
+        topicPolicies.put(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, MqttTopicPolicy.parse(deviceStatusPolicy));
+    }
+
+    /**
+     * @return The current policy for each MQTT topic, which includes the kept and suppressed message counters.
+     * @since 1.7.0
+     */
+    public Map<String, MqttTopicPolicy> getTopicPolicies() {
+        return topicPolicies;
+    }
+
+    private void logTopicPolicyCounters() {
+        topicPolicies.forEach((topic, policy) -> {
+            if (policy.getKeptCount() + policy.getSuppressedCount() > 0) {
+                Timber.i("MQTT topic policy for %s: %s", topic, policy);
             }
-        } catch (Exception e) {
-            Timber.e(e, "Caught an exception when trying to send an MQTT message");
+        });
+    }
+
+    /**
+     * Sets the QoS for each of the MQTT topics. Each value is "0" (at most once) or "1" (at least once); anything else
+     * leaves the QoS of those topics unchanged.
+     *
+     * @param cellularQos     The QoS for the GSM, CDMA, UMTS, LTE, and NR topics.
+     * @param wifiQos         The QoS for the 802.11 beacon topic.
+     * @param bluetoothQos    The QoS for the Bluetooth topic.
+     * @param gnssQos         The QoS for the GNSS topic.
+     * @param deviceStatusQos The QoS for the device status topic.
+     * @since 1.7.0
+     */
+    public void setTopicQos(String cellularQos, String wifiQos, String bluetoothQos, String gnssQos,
+                            String deviceStatusQos) {
+        setTopicQos(cellularQos, MQTT_GSM_MESSAGE_TOPIC, MQTT_CDMA_MESSAGE_TOPIC, MQTT_UMTS_MESSAGE_TOPIC,
+                MQTT_LTE_MESSAGE_TOPIC, MQTT_NR_MESSAGE_TOPIC);
+        setTopicQos(wifiQos, MQTT_WIFI_BEACON_MESSAGE_TOPIC);
+        setTopicQos(bluetoothQos, MQTT_BLUETOOTH_MESSAGE_TOPIC);
+        setTopicQos(gnssQos, MQTT_GNSS_MESSAGE_TOPIC);
+        setTopicQos(deviceStatusQos, MQTT_DEVICE_STATUS_MESSAGE_TOPIC);
+    }
+
+    private void setTopicQos(String qosValue, String... mqttMessageTopics) {
+        final AWSIotQos qos;
+        switch (qosValue == null ? "" : qosValue.trim()) {
+            case "0":
+                qos = AWSIotQos.QOS0;
+                break;
+            case "1":
+                qos = AWSIotQos.QOS1;
+                break;
+            default:
+                Timber.w("Invalid MQTT QoS (%s) for %s, leaving it unchanged", qosValue, mqttMessageTopics[0]);
+                return;
         }
+
+        for (String mqttMessageTopic : mqttMessageTopics) {
+            publisher.setTopicQos(mqttMessageTopic, qos);
+        }
+    }
+
+    /**
+     * Sets the QoS to use when publishing messages to the specified topic.
+     *
+     * @param mqttMessageTopic The MQTT Topic.
+     * @param qos              The QoS to publish messages on that topic with.
+     * @since 1.7.0
+     */
+    public void setTopicQos(String mqttMessageTopic, AWSIotQos qos) {
+        publisher.setTopicQos(mqttMessageTopic, qos);
+    }
+
+    /**
+     * @return A snapshot of the publish latency, in-flight count, and failure metrics for this connection.
+     * @since 1.7.0
+     */
+    public MqttPublishMetrics getPublishMetrics() {
+        return publisher.getMetrics();
     }
 
     public void connect(BrokerConnectionInfo connectionInfo) {
@@ -91,159 +210,198 @@ public class MqttConnection implements ICellularSurveyRecordListener, IWifiSurve
         Timber.d("Mqtt host: %s", connectionInfo.getMqttBrokerHost());
         Timber.d("Client ID: %s", connectionInfo.getMqttClientId());
 
-        this.mqttClientId = connectionInfo.getMqttClientId();
+        connectedSinceConnect = false;
+        notifyConnectionStateChange(ConnectionState.CONNECTING);
 
-        //TODO - let's not do this; use either certificates instead, or require authn via Cognito and use the Amplify APIs
-        this.client = new AWSIotMqttClient(connectionInfo.getMqttBrokerHost(),
-                connectionInfo.getMqttClientId(),
-                AWS_ACCESS_KEY_ID,
-                AWS_SECRET_ACCESS_KEY);
+        this.client = createMqttClient(connectionInfo);
 
         try {
+            publisher.start(client);
             this.client.connect();
         } catch (AWSIotException e) {
             Timber.e(e, "Failed to connect to AWS IoT Core");
+            connectionFailureCount.incrementAndGet();
+            publisher.stop();
+            notifyConnectionStateChange(ConnectionState.DISCONNECTED);
         }
     }
 
     public void disconnect() {
         Timber.d("Disconnecting from MQTT server");
+        final AWSIotMqttClient currentClient = client;
+        client = null;
+
+        publisher.stop();
+        Timber.i("MQTT publish metrics at disconnect: %s", publisher.getMetrics());
+        logTopicPolicyCounters();
+
+        if (currentClient == null) return;
+
+        notifyConnectionStateChange(ConnectionState.DISCONNECTING);
         try {
-            this.client.disconnect();
+            currentClient.disconnect();
         } catch (AWSIotException e) {
             Timber.e(e, "Failed to disconnect from AWS IoT Core");
         }
+        notifyConnectionStateChange(ConnectionState.DISCONNECTED);
+    }
+
+    /**
+     * Creates the AWS IoT client for the provided connection info. The client must report its connection callbacks back
+     * to this connection, which {@link StateTrackingMqttClient} takes care of.
+     */
+    AWSIotMqttClient createMqttClient(BrokerConnectionInfo connectionInfo) {
+        //TODO - let's not do this; use either certificates instead, or require authn via Cognito and use the Amplify APIs
+        return new StateTrackingMqttClient(this, connectionInfo.getMqttBrokerHost(),
+                connectionInfo.getMqttClientId(),
+                AWS_ACCESS_KEY_ID,
+                AWS_SECRET_ACCESS_KEY);
+    }
+
+    MqttPublisher getPublisher() {
+        return publisher;
     }
 
     public ConnectionState getConnectionState() {
-        //TODO - figure this one out
-        return ConnectionState.DISCONNECTED;
+        return connectionState;
     }
 
     public void registerMqttConnectionStateListener(IConnectionStateListener connectionStateListener) {
-        //TODO - figure this one out
+        connectionStateListeners.add(connectionStateListener);
     }
 
     public void unregisterMqttConnectionStateListener(IConnectionStateListener connectionStateListener) {
-        //TODO - figure this one out
+        connectionStateListeners.remove(connectionStateListener);
+    }
+
+    /**
+     * @return The number of times the AWS IoT client re-established the connection after it was lost.
+     * @since 1.7.0
+     */
+    public int getReconnectCount() {
+        return reconnectCount.get();
     }
 
+    /**
+     * @return The number of times a connection attempt failed or an established connection was lost.
+     * @since 1.7.0
+     */
+    public int getConnectionFailureCount() {
+        return connectionFailureCount.get();
+    }
 
-    @Override
-    public void onGsmSurveyRecord(GsmRecord gsmRecord) {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null) {
-            final GsmRecord.Builder recordBuilder = gsmRecord.toBuilder();
-            gsmRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
+    /**
+     * Updates the connection state, pauses or resumes the publisher, and notifies all the registered listeners of the
+     * new connection state.
+     *
+     * @param newConnectionState The new MQTT connection state.
+     */
+    private synchronized void notifyConnectionStateChange(ConnectionState newConnectionState) {
+        if (connectionState == newConnectionState) return;
+
+        Timber.i("MQTT Connection State Changed.  oldConnectionState=%s, newConnectionState=%s, reconnects=%d, failures=%d, %s",
+                connectionState, newConnectionState, reconnectCount.get(), connectionFailureCount.get(), publisher.getMetrics());
+
+        connectionState = newConnectionState;
+
+        // There is no point in JSON encoding records while the connection is down since they would just be thrown away
+        publisher.setConnectionUp(newConnectionState == ConnectionState.CONNECTED);
+
+        for (IConnectionStateListener listener : connectionStateListeners) {
+            try {
+                listener.onConnectionStateChange(newConnectionState);
+            } catch (Exception e) {
+                Timber.e(e, "Unable to notify a MQTT Connection State Listener because of an exception");
+            }
         }
+    }
+
+    /**
+     * Called when the AWS IoT client established (or re-established) the connection.
+     */
+    void onClientConnectionSuccess(AWSIotMqttClient source) {
+        if (client != source) return;
+
+        if (connectedSinceConnect) reconnectCount.incrementAndGet();
+        connectedSinceConnect = true;
+        notifyConnectionStateChange(ConnectionState.CONNECTED);
+    }
+
+    /**
+     * Called when the AWS IoT client failed to connect or lost the connection.
+     */
+    void onClientConnectionFailure(AWSIotMqttClient source) {
+        if (client != source) return;
+
+        // The AWS IoT client automatically tries to reconnect after a failure
+        connectionFailureCount.incrementAndGet();
+        notifyConnectionStateChange(ConnectionState.CONNECTING);
+    }
+
+    /**
+     * Called when the AWS IoT client closed the connection.
+     */
+    void onClientConnectionClosed(AWSIotMqttClient source) {
+        if (client != source) return;
+
+        notifyConnectionStateChange(ConnectionState.DISCONNECTED);
+    }
 
+    // The device name is set on each record by the SurveyRecordProcessor when the record is first built, so the records
+    // are published as is instead of being rebuilt here.
+
+    @Override
+    public void onGsmSurveyRecord(GsmRecord gsmRecord) {
         publishMessage(MQTT_GSM_MESSAGE_TOPIC, gsmRecord);
     }
 
     @Override
     public void onCdmaSurveyRecord(CdmaRecord cdmaRecord) {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null) {
-            final CdmaRecord.Builder recordBuilder = cdmaRecord.toBuilder();
-            cdmaRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_CDMA_MESSAGE_TOPIC, cdmaRecord);
     }
 
     @Override
     public void onUmtsSurveyRecord(UmtsRecord umtsRecord) {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null) {
-            final UmtsRecord.Builder recordBuilder = umtsRecord.toBuilder();
-            umtsRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_UMTS_MESSAGE_TOPIC, umtsRecord);
     }
 
     @Override
     public void onLteSurveyRecord(LteRecord lteRecord) {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null) {
-            final LteRecord.Builder recordBuilder = lteRecord.toBuilder();
-            lteRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_LTE_MESSAGE_TOPIC, lteRecord);
     }
 
     @Override
     public void onNrSurveyRecord(NrRecord nrRecord) {
-        if (mqttClientId != null) {
-            final NrRecord.Builder recordBuilder = nrRecord.toBuilder();
-            nrRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_NR_MESSAGE_TOPIC, nrRecord);
     }
 
     @Override
     public void onWifiBeaconSurveyRecords(List<WifiRecordWrapper> wifiBeaconRecords) {
-        wifiBeaconRecords.forEach(wifiRecord -> {
-            WifiBeaconRecord wifiBeaconRecord = wifiRecord.getWifiBeaconRecord();
-            if (mqttClientId != null) {
-                final WifiBeaconRecord.Builder recordBuilder = wifiBeaconRecord.toBuilder();
-                wifiBeaconRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-            }
-            publishMessage(MQTT_WIFI_BEACON_MESSAGE_TOPIC, wifiBeaconRecord);
-        });
+        wifiBeaconRecords.forEach(wifiRecord -> publishMessage(MQTT_WIFI_BEACON_MESSAGE_TOPIC, wifiRecord.getWifiBeaconRecord()));
     }
 
     @Override
     public void onBluetoothSurveyRecord(BluetoothRecord bluetoothRecord) {
-        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM)
-        if (mqttClientId != null) {
-            final BluetoothRecord.Builder recordBuilder = bluetoothRecord.toBuilder();
-            bluetoothRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_BLUETOOTH_MESSAGE_TOPIC, bluetoothRecord);
     }
 
     @Override
     public void onBluetoothSurveyRecords(List<BluetoothRecord> bluetoothRecords) {
-        bluetoothRecords.forEach(bluetoothRecord -> {
-            if (mqttClientId != null) {
-                final BluetoothRecord.Builder recordBuilder = bluetoothRecord.toBuilder();
-                bluetoothRecord = recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-            }
-            publishMessage(MQTT_BLUETOOTH_MESSAGE_TOPIC, bluetoothRecord);
-        });
+        bluetoothRecords.forEach(bluetoothRecord -> publishMessage(MQTT_BLUETOOTH_MESSAGE_TOPIC, bluetoothRecord));
     }
 
     @Override
     public void onGnssSurveyRecord(GnssRecord gnssRecord) {
-        if (mqttClientId != null) {
-            final GnssRecord.Builder gnssRecordBuilder = gnssRecord.toBuilder();
-            gnssRecord = gnssRecordBuilder.setData(gnssRecordBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_GNSS_MESSAGE_TOPIC, gnssRecord);
     }
 
     @Override
     public void onDeviceStatus(DeviceStatus deviceStatus) {
-        if (mqttClientId != null) {
-            final DeviceStatus.Builder deviceStatusBuilder = deviceStatus.toBuilder();
-            deviceStatus = deviceStatusBuilder.setData(deviceStatusBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, deviceStatus);
     }
 
     @Override
     public void onPhoneState(PhoneState phoneState) {
-        if (mqttClientId != null) {
-            final PhoneState.Builder messageBuilder = phoneState.toBuilder();
-            phoneState = messageBuilder.setData(messageBuilder.getDataBuilder().setDeviceName(mqttClientId)).build();
-        }
-
         publishMessage(MQTT_DEVICE_STATUS_MESSAGE_TOPIC, phoneState);
     }
-}
\ No newline at end of file
+}
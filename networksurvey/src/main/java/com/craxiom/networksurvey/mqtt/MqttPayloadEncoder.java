@@ -0,0 +1,30 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.google.protobuf.MessageOrBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Turns the survey messages for a single MQTT publish into the publish payload.
+ * <p>
+ * The app always publishes each message on its own as JSON (see {@link MqttPublisher}). This is a seam for the uplink
+ * benchmark, which plugs in other wire formats and batch sizes to measure them against the JSON format without them
+ * being part of the app.
+ *
+ * @since 1.7.0
+ */
+interface MqttPayloadEncoder
+{
+    /**
+     * @return The maximum number of consecutive queued messages for the same topic that are passed to
+     * {@link #encode(List)} together.
+     */
+    int getMaxBatchSize();
+
+    /**
+     * @param messages Between one and {@link #getMaxBatchSize()} messages, all for the same topic.
+     * @return The MQTT publish payload.
+     */
+    byte[] encode(List<MessageOrBuilder> messages) throws IOException;
+}
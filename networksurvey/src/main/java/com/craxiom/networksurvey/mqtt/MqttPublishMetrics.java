@@ -0,0 +1,184 @@
+package com.craxiom.networksurvey.mqtt;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An immutable snapshot of the metrics reported by the {@link MqttPublisher}.
+ *
+ * @since 1.7.0
+ */
+public class MqttPublishMetrics
+{
+    private final long publishedCount;
+    private final long failedCount;
+    private final long timedOutCount;
+    private final long droppedCount;
+    private final long skippedOfflineCount;
+    private final int inFlightCount;
+    private final int queuedCount;
+    private final long packetCount;
+    private final long payloadBytes;
+    private final long averageLatencyMs;
+    private final long maxLatencyMs;
+    private final long p50LatencyMicros;
+    private final long p99LatencyMicros;
+
+    MqttPublishMetrics(long publishedCount, long failedCount, long timedOutCount, long droppedCount,
+                       long skippedOfflineCount, int inFlightCount, int queuedCount, long packetCount, long payloadBytes,
+                       long averageLatencyMs, long maxLatencyMs, long p50LatencyMicros, long p99LatencyMicros)
+    {
+        this.publishedCount = publishedCount;
+        this.failedCount = failedCount;
+        this.timedOutCount = timedOutCount;
+        this.droppedCount = droppedCount;
+        this.skippedOfflineCount = skippedOfflineCount;
+        this.inFlightCount = inFlightCount;
+        this.queuedCount = queuedCount;
+        this.packetCount = packetCount;
+        this.payloadBytes = payloadBytes;
+        this.averageLatencyMs = averageLatencyMs;
+        this.maxLatencyMs = maxLatencyMs;
+        this.p50LatencyMicros = p50LatencyMicros;
+        this.p99LatencyMicros = p99LatencyMicros;
+    }
+
+    /**
+     * @return The number of messages that the broker (or network layer for QoS 0) acknowledged.
+     */
+    public long getPublishedCount()
+    {
+        return publishedCount;
+    }
+
+    /**
+     * @return The number of messages that failed to publish.
+     */
+    public long getFailedCount()
+    {
+        return failedCount;
+    }
+
+    /**
+     * @return The number of messages that were not acknowledged before the publish timeout.
+     */
+    public long getTimedOutCount()
+    {
+        return timedOutCount;
+    }
+
+    /**
+     * @return The number of messages dropped because the hand-off queue was full.
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount;
+    }
+
+    /**
+     * @return The number of messages that were skipped without being encoded because the connection was down.
+     */
+    public long getSkippedOfflineCount()
+    {
+        return skippedOfflineCount;
+    }
+
+    /**
+     * @return The fraction of completed publishes that succeeded, between 0 and 1, or 1 if nothing has completed yet.
+     */
+    public double getSuccessRate()
+    {
+        final long completed = publishedCount + failedCount + timedOutCount;
+        return completed == 0 ? 1 : (double) publishedCount / completed;
+    }
+
+    /**
+     * @return The fraction of completed publishes that failed or timed out, between 0 and 1.
+     */
+    public double getFailureRate()
+    {
+        return 1 - getSuccessRate();
+    }
+
+    /**
+     * @return The number of messages that have been published but not yet acknowledged.
+     */
+    public int getInFlightCount()
+    {
+        return inFlightCount;
+    }
+
+    /**
+     * @return The number of messages waiting in the hand-off queue.
+     */
+    public int getQueuedCount()
+    {
+        return queuedCount;
+    }
+
+    /**
+     * @return The number of MQTT publish packets sent. This is less than the number of messages when batching.
+     */
+    public long getPacketCount()
+    {
+        return packetCount;
+    }
+
+    /**
+     * @return The total size of the encoded MQTT payloads that were handed to the client.
+     */
+    public long getPayloadBytes()
+    {
+        return payloadBytes;
+    }
+
+    /**
+     * @return The average time from publish to acknowledgement for the successfully published messages.
+     */
+    public long getAverageLatencyMs()
+    {
+        return averageLatencyMs;
+    }
+
+    /**
+     * @return The longest time from publish to acknowledgement for the successfully published messages.
+     */
+    public long getMaxLatencyMs()
+    {
+        return maxLatencyMs;
+    }
+
+    /**
+     * @return The median time from publish to acknowledgement, rounded up to a power of two microseconds.
+     */
+    public long getP50LatencyMicros()
+    {
+        return p50LatencyMicros;
+    }
+
+    /**
+     * @return The 99th percentile time from publish to acknowledgement, rounded up to a power of two microseconds.
+     */
+    public long getP99LatencyMicros()
+    {
+        return p99LatencyMicros;
+    }
+
+    @NonNull
+    @Override
+    public String toString()
+    {
+        return "published=" + publishedCount +
+                ", failed=" + failedCount +
+                ", timedOut=" + timedOutCount +
+                ", dropped=" + droppedCount +
+                ", skippedOffline=" + skippedOfflineCount +
+                ", inFlight=" + inFlightCount +
+                ", queued=" + queuedCount +
+                ", packets=" + packetCount +
+                ", payloadBytes=" + payloadBytes +
+                ", avgLatencyMs=" + averageLatencyMs +
+                ", maxLatencyMs=" + maxLatencyMs +
+                ", p50LatencyUs=" + p50LatencyMicros +
+                ", p99LatencyUs=" + p99LatencyMicros;
+    }
+}
@@ -0,0 +1,380 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.amazonaws.services.iot.client.AWSIotMessage;
+import com.amazonaws.services.iot.client.AWSIotMqttClient;
+import com.amazonaws.services.iot.client.AWSIotQos;
+import com.craxiom.networksurvey.util.LatencyHistogram;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.util.JsonFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * A dedicated publish stage for the MQTT connection.
+ * <p>
+ * The survey record listener methods hand messages off to this class without blocking, which means a slow broker no
+ * longer holds up the {@link com.craxiom.networksurvey.services.SurveyRecordProcessor} notification fan-out. A single
+ * publisher thread drains the hand-off queue, formats each message as JSON, and publishes it asynchronously. The number
+ * of messages that are published but not yet acknowledged is bounded by an in-flight window.
+ * <p>
+ * Each message is published on its own as JSON. The uplink benchmark swaps in other payload encoders through the
+ * package-private constructor to compare wire formats and batching, but the app does not use them.
+ * <p>
+ * The publisher thread does not come from the service's executor registry. It is started and stopped with every MQTT
+ * connection, while the registry pools live as long as the service and can't be restarted once they are shut down.
+ *
+ * @since 1.7.0
+ */
+public class MqttPublisher
+{
+    static final int DEFAULT_QUEUE_CAPACITY = 1_000;
+    static final int DEFAULT_MAX_IN_FLIGHT = 32;
+    private static final long PUBLISH_TIMEOUT_MS = 10_000;
+    private static final long QUEUE_POLL_TIMEOUT_MS = 500;
+    private static final int METRICS_LOG_INTERVAL = 1_000;
+
+    private final BlockingQueue<PendingMessage> handOffQueue;
+    private final Semaphore inFlightPermits;
+    private final Map<String, AWSIotQos> topicQos = new ConcurrentHashMap<>();
+    private final MqttPayloadEncoder payloadEncoder;
+    private final Object connectionLock = new Object();
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong skippedOfflineCount = new AtomicLong();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong packetCount = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    private volatile AWSIotQos defaultQos = AWSIotQos.QOS0;
+    private volatile AWSIotMqttClient client;
+    private volatile boolean running;
+    private volatile boolean connectionUp;
+    private ExecutorService publishExecutor;
+
+    public MqttPublisher()
+    {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param queueCapacity The maximum number of messages that can wait to be published. Once full, the oldest waiting
+     *                      message is dropped to make room for the newest one.
+     * @param maxInFlight   The maximum number of messages that can be published but not yet acknowledged.
+     */
+    public MqttPublisher(int queueCapacity, int maxInFlight)
+    {
+        this(queueCapacity, maxInFlight, new JsonPayloadEncoder());
+    }
+
+    /**
+     * Creates a publisher with a different payload encoder, which the uplink benchmark uses to compare wire formats.
+     */
+    MqttPublisher(int queueCapacity, int maxInFlight, MqttPayloadEncoder payloadEncoder)
+    {
+        handOffQueue = new ArrayBlockingQueue<>(queueCapacity);
+        inFlightPermits = new Semaphore(maxInFlight);
+        this.payloadEncoder = payloadEncoder;
+    }
+
+    /**
+     * Sets the QoS to use for the specified topic. Topics without a specific QoS use the default QoS.
+     *
+     * @param topic The MQTT topic.
+     * @param qos   The QoS to publish messages on that topic with.
+     */
+    public void setTopicQos(String topic, AWSIotQos qos)
+    {
+        topicQos.put(topic, qos);
+    }
+
+    /**
+     * @param qos The QoS to use for any topics that don't have a specific QoS set.
+     */
+    public void setDefaultQos(AWSIotQos qos)
+    {
+        defaultQos = qos;
+    }
+
+    /**
+     * Starts the publisher thread that sends the queued messages using the provided client.
+     *
+     * @param client The connected AWS IoT client to publish messages with.
+     */
+    public synchronized void start(AWSIotMqttClient client)
+    {
+        this.client = client;
+        if (running) return;
+
+        running = true;
+        publishExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "MQTT Publisher"));
+        publishExecutor.execute(this::drainQueue);
+    }
+
+    /**
+     * Pauses or resumes publishing based on the state of the MQTT connection. While the connection is down, new
+     * messages are skipped before they are JSON encoded, and any messages already in the hand-off queue wait there
+     * until the connection comes back up.
+     *
+     * @param connectionUp True if the MQTT connection is established, false otherwise.
+     * @since 1.7.0
+     */
+    public void setConnectionUp(boolean connectionUp)
+    {
+        synchronized (connectionLock)
+        {
+            this.connectionUp = connectionUp;
+            connectionLock.notifyAll();
+        }
+    }
+
+    /**
+     * Stops the publisher thread and discards any messages that have not been published yet.
+     */
+    public synchronized void stop()
+    {
+        running = false;
+        client = null;
+
+        if (publishExecutor != null)
+        {
+            publishExecutor.shutdownNow();
+            publishExecutor = null;
+        }
+
+        final int discarded = handOffQueue.size();
+        handOffQueue.clear();
+        if (discarded > 0) Timber.i("Discarded %d MQTT messages that were waiting to be published", discarded);
+    }
+
+    /**
+     * Hands off a message to the publisher thread. This method never blocks. If the hand-off queue is full then the
+     * oldest waiting message is dropped. If the connection is down then the message is skipped.
+     *
+     * @param topic   The MQTT topic to publish the message to.
+     * @param message The Protobuf message to format as JSON and send to the MQTT Broker.
+     */
+    public void enqueue(String topic, MessageOrBuilder message)
+    {
+        if (!running) return;
+
+        if (!connectionUp)
+        {
+            skippedOfflineCount.incrementAndGet();
+            return;
+        }
+
+        final PendingMessage pendingMessage = new PendingMessage(topic, message);
+        while (!handOffQueue.offer(pendingMessage))
+        {
+            if (handOffQueue.poll() != null) droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return A snapshot of the current publish metrics.
+     */
+    public MqttPublishMetrics getMetrics()
+    {
+        final long published = publishedCount.get();
+        return new MqttPublishMetrics(published, failedCount.get(), timedOutCount.get(), droppedCount.get(),
+                skippedOfflineCount.get(), inFlightCount.get(), handOffQueue.size(), packetCount.get(), payloadBytes.get(),
+                published == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / published),
+                TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()),
+                latencyHistogram.getPercentileMicros(50), latencyHistogram.getPercentileMicros(99));
+    }
+
+    /**
+     * Runs on the publisher thread and publishes each queued message once there is room in the in-flight window.
+     */
+    private void drainQueue()
+    {
+        while (running)
+        {
+            try
+            {
+                if (!connectionUp)
+                {
+                    synchronized (connectionLock)
+                    {
+                        if (!connectionUp) connectionLock.wait(QUEUE_POLL_TIMEOUT_MS);
+                    }
+                    continue;
+                }
+
+                final PendingMessage pendingMessage = handOffQueue.poll(QUEUE_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (pendingMessage == null) continue;
+
+                final int maxBatchSize = payloadEncoder.getMaxBatchSize();
+                final List<MessageOrBuilder> messages;
+                if (maxBatchSize <= 1)
+                {
+                    messages = Collections.singletonList(pendingMessage.message);
+                } else
+                {
+                    messages = new ArrayList<>(maxBatchSize);
+                    messages.add(pendingMessage.message);
+                    while (messages.size() < maxBatchSize)
+                    {
+                        final PendingMessage next = handOffQueue.peek();
+                        if (next == null || !next.topic.equals(pendingMessage.topic)) break;
+                        messages.add(handOffQueue.poll().message);
+                    }
+                }
+
+                inFlightPermits.acquire();
+                publish(pendingMessage.topic, messages);
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t)
+            {
+                Timber.e(t, "Unexpected error in the MQTT publisher thread");
+            }
+        }
+    }
+
+    private void publish(String topic, List<MessageOrBuilder> messages)
+    {
+        final AWSIotMqttClient currentClient = client;
+        if (currentClient == null)
+        {
+            inFlightPermits.release();
+            return;
+        }
+
+        // Counted before anything that can throw, since the failure path below always takes the messages back out
+        final int messageCount = messages.size();
+        inFlightCount.addAndGet(messageCount);
+        try
+        {
+            final AWSIotQos qos = topicQos.getOrDefault(topic, defaultQos);
+            final byte[] payload = payloadEncoder.encode(messages);
+            final TrackedMessage mqttMessage = new TrackedMessage(topic, qos, payload, messageCount);
+            payloadBytes.addAndGet(payload.length);
+
+            packetCount.incrementAndGet();
+            currentClient.publish(mqttMessage, PUBLISH_TIMEOUT_MS);
+        } catch (Exception e)
+        {
+            Timber.e(e, "Caught an exception when trying to send an MQTT message");
+            onPublishComplete(System.nanoTime(), messageCount, failedCount);
+        }
+    }
+
+    private void onPublishComplete(long startNanos, int messageCount, AtomicLong outcomeCounter)
+    {
+        inFlightCount.addAndGet(-messageCount);
+        inFlightPermits.release();
+
+        outcomeCounter.addAndGet(messageCount);
+        if (outcomeCounter != publishedCount) return;
+
+        final long latencyNanos = System.nanoTime() - startNanos;
+        totalLatencyNanos.addAndGet(latencyNanos * messageCount);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        latencyHistogram.record(latencyNanos);
+
+        final long published = publishedCount.get();
+        if (published / METRICS_LOG_INTERVAL != (published - messageCount) / METRICS_LOG_INTERVAL)
+        {
+            Timber.i("MQTT publish metrics: %s", getMetrics());
+        }
+    }
+
+    /**
+     * A message waiting in the hand-off queue. The JSON formatting is deferred until the message is published so that
+     * it happens on the publisher thread.
+     */
+    private static final class PendingMessage
+    {
+        private final String topic;
+        private final MessageOrBuilder message;
+
+        private PendingMessage(String topic, MessageOrBuilder message)
+        {
+            this.topic = topic;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Formats each message as compact JSON with the proto field names, which is the format the MQTT subscribers expect.
+     */
+    private static final class JsonPayloadEncoder implements MqttPayloadEncoder
+    {
+        private final JsonFormat.Printer jsonFormatter = JsonFormat.printer()
+                .preservingProtoFieldNames()
+                .omittingInsignificantWhitespace();
+
+        @Override
+        public int getMaxBatchSize()
+        {
+            return 1;
+        }
+
+        @Override
+        public byte[] encode(List<MessageOrBuilder> messages) throws IOException
+        {
+            return jsonFormatter.print(messages.get(0)).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * An AWS IoT message that reports the outcome of the asynchronous publish back to this publisher. With a batching
+     * payload encoder, a single tracked message carries several survey records.
+     */
+    private final class TrackedMessage extends AWSIotMessage
+    {
+        private final long startNanos = System.nanoTime();
+        private final int messageCount;
+
+        private TrackedMessage(String topic, AWSIotQos qos, byte[] payload, int messageCount)
+        {
+            super(topic, qos, payload);
+            this.messageCount = messageCount;
+        }
+
+        @Override
+        public void onSuccess()
+        {
+            onPublishComplete(startNanos, messageCount, publishedCount);
+        }
+
+        @Override
+        public void onFailure()
+        {
+            Timber.w("Failed to publish an MQTT message to %s: %s", getTopic(), getErrorMessage());
+            onPublishComplete(startNanos, messageCount, failedCount);
+        }
+
+        @Override
+        public void onTimeout()
+        {
+            Timber.w("Timed out publishing an MQTT message to %s", getTopic());
+            onPublishComplete(startNanos, messageCount, timedOutCount);
+        }
+    }
+}
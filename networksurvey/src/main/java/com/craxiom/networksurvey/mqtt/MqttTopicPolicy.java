@@ -0,0 +1,412 @@
+package com.craxiom.networksurvey.mqtt;
+
+import androidx.annotation.NonNull;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.MessageOrBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * A policy that decides if a message should be published to an MQTT topic. Policies are applied before the message is
+ * handed to the {@link MqttPublisher}, which means suppressed messages are never JSON encoded. Local logging is not
+ * affected by these policies.
+ * <p>
+ * A policy is created from a short specification string so that it can be set from a user preference or the MDM
+ * managed configuration:
+ * <ul>
+ *     <li>{@code all} (or empty) - Publish every message.</li>
+ *     <li>{@code rate:<messages per second>[:<burst>]} - Token bucket rate limit.</li>
+ *     <li>{@code sample:<N>} - Publish 1 in every N messages.</li>
+ *     <li>{@code change[:<heartbeat seconds>]} - Only publish a message the first time a cell, access point, device,
+ *     or satellite is seen, when its configuration (e.g. the provider, SSID, encryption type, or advertised name)
+ *     changes, or when nothing was published for it within the heartbeat interval (60 seconds by default, 0 for no
+ *     heartbeat). Measurements such as signal strength, as well as timestamps, locations, and record numbers, are not
+ *     compared. The heartbeat keeps messages that rarely change, such as the device status, from being suppressed
+ *     forever.</li>
+ * </ul>
+ * <p>
+ * The change policy runs for every message on the topic, so it reads only the fields it compares instead of building
+ * a map or list of the message fields. The identity and configuration fields are looked up once per message type, and
+ * each entity is tracked by a 64-bit hash of its identity fields in a fixed size table. A hash collision, or an entity that was evicted from the table, is treated as
+ * a new entity and published.
+ *
+ * @since 1.7.0
+ */
+public class MqttTopicPolicy
+{
+    public enum Mode
+    {
+        ALL,
+        RATE_LIMIT,
+        SAMPLE,
+        ON_CHANGE
+    }
+
+    /**
+     * The record data fields that identify the cell, access point, device, or satellite a record is for.
+     */
+    private static final Set<String> IDENTITY_FIELDS = new HashSet<>(Arrays.asList(
+            "mcc", "mnc", "lac", "tac", "ci", "cid", "eci", "nci", "sid", "nid", "bsid", "arfcn", "earfcn", "uarfcn",
+            "narfcn", "channel", "bsic", "pci", "psc", "serving_cell", "bssid", "source_address", "constellation",
+            "space_vehicle_id", "carrier_freq_hz"));
+
+    /**
+     * The record data fields that describe the configuration of the cell, access point, device, or satellite. Only
+     * these fields are compared when checking if a record changed; every other field (signal measurements, times,
+     * locations, record numbers) is expected to change from one record to the next.
+     */
+    private static final Set<String> CONFIGURATION_FIELDS = new HashSet<>(Arrays.asList(
+            "provider", "lte_bandwidth", "ssid", "encryption_type", "wps", "frequency_mhz", "cipher_suites",
+            "akm_suites", "node_type", "standard", "passpoint", "ota_device_name", "supported_technologies",
+            "technology", "tx_power", "used_in_solution", "sim_state", "sim_operator", "device_model"));
+
+    private static final long DEFAULT_CHANGE_HEARTBEAT_SECONDS = 60;
+
+    /**
+     * The size of the entity table for the change policy. Must be a power of two.
+     */
+    private static final int MAX_TRACKED_ENTITIES = 2_048;
+
+    /**
+     * The number of consecutive table slots an entity can be stored in, starting at the slot its hash maps to.
+     */
+    private static final int ENTITY_PROBE_LENGTH = 8;
+
+    private final Mode mode;
+    private final double tokensPerNanosecond;
+    private final double burstSize;
+    private final int sampleInterval;
+    private final long heartbeatNanos;
+
+    private final AtomicLong keptCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    private double availableTokens;
+    private long lastRefillNanos;
+    private long sampleCounter;
+
+    // The change policy state, only allocated for that mode. The tables are indexed by the entity slot.
+    private final Map<Descriptors.Descriptor, ChangeFields> changeFieldsByType;
+    private final long[] entityKeys;
+    private final long[] entityConfigurations;
+    private final long[] entityPublishedNanos;
+    private final boolean[] entityTracked;
+
+    private MqttTopicPolicy(Mode mode, double messagesPerSecond, double burstSize, int sampleInterval, long heartbeatSeconds)
+    {
+        this.mode = mode;
+        this.tokensPerNanosecond = messagesPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burstSize = burstSize;
+        this.sampleInterval = sampleInterval;
+        this.heartbeatNanos = TimeUnit.SECONDS.toNanos(heartbeatSeconds);
+
+        availableTokens = burstSize;
+        lastRefillNanos = System.nanoTime();
+
+        final boolean onChange = mode == Mode.ON_CHANGE;
+        changeFieldsByType = onChange ? new HashMap<>() : null;
+        entityKeys = onChange ? new long[MAX_TRACKED_ENTITIES] : null;
+        entityConfigurations = onChange ? new long[MAX_TRACKED_ENTITIES] : null;
+        entityPublishedNanos = onChange ? new long[MAX_TRACKED_ENTITIES] : null;
+        entityTracked = onChange ? new boolean[MAX_TRACKED_ENTITIES] : null;
+    }
+
+    /**
+     * @return A policy that publishes every message.
+     */
+    public static MqttTopicPolicy all()
+    {
+        return new MqttTopicPolicy(Mode.ALL, 0, 0, 1, 0);
+    }
+
+    /**
+     * @param messagesPerSecond The sustained number of messages per second to allow.
+     * @param burstSize         The number of messages that can be published back to back before the rate applies.
+     * @return A token bucket policy.
+     */
+    public static MqttTopicPolicy rateLimit(double messagesPerSecond, double burstSize)
+    {
+        return new MqttTopicPolicy(Mode.RATE_LIMIT, messagesPerSecond, Math.max(1, burstSize), 1, 0);
+    }
+
+    /**
+     * @param sampleInterval Publish 1 out of every {@code sampleInterval} messages.
+     * @return A 1-in-N sampling policy.
+     */
+    public static MqttTopicPolicy sample(int sampleInterval)
+    {
+        return new MqttTopicPolicy(Mode.SAMPLE, 0, 0, Math.max(1, sampleInterval), 0);
+    }
+
+    /**
+     * @return A policy that only publishes a message for a new entity, when the configuration fields of an entity
+     * changed since its last published message, or when nothing was published for the entity within the default
+     * heartbeat interval.
+     */
+    public static MqttTopicPolicy onChange()
+    {
+        return onChange(DEFAULT_CHANGE_HEARTBEAT_SECONDS);
+    }
+
+    /**
+     * @param heartbeatSeconds Publish a message for an entity that did not change if nothing was published for it in
+     *                         this many seconds, or 0 to only publish changes.
+     * @return A policy that only publishes a message for a new entity, when the configuration fields of an entity
+     * changed since its last published message, or when the heartbeat interval elapsed.
+     */
+    public static MqttTopicPolicy onChange(long heartbeatSeconds)
+    {
+        return new MqttTopicPolicy(Mode.ON_CHANGE, 0, 0, 1, Math.max(0, heartbeatSeconds));
+    }
+
+    /**
+     * Creates a policy from the specification string described in the class documentation. If the specification
+     * can't be parsed then a policy that publishes every message is returned.
+     *
+     * @param specification The policy specification, for example "rate:2:5", "sample:10", or "change:300".
+     * @return The policy for the specification.
+     */
+    public static MqttTopicPolicy parse(String specification)
+    {
+        if (specification == null || specification.trim().isEmpty()) return all();
+
+        final String[] parts = specification.trim().toLowerCase().split(":");
+        try
+        {
+            switch (parts[0])
+            {
+                case "all":
+                    return all();
+                case "rate":
+                    final double messagesPerSecond = Double.parseDouble(parts[1]);
+                    if (messagesPerSecond <= 0) break;
+                    return rateLimit(messagesPerSecond, parts.length > 2 ? Double.parseDouble(parts[2]) : messagesPerSecond);
+                case "sample":
+                    return sample(Integer.parseInt(parts[1]));
+                case "change":
+                    return parts.length > 1 ? onChange(Long.parseLong(parts[1])) : onChange();
+                default:
+            }
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not parse the MQTT topic policy %s", specification);
+        }
+
+        Timber.w("Invalid MQTT topic policy (%s), publishing all messages instead", specification);
+        return all();
+    }
+
+    /**
+     * Decides if the provided message should be published, and updates the kept and suppressed counters.
+     *
+     * @param message The survey record that is about to be published.
+     * @return True if the message should be published, false if it should be suppressed.
+     */
+    public boolean shouldPublish(MessageOrBuilder message)
+    {
+        final boolean keep;
+        synchronized (this)
+        {
+            switch (mode)
+            {
+                case RATE_LIMIT:
+                    keep = tryAcquireToken();
+                    break;
+                case SAMPLE:
+                    keep = sampleCounter++ % sampleInterval == 0;
+                    break;
+                case ON_CHANGE:
+                    keep = hasChanged(message);
+                    break;
+                case ALL:
+                default:
+                    keep = true;
+            }
+        }
+
+        if (keep)
+        {
+            keptCount.incrementAndGet();
+        } else
+        {
+            suppressedCount.incrementAndGet();
+        }
+
+        return keep;
+    }
+
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * @return The number of messages this policy allowed to be published.
+     */
+    public long getKeptCount()
+    {
+        return keptCount.get();
+    }
+
+    /**
+     * @return The number of messages this policy suppressed.
+     */
+    public long getSuppressedCount()
+    {
+        return suppressedCount.get();
+    }
+
+    @NonNull
+    @Override
+    public String toString()
+    {
+        return mode + " (kept=" + keptCount.get() + ", suppressed=" + suppressedCount.get() + ")";
+    }
+
+    private boolean tryAcquireToken()
+    {
+        final long now = System.nanoTime();
+        availableTokens = Math.min(burstSize, availableTokens + (now - lastRefillNanos) * tokensPerNanosecond);
+        lastRefillNanos = now;
+
+        if (availableTokens < 1) return false;
+
+        availableTokens -= 1;
+        return true;
+    }
+
+    private boolean hasChanged(MessageOrBuilder message)
+    {
+        final ChangeFields fields = getChangeFields(message.getDescriptorForType());
+        final MessageOrBuilder data = fields.dataField == null ? message : (MessageOrBuilder) message.getField(fields.dataField);
+
+        final long key = hashFields(fields.typeHash, data, fields.identityFields);
+        final long configuration = hashFields(0, data, fields.configurationFields);
+        final long now = System.nanoTime();
+
+        // Look for the entity in its probe window, and otherwise replace the least recently published slot there
+        final int firstSlot = (int) mix(key) & (MAX_TRACKED_ENTITIES - 1);
+        int slot = -1;
+        for (int i = 0; i < ENTITY_PROBE_LENGTH; i++)
+        {
+            final int candidate = (firstSlot + i) & (MAX_TRACKED_ENTITIES - 1);
+            if (entityTracked[candidate] && entityKeys[candidate] == key)
+            {
+                if (entityConfigurations[candidate] == configuration
+                        && (heartbeatNanos == 0 || now - entityPublishedNanos[candidate] < heartbeatNanos))
+                {
+                    return false;
+                }
+                slot = candidate;
+                break;
+            }
+
+            if (slot == -1 || (entityTracked[slot]
+                    && (!entityTracked[candidate] || entityPublishedNanos[candidate] < entityPublishedNanos[slot])))
+            {
+                slot = candidate;
+            }
+        }
+
+        entityTracked[slot] = true;
+        entityKeys[slot] = key;
+        entityConfigurations[slot] = configuration;
+        entityPublishedNanos[slot] = now;
+        return true;
+    }
+
+    private ChangeFields getChangeFields(Descriptors.Descriptor recordType)
+    {
+        ChangeFields fields = changeFieldsByType.get(recordType);
+        if (fields == null)
+        {
+            fields = new ChangeFields(recordType);
+            changeFieldsByType.put(recordType, fields);
+        }
+        return fields;
+    }
+
+    /**
+     * Combines the values of the provided fields into a 64-bit hash. Unset fields are included as 0, so that a field
+     * being cleared counts as a change.
+     */
+    private static long hashFields(long seed, MessageOrBuilder data, Descriptors.FieldDescriptor[] fields)
+    {
+        long hash = seed;
+        for (Descriptors.FieldDescriptor field : fields)
+        {
+            if (field.isRepeated())
+            {
+                final int count = data.getRepeatedFieldCount(field);
+                hash = hash * 31 + count;
+                for (int i = 0; i < count; i++)
+                {
+                    hash = hash * 31 + data.getRepeatedField(field, i).hashCode();
+                }
+            } else
+            {
+                hash = hash * 31 + (data.hasField(field) ? data.getField(field).hashCode() : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of the hash so that similar identities (e.g. neighboring PCIs) map to different table slots.
+     */
+    private static long mix(long hash)
+    {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * The fields the change policy compares for one survey record type, looked up once from the protobuf descriptors.
+     */
+    private static final class ChangeFields
+    {
+        /**
+         * The "data" sub-message field of the survey record, or null if the fields are on the record itself.
+         */
+        private final Descriptors.FieldDescriptor dataField;
+        private final Descriptors.FieldDescriptor[] identityFields;
+        private final Descriptors.FieldDescriptor[] configurationFields;
+        private final long typeHash;
+
+        private ChangeFields(Descriptors.Descriptor recordType)
+        {
+            final Descriptors.FieldDescriptor field = recordType.findFieldByName("data");
+            dataField = field != null && field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE ? field : null;
+
+            final Descriptors.Descriptor dataType = dataField == null ? recordType : dataField.getMessageType();
+            final List<Descriptors.FieldDescriptor> identity = new ArrayList<>();
+            final List<Descriptors.FieldDescriptor> configuration = new ArrayList<>();
+            for (Descriptors.FieldDescriptor dataTypeField : dataType.getFields())
+            {
+                if (IDENTITY_FIELDS.contains(dataTypeField.getName()))
+                {
+                    identity.add(dataTypeField);
+                } else if (CONFIGURATION_FIELDS.contains(dataTypeField.getName()))
+                {
+                    configuration.add(dataTypeField);
+                }
+            }
+
+            identityFields = identity.toArray(new Descriptors.FieldDescriptor[0]);
+            configurationFields = configuration.toArray(new Descriptors.FieldDescriptor[0]);
+            typeHash = recordType.getFullName().hashCode();
+        }
+    }
+}
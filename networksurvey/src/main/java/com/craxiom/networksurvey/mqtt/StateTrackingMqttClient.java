@@ -0,0 +1,37 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.amazonaws.services.iot.client.AWSIotMqttClient;
+
+/**
+ * An AWS IoT client that reports its connection callbacks back to the {@link MqttConnection} so that the connection
+ * state reflects what is actually happening with the underlying client, including its automatic reconnects.
+ *
+ * @since 1.7.0
+ */
+class StateTrackingMqttClient extends AWSIotMqttClient {
+    private final MqttConnection mqttConnection;
+
+    StateTrackingMqttClient(MqttConnection mqttConnection, String clientEndpoint, String clientId,
+                            String awsAccessKeyId, String awsSecretAccessKey) {
+        super(clientEndpoint, clientId, awsAccessKeyId, awsSecretAccessKey);
+        this.mqttConnection = mqttConnection;
+    }
+
+    @Override
+    public void onConnectionSuccess() {
+        super.onConnectionSuccess();
+        mqttConnection.onClientConnectionSuccess(this);
+    }
+
+    @Override
+    public void onConnectionFailure() {
+        super.onConnectionFailure();
+        mqttConnection.onClientConnectionFailure(this);
+    }
+
+    @Override
+    public void onConnectionClosed() {
+        super.onConnectionClosed();
+        mqttConnection.onClientConnectionClosed(this);
+    }
+}
@@ -0,0 +1,185 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds all the Bluetooth sightings in one scan interval (the BLE batch results and the classic discovery results) into
+ * a single sighting per device address, so that a device seen many times in an interval only produces one record.
+ * <p>
+ * For each address the maximum and mean RSSI, the number of sightings, the latest TX power, and whether it was seen by
+ * the classic discovery and/or the BLE scanner are tracked. The map, the list, and the sighting objects are all reused
+ * from interval to interval, so once the map has grown to the number of devices around, merging does not allocate.
+ * <p>
+ * This class is not thread safe. It is only used from the Bluetooth work queue in {@link SurveyRecordProcessor}, which
+ * processes one result at a time.
+ *
+ * @param <D> The type of the device object that is kept for creating the record (a {@code BluetoothDevice} in the app).
+ * @since 1.7.0
+ */
+class BluetoothSightingMerger<D>
+{
+    /**
+     * Receives the merged sighting for each address when an interval is flushed.
+     */
+    interface SightingConsumer<D>
+    {
+        /**
+         * @param index         The position of the address in this flush, starting at 0.
+         * @param device        The device object from the latest sighting of the address.
+         * @param maxRssi       The strongest RSSI in the interval.
+         * @param meanRssi      The mean RSSI in the interval.
+         * @param sightingCount The number of sightings that were merged.
+         * @param txPower       The latest reported TX power, or the unset value if it was never reported.
+         * @param classic       True if the address was found by the classic discovery.
+         * @param le            True if the address was found by the BLE scanner.
+         */
+        void onSighting(int index, D device, int maxRssi, double meanRssi, int sightingCount, int txPower, boolean classic, boolean le);
+    }
+
+    private final int unsetTxPower;
+    private final Map<String, Sighting<D>> sightingsByAddress = new HashMap<>();
+    private final List<Sighting<D>> sightings = new ArrayList<>();
+    private final ArrayDeque<Sighting<D>> spareSightings = new ArrayDeque<>();
+    private int intervalSightingCount;
+
+    private long totalSightingCount;
+    private long totalMergedCount;
+
+    /**
+     * @param unsetTxPower The TX power value that means the TX power was not reported.
+     */
+    BluetoothSightingMerger(int unsetTxPower)
+    {
+        this.unsetTxPower = unsetTxPower;
+    }
+
+    /**
+     * Adds a sighting to the current interval.
+     *
+     * @param address The device address, which identifies the device.
+     * @param device  The device object, which replaces any earlier one for the address.
+     * @param rssi    The RSSI of the sighting.
+     * @param txPower The TX power, or the unset value.
+     * @param classic True if this is a classic discovery result, false if it is a BLE scan result.
+     */
+    void add(String address, D device, int rssi, int txPower, boolean classic)
+    {
+        Sighting<D> sighting = sightingsByAddress.get(address);
+        if (sighting == null)
+        {
+            sighting = spareSightings.isEmpty() ? new Sighting<>() : spareSightings.pollLast();
+            sighting.reset(unsetTxPower);
+            sightingsByAddress.put(address, sighting);
+            sightings.add(sighting);
+        }
+
+        sighting.device = device;
+        sighting.count++;
+        sighting.rssiSum += rssi;
+        if (rssi > sighting.maxRssi) sighting.maxRssi = rssi;
+        if (txPower != unsetTxPower) sighting.txPower = txPower;
+        if (classic)
+        {
+            sighting.classic = true;
+        } else
+        {
+            sighting.le = true;
+        }
+
+        intervalSightingCount++;
+        totalSightingCount++;
+    }
+
+    /**
+     * @return The number of distinct addresses in the current interval.
+     */
+    int getAddressCount()
+    {
+        return sightings.size();
+    }
+
+    /**
+     * @return The number of sightings added in the current interval.
+     */
+    int getSightingCount()
+    {
+        return intervalSightingCount;
+    }
+
+    /**
+     * @return The number of sightings added since this merger was created.
+     */
+    long getTotalSightingCount()
+    {
+        return totalSightingCount;
+    }
+
+    /**
+     * @return The number of merged sightings that have been flushed since this merger was created.
+     */
+    long getTotalMergedCount()
+    {
+        return totalMergedCount;
+    }
+
+    /**
+     * Hands the merged sighting for each address to the consumer, in the order the addresses were first seen in the
+     * interval, and then starts a new interval.
+     *
+     * @param consumer The consumer of the merged sightings.
+     */
+    void flush(SightingConsumer<D> consumer)
+    {
+        try
+        {
+            for (int i = 0; i < sightings.size(); i++)
+            {
+                final Sighting<D> sighting = sightings.get(i);
+                consumer.onSighting(i, sighting.device, sighting.maxRssi, (double) sighting.rssiSum / sighting.count,
+                        sighting.count, sighting.txPower, sighting.classic, sighting.le);
+            }
+            totalMergedCount += sightings.size();
+        } finally
+        {
+            for (Sighting<D> sighting : sightings)
+            {
+                sighting.device = null;
+                spareSightings.addLast(sighting);
+            }
+
+            // Clearing keeps the capacity of the map and the list for the next interval
+            sightingsByAddress.clear();
+            sightings.clear();
+            intervalSightingCount = 0;
+        }
+    }
+
+    /**
+     * The running statistics for one address in the current interval.
+     */
+    private static final class Sighting<D>
+    {
+        private D device;
+        private int count;
+        private long rssiSum;
+        private int maxRssi;
+        private int txPower;
+        private boolean classic;
+        private boolean le;
+
+        private void reset(int unsetTxPower)
+        {
+            device = null;
+            count = 0;
+            rssiSum = 0;
+            maxRssi = Integer.MIN_VALUE;
+            txPower = unsetTxPower;
+            classic = false;
+            le = false;
+        }
+    }
+}
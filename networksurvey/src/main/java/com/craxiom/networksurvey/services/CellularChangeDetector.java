@@ -0,0 +1,295 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.Arrays;
+
+import timber.log.Timber;
+
+/**
+ * Tracks the last emitted signal value for each cell so that a cellular neighbor that has not changed since the last
+ * scan can be suppressed instead of being converted and sent to every listener again.
+ * <p>
+ * A cell is identified by a 64 bit key built from its protocol and cell identity fields (see
+ * {@link #cellKey(int, boolean, long, long, long, long, long, long)}). A record for a cell is emitted when the cell has
+ * not been seen before, when its signal changed by more than the threshold since the last emitted record, or when the
+ * heartbeat interval has passed since the last emitted record. The last values are kept in a primitive open addressing
+ * hash table so that the steady state check for each cell does not allocate.
+ * <p>
+ * This class is not thread safe. It is only used while holding the cellular processing lock in
+ * {@link SurveyRecordProcessor}.
+ *
+ * @since 1.7.0
+ */
+class CellularChangeDetector
+{
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_TRACKED_CELLS = 4_096;
+    private static final long EMPTY_KEY = 0;
+
+    private volatile boolean enabled;
+    private volatile float thresholdDb;
+    private volatile long heartbeatMs;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private float[] lastSignalDb = new float[INITIAL_CAPACITY];
+    private long[] lastEmittedMs = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private int groupNumber;
+    private int groupEmittedCount;
+    private int groupSuppressedCount;
+    private long totalEmittedCount;
+    private long totalSuppressedCount;
+
+    /**
+     * @param enabled     True to suppress unchanged cells, false to emit every cell.
+     * @param thresholdDb A cell is emitted when its signal changed by more than this many dB.
+     * @param heartbeatMs A cell is always emitted if this much time passed since it was last emitted.
+     */
+    void configure(boolean enabled, float thresholdDb, long heartbeatMs)
+    {
+        this.thresholdDb = Math.max(0, thresholdDb);
+        this.heartbeatMs = Math.max(0, heartbeatMs);
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts the statistics for a new scan group.
+     */
+    void startGroup(int groupNumber)
+    {
+        this.groupNumber = groupNumber;
+        groupEmittedCount = 0;
+        groupSuppressedCount = 0;
+    }
+
+    /**
+     * Reports the emitted and suppressed counts for the current scan group.
+     */
+    void endGroup()
+    {
+        if (groupSuppressedCount > 0)
+        {
+            Timber.d("Cellular group %d: emitted=%d, suppressed unchanged=%d", groupNumber, groupEmittedCount, groupSuppressedCount);
+        }
+    }
+
+    /**
+     * Checks if a record should be emitted for the cell and, if so, remembers the signal value and time.
+     *
+     * @param cellKey  The key for the cell from {@link #cellKey(int, boolean, long, long, long, long, long, long)}.
+     * @param signalDb The primary signal value for the cell (e.g. RSRP), or {@link Float#NaN} if it is unavailable.
+     * @param nowMs    The current time in milliseconds.
+     * @return True if a record should be emitted for the cell, false if it is unchanged and should be suppressed.
+     */
+    boolean shouldEmit(long cellKey, float signalDb, long nowMs)
+    {
+        if (!enabled)
+        {
+            groupEmittedCount++;
+            totalEmittedCount++;
+            return true;
+        }
+
+        if (cellKey == EMPTY_KEY) cellKey = 1;
+
+        int index = indexOf(cellKey);
+        if (index >= 0)
+        {
+            final float lastSignal = lastSignalDb[index];
+            final boolean signalChanged = Float.isNaN(lastSignal) != Float.isNaN(signalDb)
+                    || Math.abs(signalDb - lastSignal) > thresholdDb;
+            if (!signalChanged && nowMs - lastEmittedMs[index] < heartbeatMs)
+            {
+                groupSuppressedCount++;
+                totalSuppressedCount++;
+                return false;
+            }
+        } else
+        {
+            index = insert(cellKey, nowMs);
+        }
+
+        lastSignalDb[index] = signalDb;
+        lastEmittedMs[index] = nowMs;
+        groupEmittedCount++;
+        totalEmittedCount++;
+        return true;
+    }
+
+    int getGroupSuppressedCount()
+    {
+        return groupSuppressedCount;
+    }
+
+    long getTotalEmittedCount()
+    {
+        return totalEmittedCount;
+    }
+
+    long getTotalSuppressedCount()
+    {
+        return totalSuppressedCount;
+    }
+
+    int getTrackedCellCount()
+    {
+        return size;
+    }
+
+    /**
+     * Forgets all the tracked cells so that the next scan emits every cell.
+     */
+    void clear()
+    {
+        Arrays.fill(keys, EMPTY_KEY);
+        size = 0;
+    }
+
+    /**
+     * Builds the key that identifies a cell. Unused identity fields should be passed as 0. The serving flag is part of
+     * the key so that a neighbor becoming the serving cell (or the other way around) is always emitted.
+     *
+     * @param protocol The cellular protocol (e.g. the {@code CellularProtocol} ordinal).
+     * @param serving  True if the cell is the serving cell.
+     * @return A 64 bit key for the cell.
+     */
+    static long cellKey(int protocol, boolean serving, long field1, long field2, long field3, long field4, long field5, long field6)
+    {
+        return cellKey(-1, protocol, serving, field1, field2, field3, field4, field5, field6);
+    }
+
+    /**
+     * Builds the key that identifies a cell as seen by one SIM subscription, so that the same cell seen by both SIMs of
+     * a multi-SIM device is tracked separately.
+     *
+     * @param subscriptionId The ID of the subscription the cell was scanned with, or -1 on a single SIM device.
+     * @return A 64 bit key for the cell.
+     * @see #cellKey(int, boolean, long, long, long, long, long, long)
+     */
+    static long cellKey(int subscriptionId, int protocol, boolean serving, long field1, long field2, long field3, long field4, long field5, long field6)
+    {
+        long hash = mix(((long) subscriptionId << 32) ^ (protocol * 2L + (serving ? 1 : 0)));
+        hash = mix(hash ^ field1);
+        hash = mix(hash ^ field2);
+        hash = mix(hash ^ field3);
+        hash = mix(hash ^ field4);
+        hash = mix(hash ^ field5);
+        hash = mix(hash ^ field6);
+        return hash;
+    }
+
+    /**
+     * The SplitMix64 finalizer, which spreads the identity fields across all 64 bits of the key.
+     */
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private int indexOf(long key)
+    {
+        final int mask = keys.length - 1;
+        for (int index = (int) key & mask; ; index = (index + 1) & mask)
+        {
+            final long existing = keys[index];
+            if (existing == key) return index;
+            if (existing == EMPTY_KEY) return -1;
+        }
+    }
+
+    private int insert(long key, long nowMs)
+    {
+        if ((size + 1) * 2 > keys.length) rehash(nowMs);
+
+        final int mask = keys.length - 1;
+        int index = (int) key & mask;
+        while (keys[index] != EMPTY_KEY)
+        {
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        size++;
+        return index;
+    }
+
+    /**
+     * Rebuilds the table, dropping any cell whose heartbeat has already expired (it will be emitted the next time it
+     * is seen anyway). The table only grows if it is still more than half full afterwards.
+     */
+    private void rehash(long nowMs)
+    {
+        final long[] oldKeys = keys;
+        final float[] oldSignals = lastSignalDb;
+        final long[] oldEmittedMs = lastEmittedMs;
+
+        int liveCount = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY_KEY && nowMs - oldEmittedMs[i] < heartbeatMs) liveCount++;
+        }
+
+        int capacity = oldKeys.length;
+        if ((liveCount + 1) * 2 > capacity && capacity < MAX_TRACKED_CELLS * 2) capacity *= 2;
+
+        keys = new long[capacity];
+        lastSignalDb = new float[capacity];
+        lastEmittedMs = new long[capacity];
+        size = 0;
+
+        // If the table is at its maximum size, the oldest cells are dropped first to make room
+        final boolean full = (liveCount + 1) * 2 > capacity;
+        final long cutoffMs = full ? findEvictionCutoff(oldKeys, oldEmittedMs, capacity / 4) : Long.MIN_VALUE;
+
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            final long key = oldKeys[i];
+            if (key == EMPTY_KEY || nowMs - oldEmittedMs[i] >= heartbeatMs || oldEmittedMs[i] < cutoffMs) continue;
+
+            int index = (int) key & mask;
+            while (keys[index] != EMPTY_KEY)
+            {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            lastSignalDb[index] = oldSignals[i];
+            lastEmittedMs[index] = oldEmittedMs[i];
+            size++;
+        }
+    }
+
+    /**
+     * @return The emitted time such that keeping only the cells emitted at or after it leaves roughly {@code keep}
+     * cells. If too many cells share the same time then every cell is dropped instead.
+     */
+    private static long findEvictionCutoff(long[] oldKeys, long[] oldEmittedMs, int keep)
+    {
+        final long[] times = new long[oldKeys.length];
+        int count = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY_KEY) times[count++] = oldEmittedMs[i];
+        }
+
+        if (count <= keep) return Long.MIN_VALUE;
+
+        Arrays.sort(times, 0, count);
+        final long cutoffMs = times[count - keep];
+
+        int keptCount = 0;
+        for (int i = count - 1; i >= 0 && times[i] >= cutoffMs; i--)
+        {
+            keptCount++;
+        }
+
+        return keptCount > keep * 2 ? Long.MAX_VALUE : cutoffMs;
+    }
+}
@@ -0,0 +1,130 @@
+package com.craxiom.networksurvey.services;
+
+/**
+ * An immutable snapshot of the latest device telemetry (battery, thermal, and storage state). A new snapshot is created
+ * for every change, so readers can use a snapshot without any locking and always see a consistent set of values.
+ *
+ * @since 1.7.0
+ */
+final class DeviceTelemetry
+{
+    static final int UNKNOWN = -1;
+
+    /**
+     * The snapshot before any telemetry has been received.
+     */
+    static final DeviceTelemetry EMPTY = new DeviceTelemetry(UNKNOWN, false, Float.NaN, UNKNOWN, UNKNOWN, false, 0);
+
+    private final int batteryPercent;
+    private final boolean charging;
+    private final float batteryTemperatureC;
+    private final int thermalStatus;
+    private final long freeStorageBytes;
+    private final boolean storageLow;
+    private final long updateTimeMs;
+
+    private DeviceTelemetry(int batteryPercent, boolean charging, float batteryTemperatureC, int thermalStatus,
+                            long freeStorageBytes, boolean storageLow, long updateTimeMs)
+    {
+        this.batteryPercent = batteryPercent;
+        this.charging = charging;
+        this.batteryTemperatureC = batteryTemperatureC;
+        this.thermalStatus = thermalStatus;
+        this.freeStorageBytes = freeStorageBytes;
+        this.storageLow = storageLow;
+        this.updateTimeMs = updateTimeMs;
+    }
+
+    /**
+     * @param level              The battery level, or a negative value if it is not known.
+     * @param scale              The maximum battery level, or a non-positive value if it is not known.
+     * @param charging           True if the battery is charging or full while plugged in.
+     * @param temperatureTenthsC The battery temperature in tenths of a degree C, as reported by the battery broadcast,
+     *                           or {@link Integer#MIN_VALUE} if it is not known.
+     * @param nowMs              The time of the update.
+     * @return A copy of this snapshot with the new battery values.
+     */
+    DeviceTelemetry withBattery(int level, int scale, boolean charging, int temperatureTenthsC, long nowMs)
+    {
+        final int percent = level < 0 || scale <= 0 ? UNKNOWN : (int) (level * 100f / scale);
+        final float temperatureC = temperatureTenthsC == Integer.MIN_VALUE ? Float.NaN : temperatureTenthsC / 10f;
+        return new DeviceTelemetry(percent, charging, temperatureC, thermalStatus, freeStorageBytes, storageLow, nowMs);
+    }
+
+    /**
+     * @param thermalStatus The Android {@code PowerManager} thermal status.
+     */
+    DeviceTelemetry withThermalStatus(int thermalStatus, long nowMs)
+    {
+        return new DeviceTelemetry(batteryPercent, charging, batteryTemperatureC, thermalStatus, freeStorageBytes, storageLow, nowMs);
+    }
+
+    /**
+     * @param freeStorageBytes The usable space where the survey logs are written.
+     * @param storageLow       True if the free space is below the OS low storage threshold.
+     */
+    DeviceTelemetry withStorage(long freeStorageBytes, boolean storageLow, long nowMs)
+    {
+        return new DeviceTelemetry(batteryPercent, charging, batteryTemperatureC, thermalStatus, freeStorageBytes, storageLow, nowMs);
+    }
+
+    /**
+     * @return The battery level from 0 to 100, or {@link #UNKNOWN}.
+     */
+    int getBatteryPercent()
+    {
+        return batteryPercent;
+    }
+
+    boolean isCharging()
+    {
+        return charging;
+    }
+
+    /**
+     * @return The battery temperature in degrees C, or {@link Float#NaN} if it is not known. Apps can't read the CPU
+     * temperature, but the battery temperature follows the device temperature closely.
+     */
+    float getBatteryTemperatureC()
+    {
+        return batteryTemperatureC;
+    }
+
+    /**
+     * @return The Android {@code PowerManager} thermal status, or {@link #UNKNOWN} if it is not available (before
+     * Android 10).
+     */
+    int getThermalStatus()
+    {
+        return thermalStatus;
+    }
+
+    /**
+     * @return The usable space in bytes where the survey logs are written, or {@link #UNKNOWN}.
+     */
+    long getFreeStorageBytes()
+    {
+        return freeStorageBytes;
+    }
+
+    boolean isStorageLow()
+    {
+        return storageLow;
+    }
+
+    /**
+     * @return The time of the last update, or 0 if nothing has been received yet.
+     */
+    long getUpdateTimeMs()
+    {
+        return updateTimeMs;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DeviceTelemetry{batteryPercent=" + batteryPercent + ", charging=" + charging
+                + ", batteryTemperatureC=" + batteryTemperatureC + ", thermalStatus=" + thermalStatus
+                + ", freeStorageBytes=" + freeStorageBytes + ", storageLow=" + storageLow + '}';
+    }
+}
@@ -0,0 +1,188 @@
+package com.craxiom.networksurvey.services;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.storage.StorageManager;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import timber.log.Timber;
+
+/**
+ * Keeps the latest battery, thermal, and storage state of the device in memory so that the device status report can
+ * read it without any IPC.
+ * <p>
+ * Reading the battery level used to mean registering for the sticky {@link Intent#ACTION_BATTERY_CHANGED} broadcast on
+ * every report, which is a binder call plus parsing of the Intent each time. Instead, this sampler subscribes once to
+ * the battery and thermal updates and keeps an immutable {@link DeviceTelemetry} snapshot up to date, which readers get
+ * with a single volatile read.
+ * <p>
+ * There is no broadcast for the free storage space that works on current Android versions, so it is polled on the
+ * handler every few minutes instead. Free space changes slowly, and the poll is a file system and binder call, so it
+ * is kept off the device status report path entirely.
+ *
+ * @since 1.7.0
+ */
+class DeviceTelemetrySampler
+{
+    // The same limits the OS uses for its own low storage warning: 5% of the volume, capped at 500 MB
+    private static final int STORAGE_LOW_PERCENTAGE = 5;
+    private static final long STORAGE_LOW_MAX_BYTES = 500L * 1024 * 1024;
+    private static final long STORAGE_SAMPLE_INTERVAL_MS = 5 * 60 * 1_000;
+
+    private final Context context;
+    private final Handler handler;
+    private final AtomicReference<DeviceTelemetry> latest = new AtomicReference<>(DeviceTelemetry.EMPTY);
+
+    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver()
+    {
+        @Override
+        public void onReceive(Context context, Intent intent)
+        {
+            onBatteryChanged(intent);
+        }
+    };
+
+    private final Runnable storageSampleTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            sampleStorage();
+            handler.postDelayed(this, STORAGE_SAMPLE_INTERVAL_MS);
+        }
+    };
+
+    private PowerManager.OnThermalStatusChangedListener thermalStatusListener;
+    private boolean started;
+
+    /**
+     * @param context The context used to register for the broadcasts.
+     * @param handler The handler that the broadcasts are delivered on.
+     */
+    DeviceTelemetrySampler(Context context, Handler handler)
+    {
+        this.context = context;
+        this.handler = handler;
+    }
+
+    /**
+     * Registers for the battery and thermal updates, and starts polling the free storage space. The battery broadcast
+     * is sticky, so the battery values are available as soon as this method returns; the first storage sample is taken
+     * on the handler shortly after.
+     */
+    synchronized void start()
+    {
+        if (started) return;
+        started = true;
+
+        final Intent batteryStatus = context.registerReceiver(batteryReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED), null, handler);
+        if (batteryStatus != null) onBatteryChanged(batteryStatus);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        {
+            final PowerManager powerManager = context.getSystemService(PowerManager.class);
+            if (powerManager != null)
+            {
+                thermalStatusListener = status -> update(telemetry -> telemetry.withThermalStatus(status, System.currentTimeMillis()));
+                powerManager.addThermalStatusListener(handler::post, thermalStatusListener);
+            }
+        }
+
+        handler.post(storageSampleTask);
+    }
+
+    /**
+     * Unregisters from all the updates and stops polling the storage. The last snapshot is kept.
+     */
+    synchronized void stop()
+    {
+        if (!started) return;
+        started = false;
+
+        handler.removeCallbacks(storageSampleTask);
+
+        try
+        {
+            context.unregisterReceiver(batteryReceiver);
+        } catch (Exception e)
+        {
+            Timber.v(e, "Could not unregister the device telemetry receiver");
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && thermalStatusListener != null)
+        {
+            final PowerManager powerManager = context.getSystemService(PowerManager.class);
+            if (powerManager != null) powerManager.removeThermalStatusListener(thermalStatusListener);
+            thermalStatusListener = null;
+        }
+    }
+
+    /**
+     * @return The latest telemetry. This is only a memory read, so it is cheap enough to call for every report.
+     */
+    DeviceTelemetry getLatest()
+    {
+        return latest.get();
+    }
+
+    /**
+     * Reads the free space on the storage volume that holds the app's external files, and updates the snapshot.
+     */
+    private void sampleStorage()
+    {
+        long freeBytes = DeviceTelemetry.UNKNOWN;
+        boolean storageLow = false;
+        try
+        {
+            File directory = context.getExternalFilesDir(null);
+            if (directory == null) directory = context.getFilesDir();
+
+            freeBytes = directory.getUsableSpace();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+            {
+                // Includes the cached data that the OS would clear to make room, which is what the user can get back
+                final StorageManager storageManager = context.getSystemService(StorageManager.class);
+                if (storageManager != null)
+                {
+                    final UUID volumeUuid = storageManager.getUuidForPath(directory);
+                    freeBytes = storageManager.getAllocatableBytes(volumeUuid);
+                }
+            }
+
+            final long lowBytes = Math.min(directory.getTotalSpace() * STORAGE_LOW_PERCENTAGE / 100, STORAGE_LOW_MAX_BYTES);
+            storageLow = freeBytes < lowBytes;
+        } catch (Exception e)
+        {
+            Timber.v(e, "Could not read the free storage space");
+        }
+
+        final long freeStorageBytes = freeBytes;
+        final boolean low = storageLow;
+        update(telemetry -> telemetry.withStorage(freeStorageBytes, low, System.currentTimeMillis()));
+    }
+
+    private void onBatteryChanged(Intent intent)
+    {
+        final int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        final boolean charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+
+        update(telemetry -> telemetry.withBattery(intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1),
+                intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1), charging,
+                intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, Integer.MIN_VALUE), System.currentTimeMillis()));
+    }
+
+    private void update(UnaryOperator<DeviceTelemetry> change)
+    {
+        latest.updateAndGet(change);
+    }
+}
@@ -0,0 +1,146 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * Creates and owns the thread pools of a service, so that every pool is named consistently, sized from the core count,
+ * measured, and shut down in one place.
+ * <p>
+ * The pools are named "{owner} {pool}" and their threads "{owner} {pool}-{number}". The metrics for all the pools are
+ * logged with {@link #logStatistics()}, and {@link #shutdown()} shuts every pool down in the reverse order it was
+ * created, so a pool that feeds another one stops first.
+ * <p>
+ * Threads with a different lifetime than the service are not created here. The survey record event bus has its own
+ * consumer thread for each registered listener, and the MQTT publisher has a thread per MQTT connection.
+ *
+ * @since 1.7.0
+ */
+class ExecutorRegistry
+{
+    private final String ownerName;
+    private final List<InstrumentedExecutor> executors = new ArrayList<>();
+    private final List<ForkJoinPool> forkJoinPools = new ArrayList<>();
+    private final List<String> forkJoinPoolNames = new ArrayList<>();
+    private boolean shutdown;
+
+    /**
+     * @param ownerName The name of the component that owns the pools, used as the prefix for the pool and thread names.
+     */
+    ExecutorRegistry(String ownerName)
+    {
+        this.ownerName = ownerName;
+    }
+
+    /**
+     * @return The number of cores available to the app.
+     */
+    static int getCoreCount()
+    {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param minimum The minimum number of threads, for work that blocks some of the time.
+     * @return The number of cores, but at least the minimum.
+     */
+    static int getCoreSizedThreadCount(int minimum)
+    {
+        return Math.max(minimum, getCoreCount());
+    }
+
+    /**
+     * Creates a fixed size, instrumented thread pool.
+     *
+     * @param name        The name of the pool.
+     * @param threadCount The number of threads in the pool.
+     * @return The new pool.
+     */
+    synchronized InstrumentedExecutor newFixedPool(String name, int threadCount)
+    {
+        if (shutdown) throw new IllegalStateException("The " + ownerName + " executor registry has been shut down");
+
+        final String poolName = ownerName + " " + name;
+        final InstrumentedExecutor executor = new InstrumentedExecutor(poolName, threadCount, poolName);
+        executors.add(executor);
+        return executor;
+    }
+
+    /**
+     * Creates a fork join pool with named threads, for splitting large batches across the cores.
+     *
+     * @param name        The name of the pool.
+     * @param parallelism The target number of threads.
+     * @return The new pool.
+     */
+    synchronized ForkJoinPool newForkJoinPool(String name, int parallelism)
+    {
+        if (shutdown) throw new IllegalStateException("The " + ownerName + " executor registry has been shut down");
+
+        final String poolName = ownerName + " " + name;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            final ForkJoinWorkerThread thread = new ForkJoinWorkerThread(forkJoinPool)
+            {
+            };
+            thread.setName(poolName + "-" + threadNumber.incrementAndGet());
+            return thread;
+        }, null, false);
+
+        forkJoinPools.add(pool);
+        forkJoinPoolNames.add(poolName);
+        return pool;
+    }
+
+    /**
+     * @return A copy of the list of fixed size pools, in the order they were created.
+     */
+    synchronized List<InstrumentedExecutor> getExecutors()
+    {
+        return new ArrayList<>(executors);
+    }
+
+    /**
+     * Logs the metrics for all the pools.
+     */
+    synchronized void logStatistics()
+    {
+        for (InstrumentedExecutor executor : executors)
+        {
+            executor.logStatistics();
+        }
+
+        for (int i = 0; i < forkJoinPools.size(); i++)
+        {
+            final ForkJoinPool pool = forkJoinPools.get(i);
+            Timber.i("%s pool: parallelism=%d, active=%d, queuedSubmissions=%d, queuedTasks=%d, steals=%d",
+                    forkJoinPoolNames.get(i), pool.getParallelism(), pool.getActiveThreadCount(),
+                    pool.getQueuedSubmissionCount(), pool.getQueuedTaskCount(), pool.getStealCount());
+        }
+    }
+
+    /**
+     * Shuts down all the pools in the reverse order they were created. Tasks that were already submitted are still
+     * run, but no new tasks are accepted.
+     */
+    synchronized void shutdown()
+    {
+        if (shutdown) return;
+        shutdown = true;
+
+        for (int i = forkJoinPools.size() - 1; i >= 0; i--)
+        {
+            forkJoinPools.get(i).shutdown();
+        }
+
+        for (int i = executors.size() - 1; i >= 0; i--)
+        {
+            executors.get(i).shutdown();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.craxiom.networksurvey.services;
+
+/**
+ * Folds every GNSS measurement in a time window into running statistics for each satellite signal, so that one summary
+ * record per satellite can be emitted per window instead of keeping a single measurement event and throwing away the
+ * rest.
+ * <p>
+ * A satellite signal is identified by its constellation, SVID, and carrier frequency (so L1 and L5 from the same
+ * satellite are tracked separately). For each signal the sample count, the mean, min, and max C/N0, the variance of
+ * the pseudorange rate, and the latest AGC level are tracked. The statistics live in primitive arrays that are reused
+ * from window to window, so adding a measurement does not allocate.
+ * <p>
+ * This class is not thread safe. It is only used from the GNSS work queue in {@link SurveyRecordProcessor}, which
+ * processes one event at a time.
+ *
+ * @since 1.7.0
+ */
+class GnssMeasurementAggregator
+{
+    /**
+     * The maximum number of satellite signals tracked in a single window. Measurements for any additional signals in
+     * the window are ignored. A multi-constellation, dual frequency receiver reports well under 100 signals.
+     */
+    static final int MAX_SIGNALS = 256;
+
+    // Carrier frequencies are bucketed to 100 kHz, which is more than enough to separate the GNSS bands
+    private static final double CARRIER_FREQUENCY_BUCKET_HZ = 100_000;
+
+    /**
+     * Receives the summary statistics for each satellite signal when a window is flushed.
+     */
+    interface SummaryConsumer
+    {
+        /**
+         * @param index                   The position of the signal in this flush, starting at 0.
+         * @param constellationType       The Android {@code GnssStatus} constellation type.
+         * @param svid                    The satellite ID.
+         * @param carrierFrequencyHz      The carrier frequency, or {@link Float#NaN} if it was not reported.
+         * @param sampleCount             The number of measurements that were folded into the summary.
+         * @param meanCn0DbHz             The mean C/N0 in dB-Hz.
+         * @param minCn0DbHz              The minimum C/N0 in dB-Hz.
+         * @param maxCn0DbHz              The maximum C/N0 in dB-Hz.
+         * @param pseudorangeRateVariance The sample variance of the pseudorange rate in (m/s)^2, or 0 with one sample.
+         * @param agcDb                   The latest AGC level in dB, or {@link Double#NaN} if it was not reported.
+         */
+        void onSatelliteSummary(int index, int constellationType, int svid, float carrierFrequencyHz, int sampleCount,
+                                double meanCn0DbHz, double minCn0DbHz, double maxCn0DbHz,
+                                double pseudorangeRateVariance, double agcDb);
+    }
+
+    private final long[] signalKeys = new long[MAX_SIGNALS];
+    private final int[] constellationTypes = new int[MAX_SIGNALS];
+    private final int[] svids = new int[MAX_SIGNALS];
+    private final float[] carrierFrequenciesHz = new float[MAX_SIGNALS];
+    private final int[] sampleCounts = new int[MAX_SIGNALS];
+    private final double[] cn0Sums = new double[MAX_SIGNALS];
+    private final double[] cn0Mins = new double[MAX_SIGNALS];
+    private final double[] cn0Maxes = new double[MAX_SIGNALS];
+    private final double[] pseudorangeRateMeans = new double[MAX_SIGNALS];
+    private final double[] pseudorangeRateM2s = new double[MAX_SIGNALS];
+    private final double[] agcDbs = new double[MAX_SIGNALS];
+    private int signalCount;
+
+    private long windowStartMs = -1;
+    private int eventCount;
+    private long ignoredCount;
+
+    /**
+     * Adds a single measurement to the current window.
+     *
+     * @param carrierFrequencyHz The carrier frequency, or {@link Float#NaN} if the measurement does not have one.
+     * @param pseudorangeRateMps The pseudorange rate in meters per second.
+     * @param agcDb              The AGC level, or {@link Double#NaN} if the measurement does not have one.
+     */
+    void addMeasurement(int constellationType, int svid, float carrierFrequencyHz, double cn0DbHz,
+                        double pseudorangeRateMps, double agcDb)
+    {
+        final int index = findOrAddSignal(constellationType, svid, carrierFrequencyHz);
+        if (index < 0)
+        {
+            ignoredCount++;
+            return;
+        }
+
+        final int count = ++sampleCounts[index];
+        cn0Sums[index] += cn0DbHz;
+        if (cn0DbHz < cn0Mins[index]) cn0Mins[index] = cn0DbHz;
+        if (cn0DbHz > cn0Maxes[index]) cn0Maxes[index] = cn0DbHz;
+
+        // Welford's online algorithm, which is numerically stable for the variance
+        final double delta = pseudorangeRateMps - pseudorangeRateMeans[index];
+        pseudorangeRateMeans[index] += delta / count;
+        pseudorangeRateM2s[index] += delta * (pseudorangeRateMps - pseudorangeRateMeans[index]);
+
+        if (!Double.isNaN(agcDb)) agcDbs[index] = agcDb;
+    }
+
+    /**
+     * Marks the start of a new measurement event, and starts the window if this is the first event in it.
+     *
+     * @param nowMs The current time in milliseconds.
+     */
+    void startEvent(long nowMs)
+    {
+        if (windowStartMs < 0) windowStartMs = nowMs;
+        eventCount++;
+    }
+
+    /**
+     * @return True if the window has been open for at least the provided length and contains at least one event.
+     */
+    boolean isWindowComplete(long nowMs, long windowLengthMs)
+    {
+        return windowStartMs >= 0 && nowMs - windowStartMs >= windowLengthMs;
+    }
+
+    int getSignalCount()
+    {
+        return signalCount;
+    }
+
+    int getEventCount()
+    {
+        return eventCount;
+    }
+
+    /**
+     * @return The number of measurements that were ignored because {@link #MAX_SIGNALS} was reached.
+     */
+    long getIgnoredCount()
+    {
+        return ignoredCount;
+    }
+
+    /**
+     * Hands the summary for each satellite signal in the window to the consumer, in the order the signals were first
+     * seen, and then clears the window.
+     *
+     * @param consumer The consumer of the summaries.
+     */
+    void flush(SummaryConsumer consumer)
+    {
+        for (int i = 0; i < signalCount; i++)
+        {
+            final int count = sampleCounts[i];
+            consumer.onSatelliteSummary(i, constellationTypes[i], svids[i], carrierFrequenciesHz[i], count,
+                    cn0Sums[i] / count, cn0Mins[i], cn0Maxes[i],
+                    count > 1 ? pseudorangeRateM2s[i] / (count - 1) : 0, agcDbs[i]);
+        }
+
+        signalCount = 0;
+        eventCount = 0;
+        windowStartMs = -1;
+    }
+
+    private int findOrAddSignal(int constellationType, int svid, float carrierFrequencyHz)
+    {
+        final long frequencyBucket = Float.isNaN(carrierFrequencyHz) ? 0 : Math.round(carrierFrequencyHz / CARRIER_FREQUENCY_BUCKET_HZ);
+        final long key = ((long) constellationType << 56) | ((long) (svid & 0xffff) << 40) | (frequencyBucket & 0xffffffffffL);
+
+        // A linear scan is faster than hashing for the few dozen signals in a window
+        for (int i = 0; i < signalCount; i++)
+        {
+            if (signalKeys[i] == key) return i;
+        }
+
+        if (signalCount == MAX_SIGNALS) return -1;
+
+        final int index = signalCount++;
+        signalKeys[index] = key;
+        constellationTypes[index] = constellationType;
+        svids[index] = svid;
+        carrierFrequenciesHz[index] = carrierFrequencyHz;
+        sampleCounts[index] = 0;
+        cn0Sums[index] = 0;
+        cn0Mins[index] = Double.POSITIVE_INFINITY;
+        cn0Maxes[index] = Double.NEGATIVE_INFINITY;
+        pseudorangeRateMeans[index] = 0;
+        pseudorangeRateM2s[index] = 0;
+        agcDbs[index] = Double.NaN;
+        return index;
+    }
+}
@@ -69,8 +69,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -111,7 +110,9 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
     private NetworkSurveyService networkSurveyService;
     private GpsListener gpsListener;
 
-    private final ScheduledExecutorService executorService;
+    private final ExecutorRegistry executorRegistry;
+    private final ExecutorService executorService;
+    private final ExecutorService connectionExecutor;
 
     private final ConcurrentLinkedQueue<DeviceStatus> deviceStatusQueue = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<GsmRecord> gsmRecordQueue = new ConcurrentLinkedQueue<>();
@@ -176,7 +177,11 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
 
         surveyServiceConnection = new SurveyServiceConnection();
 
-        executorService = Executors.newScheduledThreadPool(NUMBER_OF_QUEUES_TO_PROCESS);
+        executorRegistry = new ExecutorRegistry("GrpcConnectionService");
+        // Each gRPC task blocks on its queue for as long as the connection is up, so this pool needs one thread per
+        // queue rather than one per core
+        executorService = executorRegistry.newFixedPool("Uplink", NUMBER_OF_QUEUES_TO_PROCESS);
+        connectionExecutor = executorRegistry.newFixedPool("Connection", 1);
     }
 
     /**
@@ -301,6 +306,11 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
 
         disconnectFromGrpcServer(true);
 
+        // Drop any pending reconnection attempt, it would only be rejected by the shutdown connection pool
+        uiThreadHandler.removeCallbacksAndMessages(null);
+        executorRegistry.logStatistics();
+        executorRegistry.shutdown();
+
         super.onDestroy();
     }
 
@@ -457,10 +467,9 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
             notifyConnectionStateChange(ConnectionState.CONNECTING);
             initializeDeviceStatusReport(deviceStatusGeneratorTaskId.incrementAndGet());
 
-            new Thread(() -> {
+            connectionExecutor.execute(() -> {
                 try
                 {
-                    Thread.currentThread().setName("gRPC Connection Thread");
                     final Context applicationContext = getApplicationContext();
                     channel = AndroidChannelBuilder.forAddress(host, port)
                             .usePlaintext()
@@ -545,7 +554,7 @@ public class GrpcConnectionService extends Service implements IDeviceStatusListe
                         uiThreadHandler.postDelayed(this::reconnectToGrpcServer, RECONNECTION_ATTEMPT_BACKOFF_TIME);
                     }
                 }
-            }).start();
+            });
         } catch (Throwable e)
         {
             Timber.e(e, "An exception occurred when trying to connect to the remote gRPC server");
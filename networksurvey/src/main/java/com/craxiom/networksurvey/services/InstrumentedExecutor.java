@@ -0,0 +1,154 @@
+package com.craxiom.networksurvey.services;
+
+import com.craxiom.networksurvey.util.LatencyHistogram;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * A fixed size thread pool that measures how long tasks wait in the queue and how long they run, the deepest the queue
+ * got, and how many tasks were rejected.
+ * <p>
+ * Every task goes through {@link #execute(Runnable)} (including the ones passed to {@code submit}), so wrapping the
+ * task there is enough to time all of them.
+ *
+ * @since 1.7.0
+ */
+class InstrumentedExecutor extends ThreadPoolExecutor
+{
+    private final String name;
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param name        The name of the pool, used for the metrics.
+     * @param threadCount The number of threads in the pool.
+     * @param threadName  The prefix of the thread names; a thread number is appended to it.
+     */
+    InstrumentedExecutor(String name, int threadCount, String threadName)
+    {
+        super(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory(threadName));
+        this.name = name;
+
+        setRejectedExecutionHandler((runnable, executor) -> {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("The " + name + " pool rejected a task, shutdown=" + executor.isShutdown());
+        });
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        if (command == null) throw new NullPointerException();
+
+        super.execute(new TimedTask(command));
+        maxQueueDepth.accumulateAndGet(getQueue().size(), Math::max);
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return The number of tasks waiting for a thread.
+     */
+    int getQueueDepth()
+    {
+        return getQueue().size();
+    }
+
+    long getMaxQueueDepth()
+    {
+        return maxQueueDepth.get();
+    }
+
+    long getRejectedCount()
+    {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return The upper bound of the requested percentile of the time tasks spent waiting for a thread.
+     */
+    long getQueueLatencyPercentileMicros(double percentile)
+    {
+        return queueLatency.getPercentileMicros(percentile);
+    }
+
+    /**
+     * @return The upper bound of the requested percentile of the time tasks spent running.
+     */
+    long getRunLatencyPercentileMicros(double percentile)
+    {
+        return runLatency.getPercentileMicros(percentile);
+    }
+
+    void logStatistics()
+    {
+        Timber.i("%s pool: threads=%d, active=%d, queued=%d, maxQueued=%d, completed=%d, rejected=%d, "
+                        + "queueWaitP50/P99=%d/%d us, runP50/P99=%d/%d us",
+                name, getMaximumPoolSize(), getActiveCount(), getQueueDepth(), getMaxQueueDepth(),
+                getCompletedTaskCount(), getRejectedCount(),
+                getQueueLatencyPercentileMicros(50), getQueueLatencyPercentileMicros(99),
+                getRunLatencyPercentileMicros(50), getRunLatencyPercentileMicros(99));
+    }
+
+    /**
+     * Records the queue and run time of a task.
+     */
+    private final class TimedTask implements Runnable
+    {
+        private final Runnable task;
+        private final long enqueueNanos = System.nanoTime();
+
+        private TimedTask(Runnable task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            final long startNanos = System.nanoTime();
+            queueLatency.record(startNanos - enqueueNanos);
+            try
+            {
+                task.run();
+            } finally
+            {
+                runLatency.record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Gives each thread in a pool a name made of the pool name and a thread number, so it is easy to tell the pools
+     * apart in a thread dump or the profiler.
+     */
+    static final class NamedThreadFactory implements ThreadFactory
+    {
+        private final String prefix;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        NamedThreadFactory(String prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            return new Thread(runnable, prefix + "-" + threadNumber.incrementAndGet());
+        }
+    }
+}
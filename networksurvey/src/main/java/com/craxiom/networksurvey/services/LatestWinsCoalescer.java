@@ -0,0 +1,168 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import timber.log.Timber;
+
+/**
+ * A latest-wins hand off between the threads that deliver updates (e.g. the {@code CellInfoCallback} executor threads)
+ * and the processing of those updates.
+ * <p>
+ * Only one update is processed at a time and at most one update waits behind it. If a newer update is offered while an
+ * older one is still waiting, the older one is replaced and never processed, since a stale snapshot that is processed
+ * after a newer one is worse than no snapshot at all. Callers never block: the thread that finds nothing in progress
+ * processes the waiting updates, and every other caller returns as soon as its update has been handed off.
+ * <p>
+ * The number of coalesced updates and the age of each processed update (the time from when it was offered to when its
+ * processing started) are tracked so that a scan rate that is too fast for the device is visible.
+ *
+ * @param <T> The type of the update.
+ * @since 1.7.0
+ */
+class LatestWinsCoalescer<T>
+{
+    private final String name;
+    private final Consumer<T> processor;
+
+    private final AtomicReference<PendingUpdate<T>> pendingUpdate = new AtomicReference<>();
+    private final AtomicBoolean processing = new AtomicBoolean();
+
+    private final AtomicLong offeredCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong totalAgeNanos = new AtomicLong();
+    private volatile long lastAgeNanos;
+    private volatile long maxAgeNanos;
+
+    /**
+     * @param name      The name of the updates, used in the logs.
+     * @param processor Processes a single update. It is never called concurrently.
+     */
+    LatestWinsCoalescer(String name, Consumer<T> processor)
+    {
+        this.name = name;
+        this.processor = processor;
+    }
+
+    /**
+     * Hands off an update, replacing any update that is still waiting to be processed. If no other thread is currently
+     * processing an update, the update is processed on the calling thread before this method returns.
+     *
+     * @param update The latest update.
+     */
+    void offer(T update)
+    {
+        offeredCount.incrementAndGet();
+
+        final PendingUpdate<T> replaced = pendingUpdate.getAndSet(new PendingUpdate<>(update, System.nanoTime()));
+        if (replaced != null)
+        {
+            final long coalesced = coalescedCount.incrementAndGet();
+            if (coalesced % 100 == 1)
+            {
+                Timber.d("A newer %s update replaced one that was waiting to be processed; %d coalesced so far", name, coalesced);
+            }
+        }
+
+        // Check again after releasing the flag, otherwise an update offered right before the release would be stranded
+        while (pendingUpdate.get() != null && processing.compareAndSet(false, true))
+        {
+            try
+            {
+                processPendingUpdates();
+            } finally
+            {
+                processing.set(false);
+            }
+        }
+    }
+
+    long getOfferedCount()
+    {
+        return offeredCount.get();
+    }
+
+    long getProcessedCount()
+    {
+        return processedCount.get();
+    }
+
+    /**
+     * @return The number of updates that were replaced by a newer update before they were processed.
+     */
+    long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return The age in milliseconds of the most recently processed update when its processing started.
+     */
+    double getLastAgeMs()
+    {
+        return lastAgeNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return The average age in milliseconds of the processed updates when their processing started.
+     */
+    double getAverageAgeMs()
+    {
+        final long processed = processedCount.get();
+        return processed == 0 ? 0 : totalAgeNanos.get() / (double) processed / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return The largest age in milliseconds of a processed update when its processing started.
+     */
+    double getMaxAgeMs()
+    {
+        return maxAgeNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Logs the offered, processed, and coalesced counts, and the update ages.
+     */
+    void logStatistics()
+    {
+        Timber.i("%s updates: offered=%d, processed=%d, coalesced=%d, lastAgeMs=%.1f, avgAgeMs=%.1f, maxAgeMs=%.1f",
+                name, offeredCount.get(), processedCount.get(), coalescedCount.get(), getLastAgeMs(), getAverageAgeMs(), getMaxAgeMs());
+    }
+
+    private void processPendingUpdates()
+    {
+        PendingUpdate<T> next;
+        while ((next = pendingUpdate.getAndSet(null)) != null)
+        {
+            final long ageNanos = System.nanoTime() - next.offeredNanos;
+            lastAgeNanos = ageNanos;
+            totalAgeNanos.addAndGet(ageNanos);
+            if (ageNanos > maxAgeNanos) maxAgeNanos = ageNanos;
+
+            try
+            {
+                processor.accept(next.update);
+            } catch (Throwable t)
+            {
+                Timber.e(t, "Could not process the %s update", name);
+            }
+            processedCount.incrementAndGet();
+        }
+    }
+
+    private static final class PendingUpdate<T>
+    {
+        private final T update;
+        private final long offeredNanos;
+
+        private PendingUpdate(T update, long offeredNanos)
+        {
+            this.update = update;
+            this.offeredNanos = offeredNanos;
+        }
+    }
+}
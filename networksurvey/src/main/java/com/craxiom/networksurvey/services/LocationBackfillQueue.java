@@ -0,0 +1,178 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Holds back scan results while the location fixes are batched, until the fixes up to the time of the scan have been
+ * delivered. Without this, a scan that runs in the middle of a batch would be matched with the newest fix that has
+ * been delivered so far, which can be a whole batch old.
+ * <p>
+ * The held back work is released in the order it was deferred, as soon as a fix from the time of the scan (or later)
+ * is delivered. Work that has waited longer than the maximum wait (e.g. because the fixes stopped coming) is released
+ * without the fix, and so is the oldest work when the queue is full. Setting the maximum wait to zero turns deferral
+ * off and releases everything that is still held back.
+ *
+ * @since 1.7.0
+ */
+class LocationBackfillQueue
+{
+    private final int capacity;
+    private final ArrayDeque<PendingScan> pendingScans;
+
+    private long maxWaitNanos;
+    private long latestFixNanos = Long.MIN_VALUE;
+
+    private final AtomicLong deferredCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * @param capacity The maximum number of scans that are held back at once.
+     */
+    LocationBackfillQueue(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+        pendingScans = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Sets how long a scan is held back waiting for the fixes from its time.
+     *
+     * @param maxWaitNanos The maximum wait, or zero if the fixes are not batched and nothing should be held back.
+     */
+    void setMaxWait(long maxWaitNanos)
+    {
+        final List<Runnable> released;
+        synchronized (this)
+        {
+            this.maxWaitNanos = Math.max(0, maxWaitNanos);
+            released = this.maxWaitNanos == 0 ? takeAll() : null;
+        }
+
+        runAll(released);
+    }
+
+    /**
+     * Runs the work for a scan now if the fixes up to the time of the scan have already been delivered (or if deferral
+     * is off), otherwise holds it back until they are.
+     *
+     * @param timestampNanos The time of the scan, in the elapsed realtime nanoseconds clock that the fixes use.
+     * @param task           The work that converts the scan results to records, which looks up the location.
+     */
+    void runWhenLocated(long timestampNanos, Runnable task)
+    {
+        final List<Runnable> released;
+        synchronized (this)
+        {
+            if (maxWaitNanos == 0 || timestampNanos <= latestFixNanos)
+            {
+                released = null;
+            } else
+            {
+                released = takeExpired(timestampNanos - maxWaitNanos);
+                if (pendingScans.size() >= capacity)
+                {
+                    released.add(pendingScans.pollFirst().task);
+                    overflowCount.incrementAndGet();
+                }
+
+                pendingScans.addLast(new PendingScan(timestampNanos, task));
+                deferredCount.incrementAndGet();
+            }
+        }
+
+        if (released == null)
+        {
+            task.run();
+        } else
+        {
+            runAll(released);
+        }
+    }
+
+    /**
+     * Notification that a fix was delivered, which releases the work for every scan up to the time of the fix.
+     *
+     * @param fixTimestampNanos The time of the newest fix, in the elapsed realtime nanoseconds clock.
+     */
+    void onFixDelivered(long fixTimestampNanos)
+    {
+        final List<Runnable> released = new ArrayList<>();
+        synchronized (this)
+        {
+            if (fixTimestampNanos > latestFixNanos) latestFixNanos = fixTimestampNanos;
+
+            while (!pendingScans.isEmpty() && pendingScans.peekFirst().timestampNanos <= latestFixNanos)
+            {
+                released.add(pendingScans.pollFirst().task);
+            }
+        }
+
+        runAll(released);
+    }
+
+    synchronized int getPendingCount()
+    {
+        return pendingScans.size();
+    }
+
+    /**
+     * Logs the deferred, expired, and overflow counts.
+     */
+    void logStatistics()
+    {
+        Timber.i("Location backfill: pending=%d, deferred=%d, expired=%d, overflow=%d", getPendingCount(),
+                deferredCount.get(), expiredCount.get(), overflowCount.get());
+    }
+
+    private List<Runnable> takeExpired(long oldestTimestampNanos)
+    {
+        final List<Runnable> expired = new ArrayList<>();
+        while (!pendingScans.isEmpty() && pendingScans.peekFirst().timestampNanos < oldestTimestampNanos)
+        {
+            expired.add(pendingScans.pollFirst().task);
+            expiredCount.incrementAndGet();
+        }
+        return expired;
+    }
+
+    private List<Runnable> takeAll()
+    {
+        final List<Runnable> all = new ArrayList<>(pendingScans.size());
+        while (!pendingScans.isEmpty()) all.add(pendingScans.pollFirst().task);
+        return all;
+    }
+
+    private static void runAll(List<Runnable> tasks)
+    {
+        if (tasks == null) return;
+
+        for (Runnable task : tasks)
+        {
+            try
+            {
+                task.run();
+            } catch (Throwable t)
+            {
+                Timber.e(t, "Could not release a scan that was waiting for its location");
+            }
+        }
+    }
+
+    private static final class PendingScan
+    {
+        private final long timestampNanos;
+        private final Runnable task;
+
+        private PendingScan(long timestampNanos, Runnable task)
+        {
+            this.timestampNanos = timestampNanos;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.craxiom.networksurvey.services;
+
+import timber.log.Timber;
+
+/**
+ * Works out the cellular, Wi-Fi, and Bluetooth scan interval from how fast the device is moving, so that a survey
+ * takes one scan every N meters travelled instead of one scan every N seconds.
+ * <p>
+ * A parked device scans at the maximum interval instead of producing the same records over and over, and a device on a
+ * highway scans faster (down to the minimum interval) so that it does not undersample. When adaptive mode is disabled
+ * the configured scan rates are used as is.
+ * <p>
+ * The distance travelled is also used to report how many records are produced per km, which is a better measure of
+ * how dense a survey is than records per minute.
+ *
+ * @since 1.7.0
+ */
+class MotionAdaptiveScanRate
+{
+    /**
+     * Below this speed the device is considered stationary, which also filters out the speed noise of a GPS fix that
+     * is not moving.
+     */
+    static final double STATIONARY_SPEED_MPS = 0.5;
+
+    // How much weight a new speed sample gets, which smooths out a single noisy fix
+    private static final double SPEED_SMOOTHING = 0.5;
+
+    // The interval has to change by at least this much before it is reported as changed
+    private static final int MIN_INTERVAL_CHANGE_MS = 1_000;
+
+    private volatile boolean enabled;
+    private volatile int metersPerScan;
+    private volatile int minIntervalMs;
+    private volatile int maxIntervalMs;
+
+    private volatile double smoothedSpeedMps = -1;
+    private volatile int intervalMs;
+    private volatile double distanceMeters;
+
+    /**
+     * Applies new settings.
+     *
+     * @param enabled       True to adjust the scan interval based on the speed.
+     * @param metersPerScan The distance the device should travel between scans.
+     * @param minIntervalMs The shortest scan interval, used when the device is moving fast.
+     * @param maxIntervalMs The longest scan interval, used when the device is stationary.
+     */
+    synchronized void configure(boolean enabled, int metersPerScan, int minIntervalMs, int maxIntervalMs)
+    {
+        this.enabled = enabled;
+        this.metersPerScan = Math.max(1, metersPerScan);
+        this.minIntervalMs = Math.max(1, minIntervalMs);
+        this.maxIntervalMs = Math.max(this.minIntervalMs, maxIntervalMs);
+        intervalMs = calculateIntervalMs(smoothedSpeedMps);
+
+        Timber.i("Adaptive scan rate enabled=%b, metersPerScan=%d, minIntervalMs=%d, maxIntervalMs=%d",
+                enabled, this.metersPerScan, this.minIntervalMs, this.maxIntervalMs);
+    }
+
+    /**
+     * Updates the speed and the distance travelled from a new location fix.
+     *
+     * @param speedMps            The current speed in meters per second.
+     * @param totalDistanceMeters The total distance travelled since the survey started.
+     * @return True if the adaptive scan interval changed as a result, in which case the scans should be rescheduled.
+     */
+    synchronized boolean onMotion(double speedMps, double totalDistanceMeters)
+    {
+        distanceMeters = totalDistanceMeters;
+
+        if (Double.isNaN(speedMps) || speedMps < 0) return false;
+
+        final double previousSpeed = smoothedSpeedMps;
+        smoothedSpeedMps = previousSpeed < 0 ? speedMps : previousSpeed + SPEED_SMOOTHING * (speedMps - previousSpeed);
+
+        final int newIntervalMs = calculateIntervalMs(smoothedSpeedMps);
+        if (Math.abs(newIntervalMs - intervalMs) < MIN_INTERVAL_CHANGE_MS) return false;
+
+        intervalMs = newIntervalMs;
+        if (enabled)
+        {
+            Timber.d("Adaptive scan interval changed to %d ms at %.1f m/s", newIntervalMs, smoothedSpeedMps);
+        }
+        return enabled;
+    }
+
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param configuredIntervalMs The scan interval from the user preferences or MDM.
+     * @return The scan interval to use, which is the configured interval if adaptive mode is disabled.
+     */
+    int getIntervalMs(int configuredIntervalMs)
+    {
+        return enabled ? intervalMs : configuredIntervalMs;
+    }
+
+    /**
+     * @return The smoothed speed in meters per second, or -1 if no speed has been reported yet.
+     */
+    double getSpeedMps()
+    {
+        return smoothedSpeedMps;
+    }
+
+    double getDistanceMeters()
+    {
+        return distanceMeters;
+    }
+
+    /**
+     * @param recordCount The number of records produced over the distance that has been travelled.
+     * @return The records produced per km travelled, or 0 if the device has not moved yet.
+     */
+    double getRecordsPerKm(long recordCount)
+    {
+        final double km = distanceMeters / 1000;
+        return km <= 0 ? 0 : recordCount / km;
+    }
+
+    /**
+     * Logs the current interval, speed, distance, and records per km.
+     *
+     * @param recordCount The number of records produced over the distance that has been travelled.
+     */
+    void logStatistics(long recordCount)
+    {
+        Timber.i("Adaptive scan rate: enabled=%b, intervalMs=%d, speedMps=%.1f, distanceKm=%.2f, records=%d, recordsPerKm=%.1f",
+                enabled, intervalMs, smoothedSpeedMps, distanceMeters / 1000, recordCount, getRecordsPerKm(recordCount));
+    }
+
+    private int calculateIntervalMs(double speedMps)
+    {
+        // Until the first speed is known, and while stationary, there is no point in scanning fast
+        if (speedMps < STATIONARY_SPEED_MPS) return maxIntervalMs;
+
+        final double intervalMs = metersPerScan * 1000.0 / speedMps;
+        return (int) Math.max(minIntervalMs, Math.min(maxIntervalMs, Math.round(intervalMs)));
+    }
+}
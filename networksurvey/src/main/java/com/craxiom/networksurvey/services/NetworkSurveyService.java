@@ -23,19 +23,22 @@ import android.location.GnssStatus;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
+import android.location.LocationRequest;
 import android.net.wifi.ScanResult;
 import android.net.wifi.WifiManager;
-import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.telephony.CellInfo;
 import android.telephony.PhoneStateListener;
 import android.telephony.ServiceState;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.widget.Toast;
 
@@ -76,18 +79,19 @@ import com.craxiom.networksurvey.logging.PhoneStateRecordLogger;
 import com.craxiom.networksurvey.logging.WifiSurveyRecordLogger;
 import com.craxiom.networksurvey.mqtt.MqttConnection;
 import com.craxiom.networksurvey.mqtt.MqttConnectionInfo;
+import com.craxiom.networksurvey.mqtt.MqttPublishMetrics;
 import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.MathUtils;
 import com.craxiom.networksurvey.util.PreferenceUtils;
 import com.google.protobuf.Int32Value;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import timber.log.Timber;
 
@@ -107,6 +111,16 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
      */
     private static final long TIME_TO_WAIT_FOR_GNSS_RAW_BEFORE_FAILURE = 1000L * 15L;
     private static final int PING_RATE_MS = 10_000;
+    /**
+     * The scan periods are rounded to this so that the scans with different rates still share wakeups.
+     */
+    private static final long SCAN_SCHEDULER_TICK_MS = 1_000;
+    // How long onDestroy waits for the last GNSS records to reach the listeners before stopping them
+    private static final long SHUTDOWN_DRAIN_TIMEOUT_MS = 2_000;
+    private static final int ADAPTIVE_MAX_LOCATION_INTERVAL_MS = 10_000;
+    // The survey pool runs the OS callbacks and drains the scan work queues; that work is short, but a few of the
+    // callbacks (e.g. one per SIM) can arrive together, so keep a few threads even on a device with fewer cores
+    private static final int MIN_SURVEY_THREADS = 4;
 
     private final AtomicBoolean cellularScanningActive = new AtomicBoolean(false);
     private final AtomicBoolean wifiScanningActive = new AtomicBoolean(false);
@@ -118,14 +132,20 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     private final AtomicBoolean gnssLoggingEnabled = new AtomicBoolean(false);
     private final AtomicBoolean gnssStarted = new AtomicBoolean(false);
 
-    private final AtomicInteger cellularScanningTaskId = new AtomicInteger();
-    private final AtomicInteger wifiScanningTaskId = new AtomicInteger();
-    private final AtomicInteger bluetoothScanningTaskId = new AtomicInteger();
-    private final AtomicInteger deviceStatusGeneratorTaskId = new AtomicInteger();
+    private volatile ScanScheduler.Task cellularScanningTask;
+    private volatile ScanScheduler.Task wifiScanningTask;
+    private volatile ScanScheduler.Task bluetoothScanningTask;
+    private volatile ScanScheduler.Task gnssIntervalTask;
+    private volatile ScanScheduler.Task deviceStatusGeneratorTask;
 
     private final SurveyServiceBinder surveyServiceBinder;
     private final Handler uiThreadHandler;
+    private final ExecutorRegistry executorRegistry;
     private final ExecutorService executorService;
+    private final MotionAdaptiveScanRate motionAdaptiveScanRate = new MotionAdaptiveScanRate();
+    private final LocationListener motionListener = location -> onMotionUpdate();
+    private final WifiScanBudget wifiScanBudget = new WifiScanBudget();
+    private final SurveyCallbackStats callbackStats = new SurveyCallbackStats(() -> Looper.myLooper() == Looper.getMainLooper());
 
     private volatile int cellularScanRateMs;
     private volatile int wifiScanRateMs;
@@ -144,6 +164,18 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     private PhoneStateRecordLogger phoneStateRecordLogger;
     private Looper serviceLooper;
     private Handler serviceHandler;
+    private HandlerThread scanResultsThread;
+    private Handler scanResultsHandler;
+    private DeviceTelemetrySampler deviceTelemetrySampler;
+    // Only accessed from the device status task on the service thread
+    private long lastDeviceStatusWakeupCount;
+    private volatile boolean uiVisible;
+    private volatile boolean locationBatching;
+    private volatile boolean bluetoothSightingMerge;
+    private volatile long locationBatchMaxDelayMs;
+    // The provider of the current batched location request, or null if the location updates are not batched
+    private volatile String locationBatchingProvider;
+    private ScanScheduler scanScheduler;
     private LocationManager locationManager = null;
     private long firstGpsAcqTime = Long.MIN_VALUE;
     private boolean gnssRawSupportKnown = false;
@@ -151,7 +183,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     private MqttConnection mqttConnection;
     private BroadcastReceiver managedConfigurationListener;
 
-    private TelephonyManager.CellInfoCallback cellInfoCallback;
+    // One entry per active subscription on a multi-SIM device, otherwise a single entry for the default subscription
+    private volatile List<CellularScanTarget> cellularScanTargets = Collections.emptyList();
     private BroadcastReceiver wifiScanReceiver;
     private ScanCallback bluetoothScanCallback;
     private BroadcastReceiver bluetoothBroadcastReceiver;
@@ -163,7 +196,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         surveyServiceBinder = new SurveyServiceBinder();
         uiThreadHandler = new Handler(Looper.getMainLooper());
 
-        executorService = Executors.newFixedThreadPool(8);
+        executorRegistry = new ExecutorRegistry("NetworkSurveyService");
+        executorService = executorRegistry.newFixedPool("Survey", ExecutorRegistry.getCoreSizedThreadCount(MIN_SURVEY_THREADS));
     }
 
     @Override
@@ -181,6 +215,29 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         serviceLooper = handlerThread.getLooper();
         serviceHandler = new Handler(serviceLooper);
 
+        // The scan result broadcasts are delivered here instead of on the main thread, which keeps the UI smooth
+        scanResultsThread = new HandlerThread("NetworkSurveyScanResults");
+        scanResultsThread.start();
+        scanResultsHandler = new Handler(scanResultsThread.getLooper());
+
+        deviceTelemetrySampler = new DeviceTelemetrySampler(context, serviceHandler);
+        deviceTelemetrySampler.start();
+        scanScheduler = new ScanScheduler("Scan", new ScanScheduler.WakeupPoster()
+        {
+            @Override
+            public void postDelayed(Runnable wakeup, long delayMs)
+            {
+                serviceHandler.postDelayed(wakeup, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable wakeup)
+            {
+                serviceHandler.removeCallbacks(wakeup);
+            }
+        }, SystemClock::uptimeMillis, SCAN_SCHEDULER_TICK_MS, new Random());
+        scanScheduler.setBurstListener(this::onDutyCycleBurstChanged);
+
         deviceId = createDeviceId();
         cellularSurveyRecordLogger = new CellularSurveyRecordLogger(this, serviceLooper);
         wifiSurveyRecordLogger = new WifiSurveyRecordLogger(this, serviceLooper);
@@ -189,17 +246,26 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         phoneStateRecordLogger = new PhoneStateRecordLogger(this, serviceLooper);
 
         gpsListener = new GpsListener();
+        gpsListener.registerListener(motionListener);
 
-        surveyRecordProcessor = new SurveyRecordProcessor(gpsListener, deviceId, context, executorService);
+        surveyRecordProcessor = new SurveyRecordProcessor(gpsListener, deviceId, context, executorService,
+                executorRegistry.newForkJoinPool("Conversion", ExecutorRegistry.getCoreCount()));
 
         setScanRateValues();
+        updateAdaptiveScanRate();
+        updateDutyCycle();
+        updateCellularChangeDetection();
+        updateGnssAggregation();
+        updateBluetoothSightingMerge();
+        updateLocationBatching();
+        updateRecordFilter();
         PreferenceManager.getDefaultSharedPreferences(context).registerOnSharedPreferenceChangeListener(this);
 
         // Must register for MDM updates AFTER initializing the MQTT connection because we try to make an MQTT connection if the MDM settings change
         initializeMqttConnection();
         registerManagedConfigurationListener();
 
-        initializeCellularScanningResources();
+        updateCellularScanTargets();
         initializeWifiScanningResources();
         initializeBluetoothScanningResources();
         initializeGnssScanningResources();
@@ -257,12 +323,6 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
         unregisterManagedConfigurationListener();
 
-        if (mqttConnection != null)
-        {
-            unregisterMqttConnectionStateListener(this);
-            mqttConnection.disconnect();
-        }
-
         PreferenceManager.getDefaultSharedPreferences(getApplicationContext()).unregisterOnSharedPreferenceChangeListener(this);
 
         stopCellularRecordScanning();
@@ -270,11 +330,32 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         removeLocationListener();
         stopGnssRecordScanning();
         stopDeviceStatusReport();
+
+        // Stopping GNSS scanning sends out the partial aggregation window, which has to reach the loggers and the MQTT
+        // broker before they are stopped
+        surveyRecordProcessor.awaitGnssRecords(SHUTDOWN_DRAIN_TIMEOUT_MS);
+
+        if (mqttConnection != null)
+        {
+            unregisterMqttConnectionStateListener(this);
+            mqttConnection.disconnect();
+        }
+
         stopAllLogging();
 
+        gpsListener.unregisterListener(motionListener);
+        motionAdaptiveScanRate.logStatistics(surveyRecordProcessor.getScanRecordCount());
+        wifiScanBudget.logStatistics();
+        scanScheduler.logStatistics();
+        scanScheduler.shutdown();
+        callbackStats.logStatistics();
+        deviceTelemetrySampler.stop();
         serviceLooper.quitSafely();
+        scanResultsThread.quitSafely();
         shutdownNotifications();
-        executorService.shutdown();
+        surveyRecordProcessor.shutdown();
+        executorRegistry.logStatistics();
+        executorRegistry.shutdown();
 
         super.onDestroy();
     }
@@ -298,6 +379,55 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             case NetworkSurveyConstants.PROPERTY_DEVICE_STATUS_SCAN_INTERVAL_SECONDS:
                 setScanRateValues();
                 break;
+            case NetworkSurveyConstants.PROPERTY_MQTT_CELLULAR_TOPIC_POLICY:
+            case NetworkSurveyConstants.PROPERTY_MQTT_WIFI_TOPIC_POLICY:
+            case NetworkSurveyConstants.PROPERTY_MQTT_BLUETOOTH_TOPIC_POLICY:
+            case NetworkSurveyConstants.PROPERTY_MQTT_GNSS_TOPIC_POLICY:
+            case NetworkSurveyConstants.PROPERTY_MQTT_DEVICE_STATUS_TOPIC_POLICY:
+                updateMqttTopicPolicies();
+                break;
+            case NetworkSurveyConstants.PROPERTY_MQTT_CELLULAR_TOPIC_QOS:
+            case NetworkSurveyConstants.PROPERTY_MQTT_WIFI_TOPIC_QOS:
+            case NetworkSurveyConstants.PROPERTY_MQTT_BLUETOOTH_TOPIC_QOS:
+            case NetworkSurveyConstants.PROPERTY_MQTT_GNSS_TOPIC_QOS:
+            case NetworkSurveyConstants.PROPERTY_MQTT_DEVICE_STATUS_TOPIC_QOS:
+                updateMqttTopicQos();
+                break;
+            case NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_DETECTION:
+            case NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_THRESHOLD_DB:
+            case NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_HEARTBEAT_SECONDS:
+                updateCellularChangeDetection();
+                break;
+            case NetworkSurveyConstants.PROPERTY_GNSS_AGGREGATION:
+                updateGnssAggregation();
+                break;
+            case NetworkSurveyConstants.PROPERTY_BLUETOOTH_SIGHTING_MERGE:
+                updateBluetoothSightingMerge();
+                break;
+            case NetworkSurveyConstants.PROPERTY_LOCATION_BATCHING:
+            case NetworkSurveyConstants.PROPERTY_LOCATION_BATCH_MAX_DELAY_SECONDS:
+                updateLocationBatching();
+                break;
+            case NetworkSurveyConstants.PROPERTY_RECORD_FILTER:
+            case NetworkSurveyConstants.PROPERTY_RECORD_FILTER_PLMNS:
+            case NetworkSurveyConstants.PROPERTY_RECORD_FILTER_EARFCNS:
+            case NetworkSurveyConstants.PROPERTY_RECORD_FILTER_MIN_RSRP:
+            case NetworkSurveyConstants.PROPERTY_RECORD_FILTER_WIFI_SSID_PREFIXES:
+            case NetworkSurveyConstants.PROPERTY_RECORD_FILTER_WIFI_BSSID_PREFIXES:
+            case NetworkSurveyConstants.PROPERTY_RECORD_FILTER_BLUETOOTH_TYPES:
+                updateRecordFilter();
+                break;
+            case NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_RATE:
+            case NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_DISTANCE_METERS:
+            case NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS:
+            case NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS:
+                updateAdaptiveScanRate();
+                break;
+            case NetworkSurveyConstants.PROPERTY_DUTY_CYCLE:
+            case NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_ACTIVE_SECONDS:
+            case NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_PERIOD_SECONDS:
+                updateDutyCycle();
+                break;
 
             default:
         }
@@ -323,6 +453,12 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     @Override
     public void connectToMqttBroker(BrokerConnectionInfo connectionInfo)
     {
+        // Set the device name to the user entered value in the MQTT connection UI (or the value provided via MDM) so
+        // that it is added when each record is created instead of the MQTT connection rebuilding every record.
+        surveyRecordProcessor.setDeviceName(connectionInfo.getMqttClientId());
+
+        updateMqttTopicPolicies();
+        updateMqttTopicQos();
         mqttConnection.connect(connectionInfo);
         MqttConnectionInfo networkSurveyConnection = (MqttConnectionInfo) connectionInfo;
 
@@ -348,6 +484,46 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         }
     }
 
+    /**
+     * Reads the MQTT topic rate limit and sampling policies from MDM / user preferences and applies them to the MQTT
+     * connection. The policies only limit what is sent over MQTT; the local log files still get every record.
+     *
+     * @since 1.7.0
+     */
+    private void updateMqttTopicPolicies()
+    {
+        if (mqttConnection == null) return;
+
+        final Context context = getApplicationContext();
+        mqttConnection.setTopicPolicies(
+                PreferenceUtils.getMqttTopicPolicyPreference(NetworkSurveyConstants.PROPERTY_MQTT_CELLULAR_TOPIC_POLICY, context),
+                PreferenceUtils.getMqttTopicPolicyPreference(NetworkSurveyConstants.PROPERTY_MQTT_WIFI_TOPIC_POLICY, context),
+                PreferenceUtils.getMqttTopicPolicyPreference(NetworkSurveyConstants.PROPERTY_MQTT_BLUETOOTH_TOPIC_POLICY, context),
+                PreferenceUtils.getMqttTopicPolicyPreference(NetworkSurveyConstants.PROPERTY_MQTT_GNSS_TOPIC_POLICY, context),
+                PreferenceUtils.getMqttTopicPolicyPreference(NetworkSurveyConstants.PROPERTY_MQTT_DEVICE_STATUS_TOPIC_POLICY, context));
+    }
+
+    /**
+     * Reads the QoS for each MQTT topic from MDM / user preferences and applies it to the MQTT connection. By default
+     * the survey records are sent fire and forget (QoS 0) and the device status messages are acknowledged (QoS 1).
+     *
+     * @since 1.7.0
+     */
+    private void updateMqttTopicQos()
+    {
+        if (mqttConnection == null) return;
+
+        final Context context = getApplicationContext();
+        final String surveyDefault = NetworkSurveyConstants.DEFAULT_MQTT_SURVEY_TOPIC_QOS;
+        mqttConnection.setTopicQos(
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_MQTT_CELLULAR_TOPIC_QOS, surveyDefault, context),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_MQTT_WIFI_TOPIC_QOS, surveyDefault, context),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_MQTT_BLUETOOTH_TOPIC_QOS, surveyDefault, context),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_MQTT_GNSS_TOPIC_QOS, surveyDefault, context),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_MQTT_DEVICE_STATUS_TOPIC_QOS,
+                        NetworkSurveyConstants.DEFAULT_MQTT_DEVICE_STATUS_TOPIC_QOS, context));
+    }
+
     /**
      * Disconnect from the MQTT broker and also remove the MQTT survey record listener.
      *
@@ -359,6 +535,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         Timber.i("Disconnecting from the MQTT Broker");
 
         mqttConnection.disconnect();
+        surveyRecordProcessor.setDeviceName(null);
 
         unregisterCellularSurveyRecordListener(mqttConnection);
         unregisterWifiSurveyRecordListener(mqttConnection);
@@ -418,6 +595,41 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         return ConnectionState.DISCONNECTED;
     }
 
+    /**
+     * @return A snapshot of the MQTT publish metrics (success/failure rates, latency, in-flight count), or null if the
+     * MQTT connection has not been initialized. The MQTT connection fragment polls this while it is visible.
+     * @since 1.7.0
+     */
+    public MqttPublishMetrics getMqttPublishMetrics()
+    {
+        if (mqttConnection != null) return mqttConnection.getPublishMetrics();
+
+        return null;
+    }
+
+    /**
+     * @return The number of times the MQTT connection was re-established after it was lost. Shown in the MQTT connection
+     * fragment next to the publish metrics.
+     * @since 1.7.0
+     */
+    public int getMqttReconnectCount()
+    {
+        if (mqttConnection != null) return mqttConnection.getReconnectCount();
+
+        return 0;
+    }
+
+    /**
+     * @return The number of times an MQTT connection attempt failed or an established connection was lost.
+     * @since 1.7.0
+     */
+    public int getMqttConnectionFailureCount()
+    {
+        if (mqttConnection != null) return mqttConnection.getConnectionFailureCount();
+
+        return 0;
+    }
+
     /**
      * Adds an {@link IConnectionStateListener} so that it will be notified of all future MQTT connection state changes.
      *
@@ -720,6 +932,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     {
         if (surveyRecordProcessor != null) surveyRecordProcessor.onUiVisible(networkSurveyActivity);
 
+        uiVisible = true;
+        if (locationBatchingProvider != null) updateLocationListener();
+
         startCellularRecordScanning();
     }
 
@@ -733,6 +948,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             surveyRecordProcessor.onUiHidden();
             if (!surveyRecordProcessor.isCellularBeingUsed()) stopCellularRecordScanning();
         }
+
+        uiVisible = false;
+        if (locationBatching) updateLocationListener();
     }
 
     /**
@@ -975,9 +1193,13 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         }, PING_RATE_MS);
     }
 
+    /**
+     * @return The interval between Wi-Fi scans, which can be longer than the configured scan rate when the scans are
+     * spread out to stay within the OS scan throttling budget, or when the adaptive scan rate is enabled.
+     */
     public int getWifiScanRateMs()
     {
-        return wifiScanRateMs;
+        return wifiScanBudget.getIntervalMs(motionAdaptiveScanRate.getIntervalMs(wifiScanRateMs));
     }
 
     /**
@@ -1050,6 +1272,192 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
         surveyRecordProcessor.setGnssScanRateMs(gnssScanRateMs);
 
+        scanScheduler.onPeriodsChanged();
+        updateLocationListener();
+    }
+
+    /**
+     * Reads the adaptive scan rate settings from MDM / user preferences. When enabled, the cellular, Wi-Fi, and
+     * Bluetooth scan intervals are set from the speed of the device instead of the configured scan intervals.
+     *
+     * @since 1.7.0
+     */
+    private void updateAdaptiveScanRate()
+    {
+        final Context applicationContext = getApplicationContext();
+
+        motionAdaptiveScanRate.configure(
+                PreferenceUtils.getBooleanPreference(NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_RATE,
+                        NetworkSurveyConstants.DEFAULT_ADAPTIVE_SCAN_RATE, applicationContext),
+                PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_DISTANCE_METERS,
+                        NetworkSurveyConstants.DEFAULT_ADAPTIVE_SCAN_DISTANCE_METERS, applicationContext),
+                PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS,
+                        NetworkSurveyConstants.DEFAULT_ADAPTIVE_SCAN_MIN_INTERVAL_SECONDS, applicationContext) * 1_000,
+                PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS,
+                        NetworkSurveyConstants.DEFAULT_ADAPTIVE_SCAN_MAX_INTERVAL_SECONDS, applicationContext) * 1_000);
+
+        scanScheduler.onPeriodsChanged();
+        updateLocationListener();
+    }
+
+    /**
+     * Reads the duty cycle settings from MDM / user preferences. When enabled, all the scans and the location updates
+     * are grouped into short bursts (e.g. 30 seconds out of every 5 minutes) with the radios idle in between, which
+     * saves battery and heat for long unattended surveys.
+     *
+     * @since 1.7.0
+     */
+    private void updateDutyCycle()
+    {
+        final Context applicationContext = getApplicationContext();
+
+        if (PreferenceUtils.getBooleanPreference(NetworkSurveyConstants.PROPERTY_DUTY_CYCLE,
+                NetworkSurveyConstants.DEFAULT_DUTY_CYCLE, applicationContext))
+        {
+            scanScheduler.setDutyCycle(
+                    PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_ACTIVE_SECONDS,
+                            NetworkSurveyConstants.DEFAULT_DUTY_CYCLE_ACTIVE_SECONDS, applicationContext) * 1_000L,
+                    PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_DUTY_CYCLE_PERIOD_SECONDS,
+                            NetworkSurveyConstants.DEFAULT_DUTY_CYCLE_PERIOD_SECONDS, applicationContext) * 1_000L);
+        } else
+        {
+            scanScheduler.setDutyCycle(0, 0);
+        }
+    }
+
+    /**
+     * Called on the service thread when a duty cycle burst starts or ends. The periodic scans are held back by the
+     * scan scheduler, but the continuous BLE scan and the location updates have to be turned on and off here.
+     *
+     * @param burstActive True if a burst just started, false if one just ended.
+     * @since 1.7.0
+     */
+    private void onDutyCycleBurstChanged(boolean burstActive)
+    {
+        Timber.d("Duty cycle burst %s", burstActive ? "started" : "ended");
+
+        if (bluetoothScanningActive.get())
+        {
+            setBluetoothLeScanActive(burstActive);
+            if (!burstActive) surveyRecordProcessor.onBluetoothScanInterval();
+        }
+
+        if (burstActive)
+        {
+            updateLocationListener();
+        } else
+        {
+            removeLocationListener();
+        }
+    }
+
+    /**
+     * Called on the service thread for every location update. Passes the speed and distance travelled to the adaptive
+     * scan rate, and reschedules the scans and the location updates if that changes the scan interval.
+     *
+     * @since 1.7.0
+     */
+    private void onMotionUpdate()
+    {
+        if (motionAdaptiveScanRate.onMotion(gpsListener.getSpeedMetersPerSecond(), gpsListener.getDistanceTravelledMeters()))
+        {
+            motionAdaptiveScanRate.logStatistics(surveyRecordProcessor.getScanRecordCount());
+            scanScheduler.onPeriodsChanged();
+            updateLocationListener();
+        }
+    }
+
+    /**
+     * Reads the cellular change detection (delta mode) settings from MDM / user preferences and applies them to the
+     * survey record processor.
+     *
+     * @since 1.7.0
+     */
+    private void updateCellularChangeDetection()
+    {
+        final Context applicationContext = getApplicationContext();
+
+        surveyRecordProcessor.setCellularChangeDetection(
+                PreferenceUtils.getBooleanPreference(NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_DETECTION,
+                        NetworkSurveyConstants.DEFAULT_CELLULAR_CHANGE_DETECTION, applicationContext),
+                PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_THRESHOLD_DB,
+                        NetworkSurveyConstants.DEFAULT_CELLULAR_CHANGE_THRESHOLD_DB, applicationContext),
+                PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_CELLULAR_CHANGE_HEARTBEAT_SECONDS,
+                        NetworkSurveyConstants.DEFAULT_CELLULAR_CHANGE_HEARTBEAT_SECONDS, applicationContext));
+    }
+
+    /**
+     * Reads the GNSS aggregation setting from MDM / user preferences and applies it to the survey record processor.
+     *
+     * @since 1.7.0
+     */
+    private void updateGnssAggregation()
+    {
+        surveyRecordProcessor.setGnssAggregationEnabled(
+                PreferenceUtils.getBooleanPreference(NetworkSurveyConstants.PROPERTY_GNSS_AGGREGATION,
+                        NetworkSurveyConstants.DEFAULT_GNSS_AGGREGATION, getApplicationContext()));
+    }
+
+    /**
+     * Reads the Bluetooth sighting merge setting from MDM / user preferences and passes it to the processor.
+     *
+     * @since 1.7.0
+     */
+    private void updateBluetoothSightingMerge()
+    {
+        bluetoothSightingMerge = PreferenceUtils.getBooleanPreference(NetworkSurveyConstants.PROPERTY_BLUETOOTH_SIGHTING_MERGE,
+                NetworkSurveyConstants.DEFAULT_BLUETOOTH_SIGHTING_MERGE, getApplicationContext());
+        surveyRecordProcessor.setBluetoothMergeEnabled(bluetoothSightingMerge);
+    }
+
+    /**
+     * Reads the record filter rules from MDM / user preferences, compiles them, and passes the filter to the processor.
+     * Each rule is a comma separated list, and a rule that is left blank does not filter anything.
+     *
+     * @since 1.7.0
+     */
+    private void updateRecordFilter()
+    {
+        final Context applicationContext = getApplicationContext();
+
+        if (!PreferenceUtils.getBooleanPreference(NetworkSurveyConstants.PROPERTY_RECORD_FILTER,
+                NetworkSurveyConstants.DEFAULT_RECORD_FILTER, applicationContext))
+        {
+            surveyRecordProcessor.setRecordFilter(RecordFilter.ACCEPT_ALL);
+            return;
+        }
+
+        surveyRecordProcessor.setRecordFilter(RecordFilter.compile(
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_RECORD_FILTER_PLMNS, "", applicationContext),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_RECORD_FILTER_EARFCNS, "", applicationContext),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_RECORD_FILTER_MIN_RSRP, "", applicationContext),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_RECORD_FILTER_WIFI_SSID_PREFIXES, "", applicationContext),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_RECORD_FILTER_WIFI_BSSID_PREFIXES, "", applicationContext),
+                PreferenceUtils.getStringPreference(NetworkSurveyConstants.PROPERTY_RECORD_FILTER_BLUETOOTH_TYPES, "", applicationContext)));
+    }
+
+    /**
+     * Reads the location batching settings from MDM / user preferences. When enabled and the UI is not visible, the
+     * location fixes from the GPS, network, or passive provider (whichever is used for the location updates) are
+     * batched by the location manager and delivered in bulk, so the app processor is not woken up for every fix during a
+     * long background survey.
+     *
+     * @since 1.7.0
+     */
+    private void updateLocationBatching()
+    {
+        final Context applicationContext = getApplicationContext();
+
+        locationBatching = PreferenceUtils.getBooleanPreference(NetworkSurveyConstants.PROPERTY_LOCATION_BATCHING,
+                NetworkSurveyConstants.DEFAULT_LOCATION_BATCHING, applicationContext);
+        locationBatchMaxDelayMs = PreferenceUtils.getIntPreference(NetworkSurveyConstants.PROPERTY_LOCATION_BATCH_MAX_DELAY_SECONDS,
+                NetworkSurveyConstants.DEFAULT_LOCATION_BATCH_MAX_DELAY_SECONDS, applicationContext) * 1_000L;
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S && locationBatching)
+        {
+            Timber.i("Location batching requires Android 12 or newer, the location updates will not be batched");
+        }
+
         updateLocationListener();
     }
 
@@ -1067,6 +1475,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     {
         if (!isBeingUsed()) return;
 
+        // The GNSS receiver stays off between duty cycle bursts, the next burst registers the listener again
+        if (!scanScheduler.isInBurst()) return;
+
         Timber.d("Registering the location listener");
 
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED)
@@ -1078,23 +1489,28 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         final LocationManager locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
         if (locationManager != null)
         {
+            // In adaptive mode the cellular, Wi-Fi, and Bluetooth scans share the interval worked out from the speed
+            final int cellularRateMs = motionAdaptiveScanRate.getIntervalMs(cellularScanRateMs);
+            final int wifiRateMs = getWifiScanRateMs();
+            final int bluetoothRateMs = motionAdaptiveScanRate.getIntervalMs(bluetoothScanRateMs);
+
             // Start with the highest value
-            int smallestScanRate = Math.max(cellularScanRateMs, Math.max(wifiScanRateMs, Math.max(bluetoothScanRateMs, Math.max(gnssScanRateMs, deviceStatusScanRateMs))));
+            int smallestScanRate = Math.max(cellularRateMs, Math.max(wifiRateMs, Math.max(bluetoothRateMs, Math.max(gnssScanRateMs, deviceStatusScanRateMs))));
 
             // Find the smallest scan rate for all the scanning types that are active as a starting point
-            if (cellularScanningActive.get() && cellularScanRateMs < smallestScanRate)
+            if (cellularScanningActive.get() && cellularRateMs < smallestScanRate)
             {
-                smallestScanRate = cellularScanRateMs;
+                smallestScanRate = cellularRateMs;
             }
 
-            if (wifiScanningActive.get() && wifiScanRateMs < smallestScanRate)
+            if (wifiScanningActive.get() && wifiRateMs < smallestScanRate)
             {
-                smallestScanRate = wifiScanRateMs;
+                smallestScanRate = wifiRateMs;
             }
 
-            if (bluetoothScanningActive.get() && bluetoothScanRateMs < smallestScanRate)
+            if (bluetoothScanningActive.get() && bluetoothRateMs < smallestScanRate)
             {
-                smallestScanRate = bluetoothScanRateMs;
+                smallestScanRate = bluetoothRateMs;
             }
 
             if (gnssStarted.get() && gnssScanRateMs < smallestScanRate)
@@ -1110,6 +1526,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             // Use the smallest scan rate set by the user for the active scanning types
             if (smallestScanRate > 10_000) smallestScanRate = smallestScanRate / 2;
 
+            // A stationary device in adaptive mode still needs location updates often enough to notice it started moving
+            if (motionAdaptiveScanRate.isEnabled()) smallestScanRate = Math.min(smallestScanRate, ADAPTIVE_MAX_LOCATION_INTERVAL_MS);
+
             Timber.d("Setting the location update rate to %d", smallestScanRate);
 
             try
@@ -1125,7 +1544,24 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
                 {
                     provider = LocationManager.PASSIVE_PROVIDER;
                 }
-                locationManager.requestLocationUpdates(provider, smallestScanRate, 0f, gpsListener, serviceLooper);
+
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && locationBatching && !uiVisible)
+                {
+                    // Nobody is watching the map, so the fixes can be batched. The scans wait for the batch that
+                    // covers their time, with a tick of slack for the batch to be delivered.
+                    final long maxUpdateDelayMs = Math.max(locationBatchMaxDelayMs, 2L * smallestScanRate);
+                    final LocationRequest locationRequest = new LocationRequest.Builder(smallestScanRate)
+                            .setMaxUpdateDelayMillis(maxUpdateDelayMs)
+                            .build();
+                    locationManager.requestLocationUpdates(provider, locationRequest, serviceHandler::post, gpsListener);
+                    locationBatchingProvider = provider;
+                    surveyRecordProcessor.setLocationBackfillMaxWaitMs(maxUpdateDelayMs + SCAN_SCHEDULER_TICK_MS);
+                } else
+                {
+                    locationManager.requestLocationUpdates(provider, smallestScanRate, 0f, gpsListener, serviceLooper);
+                    locationBatchingProvider = null;
+                    surveyRecordProcessor.setLocationBackfillMaxWaitMs(0);
+                }
             } catch (Throwable t)
             {
                 // An IllegalArgumentException was occurring on phones that don't have a GPS provider, so some defensive coding here
@@ -1147,6 +1583,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             final LocationManager locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
             if (locationManager != null) locationManager.removeUpdates(gpsListener);
         }
+
+        locationBatchingProvider = null;
+        if (surveyRecordProcessor != null) surveyRecordProcessor.setLocationBackfillMaxWaitMs(0);
     }
 
     /**
@@ -1156,9 +1595,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
      */
     public void runSingleCellularScan()
     {
-        final TelephonyManager telephonyManager = (TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE);
-
-        if (telephonyManager == null || !getPackageManager().hasSystemFeature(PackageManager.FEATURE_TELEPHONY))
+        if (cellularScanTargets.isEmpty() || !getPackageManager().hasSystemFeature(PackageManager.FEATURE_TELEPHONY))
         {
             Timber.w("Unable to get access to the Telephony Manager.  No network information will be displayed");
             return;
@@ -1167,31 +1604,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         // The service handler can be null if this service has been stopped but the activity still has a reference to this old service
         if (serviceHandler == null) return;
 
-        serviceHandler.postDelayed(() -> {
-            try
-            {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
-                {
-                    telephonyManager.requestCellInfoUpdate(executorService, cellInfoCallback);
-                } else
-                {
-                    execute(() -> {
-                        try
-                        {
-                            surveyRecordProcessor.onCellInfoUpdate(telephonyManager.getAllCellInfo(),
-                                    CalculationUtils.getNetworkType(telephonyManager.getDataNetworkType()),
-                                    CalculationUtils.getNetworkType(telephonyManager.getVoiceNetworkType()));
-                        } catch (Throwable t)
-                        {
-                            Timber.e(t, "Something went wrong when trying to get the cell info for a single scan");
-                        }
-                    });
-                }
-            } catch (SecurityException e)
-            {
-                Timber.e(e, "Could not get the required permissions to get the network details");
-            }
-        }, 1_000);
+        serviceHandler.postDelayed(this::requestCellInfoUpdates, 1_000);
     }
 
     /**
@@ -1203,56 +1616,59 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     {
         if (cellularScanningActive.getAndSet(true)) return;
 
-        final TelephonyManager telephonyManager = (TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE);
+        // Pick up any SIM changes since the last time scanning was started
+        updateCellularScanTargets();
 
-        if (telephonyManager == null || !getPackageManager().hasSystemFeature(PackageManager.FEATURE_TELEPHONY))
+        if (cellularScanTargets.isEmpty() || !getPackageManager().hasSystemFeature(PackageManager.FEATURE_TELEPHONY))
         {
             Timber.w("Unable to get access to the Telephony Manager.  No network information will be displayed");
             return;
         }
 
-        final int handlerTaskId = cellularScanningTaskId.incrementAndGet();
+        scanScheduler.cancel(cellularScanningTask);
+        cellularScanningTask = scanScheduler.schedule("Cellular", () -> motionAdaptiveScanRate.getIntervalMs(cellularScanRateMs), 1_000, 0,
+                ScanScheduler.MissedTickPolicy.RUN_LATE, this::requestCellInfoUpdates);
 
-        serviceHandler.postDelayed(new Runnable()
+        updateLocationListener();
+    }
+
+    /**
+     * Requests the latest cell info for every subscription that is being scanned. On Android Q and newer the requests
+     * are asynchronous, and on older versions each subscription is read on its own executor thread, so the
+     * subscriptions are scanned concurrently and a slow modem for one SIM does not hold up the other.
+     *
+     * @since 1.7.0
+     */
+    private void requestCellInfoUpdates()
+    {
+        for (CellularScanTarget target : cellularScanTargets)
         {
-            @Override
-            public void run()
+            try
             {
-                try
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
                 {
-                    if (!cellularScanningActive.get() || cellularScanningTaskId.get() != handlerTaskId)
-                    {
-                        Timber.i("Stopping the handler that pulls the latest cellular information; taskId=%d", handlerTaskId);
-                        return;
-                    }
-
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
-                    {
-                        telephonyManager.requestCellInfoUpdate(executorService, cellInfoCallback);
-                    } else
-                    {
-                        execute(() -> {
-                            try
-                            {
-                                surveyRecordProcessor.onCellInfoUpdate(telephonyManager.getAllCellInfo(),
-                                        CalculationUtils.getNetworkType(telephonyManager.getDataNetworkType()),
-                                        CalculationUtils.getNetworkType(telephonyManager.getVoiceNetworkType()));
-                            } catch (Throwable t)
-                            {
-                                Timber.e(t, "Failed to pass the cellular info to the survey record processor");
-                            }
-                        });
-                    }
-
-                    serviceHandler.postDelayed(this, cellularScanRateMs);
-                } catch (SecurityException e)
+                    target.telephonyManager.requestCellInfoUpdate(executorService, target.cellInfoCallback);
+                } else
                 {
-                    Timber.e(e, "Could not get the required permissions to get the network details");
+                    execute(() -> {
+                        final long startNanos = callbackStats.begin();
+                        try
+                        {
+                            surveyRecordProcessor.onCellInfoUpdate(target.subscriptionId, target.telephonyManager.getAllCellInfo(),
+                                    CalculationUtils.getNetworkType(target.telephonyManager.getDataNetworkType()),
+                                    CalculationUtils.getNetworkType(target.telephonyManager.getVoiceNetworkType()));
+                        } catch (Throwable t)
+                        {
+                            Timber.e(t, "Failed to pass the cellular info to the survey record processor");
+                        }
+                        callbackStats.end(SurveyCallbackStats.Callback.CELL_INFO, startNanos);
+                    });
                 }
+            } catch (SecurityException e)
+            {
+                Timber.e(e, "Could not get the required permissions to get the network details");
             }
-        }, 1_000);
-
-        updateLocationListener();
+        }
     }
 
     /**
@@ -1284,6 +1700,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     {
         Timber.d("Setting the cellular scanning active flag to false");
         cellularScanningActive.set(false);
+        scanScheduler.cancel(cellularScanningTask);
+        cellularScanningTask = null;
 
         updateLocationListener();
     }
@@ -1356,47 +1774,58 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     }
 
     /**
-     * Create the Cellular Scan callback that will be notified of Cellular scan events once
-     * {@link #startCellularRecordScanning()} is called.
+     * Creates a {@link CellularScanTarget} for each active subscription so that both SIMs of a multi-SIM device are
+     * surveyed at the full scan rate. If the device has a single subscription, or the subscriptions can't be read, the
+     * default {@link TelephonyManager} is used just like on a single SIM device.
      *
-     * @since 0.3.0
+     * @since 1.7.0
      */
-    private void initializeCellularScanningResources()
+    private void updateCellularScanTargets()
     {
         final TelephonyManager telephonyManager = (TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE);
 
         if (telephonyManager == null)
         {
             Timber.e("Unable to get access to the Telephony Manager.  No network information will be displayed");
+            cellularScanTargets = Collections.emptyList();
             return;
         }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+        final List<CellularScanTarget> targets = new ArrayList<>();
+        int primarySubscriptionId = SubscriptionManager.INVALID_SUBSCRIPTION_ID;
+
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.READ_PHONE_STATE) == PackageManager.PERMISSION_GRANTED)
         {
-            cellInfoCallback = new TelephonyManager.CellInfoCallback()
+            try
             {
-                @Override
-                public void onCellInfo(@NonNull List<CellInfo> cellInfo)
+                final SubscriptionManager subscriptionManager = (SubscriptionManager) getSystemService(Context.TELEPHONY_SUBSCRIPTION_SERVICE);
+                final List<SubscriptionInfo> subscriptions = subscriptionManager == null ? null : subscriptionManager.getActiveSubscriptionInfoList();
+                if (subscriptions != null && subscriptions.size() > 1)
                 {
-                    String dataNetworkType = "Unknown";
-                    String voiceNetworkType = "Unknown";
-                    if (ActivityCompat.checkSelfPermission(NetworkSurveyService.this, Manifest.permission.READ_PHONE_STATE) == PackageManager.PERMISSION_GRANTED)
+                    for (SubscriptionInfo subscription : subscriptions)
                     {
-                        dataNetworkType = CalculationUtils.getNetworkType(telephonyManager.getDataNetworkType());
-                        voiceNetworkType = CalculationUtils.getNetworkType(telephonyManager.getVoiceNetworkType());
+                        final int subscriptionId = subscription.getSubscriptionId();
+                        targets.add(new CellularScanTarget(subscriptionId, telephonyManager.createForSubscriptionId(subscriptionId)));
                     }
-
-                    surveyRecordProcessor.onCellInfoUpdate(cellInfo, dataNetworkType, voiceNetworkType);
+                    primarySubscriptionId = SubscriptionManager.getDefaultDataSubscriptionId();
                 }
+            } catch (SecurityException e)
+            {
+                Timber.w(e, "Could not read the active subscriptions, only the default subscription will be scanned");
+                targets.clear();
+            }
+        }
 
-                @Override
-                public void onError(int errorCode, @Nullable Throwable detail)
-                {
-                    super.onError(errorCode, detail);
-                    Timber.w(detail, "Received an error from the Telephony Manager when requesting a cell info update; errorCode=%s", errorCode);
-                }
-            };
+        if (targets.isEmpty())
+        {
+            targets.add(new CellularScanTarget(SubscriptionManager.INVALID_SUBSCRIPTION_ID, telephonyManager));
+        } else
+        {
+            Timber.i("Scanning %d cellular subscriptions, the default data subscription is %d", targets.size(), primarySubscriptionId);
         }
+
+        surveyRecordProcessor.setPrimarySubscriptionId(primarySubscriptionId);
+        cellularScanTargets = Collections.unmodifiableList(targets);
     }
 
     /**
@@ -1420,25 +1849,41 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             @Override
             public void onReceive(Context c, Intent intent)
             {
-                boolean success = intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, false);
-                if (success)
+                final long startNanos = callbackStats.begin();
+                try
                 {
-                    final List<ScanResult> results = wifiManager.getScanResults();
-                    if (results == null)
-                    {
-                        Timber.d("Null wifi scan results");
-                        return;
-                    }
-
-                    surveyRecordProcessor.onWifiScanUpdate(results);
-                } else
+                    onWifiScanResults(wifiManager, intent);
+                } finally
                 {
-                    Timber.e("A Wi-Fi scan failed, ignoring the results.");
+                    callbackStats.end(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS, startNanos);
                 }
             }
         };
     }
 
+    /**
+     * Reads the latest Wi-Fi scan results and hands them to the survey record processor. Called on the scan results
+     * thread.
+     *
+     * @since 1.7.0
+     */
+    private void onWifiScanResults(WifiManager wifiManager, Intent intent)
+    {
+        // When a scan fails or is throttled the OS still sends this broadcast, but the results are the cached
+        // results of an earlier scan. Those are passed on for display but are tagged so they are not logged.
+        final boolean fresh = intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, false);
+        if (!fresh) Timber.d("A Wi-Fi scan did not update the results, the cached results are not logged");
+
+        final List<ScanResult> results = wifiManager.getScanResults();
+        if (results == null)
+        {
+            Timber.d("Null wifi scan results");
+            return;
+        }
+
+        surveyRecordProcessor.onWifiScanUpdate(results, fresh);
+    }
+
     /**
      * Create the Bluetooth Scan broadcast receiver that will be notified of Bluetooth scan events once
      * {@link #startBluetoothRecordScanning()} is called.
@@ -1469,22 +1914,27 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             {
                 if (BluetoothDevice.ACTION_FOUND.equals(intent.getAction()))
                 {
-                    final BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
-                    if (device == null)
+                    final long startNanos = callbackStats.begin();
+                    try
                     {
-                        Timber.e("Received a null BluetoothDevice in the broadcast action found call");
-                        return;
-                    }
+                        final BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
+                        if (device == null)
+                        {
+                            Timber.e("Received a null BluetoothDevice in the broadcast action found call");
+                            return;
+                        }
 
-                    int rssi = Short.MIN_VALUE;
-                    if (intent.hasExtra(BluetoothDevice.EXTRA_RSSI))
+                        int rssi = Short.MIN_VALUE;
+                        if (intent.hasExtra(BluetoothDevice.EXTRA_RSSI))
+                        {
+                            rssi = intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, Short.MIN_VALUE);
+                        }
+
+                        if (rssi != Short.MIN_VALUE) surveyRecordProcessor.onBluetoothClassicScanUpdate(device, rssi);
+                    } finally
                     {
-                        rssi = intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, Short.MIN_VALUE);
+                        callbackStats.end(SurveyCallbackStats.Callback.BLUETOOTH_CLASSIC, startNanos);
                     }
-
-                    if (rssi == Short.MIN_VALUE) return;
-
-                    surveyRecordProcessor.onBluetoothClassicScanUpdate(device, rssi);
                 }
             }
         };
@@ -1494,13 +1944,18 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             @Override
             public void onScanResult(int callbackType, android.bluetooth.le.ScanResult result)
             {
+                // The BLE scanner always calls back on the main thread, so only hand off the results here
+                final long startNanos = callbackStats.begin();
                 surveyRecordProcessor.onBluetoothScanUpdate(result);
+                callbackStats.end(SurveyCallbackStats.Callback.BLUETOOTH_LE, startNanos);
             }
 
             @Override
             public void onBatchScanResults(List<android.bluetooth.le.ScanResult> results)
             {
+                final long startNanos = callbackStats.begin();
                 surveyRecordProcessor.onBluetoothScanUpdate(results);
+                callbackStats.end(SurveyCallbackStats.Callback.BLUETOOTH_LE, startNanos);
             }
 
             @Override
@@ -1530,8 +1985,10 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             @Override
             public void onGnssMeasurementsReceived(GnssMeasurementsEvent event)
             {
+                final long startNanos = callbackStats.begin();
                 gnssRawSupportKnown = true;
                 if (surveyRecordProcessor != null) surveyRecordProcessor.onGnssMeasurements(event);
+                callbackStats.end(SurveyCallbackStats.Callback.GNSS_MEASUREMENTS, startNanos);
             }
         };
     }
@@ -1549,7 +2006,7 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
         final IntentFilter scanResultsIntentFilter = new IntentFilter();
         scanResultsIntentFilter.addAction(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION);
-        registerReceiver(wifiScanReceiver, scanResultsIntentFilter);
+        registerReceiver(wifiScanReceiver, scanResultsIntentFilter, null, scanResultsHandler);
 
         final WifiManager wifiManager = (WifiManager) getSystemService(Context.WIFI_SERVICE);
 
@@ -1560,34 +2017,46 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             return;
         }
 
-        final int handlerTaskId = wifiScanningTaskId.incrementAndGet();
+        wifiScanBudget.setThrottled(isWifiScanThrottled(wifiManager));
 
-        serviceHandler.postDelayed(new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                try
-                {
-                    if (!wifiScanningActive.get() || wifiScanningTaskId.get() != handlerTaskId)
+        // Android throttles Wi-Fi scans, so a scan that is already late is skipped rather than run back to back, and
+        // the scans are spread out so they stay within the OS scan budget
+        scanScheduler.cancel(wifiScanningTask);
+        wifiScanningTask = scanScheduler.schedule("Wi-Fi", () -> wifiScanBudget.getIntervalMs(motionAdaptiveScanRate.getIntervalMs(wifiScanRateMs)),
+                2_000, 0, ScanScheduler.MissedTickPolicy.SKIP, () -> {
+                    try
+                    {
+                        if (!wifiScanBudget.tryAcquire(SystemClock.elapsedRealtime()))
+                        {
+                            Timber.d("Not starting a Wi-Fi scan because it would be throttled");
+                            return;
+                        }
+
+                        boolean success = wifiManager.startScan();
+
+                        if (!success) Timber.e("Kicking off a Wi-Fi scan failed");
+                    } catch (Exception e)
                     {
-                        Timber.i("Stopping the handler that pulls the latest wifi information, taskId=%d", handlerTaskId);
-                        return;
+                        Timber.e(e, "Could not run a Wi-Fi scan");
                     }
+                });
 
-                    boolean success = wifiManager.startScan();
+        updateLocationListener();
+    }
 
-                    if (!success) Timber.e("Kicking off a Wi-Fi scan failed");
+    /**
+     * Scan throttling was added in Android 9, and as of Android 11 it can be turned off in the developer options.
+     *
+     * @return True if the OS limits how many Wi-Fi scans this app can run.
+     * @since 1.7.0
+     */
+    private boolean isWifiScanThrottled(WifiManager wifiManager)
+    {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) return false;
 
-                    serviceHandler.postDelayed(this, wifiScanRateMs);
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Could not run a Wi-Fi scan");
-                }
-            }
-        }, 2_000);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) return wifiManager.isScanThrottleEnabled();
 
-        updateLocationListener();
+        return true;
     }
 
     /**
@@ -1598,6 +2067,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     private void stopWifiRecordScanning()
     {
         wifiScanningActive.set(false);
+        scanScheduler.cancel(wifiScanningTask);
+        wifiScanningTask = null;
 
         try
         {
@@ -1669,49 +2140,89 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
 
         final IntentFilter intentFilter = new IntentFilter(BluetoothDevice.ACTION_FOUND);
         intentFilter.addAction(BluetoothAdapter.ACTION_DISCOVERY_FINISHED);
-        registerReceiver(bluetoothBroadcastReceiver, intentFilter);
-
-        final ScanSettings.Builder scanSettingsBuilder = new ScanSettings.Builder();
-        scanSettingsBuilder.setScanMode(ScanSettings.SCAN_MODE_LOW_POWER);
-        scanSettingsBuilder.setReportDelay(bluetoothScanRateMs);
-        bluetoothLeScanner.startScan(Collections.emptyList(), scanSettingsBuilder.build(), bluetoothScanCallback);
+        registerReceiver(bluetoothBroadcastReceiver, intentFilter, null, scanResultsHandler);
 
-        final int handlerTaskId = bluetoothScanningTaskId.incrementAndGet();
+        if (scanScheduler.isInBurst()) startBluetoothLeScan(bluetoothLeScanner);
 
-        serviceHandler.postDelayed(new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                try
-                {
-                    if (!bluetoothScanningActive.get() || bluetoothScanningTaskId.get() != handlerTaskId)
-                    {
-                        Timber.i("Stopping the handler that pulls the latest Bluetooth information; taskId=%d", handlerTaskId);
-                        return;
-                    }
+        scanScheduler.cancel(bluetoothScanningTask);
+        bluetoothScanningTask = scanScheduler.schedule("Bluetooth", () -> motionAdaptiveScanRate.getIntervalMs(bluetoothScanRateMs), 1_000, 0,
+                ScanScheduler.MissedTickPolicy.RUN_LATE, () -> {
+                    // Sends out the merged sightings from the interval that just ended
+                    surveyRecordProcessor.onBluetoothScanInterval();
 
-                    // Calling start Discovery scans for BT Classic (BR/EDR) devices as well. However, it also seems
-                    // it allows for getting some BLE devices as well, but we seem to get more with the BLE scanner above
-                    if (!bluetoothAdapter.isDiscovering())
+                    try
                     {
-                        bluetoothAdapter.startDiscovery();
-                    } else
+                        // Calling start Discovery scans for BT Classic (BR/EDR) devices as well. However, it also seems
+                        // it allows for getting some BLE devices as well, but we seem to get more with the BLE scanner above
+                        if (!bluetoothAdapter.isDiscovering())
+                        {
+                            bluetoothAdapter.startDiscovery();
+                        } else
+                        {
+                            Timber.d("Bluetooth discovery already in progress, not starting a new discovery.");
+                        }
+                    } catch (Exception e)
                     {
-                        Timber.d("Bluetooth discovery already in progress, not starting a new discovery.");
+                        Timber.e(e, "Could not run a Bluetooth scan");
                     }
-
-                    serviceHandler.postDelayed(this, bluetoothScanRateMs);
-                } catch (Exception e)
-                {
-                    Timber.e(e, "Could not run a Bluetooth scan");
-                }
-            }
-        }, 1_000);
+                });
 
         updateLocationListener();
     }
 
+    /**
+     * Starts the continuous BLE scan, which reports the results in batches every Bluetooth scan interval.
+     *
+     * @since 1.7.0
+     */
+    private void startBluetoothLeScan(BluetoothLeScanner bluetoothLeScanner)
+    {
+        final ScanSettings.Builder scanSettingsBuilder = new ScanSettings.Builder();
+        scanSettingsBuilder.setScanMode(ScanSettings.SCAN_MODE_LOW_POWER);
+
+        // When the sightings are merged per interval by the processor, the batching is not needed on a device that
+        // can't offload it to the Bluetooth controller, so the results are reported as they are found instead. The
+        // merge setting is applied the next time the BLE scan starts.
+        final BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+        if (bluetoothSightingMerge && (bluetoothAdapter == null || !bluetoothAdapter.isOffloadedScanBatchingSupported()))
+        {
+            Timber.i("Offloaded BLE scan batching is not supported, the BLE results are reported as they are found and merged");
+        } else
+        {
+            scanSettingsBuilder.setReportDelay(bluetoothScanRateMs);
+        }
+
+        bluetoothLeScanner.startScan(Collections.emptyList(), scanSettingsBuilder.build(), bluetoothScanCallback);
+    }
+
+    /**
+     * Starts or stops the BLE scan and Bluetooth discovery at the start and end of a duty cycle burst, without
+     * changing whether Bluetooth scanning is turned on.
+     *
+     * @since 1.7.0
+     */
+    private void setBluetoothLeScanActive(boolean active)
+    {
+        try
+        {
+            final BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+            if (bluetoothAdapter == null) return;
+
+            final BluetoothLeScanner bluetoothLeScanner = bluetoothAdapter.getBluetoothLeScanner();
+            if (active)
+            {
+                if (bluetoothLeScanner != null) startBluetoothLeScan(bluetoothLeScanner);
+            } else
+            {
+                bluetoothAdapter.cancelDiscovery();
+                if (bluetoothLeScanner != null) bluetoothLeScanner.stopScan(bluetoothScanCallback);
+            }
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not %s the Bluetooth LE scan for the duty cycle", active ? "start" : "stop");
+        }
+    }
+
     /**
      * Unregister the Bluetooth scan callback and stop the scanning service handler.
      *
@@ -1720,6 +2231,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     private void stopBluetoothRecordScanning()
     {
         bluetoothScanningActive.set(false);
+        scanScheduler.cancel(bluetoothScanningTask);
+        bluetoothScanningTask = null;
+        surveyRecordProcessor.onBluetoothScanInterval();
 
         try
         {
@@ -1751,30 +2265,18 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     {
         if (deviceStatusActive.getAndSet(true)) return;
 
-        final int handlerTaskId = deviceStatusGeneratorTaskId.incrementAndGet();
-
-        serviceHandler.postDelayed(new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                try
-                {
-                    if (!deviceStatusActive.get() || deviceStatusGeneratorTaskId.get() != handlerTaskId)
+        // A late device status message still carries the current state, so it is sent rather than skipped
+        scanScheduler.cancel(deviceStatusGeneratorTask);
+        deviceStatusGeneratorTask = scanScheduler.schedule("Device Status", () -> deviceStatusScanRateMs, 1_000, 0,
+                ScanScheduler.MissedTickPolicy.RUN_LATE, () -> {
+                    try
+                    {
+                        surveyRecordProcessor.onDeviceStatus(generateDeviceStatus());
+                    } catch (SecurityException e)
                     {
-                        Timber.i("Stopping the handler that generates the device status message; taskId=%d", handlerTaskId);
-                        return;
+                        Timber.e(e, "Could not get the required permissions to generate a device status message");
                     }
-
-                    surveyRecordProcessor.onDeviceStatus(generateDeviceStatus());
-
-                    serviceHandler.postDelayed(this, deviceStatusScanRateMs);
-                } catch (SecurityException e)
-                {
-                    Timber.e(e, "Could not get the required permissions to generate a device status message");
-                }
-            }
-        }, 1000L);
+                });
 
         // Add a listener for the Service State information if we have access to the Telephony Manager
         final TelephonyManager telephonyManager = (TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE);
@@ -1820,6 +2322,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         dataBuilder.setDeviceSerialNumber(deviceId)
                 .setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
 
+        final String deviceName = surveyRecordProcessor.getDeviceName();
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
+
         if (gpsListener != null)
         {
             final Location lastKnownLocation = gpsListener.getLatestLocation();
@@ -1832,15 +2337,19 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             }
         }
 
-        final IntentFilter intentFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-        final Intent batteryStatus = registerReceiver(null, intentFilter);
-        if (batteryStatus != null)
+        // The sampler keeps the battery, thermal, and storage state up to date, so this is only a memory read
+        final DeviceTelemetry telemetry = deviceTelemetrySampler.getLatest();
+        if (telemetry.getBatteryPercent() != DeviceTelemetry.UNKNOWN)
         {
-            int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-            int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-            final float batteryPercent = (level / (float) scale) * 100;
-            dataBuilder.setBatteryLevelPercent(Int32Value.of((int) batteryPercent));
+            dataBuilder.setBatteryLevelPercent(Int32Value.of(telemetry.getBatteryPercent()));
         }
+        Timber.v("Device telemetry: %s", telemetry);
+
+        // The DeviceStatus message has no field for the wakeups, so they are reported in the log with each status
+        final long wakeupCount = scanScheduler.getWakeupCount();
+        Timber.i("Scan wakeups since the last device status: %d (total=%d, dutyCycleBursts=%d)",
+                wakeupCount - lastDeviceStatusWakeupCount, wakeupCount, scanScheduler.getBurstCount());
+        lastDeviceStatusWakeupCount = wakeupCount;
 
         dataBuilder.setDeviceModel(Build.MODEL);
 
@@ -1873,6 +2382,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         }
 
         deviceStatusActive.set(false);
+        scanScheduler.cancel(deviceStatusGeneratorTask);
+        deviceStatusGeneratorTask = null;
 
         updateLocationListener();
     }
@@ -1985,7 +2496,8 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
                         locationManager.registerGnssMeasurementsCallback(executorService, measurementListener);
                     } else
                     {
-                        locationManager.registerGnssMeasurementsCallback(measurementListener);
+                        // Without a handler the measurements would be delivered on the main thread
+                        locationManager.registerGnssMeasurementsCallback(measurementListener, scanResultsHandler);
                     }
                     gpsListener.addGnssTimeoutCallback(this::checkForGnssTimeout);
                     Timber.i("Successfully registered the GNSS listeners");
@@ -1995,6 +2507,11 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
                 Timber.w("The location manager was null when registering the GNSS listeners");
             }
 
+            // The aggregation window is otherwise only flushed when the next measurement event arrives
+            scanScheduler.cancel(gnssIntervalTask);
+            gnssIntervalTask = scanScheduler.schedule("GNSS", () -> gnssScanRateMs, 1_000, 0,
+                    ScanScheduler.MissedTickPolicy.RUN_LATE, () -> surveyRecordProcessor.onGnssScanInterval(false));
+
             success = true;
         }
 
@@ -2012,6 +2529,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
     {
         if (!gnssStarted.getAndSet(false)) return;
 
+        scanScheduler.cancel(gnssIntervalTask);
+        gnssIntervalTask = null;
+
         if (locationManager != null)
         {
             locationManager.unregisterGnssMeasurementsCallback(measurementListener);
@@ -2019,6 +2539,9 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             locationManager = null;
         }
 
+        // Queued behind the measurement events that are already waiting, so the partial window includes them
+        surveyRecordProcessor.onGnssScanInterval(true);
+
         updateLocationListener();
     }
 
@@ -2061,6 +2584,14 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
             public void onReceive(Context context, Intent intent)
             {
                 setScanRateValues();
+                updateAdaptiveScanRate();
+                updateDutyCycle();
+                updateCellularChangeDetection();
+                updateGnssAggregation();
+                updateBluetoothSightingMerge();
+                updateLocationBatching();
+                updateRecordFilter();
+                updateMqttTopicQos();
                 attemptMqttConnectWithMdmConfig(true);
 
                 cellularSurveyRecordLogger.onMdmPreferenceChanged();
@@ -2288,6 +2819,57 @@ public class NetworkSurveyService extends Service implements IConnectionStateLis
         updateServiceNotification();
     }
 
+    /**
+     * The {@link TelephonyManager} for a single subscription, and the callback that passes its cell info to the survey
+     * record processor tagged with the subscription ID.
+     *
+     * @since 1.7.0
+     */
+    private final class CellularScanTarget
+    {
+        private final int subscriptionId;
+        private final TelephonyManager telephonyManager;
+        private final TelephonyManager.CellInfoCallback cellInfoCallback;
+
+        private CellularScanTarget(int subscriptionId, TelephonyManager telephonyManager)
+        {
+            this.subscriptionId = subscriptionId;
+            this.telephonyManager = telephonyManager;
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q)
+            {
+                cellInfoCallback = new TelephonyManager.CellInfoCallback()
+                {
+                    @Override
+                    public void onCellInfo(@NonNull List<CellInfo> cellInfo)
+                    {
+                        final long startNanos = callbackStats.begin();
+                        String dataNetworkType = "Unknown";
+                        String voiceNetworkType = "Unknown";
+                        if (ActivityCompat.checkSelfPermission(NetworkSurveyService.this, Manifest.permission.READ_PHONE_STATE) == PackageManager.PERMISSION_GRANTED)
+                        {
+                            dataNetworkType = CalculationUtils.getNetworkType(telephonyManager.getDataNetworkType());
+                            voiceNetworkType = CalculationUtils.getNetworkType(telephonyManager.getVoiceNetworkType());
+                        }
+
+                        surveyRecordProcessor.onCellInfoUpdate(subscriptionId, cellInfo, dataNetworkType, voiceNetworkType);
+                        callbackStats.end(SurveyCallbackStats.Callback.CELL_INFO, startNanos);
+                    }
+
+                    @Override
+                    public void onError(int errorCode, @Nullable Throwable detail)
+                    {
+                        super.onError(errorCode, detail);
+                        Timber.w(detail, "Received an error from the Telephony Manager when requesting a cell info update; subscriptionId=%d, errorCode=%s", subscriptionId, errorCode);
+                    }
+                };
+            } else
+            {
+                cellInfoCallback = null;
+            }
+        }
+    }
+
     /**
      * Class used for the client Binder.  Because we know this service always runs in the same process as its clients,
      * we don't need to deal with IPC.
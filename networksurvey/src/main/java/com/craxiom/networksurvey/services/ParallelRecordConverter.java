@@ -0,0 +1,252 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Converts a batch of raw scan results to survey records, splitting large batches into chunks that are converted in
+ * parallel on a {@link ForkJoinPool}. The output list is always in the same order as the input list.
+ * <p>
+ * The decision to go parallel is adaptive. The converter keeps a running average of how long it takes to convert one
+ * scan result, and a batch is only split when the estimated conversion time is long enough to be worth the fork/join
+ * overhead. Each chunk is also sized so that it takes at least {@link #TARGET_CHUNK_NANOS} to convert. This means small
+ * batches (the common case) are converted on the calling thread exactly as before.
+ *
+ * @param <T> The raw scan result type (e.g. a Wi-Fi or BLE {@code ScanResult}).
+ * @param <R> The survey record type that is created from each scan result.
+ * @since 1.7.0
+ */
+class ParallelRecordConverter<T, R>
+{
+    /**
+     * Batches that are estimated to convert faster than this are converted on the calling thread.
+     */
+    static final long PARALLEL_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(2_000);
+
+    /**
+     * The minimum estimated amount of work for a single chunk.
+     */
+    static final long TARGET_CHUNK_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+
+    /**
+     * Never split a batch into chunks smaller than this, regardless of the per record estimate.
+     */
+    static final int MIN_CHUNK_SIZE = 16;
+
+    // A typical protobuf conversion cost, used until real batches have been measured
+    private static final double INITIAL_NANOS_PER_RECORD = 5_000;
+    private static final double AVERAGE_WEIGHT = 0.2;
+
+    /**
+     * Converts a single scan result to a survey record.
+     */
+    interface RecordFactory<T, R>
+    {
+        /**
+         * @param scanResult   The raw scan result.
+         * @param recordNumber The record number that was allocated for the record.
+         * @return The survey record.
+         */
+        R create(T scanResult, int recordNumber);
+    }
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final RecordFactory<T, R> recordFactory;
+
+    private volatile double averageNanosPerRecord = INITIAL_NANOS_PER_RECORD;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong parallelBatchCount = new AtomicLong();
+    private final AtomicLong recordCount = new AtomicLong();
+
+    /**
+     * Creates a converter without a default record factory, so the factory must be passed to each
+     * {@link #convert(List, int, RecordFactory)} call (e.g. when each batch is written to its own columnar storage).
+     *
+     * @param name A name used in the logs.
+     * @param pool The pool to run the chunks on.
+     */
+    ParallelRecordConverter(String name, ForkJoinPool pool)
+    {
+        this(name, pool, null);
+    }
+
+    /**
+     * @param name          A name used in the logs.
+     * @param pool          The pool to run the chunks on.
+     * @param recordFactory The function that converts a single scan result. It must be safe to call from several
+     *                      threads at the same time.
+     */
+    ParallelRecordConverter(String name, ForkJoinPool pool, RecordFactory<T, R> recordFactory)
+    {
+        this.name = name;
+        this.pool = pool;
+        this.recordFactory = recordFactory;
+    }
+
+    /**
+     * Converts the scan results, numbering the records consecutively from {@code firstRecordNumber}.
+     *
+     * @param scanResults       The validated scan results to convert.
+     * @param firstRecordNumber The first number of the block of record numbers that was reserved for this batch.
+     * @return The survey records, in the same order as the scan results.
+     * @throws IllegalStateException If this converter was created without a default record factory.
+     */
+    List<R> convert(List<T> scanResults, int firstRecordNumber)
+    {
+        if (recordFactory == null) throw new IllegalStateException("The " + name + " converter does not have a default record factory");
+
+        return convert(scanResults, firstRecordNumber, recordFactory);
+    }
+
+    /**
+     * Converts the scan results with the provided record factory, numbering the records consecutively from
+     * {@code firstRecordNumber}.
+     *
+     * @param scanResults       The validated scan results to convert.
+     * @param firstRecordNumber The first number of the block of record numbers that was reserved for this batch.
+     * @param recordFactory     The function that converts a single scan result for this batch. It must be safe to
+     *                          call from several threads at the same time.
+     * @return The survey records, in the same order as the scan results.
+     */
+    List<R> convert(List<T> scanResults, int firstRecordNumber, RecordFactory<T, R> recordFactory)
+    {
+        final int size = scanResults.size();
+        @SuppressWarnings("unchecked") final R[] records = (R[]) new Object[size];
+
+        final long startNanos = System.nanoTime();
+        final int chunkSize = getChunkSize(size);
+        boolean parallel = chunkSize < size && !pool.isShutdown();
+
+        if (parallel)
+        {
+            try
+            {
+                pool.invoke(new ConvertChunk(recordFactory, scanResults, records, firstRecordNumber, 0, size, chunkSize));
+            } catch (Exception e)
+            {
+                // Most likely the pool was shut down while the service was stopping, so fall back to this thread
+                Timber.w(e, "Could not convert the %s batch in parallel", name);
+                parallel = false;
+            }
+        }
+
+        if (!parallel) convertRange(recordFactory, scanResults, records, firstRecordNumber, 0, size);
+
+        updateStatistics(size, System.nanoTime() - startNanos, parallel);
+
+        return new ArrayList<>(Arrays.asList(records));
+    }
+
+    /**
+     * @return The number of records in a chunk for a batch of the given size, or the batch size itself if the batch
+     * should be converted sequentially.
+     */
+    int getChunkSize(int batchSize)
+    {
+        final double nanosPerRecord = averageNanosPerRecord;
+        if (batchSize < MIN_CHUNK_SIZE * 2 || batchSize * nanosPerRecord < PARALLEL_THRESHOLD_NANOS)
+        {
+            return batchSize;
+        }
+
+        // A few chunks per worker so that an uneven split still keeps every core busy
+        final int chunksPerBatch = pool.getParallelism() * 4;
+        final int minChunkForCost = (int) Math.ceil(TARGET_CHUNK_NANOS / nanosPerRecord);
+        final int chunkSize = Math.max(Math.max(MIN_CHUNK_SIZE, minChunkForCost), (batchSize + chunksPerBatch - 1) / chunksPerBatch);
+
+        return Math.min(batchSize, chunkSize);
+    }
+
+    long getBatchCount()
+    {
+        return batchCount.get();
+    }
+
+    long getParallelBatchCount()
+    {
+        return parallelBatchCount.get();
+    }
+
+    double getAverageNanosPerRecord()
+    {
+        return averageNanosPerRecord;
+    }
+
+    /**
+     * Logs the batch and record counts, and the current per record estimate.
+     */
+    void logStatistics()
+    {
+        Timber.i("%s conversion: batches=%d, parallelBatches=%d, records=%d, avgNanosPerRecord=%.0f",
+                name, batchCount.get(), parallelBatchCount.get(), recordCount.get(), averageNanosPerRecord);
+    }
+
+    private void updateStatistics(int size, long elapsedNanos, boolean parallel)
+    {
+        batchCount.incrementAndGet();
+        recordCount.addAndGet(size);
+        if (parallel) parallelBatchCount.incrementAndGet();
+
+        // The wall time of a parallel batch is shared across the cores, so scale it up to estimate the per record cost
+        if (size == 0) return;
+        final double sample = parallel ? (double) elapsedNanos * pool.getParallelism() / size : (double) elapsedNanos / size;
+        averageNanosPerRecord = averageNanosPerRecord + AVERAGE_WEIGHT * (sample - averageNanosPerRecord);
+    }
+
+    private void convertRange(RecordFactory<T, R> recordFactory, List<T> scanResults, R[] records, int firstRecordNumber, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            records[i] = recordFactory.create(scanResults.get(i), firstRecordNumber + i);
+        }
+    }
+
+    /**
+     * Converts the range {@code [from, to)} of the batch, forking halves until the range fits in a single chunk. Each
+     * record is written to its own index of the output array so no ordering step is needed afterwards.
+     */
+    private final class ConvertChunk extends RecursiveAction
+    {
+        private final RecordFactory<T, R> recordFactory;
+        private final List<T> scanResults;
+        private final R[] records;
+        private final int firstRecordNumber;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        private ConvertChunk(RecordFactory<T, R> recordFactory, List<T> scanResults, R[] records, int firstRecordNumber, int from, int to, int chunkSize)
+        {
+            this.recordFactory = recordFactory;
+            this.scanResults = scanResults;
+            this.records = records;
+            this.firstRecordNumber = firstRecordNumber;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= chunkSize)
+            {
+                convertRange(recordFactory, scanResults, records, firstRecordNumber, from, to);
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(new ConvertChunk(recordFactory, scanResults, records, firstRecordNumber, from, middle, chunkSize),
+                    new ConvertChunk(recordFactory, scanResults, records, firstRecordNumber, middle, to, chunkSize));
+        }
+    }
+}
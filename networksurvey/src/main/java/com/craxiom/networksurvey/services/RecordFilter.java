@@ -0,0 +1,406 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * A set of rules that is checked against the raw scan result fields before a survey record is built, so that records
+ * nobody is interested in (e.g. the cells of other operators) are never converted, logged, or published.
+ * <p>
+ * The rules are compiled once from their text form when the settings change: the PLMNs into a sorted {@code int[]},
+ * the EARFCN ranges into sorted bounds, and the Bluetooth device types into a lookup table, so the check for each
+ * result is a binary search or an array lookup and does not allocate. A rule that is not configured accepts every
+ * result, and a rule only rejects a result if the field it checks is known; for example, LTE neighbor cells usually
+ * don't report their PLMN, so they are not rejected by the PLMN rule.
+ * <p>
+ * A compiled filter is immutable apart from the per rule counters, so the processor swaps in a new instance when the
+ * settings change. The counters are safe to read from any thread.
+ *
+ * @since 1.7.0
+ */
+class RecordFilter
+{
+    /**
+     * The names for the {@code BluetoothDevice.DEVICE_TYPE_*} values, in the order of the constant values.
+     */
+    private static final String[] BLUETOOTH_TYPE_NAMES = {"unknown", "classic", "le", "dual"};
+
+    /**
+     * A filter without any rules, which accepts everything.
+     */
+    static final RecordFilter ACCEPT_ALL = new RecordFilter(null, null, null, null, null, null);
+
+    private final int[] plmns;
+    private final int[] earfcnRangeStarts;
+    private final int[] earfcnRangeEnds;
+    private final Integer minRsrp;
+    private final String[] ssidPrefixes;
+    private final String[] bssidPrefixes;
+    private final boolean[] bluetoothTypes;
+
+    private final Rule plmnRule = new Rule("PLMN");
+    private final Rule earfcnRule = new Rule("EARFCN");
+    private final Rule rsrpRule = new Rule("RSRP");
+    private final Rule ssidRule = new Rule("SSID");
+    private final Rule bssidRule = new Rule("BSSID");
+    private final Rule bluetoothTypeRule = new Rule("Bluetooth type");
+
+    private RecordFilter(int[] plmns, int[][] earfcnRanges, Integer minRsrp, String[] ssidPrefixes,
+                         String[] bssidPrefixes, boolean[] bluetoothTypes)
+    {
+        this.plmns = plmns;
+        this.earfcnRangeStarts = earfcnRanges == null ? null : earfcnRanges[0];
+        this.earfcnRangeEnds = earfcnRanges == null ? null : earfcnRanges[1];
+        this.minRsrp = minRsrp;
+        this.ssidPrefixes = ssidPrefixes;
+        this.bssidPrefixes = bssidPrefixes;
+        this.bluetoothTypes = bluetoothTypes;
+    }
+
+    /**
+     * Compiles the rules from their text form. Every parameter is a comma separated list, and a blank value means the
+     * rule is not used. An entry that can't be parsed is logged and skipped.
+     *
+     * @param plmns          The MCC-MNC pairs to keep, e.g. "310-410, 311-480".
+     * @param earfcnRanges   The LTE EARFCNs or inclusive EARFCN ranges to keep, e.g. "5230, 66486-67335".
+     * @param minRsrp        The minimum LTE RSRP / NR SS-RSRP in dBm, e.g. "-110".
+     * @param ssidPrefixes   The Wi-Fi SSID prefixes to keep (case sensitive).
+     * @param bssidPrefixes  The Wi-Fi BSSID prefixes to keep (case insensitive), e.g. "00:11:22".
+     * @param bluetoothTypes The Bluetooth device types to keep: classic, le, dual, and/or unknown.
+     * @return The compiled filter.
+     */
+    static RecordFilter compile(String plmns, String earfcnRanges, String minRsrp, String ssidPrefixes,
+                                String bssidPrefixes, String bluetoothTypes)
+    {
+        return new RecordFilter(compilePlmns(plmns), compileRanges(earfcnRanges), compileInteger(minRsrp),
+                compilePrefixes(ssidPrefixes, false), compilePrefixes(bssidPrefixes, true),
+                compileBluetoothTypes(bluetoothTypes));
+    }
+
+    /**
+     * @return True if at least one rule is configured.
+     */
+    boolean hasRules()
+    {
+        return plmns != null || earfcnRangeStarts != null || minRsrp != null || ssidPrefixes != null
+                || bssidPrefixes != null || bluetoothTypes != null;
+    }
+
+    /**
+     * @return True if the Bluetooth device type rule is configured. Reading the type of a Bluetooth device is a binder
+     * call, so it should only be done when this rule needs it.
+     */
+    boolean hasBluetoothRule()
+    {
+        return bluetoothTypes != null;
+    }
+
+    /**
+     * Checks a cell that is not LTE or NR, which only the PLMN rule applies to.
+     *
+     * @param mcc The MCC, or a negative or {@code Integer.MAX_VALUE} value if it is not known.
+     * @param mnc The MNC, or a negative or {@code Integer.MAX_VALUE} value if it is not known.
+     * @return True if a record should be created for the cell.
+     */
+    boolean acceptCell(int mcc, int mnc)
+    {
+        if (plmns == null || !isKnown(mcc) || !isKnown(mnc)) return true;
+
+        return plmnRule.count(Arrays.binarySearch(plmns, plmnKey(mcc, mnc)) >= 0);
+    }
+
+    /**
+     * Checks an LTE cell against the PLMN, EARFCN, and RSRP rules.
+     *
+     * @return True if a record should be created for the cell.
+     */
+    boolean acceptLteCell(int mcc, int mnc, int earfcn, int rsrp)
+    {
+        return acceptCell(mcc, mnc) && acceptEarfcn(earfcn) && acceptRsrp(rsrp);
+    }
+
+    /**
+     * Checks an NR cell against the PLMN and RSRP rules.
+     *
+     * @return True if a record should be created for the cell.
+     */
+    boolean acceptNrCell(int mcc, int mnc, int ssRsrp)
+    {
+        return acceptCell(mcc, mnc) && acceptRsrp(ssRsrp);
+    }
+
+    /**
+     * Checks a Wi-Fi access point against the SSID and BSSID prefix rules.
+     *
+     * @return True if a record should be created for the access point.
+     */
+    boolean acceptWifi(String bssid, String ssid)
+    {
+        if (ssidPrefixes != null && ssid != null && !ssidRule.count(startsWithAny(ssid, ssidPrefixes)))
+        {
+            return false;
+        }
+
+        return bssidPrefixes == null || bssid == null
+                || bssidRule.count(startsWithAny(bssid.toLowerCase(Locale.ROOT), bssidPrefixes));
+    }
+
+    /**
+     * Checks a Bluetooth device against the device type rule.
+     *
+     * @param deviceType One of the {@code BluetoothDevice.DEVICE_TYPE_*} values.
+     * @return True if a record should be created for the device.
+     */
+    boolean acceptBluetooth(int deviceType)
+    {
+        if (bluetoothTypes == null) return true;
+
+        return bluetoothTypeRule.count(deviceType >= 0 && deviceType < bluetoothTypes.length && bluetoothTypes[deviceType]);
+    }
+
+    /**
+     * @return The rules in the order they are listed in the settings, with their counters.
+     */
+    List<Rule> getRules()
+    {
+        return Arrays.asList(plmnRule, earfcnRule, rsrpRule, ssidRule, bssidRule, bluetoothTypeRule);
+    }
+
+    /**
+     * Logs the matched and rejected counts for each rule that has checked at least one result.
+     */
+    void logStatistics()
+    {
+        for (Rule rule : getRules())
+        {
+            final long matched = rule.getMatchedCount();
+            final long rejected = rule.getRejectedCount();
+            if (matched + rejected > 0)
+            {
+                Timber.i("Record filter %s rule: matched=%d, rejected=%d", rule.getName(), matched, rejected);
+            }
+        }
+    }
+
+    private boolean acceptEarfcn(int earfcn)
+    {
+        if (earfcnRangeStarts == null || !isKnown(earfcn)) return true;
+
+        // The last range that starts at or before the EARFCN is the only one that can contain it
+        final int index = Arrays.binarySearch(earfcnRangeStarts, earfcn);
+        final int rangeIndex = index >= 0 ? index : -index - 2;
+        return earfcnRule.count(rangeIndex >= 0 && earfcn <= earfcnRangeEnds[rangeIndex]);
+    }
+
+    private boolean acceptRsrp(int rsrp)
+    {
+        if (minRsrp == null || rsrp == Integer.MAX_VALUE) return true;
+
+        return rsrpRule.count(rsrp >= minRsrp);
+    }
+
+    private static boolean isKnown(int value)
+    {
+        return value >= 0 && value != Integer.MAX_VALUE;
+    }
+
+    private static int plmnKey(int mcc, int mnc)
+    {
+        return mcc * 1_000 + mnc;
+    }
+
+    private static boolean startsWithAny(String value, String[] prefixes)
+    {
+        for (String prefix : prefixes)
+        {
+            if (value.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static List<String> split(String value)
+    {
+        final List<String> entries = new ArrayList<>();
+        if (value == null) return entries;
+
+        for (String entry : value.split(","))
+        {
+            final String trimmed = entry.trim();
+            if (!trimmed.isEmpty()) entries.add(trimmed);
+        }
+        return entries;
+    }
+
+    private static int[] compilePlmns(String value)
+    {
+        final List<String> entries = split(value);
+        if (entries.isEmpty()) return null;
+
+        final int[] keys = new int[entries.size()];
+        int count = 0;
+        for (String entry : entries)
+        {
+            final String[] parts = entry.split("-");
+            try
+            {
+                final int mcc = Integer.parseInt(parts[0].trim());
+                final int mnc = Integer.parseInt(parts[1].trim());
+                if (parts.length == 2 && isKnown(mcc) && mcc < 1_000 && isKnown(mnc) && mnc < 1_000)
+                {
+                    keys[count++] = plmnKey(mcc, mnc);
+                    continue;
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException ignored)
+            {
+                // Logged below
+            }
+            Timber.w("Ignoring the invalid PLMN filter entry %s, expected MCC-MNC", entry);
+        }
+
+        if (count == 0) return null;
+
+        final int[] plmns = Arrays.copyOf(keys, count);
+        Arrays.sort(plmns);
+        return plmns;
+    }
+
+    /**
+     * @return The sorted range starts and ends ({@code [0]} and {@code [1]}), with overlapping ranges joined, or null
+     * if there are no valid ranges.
+     */
+    private static int[][] compileRanges(String value)
+    {
+        final List<int[]> ranges = new ArrayList<>();
+        for (String entry : split(value))
+        {
+            final String[] parts = entry.split("-");
+            try
+            {
+                final int start = Integer.parseInt(parts[0].trim());
+                final int end = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : start;
+                if (parts.length <= 2 && start >= 0 && end >= start)
+                {
+                    ranges.add(new int[]{start, end});
+                    continue;
+                }
+            } catch (NumberFormatException ignored)
+            {
+                // Logged below
+            }
+            Timber.w("Ignoring the invalid EARFCN filter entry %s, expected a number or a start-end range", entry);
+        }
+
+        if (ranges.isEmpty()) return null;
+
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        final int[] starts = new int[ranges.size()];
+        final int[] ends = new int[ranges.size()];
+        int count = 0;
+        for (int[] range : ranges)
+        {
+            if (count > 0 && range[0] <= ends[count - 1])
+            {
+                ends[count - 1] = Math.max(ends[count - 1], range[1]);
+            } else
+            {
+                starts[count] = range[0];
+                ends[count] = range[1];
+                count++;
+            }
+        }
+
+        return new int[][]{Arrays.copyOf(starts, count), Arrays.copyOf(ends, count)};
+    }
+
+    private static Integer compileInteger(String value)
+    {
+        if (value == null || value.trim().isEmpty()) return null;
+
+        try
+        {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e)
+        {
+            Timber.w("Ignoring the invalid RSRP filter threshold %s", value);
+            return null;
+        }
+    }
+
+    private static String[] compilePrefixes(String value, boolean lowerCase)
+    {
+        final List<String> entries = split(value);
+        if (entries.isEmpty()) return null;
+
+        final String[] prefixes = new String[entries.size()];
+        for (int i = 0; i < prefixes.length; i++)
+        {
+            prefixes[i] = lowerCase ? entries.get(i).toLowerCase(Locale.ROOT) : entries.get(i);
+        }
+        return prefixes;
+    }
+
+    private static boolean[] compileBluetoothTypes(String value)
+    {
+        final List<String> entries = split(value);
+        if (entries.isEmpty()) return null;
+
+        final boolean[] types = new boolean[BLUETOOTH_TYPE_NAMES.length];
+        boolean any = false;
+        for (String entry : entries)
+        {
+            final int type = Arrays.asList(BLUETOOTH_TYPE_NAMES).indexOf(entry.toLowerCase(Locale.ROOT));
+            if (type < 0)
+            {
+                Timber.w("Ignoring the invalid Bluetooth type filter entry %s, expected one of %s", entry,
+                        Arrays.toString(BLUETOOTH_TYPE_NAMES));
+                continue;
+            }
+            types[type] = true;
+            any = true;
+        }
+
+        return any ? types : null;
+    }
+
+    /**
+     * The matched and rejected counters for one rule.
+     */
+    static final class Rule
+    {
+        private final String name;
+        private final AtomicLong matchedCount = new AtomicLong();
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        private Rule(String name)
+        {
+            this.name = name;
+        }
+
+        private boolean count(boolean matched)
+        {
+            (matched ? matchedCount : rejectedCount).incrementAndGet();
+            return matched;
+        }
+
+        String getName()
+        {
+            return name;
+        }
+
+        long getMatchedCount()
+        {
+            return matchedCount.get();
+        }
+
+        long getRejectedCount()
+        {
+            return rejectedCount.get();
+        }
+    }
+}
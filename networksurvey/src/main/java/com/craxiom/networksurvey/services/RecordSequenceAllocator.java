@@ -0,0 +1,55 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock free allocator for the record and group numbers that are set on the survey records.
+ * <p>
+ * A batch of scan results reserves one contiguous block of numbers with a single atomic operation, and then each
+ * record in the batch is numbered from the start of its block. This keeps the numbers for a record type unique and
+ * free of gaps even when several batches of that type are converted at the same time on different threads. To stay
+ * gap free, callers should only reserve numbers for the records they are certain to produce (i.e. after validation).
+ *
+ * @since 1.7.0
+ */
+class RecordSequenceAllocator
+{
+    private final AtomicInteger nextValue;
+
+    /**
+     * @param firstValue The first number that will be handed out by this allocator.
+     */
+    RecordSequenceAllocator(int firstValue)
+    {
+        nextValue = new AtomicInteger(firstValue);
+    }
+
+    /**
+     * @return The next number in the sequence.
+     */
+    int next()
+    {
+        return nextValue.getAndIncrement();
+    }
+
+    /**
+     * Reserves a contiguous block of numbers.
+     *
+     * @param count The number of values to reserve.
+     * @return The first number in the reserved block; the block covers {@code [first, first + count)}.
+     */
+    int reserve(int count)
+    {
+        if (count < 0) throw new IllegalArgumentException("The reserved count must not be negative: " + count);
+
+        return nextValue.getAndAdd(count);
+    }
+
+    /**
+     * @return The number that will be handed out next, without reserving it.
+     */
+    int peek()
+    {
+        return nextValue.get();
+    }
+}
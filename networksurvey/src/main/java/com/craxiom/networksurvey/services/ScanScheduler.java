@@ -0,0 +1,489 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import timber.log.Timber;
+
+/**
+ * Runs the periodic scan tasks (cellular, Wi-Fi, Bluetooth, device status) from a single wakeup instead of a separate
+ * self rescheduling loop per task.
+ * <p>
+ * Every task's run times are aligned to multiples of its period measured from one shared epoch, and every period is
+ * rounded to the tick length. So tasks with periods of 2, 4, and 8 seconds all run from the same wakeup every 8 seconds
+ * (the least common multiple), instead of drifting apart and each waking the CPU on its own. Only one wakeup is posted
+ * at any time, for the earliest run time of all the tasks.
+ * <p>
+ * Each task can have jitter, which moves each of its runs by a random whole number of ticks (so a jittered run still
+ * shares a wakeup with the other tasks), and a {@link MissedTickPolicy} that decides what happens when a wakeup comes
+ * late, for example after the device was dozing. The time each task last ran, how late it was, and how many runs were
+ * skipped are tracked for each task.
+ * <p>
+ * For long unattended surveys a duty cycle can be set (e.g. 30 seconds out of every 5 minutes). Runs that would fall in
+ * the idle part of a cycle are moved to the start of the next burst, so every scan happens inside the bursts and there
+ * are no wakeups at all in between, other than the one that ends the burst. A {@link BurstListener} is told when each
+ * burst starts and ends so that work that is not driven by this scheduler (e.g. location updates) can follow the bursts.
+ * <p>
+ * The task actions are run on the thread that the wakeups are posted to, outside of the scheduler's lock.
+ *
+ * @since 1.7.0
+ */
+class ScanScheduler
+{
+    /**
+     * What to do when a task's wakeup comes after one or more of its run times have already passed.
+     */
+    enum MissedTickPolicy
+    {
+        /**
+         * Run the task once as soon as possible, and then continue at the next aligned run time. Missed runs are not
+         * repeated.
+         */
+        RUN_LATE,
+
+        /**
+         * Skip the late run if it is more than half a period late, and wait for the next aligned run time. This is for
+         * tasks where a late result is worse than no result.
+         */
+        SKIP
+    }
+
+    /**
+     * Posts the scheduler's wakeup (e.g. to an Android {@code Handler}).
+     */
+    interface WakeupPoster
+    {
+        void postDelayed(Runnable wakeup, long delayMs);
+
+        void removeCallbacks(Runnable wakeup);
+    }
+
+    /**
+     * Told when a duty cycle burst starts or ends. It is called on the wakeup thread, before the tasks that are due in
+     * the same wakeup.
+     */
+    interface BurstListener
+    {
+        void onBurstChanged(boolean burstActive);
+    }
+
+    private final String name;
+    private final WakeupPoster wakeupPoster;
+    private final LongSupplier clock;
+    private final long tickMs;
+    private final Random random;
+    private final long epochMs;
+    private final Runnable wakeup = this::onWakeup;
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long scheduledWakeupMs = Long.MAX_VALUE;
+    private long wakeupCount;
+    private boolean shutdown;
+
+    // A period of 0 means there is no duty cycle, and the scheduler is always in a burst
+    private long dutyCycleActiveMs;
+    private long dutyCyclePeriodMs;
+    private boolean inBurst = true;
+    private long burstCount;
+    private BurstListener burstListener;
+
+    /**
+     * @param name         The name used in the logs.
+     * @param wakeupPoster Posts the wakeups.
+     * @param clock        The current time in milliseconds, in the same time base as the wakeup poster (for an Android
+     *                     {@code Handler} that is {@code SystemClock.uptimeMillis()}).
+     * @param tickMs       The tick length that every task period and jitter is rounded to.
+     * @param random       The source of the jitter.
+     */
+    ScanScheduler(String name, WakeupPoster wakeupPoster, LongSupplier clock, long tickMs, Random random)
+    {
+        this.name = name;
+        this.wakeupPoster = wakeupPoster;
+        this.clock = clock;
+        this.tickMs = Math.max(1, tickMs);
+        this.random = random;
+        epochMs = clock.getAsLong();
+    }
+
+    /**
+     * Adds a periodic task. The first run is at the first aligned run time after the initial delay.
+     *
+     * @param taskName         The name used in the logs.
+     * @param periodMsSupplier Supplies the period each time the task is scheduled, so a changed scan rate is picked up
+     *                         at the next run.
+     * @param initialDelayMs   The minimum time before the first run.
+     * @param jitterMs         The maximum random delay added to each run, or 0 for no jitter.
+     * @param missedTickPolicy What to do when a wakeup is late.
+     * @param action           The work to run.
+     * @return The task, which can be passed to {@link #cancel(Task)}.
+     */
+    synchronized Task schedule(String taskName, IntSupplier periodMsSupplier, long initialDelayMs, long jitterMs,
+                               MissedTickPolicy missedTickPolicy, Runnable action)
+    {
+        final Task task = new Task(taskName, periodMsSupplier, jitterMs, missedTickPolicy, action);
+        if (shutdown) return task;
+
+        task.nextRunMs = deferToBurst(nextAlignedTime(clock.getAsLong() + Math.max(0, initialDelayMs), task.getPeriodMs()) + task.nextJitterMs());
+        tasks.add(task);
+        updateWakeup();
+
+        Timber.i("Scheduled the %s task with a period of %d ms on the %s scheduler", taskName, task.getPeriodMs(), name);
+        return task;
+    }
+
+    /**
+     * Stops running the task. Cancelling a task that is not scheduled does nothing.
+     *
+     * @param task The task to cancel, or null.
+     */
+    synchronized void cancel(Task task)
+    {
+        if (task == null || !tasks.remove(task)) return;
+
+        Timber.i("Cancelled the %s task on the %s scheduler after %d runs", task.name, name, task.runCount);
+        updateWakeup();
+    }
+
+    /**
+     * Reads the period of every task again, and moves a task's next run earlier if it would be sooner with the new
+     * period. Without this a task that was slowed down to a long period would wait out that whole period before a
+     * shorter period takes effect. A longer period is picked up after the next run as usual.
+     */
+    synchronized void onPeriodsChanged()
+    {
+        if (shutdown) return;
+
+        final long nowMs = clock.getAsLong();
+        for (Task task : tasks)
+        {
+            final long nextRunMs = deferToBurst(nextAlignedTime(nowMs + 1, task.getPeriodMs()) + task.nextJitterMs());
+            if (nextRunMs < task.nextRunMs) task.nextRunMs = nextRunMs;
+        }
+
+        updateWakeup();
+    }
+
+    /**
+     * Sets the listener that is told when a duty cycle burst starts or ends.
+     */
+    synchronized void setBurstListener(BurstListener burstListener)
+    {
+        this.burstListener = burstListener;
+    }
+
+    /**
+     * Sets the duty cycle, or turns it off. Both times are rounded up to the tick length, and the bursts are aligned to
+     * the scheduler's epoch like the task run times. Every task is rescheduled from now with the new duty cycle.
+     *
+     * @param activeMs The length of each burst, or 0 to turn the duty cycle off.
+     * @param periodMs The time from the start of one burst to the start of the next. The duty cycle is turned off if
+     *                 this is not longer than the burst.
+     */
+    synchronized void setDutyCycle(long activeMs, long periodMs)
+    {
+        final long roundedActiveMs = roundUpToTick(activeMs);
+        final long roundedPeriodMs = roundUpToTick(periodMs);
+        if (activeMs <= 0 || periodMs <= 0 || roundedActiveMs >= roundedPeriodMs)
+        {
+            dutyCycleActiveMs = 0;
+            dutyCyclePeriodMs = 0;
+            Timber.i("The duty cycle is off on the %s scheduler", name);
+        } else
+        {
+            dutyCycleActiveMs = roundedActiveMs;
+            dutyCyclePeriodMs = roundedPeriodMs;
+            Timber.i("Set the duty cycle on the %s scheduler to %d ms out of every %d ms", name, roundedActiveMs, roundedPeriodMs);
+        }
+
+        if (shutdown) return;
+
+        final long nowMs = clock.getAsLong();
+        for (Task task : tasks)
+        {
+            task.nextRunMs = deferToBurst(nextAlignedTime(nowMs + 1, task.getPeriodMs()) + task.nextJitterMs());
+        }
+
+        updateWakeup();
+    }
+
+    /**
+     * @return True if the scheduler is in a duty cycle burst (always true when there is no duty cycle). This is the
+     * state that was last passed to the {@link BurstListener}.
+     */
+    synchronized boolean isInBurst()
+    {
+        return inBurst;
+    }
+
+    /**
+     * @return The number of duty cycle bursts that have started.
+     */
+    synchronized long getBurstCount()
+    {
+        return burstCount;
+    }
+
+    /**
+     * Cancels every task and ignores any later calls to {@link #schedule}.
+     */
+    synchronized void shutdown()
+    {
+        shutdown = true;
+        tasks.clear();
+        updateWakeup();
+    }
+
+    long getTickMs()
+    {
+        return tickMs;
+    }
+
+    synchronized long getWakeupCount()
+    {
+        return wakeupCount;
+    }
+
+    /**
+     * Logs the wakeup count and the run statistics for each task.
+     */
+    synchronized void logStatistics()
+    {
+        final long nowMs = clock.getAsLong();
+        Timber.i("%s scheduler: wakeups=%d, tasks=%d, dutyCycleActiveMs=%d, dutyCyclePeriodMs=%d, bursts=%d",
+                name, wakeupCount, tasks.size(), dutyCycleActiveMs, dutyCyclePeriodMs, burstCount);
+        for (Task task : tasks)
+        {
+            Timber.i("%s task: periodMs=%d, runs=%d, skipped=%d, lastRunAgoMs=%d, lastLatenessMs=%d, maxLatenessMs=%d",
+                    task.name, task.getPeriodMs(), task.runCount, task.skippedCount,
+                    task.runCount == 0 ? -1 : nowMs - task.lastRunMs, task.lastLatenessMs, task.maxLatenessMs);
+        }
+    }
+
+    private void onWakeup()
+    {
+        final List<Task> dueTasks = new ArrayList<>();
+        final BurstListener changedBurstListener;
+        final boolean burstActive;
+        synchronized (this)
+        {
+            scheduledWakeupMs = Long.MAX_VALUE;
+            if (shutdown) return;
+
+            wakeupCount++;
+            final long nowMs = clock.getAsLong();
+
+            burstActive = isBurstTime(nowMs);
+            if (burstActive != inBurst)
+            {
+                inBurst = burstActive;
+                if (burstActive) burstCount++;
+                changedBurstListener = burstListener;
+            } else
+            {
+                changedBurstListener = null;
+            }
+
+            for (Task task : tasks)
+            {
+                if (task.nextRunMs > nowMs) continue;
+
+                final long periodMs = task.getPeriodMs();
+                final long latenessMs = nowMs - task.nextRunMs;
+                if (task.missedTickPolicy == MissedTickPolicy.SKIP && latenessMs > periodMs / 2)
+                {
+                    task.skippedCount++;
+                } else
+                {
+                    task.lastRunMs = nowMs;
+                    task.lastLatenessMs = latenessMs;
+                    if (latenessMs > task.maxLatenessMs) task.maxLatenessMs = latenessMs;
+                    task.runCount++;
+                    dueTasks.add(task);
+                }
+
+                task.nextRunMs = deferToBurst(nextAlignedTime(nowMs + 1, periodMs) + task.nextJitterMs());
+            }
+
+            updateWakeup();
+        }
+
+        if (changedBurstListener != null)
+        {
+            try
+            {
+                changedBurstListener.onBurstChanged(burstActive);
+            } catch (Throwable t)
+            {
+                Timber.e(t, "The burst listener failed");
+            }
+        }
+
+        for (Task task : dueTasks)
+        {
+            try
+            {
+                task.action.run();
+            } catch (Throwable t)
+            {
+                Timber.e(t, "The %s task failed", task.name);
+            }
+        }
+    }
+
+    /**
+     * @return The first time at or after {@code timeMs} that is a whole number of periods after the epoch.
+     */
+    private long nextAlignedTime(long timeMs, long periodMs)
+    {
+        final long periods = (timeMs - epochMs + periodMs - 1) / periodMs;
+        return epochMs + Math.max(0, periods) * periodMs;
+    }
+
+    private long roundUpToTick(long timeMs)
+    {
+        return (Math.max(1, timeMs) + tickMs - 1) / tickMs * tickMs;
+    }
+
+    /**
+     * @return True if the time is in the burst part of a duty cycle, or if there is no duty cycle.
+     */
+    private boolean isBurstTime(long timeMs)
+    {
+        return dutyCyclePeriodMs == 0 || Math.floorMod(timeMs - epochMs, dutyCyclePeriodMs) < dutyCycleActiveMs;
+    }
+
+    /**
+     * @return The run time unchanged if it is in a burst, otherwise the start of the next burst.
+     */
+    private long deferToBurst(long runTimeMs)
+    {
+        if (isBurstTime(runTimeMs)) return runTimeMs;
+
+        return runTimeMs - Math.floorMod(runTimeMs - epochMs, dutyCyclePeriodMs) + dutyCyclePeriodMs;
+    }
+
+    /**
+     * @return The next time the burst state changes, now if the current state is already out of date, or
+     * {@link Long#MAX_VALUE} if there is no duty cycle.
+     */
+    private long nextBurstChangeMs(long nowMs)
+    {
+        if (isBurstTime(nowMs) != inBurst) return nowMs;
+        if (dutyCyclePeriodMs == 0) return Long.MAX_VALUE;
+
+        final long cycleStartMs = nowMs - Math.floorMod(nowMs - epochMs, dutyCyclePeriodMs);
+        return inBurst ? cycleStartMs + dutyCycleActiveMs : cycleStartMs + dutyCyclePeriodMs;
+    }
+
+    private void updateWakeup()
+    {
+        // The burst changes only need a wakeup when someone is listening for them
+        long earliestRunMs = burstListener == null || shutdown ? Long.MAX_VALUE : nextBurstChangeMs(clock.getAsLong());
+        for (Task task : tasks)
+        {
+            earliestRunMs = Math.min(earliestRunMs, task.nextRunMs);
+        }
+
+        if (earliestRunMs == scheduledWakeupMs) return;
+
+        wakeupPoster.removeCallbacks(wakeup);
+        scheduledWakeupMs = earliestRunMs;
+        if (earliestRunMs != Long.MAX_VALUE)
+        {
+            wakeupPoster.postDelayed(wakeup, Math.max(0, earliestRunMs - clock.getAsLong()));
+        }
+    }
+
+    /**
+     * A periodic task. The statistics are only updated while holding the scheduler's lock.
+     */
+    final class Task
+    {
+        private final String name;
+        private final IntSupplier periodMsSupplier;
+        private final long jitterTicks;
+        private final MissedTickPolicy missedTickPolicy;
+        private final Runnable action;
+
+        private long nextRunMs;
+        private long lastRunMs;
+        private long lastLatenessMs;
+        private long maxLatenessMs;
+        private long runCount;
+        private long skippedCount;
+
+        private Task(String name, IntSupplier periodMsSupplier, long jitterMs, MissedTickPolicy missedTickPolicy, Runnable action)
+        {
+            this.name = name;
+            this.periodMsSupplier = periodMsSupplier;
+            jitterTicks = Math.max(0, jitterMs) / tickMs;
+            this.missedTickPolicy = missedTickPolicy;
+            this.action = action;
+        }
+
+        /**
+         * @return The period rounded up to a whole number of ticks.
+         */
+        long getPeriodMs()
+        {
+            return roundUpToTick(periodMsSupplier.getAsInt());
+        }
+
+        /**
+         * @return The time this task last ran, in the scheduler's clock, or 0 if it has not run yet.
+         */
+        long getLastRunMs()
+        {
+            synchronized (ScanScheduler.this)
+            {
+                return lastRunMs;
+            }
+        }
+
+        /**
+         * @return How late the last run was compared to its aligned run time.
+         */
+        long getLastLatenessMs()
+        {
+            synchronized (ScanScheduler.this)
+            {
+                return lastLatenessMs;
+            }
+        }
+
+        long getMaxLatenessMs()
+        {
+            synchronized (ScanScheduler.this)
+            {
+                return maxLatenessMs;
+            }
+        }
+
+        long getRunCount()
+        {
+            synchronized (ScanScheduler.this)
+            {
+                return runCount;
+            }
+        }
+
+        /**
+         * @return The number of late runs that were skipped because of the {@link MissedTickPolicy#SKIP} policy.
+         */
+        long getSkippedCount()
+        {
+            synchronized (ScanScheduler.this)
+            {
+                return skippedCount;
+            }
+        }
+
+        private long nextJitterMs()
+        {
+            return jitterTicks == 0 ? 0 : random.nextInt((int) Math.min(Integer.MAX_VALUE, jitterTicks + 1)) * tickMs;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * A bounded queue of processing work for a single scan type (e.g. Wi-Fi or GNSS) that is drained on a shared executor.
+ * <p>
+ * At most one drain task per queue is on the executor at any time, so the work for a scan type is processed in order
+ * and one scan type that is falling behind can't fill the executor with its backlog. When the queue is full the oldest
+ * pending work is dropped. Work that is submitted as coalescing replaces any coalescing work that is still pending,
+ * because only the latest result is of interest (for example, a newer GNSS measurement event or BLE batch).
+ * <p>
+ * The queue depth, the time work waited in the queue, and the dropped and coalesced counts are tracked so that an
+ * overloaded pipeline is visible instead of silently piling up.
+ *
+ * @since 1.7.0
+ */
+class ScanWorkQueue
+{
+    /**
+     * The maximum number of tasks one drain task processes before it yields the executor thread to the other queues.
+     */
+    private static final int MAX_TASKS_PER_DRAIN = 16;
+
+    private final String name;
+    private final int capacity;
+    private final Executor executor;
+    private final Runnable drainTask = this::drain;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<PendingWork> pendingWork;
+    private boolean drainScheduled;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private volatile long maxWaitNanos;
+    private volatile int maxDepth;
+
+    /**
+     * @param name     The scan type name, used in the logs.
+     * @param capacity The maximum number of pending tasks.
+     * @param executor The executor that runs the drain task.
+     */
+    ScanWorkQueue(String name, int capacity, Executor executor)
+    {
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        this.executor = executor;
+        pendingWork = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Adds work to the queue, dropping the oldest pending work if the queue is full.
+     *
+     * @param task The work to run.
+     */
+    void submit(Runnable task)
+    {
+        submit(task, false);
+    }
+
+    /**
+     * Adds work to the queue.
+     *
+     * @param task     The work to run.
+     * @param coalesce True if this work supersedes any coalescing work that is still pending in the queue.
+     */
+    void submit(Runnable task, boolean coalesce)
+    {
+        submittedCount.incrementAndGet();
+
+        final boolean scheduleDrain;
+        synchronized (lock)
+        {
+            if (coalesce) removePendingCoalescingWork();
+
+            if (pendingWork.size() >= capacity)
+            {
+                pendingWork.pollFirst();
+                final long dropped = droppedCount.incrementAndGet();
+                if (dropped % 100 == 1)
+                {
+                    Timber.w("The %s queue is full (capacity=%d), dropped the oldest work; %d dropped so far", name, capacity, dropped);
+                }
+            }
+
+            pendingWork.addLast(new PendingWork(task, coalesce, System.nanoTime()));
+            if (pendingWork.size() > maxDepth) maxDepth = pendingWork.size();
+
+            scheduleDrain = !drainScheduled;
+            drainScheduled = true;
+        }
+
+        if (scheduleDrain) scheduleDrain();
+    }
+
+    /**
+     * Waits until all the work that was submitted so far has run, for example so the last results are passed on before
+     * the listeners are stopped.
+     *
+     * @param timeoutMs The maximum time to wait.
+     * @return True if the queue is idle, false if the timeout elapsed first.
+     */
+    boolean awaitIdle(long timeoutMs) throws InterruptedException
+    {
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (lock)
+        {
+            while (drainScheduled)
+            {
+                final long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+            }
+            return true;
+        }
+    }
+
+    int getDepth()
+    {
+        synchronized (lock)
+        {
+            return pendingWork.size();
+        }
+    }
+
+    int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    long getSubmittedCount()
+    {
+        return submittedCount.get();
+    }
+
+    long getProcessedCount()
+    {
+        return processedCount.get();
+    }
+
+    /**
+     * @return The number of tasks that were dropped because the queue was full, or because the executor rejected the
+     * drain task (e.g. after it was shut down).
+     */
+    long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return The number of tasks that were replaced by newer coalescing work before they ran.
+     */
+    long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return The average time in milliseconds that work waited in the queue before it started running.
+     */
+    double getAverageWaitMs()
+    {
+        final long processed = processedCount.get();
+        return processed == 0 ? 0 : totalWaitNanos.get() / (double) processed / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return The longest time in milliseconds that work waited in the queue before it started running.
+     */
+    long getMaxWaitMs()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    /**
+     * Logs the queue depth, wait time, and drop counts.
+     */
+    void logStatistics()
+    {
+        Timber.i("%s queue: depth=%d, maxDepth=%d, submitted=%d, processed=%d, dropped=%d, coalesced=%d, avgWaitMs=%.1f, maxWaitMs=%d",
+                name, getDepth(), maxDepth, submittedCount.get(), processedCount.get(), droppedCount.get(),
+                coalescedCount.get(), getAverageWaitMs(), getMaxWaitMs());
+    }
+
+    private void removePendingCoalescingWork()
+    {
+        final Iterator<PendingWork> iterator = pendingWork.iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next().coalesce)
+            {
+                iterator.remove();
+                coalescedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void scheduleDrain()
+    {
+        try
+        {
+            executor.execute(drainTask);
+        } catch (Throwable t)
+        {
+            // Most likely the executor was shut down while scan results were still coming in
+            final int discarded;
+            synchronized (lock)
+            {
+                discarded = pendingWork.size();
+                pendingWork.clear();
+                drainScheduled = false;
+                lock.notifyAll();
+            }
+            droppedCount.addAndGet(discarded);
+            if (rejectedCount.getAndIncrement() == 0)
+            {
+                Timber.w(t, "Could not submit the %s work to the executor service, dropped %d tasks", name, discarded);
+            }
+        }
+    }
+
+    private void drain()
+    {
+        for (int processed = 0; processed < MAX_TASKS_PER_DRAIN; processed++)
+        {
+            final PendingWork work;
+            synchronized (lock)
+            {
+                work = pendingWork.pollFirst();
+                if (work == null)
+                {
+                    drainScheduled = false;
+                    lock.notifyAll();
+                    return;
+                }
+            }
+
+            final long waitNanos = System.nanoTime() - work.enqueuedNanos;
+            totalWaitNanos.addAndGet(waitNanos);
+            if (waitNanos > maxWaitNanos) maxWaitNanos = waitNanos;
+
+            try
+            {
+                work.task.run();
+            } catch (Throwable t)
+            {
+                Timber.e(t, "Could not process the %s work", name);
+            }
+            processedCount.incrementAndGet();
+        }
+
+        // Yield the thread so that the other scan types get a turn, and continue on a new drain task
+        scheduleDrain();
+    }
+
+    private static final class PendingWork
+    {
+        private final Runnable task;
+        private final boolean coalesce;
+        private final long enqueuedNanos;
+
+        private PendingWork(Runnable task, boolean coalesce, long enqueuedNanos)
+        {
+            this.task = task;
+            this.coalesce = coalesce;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
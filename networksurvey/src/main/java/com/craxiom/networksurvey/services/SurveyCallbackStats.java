@@ -0,0 +1,150 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+import timber.log.Timber;
+
+/**
+ * Measures the time spent in the callbacks that deliver survey data from the OS (scan result broadcasts, scan callbacks,
+ * cell info callbacks, etc.), and how much of that time was spent on the main thread.
+ * <p>
+ * Any time a survey callback spends on the main thread can cause dropped frames in the UI, so the callbacks should
+ * only hand the data off to the processing pipeline. These statistics make it easy to spot a callback that does not.
+ *
+ * @since 1.7.0
+ */
+class SurveyCallbackStats
+{
+    /**
+     * The survey callbacks that are measured.
+     */
+    enum Callback
+    {
+        CELL_INFO,
+        WIFI_SCAN_RESULTS,
+        BLUETOOTH_CLASSIC,
+        BLUETOOTH_LE,
+        GNSS_MEASUREMENTS
+    }
+
+    // A main thread callback longer than a 60 Hz frame can cause a dropped frame
+    private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private static final int COUNT = 0;
+    private static final int TOTAL_NANOS = 1;
+    private static final int MAX_NANOS = 2;
+    private static final int MAIN_THREAD_COUNT = 3;
+    private static final int MAIN_THREAD_NANOS = 4;
+    private static final int MAIN_THREAD_OVER_FRAME_BUDGET = 5;
+    private static final int FIELD_COUNT = 6;
+
+    private final BooleanSupplier isMainThread;
+    private final AtomicLongArray stats = new AtomicLongArray(Callback.values().length * FIELD_COUNT);
+
+    /**
+     * @param isMainThread Returns true if it is called on the main (UI) thread.
+     */
+    SurveyCallbackStats(BooleanSupplier isMainThread)
+    {
+        this.isMainThread = isMainThread;
+    }
+
+    /**
+     * @return The start time to pass to {@link #end(Callback, long)} when the callback returns.
+     */
+    long begin()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time spent in a callback.
+     *
+     * @param callback   The callback that is returning.
+     * @param startNanos The value returned from {@link #begin()} when the callback was entered.
+     */
+    void end(Callback callback, long startNanos)
+    {
+        record(callback, System.nanoTime() - startNanos, isMainThread.getAsBoolean());
+    }
+
+    /**
+     * Records the time spent in a callback that was measured by the caller.
+     *
+     * @param callback     The callback.
+     * @param elapsedNanos The time spent in the callback.
+     * @param mainThread   True if the callback ran on the main thread.
+     */
+    void record(Callback callback, long elapsedNanos, boolean mainThread)
+    {
+        final int base = callback.ordinal() * FIELD_COUNT;
+        stats.incrementAndGet(base + COUNT);
+        stats.addAndGet(base + TOTAL_NANOS, elapsedNanos);
+
+        long max;
+        while (elapsedNanos > (max = stats.get(base + MAX_NANOS)))
+        {
+            if (stats.compareAndSet(base + MAX_NANOS, max, elapsedNanos)) break;
+        }
+
+        if (mainThread)
+        {
+            stats.incrementAndGet(base + MAIN_THREAD_COUNT);
+            stats.addAndGet(base + MAIN_THREAD_NANOS, elapsedNanos);
+            if (elapsedNanos > FRAME_BUDGET_NANOS) stats.incrementAndGet(base + MAIN_THREAD_OVER_FRAME_BUDGET);
+        }
+    }
+
+    long getCount(Callback callback)
+    {
+        return stats.get(callback.ordinal() * FIELD_COUNT + COUNT);
+    }
+
+    long getMaxNanos(Callback callback)
+    {
+        return stats.get(callback.ordinal() * FIELD_COUNT + MAX_NANOS);
+    }
+
+    long getMainThreadCount(Callback callback)
+    {
+        return stats.get(callback.ordinal() * FIELD_COUNT + MAIN_THREAD_COUNT);
+    }
+
+    long getMainThreadNanos(Callback callback)
+    {
+        return stats.get(callback.ordinal() * FIELD_COUNT + MAIN_THREAD_NANOS);
+    }
+
+    /**
+     * @return The number of main thread calls that took longer than a frame.
+     */
+    long getMainThreadOverFrameBudgetCount(Callback callback)
+    {
+        return stats.get(callback.ordinal() * FIELD_COUNT + MAIN_THREAD_OVER_FRAME_BUDGET);
+    }
+
+    /**
+     * Logs the call count and timing of each callback that was called at least once.
+     */
+    void logStatistics()
+    {
+        for (Callback callback : Callback.values())
+        {
+            final int base = callback.ordinal() * FIELD_COUNT;
+            final long count = stats.get(base + COUNT);
+            if (count == 0) continue;
+
+            Timber.i("%s callbacks: count=%d, avgMs=%.2f, maxMs=%.2f, mainThreadCount=%d, mainThreadMs=%.1f, mainThreadOverFrame=%d",
+                    callback, count, toMs(stats.get(base + TOTAL_NANOS)) / count, toMs(stats.get(base + MAX_NANOS)),
+                    stats.get(base + MAIN_THREAD_COUNT), toMs(stats.get(base + MAIN_THREAD_NANOS)),
+                    stats.get(base + MAIN_THREAD_OVER_FRAME_BUDGET));
+        }
+    }
+
+    private static double toMs(long nanos)
+    {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,412 @@
+package com.craxiom.networksurvey.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import timber.log.Timber;
+
+/**
+ * A pre-allocated ring buffer that hands survey record events from the {@link SurveyRecordProcessor} to its listeners.
+ * <p>
+ * Each registered listener is a consumer with its own thread and its own sequence cursor into the ring, so a slow
+ * listener (for example a UI fragment or a blocking uplink) only holds back itself and not every other listener.
+ * When a consumer wakes up it processes every event that was published since it last ran as one batch.
+ * <p>
+ * A consumer is registered as either lossy or lossless. Publishing never blocks on a lossy consumer (for example a UI
+ * fragment); if it falls more than a full ring behind, the events it missed are counted as dropped for that consumer
+ * and it skips ahead to the oldest event still in the ring. A lossless consumer (for example a file logger) is never
+ * lapped; instead, publishing blocks until that consumer has made room in the ring, which slows down the producer
+ * rather than losing records.
+ * <p>
+ * The consumer threads are created here instead of coming from the {@link ExecutorRegistry}. Each one runs for as long
+ * as its listener is registered and is woken with {@link LockSupport#unpark(Thread)}, so it has to be a dedicated
+ * thread that the bus knows about, not a task on a shared pool. They are stopped by {@link #unregister(Object)} and
+ * {@link #shutdown()}, which let a lossless consumer finish the events that were already published before its thread
+ * exits.
+ *
+ * @param <L> The listener type that consumes the events on this bus.
+ * @since 1.7.0
+ */
+class SurveyRecordEventBus<L>
+{
+    private static final long WRITE_IN_PROGRESS = -1;
+    private static final long NO_DRAIN = Long.MAX_VALUE;
+    private static final long UNREGISTER_DRAIN_TIMEOUT_MS = 2_000;
+
+    /**
+     * Delivers an event payload to a listener. Implementations should be stateless (e.g. a static method reference)
+     * so that publishing an event does not allocate.
+     */
+    interface Dispatcher<L>
+    {
+        void dispatch(L listener, Object payload);
+    }
+
+    private final String name;
+    private final int capacity;
+    private final int indexMask;
+    private final AtomicLongArray slotSequences;
+    private final AtomicReferenceArray<Dispatcher<L>> slotDispatchers;
+    private final AtomicReferenceArray<Object> slotPayloads;
+    private final Object publishLock = new Object();
+    private final Object capacityLock = new Object();
+    private final Map<L, Consumer> consumers = new ConcurrentHashMap<>();
+
+    /**
+     * True while the producer is waiting for a lossless consumer to make room in the ring.
+     */
+    private volatile boolean producerWaiting;
+
+    /**
+     * The sequence of the last published event, or -1 if nothing has been published yet.
+     */
+    private volatile long cursor = -1;
+
+    /**
+     * @param name     A name for this bus that is used for the consumer thread names and in the logs.
+     * @param capacity The number of events the ring can hold. Rounded up to the next power of two.
+     */
+    SurveyRecordEventBus(String name, int capacity)
+    {
+        this.name = name;
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        indexMask = this.capacity - 1;
+
+        slotSequences = new AtomicLongArray(this.capacity);
+        slotDispatchers = new AtomicReferenceArray<>(this.capacity);
+        slotPayloads = new AtomicReferenceArray<>(this.capacity);
+        for (int i = 0; i < this.capacity; i++)
+        {
+            slotSequences.set(i, WRITE_IN_PROGRESS);
+        }
+    }
+
+    /**
+     * Adds a listener as a new lossy consumer of this bus. The consumer only sees events published after it was added.
+     */
+    void register(L listener)
+    {
+        register(listener, false);
+    }
+
+    /**
+     * Adds a listener as a new consumer of this bus. The consumer only sees events published after it was added.
+     *
+     * @param lossless True if the listener must receive every event, in which case publishing blocks while the
+     *                 listener is a full ring behind. False if the listener can skip events it is too slow to consume.
+     */
+    void register(L listener, boolean lossless)
+    {
+        consumers.computeIfAbsent(listener, l -> {
+            final Consumer consumer = new Consumer(l, cursor + 1, lossless);
+            consumer.thread.start();
+            return consumer;
+        });
+    }
+
+    /**
+     * Removes a listener and stops its consumer thread.
+     * <p>
+     * A lossless consumer first processes every event that was published before this call, and this method waits for
+     * its thread to exit (up to a timeout, in case the listener is stuck), so that nothing published to it is lost. The
+     * consumer stays registered while it drains so that the producer can't overwrite the events it still has to
+     * process. Any events a lossy consumer has not consumed yet are discarded.
+     */
+    void unregister(L listener)
+    {
+        final Consumer consumer = consumers.get(listener);
+        if (consumer == null) return;
+
+        if (consumer.lossless) consumer.drain(UNREGISTER_DRAIN_TIMEOUT_MS);
+
+        if (!consumers.remove(listener, consumer)) return;
+        consumer.stop();
+
+        // The producer might be waiting on this consumer to make room in the ring
+        if (consumer.lossless) signalCapacity();
+    }
+
+    boolean hasConsumers()
+    {
+        return !consumers.isEmpty();
+    }
+
+    /**
+     * Publishes an event to every consumer. This method only blocks if a lossless consumer is a full ring behind, until
+     * that consumer has made room for the event.
+     *
+     * @param dispatcher The function that delivers the payload to a listener.
+     * @param payload    The survey record (or records) for the event.
+     */
+    void publish(Dispatcher<L> dispatcher, Object payload)
+    {
+        if (consumers.isEmpty()) return;
+
+        synchronized (publishLock)
+        {
+            final long sequence = cursor + 1;
+            final int index = (int) (sequence & indexMask);
+
+            awaitCapacity(sequence);
+
+            // Mark the slot as being written so that a lapped consumer never reads a half written event
+            slotSequences.set(index, WRITE_IN_PROGRESS);
+            slotDispatchers.set(index, dispatcher);
+            slotPayloads.set(index, payload);
+            slotSequences.set(index, sequence);
+
+            cursor = sequence;
+        }
+
+        for (Consumer consumer : consumers.values())
+        {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    /**
+     * Waits until every lossless consumer has consumed the event that the provided sequence will overwrite.
+     */
+    private void awaitCapacity(long sequence)
+    {
+        final long wrapPoint = sequence - capacity;
+        if (getMinimumLosslessSequence() > wrapPoint) return;
+
+        synchronized (capacityLock)
+        {
+            // Set before checking again, so that a consumer that advances after the check is sure to signal
+            producerWaiting = true;
+            try
+            {
+                while (getMinimumLosslessSequence() <= wrapPoint)
+                {
+                    capacityLock.wait();
+                }
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                Timber.w("Interrupted while waiting for a %s consumer, the oldest event will be overwritten", name);
+            } finally
+            {
+                producerWaiting = false;
+            }
+        }
+    }
+
+    /**
+     * @return The lowest sequence that a lossless consumer still has to process, or {@link Long#MAX_VALUE} if there are
+     * no lossless consumers.
+     */
+    private long getMinimumLosslessSequence()
+    {
+        long minimum = Long.MAX_VALUE;
+        for (Consumer consumer : consumers.values())
+        {
+            if (consumer.lossless) minimum = Math.min(minimum, consumer.nextSequence);
+        }
+        return minimum;
+    }
+
+    private void signalCapacity()
+    {
+        synchronized (capacityLock)
+        {
+            capacityLock.notifyAll();
+        }
+    }
+
+    /**
+     * @return The number of published events the listener has not consumed yet, or 0 if it is not a consumer of this
+     * bus.
+     */
+    long getLag(L listener)
+    {
+        final Consumer consumer = consumers.get(listener);
+        return consumer == null ? 0 : consumer.getLag();
+    }
+
+    /**
+     * Waits until every consumer has processed the events that were published before this call, for example so the
+     * last records reach the loggers before they are stopped. The consumers are polled, since this is only used when
+     * shutting down and the consumer threads should not pay for a signal on every event.
+     *
+     * @param timeoutMs The maximum time to wait.
+     * @return True if every consumer caught up, false if the timeout elapsed first.
+     */
+    boolean awaitConsumed(long timeoutMs) throws InterruptedException
+    {
+        final long target = cursor;
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Consumer consumer : consumers.values())
+        {
+            while (consumer.running && consumer.nextSequence <= target)
+            {
+                if (System.nanoTime() >= deadlineNanos) return false;
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops all the consumer threads.
+     */
+    void shutdown()
+    {
+        for (L listener : consumers.keySet())
+        {
+            unregister(listener);
+        }
+    }
+
+    /**
+     * Logs the lag, processed, and dropped counts for each consumer.
+     */
+    void logConsumerStats()
+    {
+        consumers.values().forEach(consumer -> Timber.i("%s consumer %s: lag=%d, processed=%d, dropped=%d",
+                name, consumer.thread.getName(), consumer.getLag(), consumer.processedCount.get(), consumer.droppedCount.get()));
+    }
+
+    /**
+     * A single listener consuming the events on its own thread at its own pace.
+     */
+    private final class Consumer implements Runnable
+    {
+        private final L listener;
+        private final boolean lossless;
+        private final Thread thread;
+        private final AtomicLong processedCount = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+
+        /**
+         * The sequence of the next event this consumer will process.
+         */
+        private volatile long nextSequence;
+
+        /**
+         * The sequence of the last event to process before the thread exits, or {@link #NO_DRAIN} while it is
+         * registered.
+         */
+        private volatile long drainSequence = NO_DRAIN;
+        private volatile boolean running = true;
+        private boolean lagWarningLogged;
+
+        private Consumer(L listener, long nextSequence, boolean lossless)
+        {
+            this.listener = listener;
+            this.nextSequence = nextSequence;
+            this.lossless = lossless;
+            thread = new Thread(this, name + "-" + listener.getClass().getSimpleName());
+        }
+
+        long getLag()
+        {
+            return Math.max(0, cursor - nextSequence + 1);
+        }
+
+        void stop()
+        {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Lets the consumer process the events published so far, and then waits for its thread to exit.
+         */
+        void drain(long timeoutMs)
+        {
+            drainSequence = cursor;
+            LockSupport.unpark(thread);
+
+            // A listener that unregisters itself from its own callback can't wait for its own thread
+            if (Thread.currentThread() == thread) return;
+
+            try
+            {
+                thread.join(timeoutMs);
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            if (thread.isAlive())
+            {
+                Timber.w("The %s consumer %s did not finish its %d remaining events before it was stopped", name,
+                        thread.getName(), Math.max(0, drainSequence - nextSequence + 1));
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            while (running)
+            {
+                final long available = Math.min(cursor, drainSequence);
+                if (nextSequence > available)
+                {
+                    if (drainSequence != NO_DRAIN) return;
+
+                    // The publish method unparks the consumers, and the loop handles any spurious wake ups
+                    LockSupport.park(this);
+                    continue;
+                }
+
+                checkLag(available);
+
+                // Hand off everything published since the last wake up as one batch
+                long sequence = nextSequence;
+                while (sequence <= available && running)
+                {
+                    final int index = (int) (sequence & indexMask);
+                    final Dispatcher<L> dispatcher = slotDispatchers.get(index);
+                    final Object payload = slotPayloads.get(index);
+
+                    if (slotSequences.get(index) != sequence)
+                    {
+                        // The producer lapped this consumer, so skip ahead to the oldest event still in the ring
+                        final long oldestAvailable = cursor - capacity + 1;
+                        droppedCount.addAndGet(oldestAvailable - sequence);
+                        sequence = oldestAvailable;
+                        nextSequence = sequence;
+                        continue;
+                    }
+
+                    try
+                    {
+                        dispatcher.dispatch(listener, payload);
+                    } catch (Throwable t)
+                    {
+                        Timber.e(t, "Unable to notify a %s listener because of an exception", name);
+                    }
+
+                    processedCount.incrementAndGet();
+                    sequence++;
+
+                    // Advanced per event so that the lag stays accurate while a slow listener works through a batch
+                    nextSequence = sequence;
+                    if (lossless && producerWaiting) signalCapacity();
+                }
+            }
+        }
+
+        private void checkLag(long available)
+        {
+            final long lag = available - nextSequence + 1;
+            if (!lagWarningLogged && lag > capacity / 2)
+            {
+                Timber.w("The %s consumer %s is falling behind, lag=%d", name, thread.getName(), lag);
+                lagWarningLogged = true;
+            } else if (lagWarningLogged && lag < capacity / 4)
+            {
+                lagWarningLogged = false;
+            }
+        }
+    }
+}
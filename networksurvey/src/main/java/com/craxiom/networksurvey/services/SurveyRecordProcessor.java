@@ -6,8 +6,10 @@ import android.content.Context;
 import android.location.GnssMeasurement;
 import android.location.GnssMeasurementsEvent;
 import android.location.Location;
+import android.location.LocationListener;
 import android.net.wifi.ScanResult;
 import android.os.Build;
+import android.os.SystemClock;
 import android.telephony.CellIdentity;
 import android.telephony.CellIdentityCdma;
 import android.telephony.CellIdentityGsm;
@@ -26,6 +28,7 @@ import android.telephony.CellSignalStrengthLte;
 import android.telephony.CellSignalStrengthNr;
 import android.telephony.CellSignalStrengthWcdma;
 import android.telephony.ServiceState;
+import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 
 import androidx.annotation.NonNull;
@@ -49,12 +52,9 @@ import com.craxiom.messaging.PhoneState;
 import com.craxiom.messaging.PhoneStateData;
 import com.craxiom.messaging.UmtsRecord;
 import com.craxiom.messaging.UmtsRecordData;
-import com.craxiom.messaging.WifiBeaconRecord;
-import com.craxiom.messaging.WifiBeaconRecordData;
 import com.craxiom.messaging.bluetooth.SupportedTechnologies;
 import com.craxiom.messaging.gnss.Constellation;
 import com.craxiom.messaging.phonestate.SimState;
-import com.craxiom.messaging.wifi.EncryptionType;
 import com.craxiom.networksurvey.BuildConfig;
 import com.craxiom.networksurvey.GpsListener;
 import com.craxiom.networksurvey.NetworkSurveyActivity;
@@ -67,23 +67,22 @@ import com.craxiom.networksurvey.constants.LteMessageConstants;
 import com.craxiom.networksurvey.constants.NetworkSurveyConstants;
 import com.craxiom.networksurvey.constants.NrMessageConstants;
 import com.craxiom.networksurvey.constants.UmtsMessageConstants;
-import com.craxiom.networksurvey.constants.WifiBeaconMessageConstants;
 import com.craxiom.networksurvey.listeners.IBluetoothSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.ICellularSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IDeviceStatusListener;
 import com.craxiom.networksurvey.listeners.IGnssSurveyRecordListener;
 import com.craxiom.networksurvey.listeners.IWifiSurveyRecordListener;
+import com.craxiom.networksurvey.logging.SurveyRecordLogger;
 import com.craxiom.networksurvey.model.CellularProtocol;
 import com.craxiom.networksurvey.model.CellularRecordWrapper;
 import com.craxiom.networksurvey.model.WifiRecordWrapper;
+import com.craxiom.networksurvey.model.WifiScanBatch;
 import com.craxiom.networksurvey.util.IOUtils;
 import com.craxiom.networksurvey.util.MathUtils;
 import com.craxiom.networksurvey.util.ParserUtils;
 import com.craxiom.networksurvey.util.PreferenceUtils;
-import com.craxiom.networksurvey.util.WifiCapabilitiesUtils;
-import com.google.protobuf.BoolValue;
+import com.craxiom.networksurvey.util.ProtobufValueCache;
 import com.google.protobuf.FloatValue;
-import com.google.protobuf.Int32Value;
 import com.google.protobuf.Int64Value;
 import com.google.protobuf.UInt32Value;
 import com.google.protobuf.UInt64Value;
@@ -96,9 +95,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -119,45 +121,116 @@ public class SurveyRecordProcessor
     private final Object cellInfoProcessingLock = new Object();
     private final Object activityUpdateLock = new Object();
 
+    private static final SurveyRecordEventBus.Dispatcher<ICellularSurveyRecordListener> GSM_DISPATCHER = (l, record) -> l.onGsmSurveyRecord((GsmRecord) record);
+    private static final SurveyRecordEventBus.Dispatcher<ICellularSurveyRecordListener> CDMA_DISPATCHER = (l, record) -> l.onCdmaSurveyRecord((CdmaRecord) record);
+    private static final SurveyRecordEventBus.Dispatcher<ICellularSurveyRecordListener> UMTS_DISPATCHER = (l, record) -> l.onUmtsSurveyRecord((UmtsRecord) record);
+    private static final SurveyRecordEventBus.Dispatcher<ICellularSurveyRecordListener> LTE_DISPATCHER = (l, record) -> l.onLteSurveyRecord((LteRecord) record);
+    private static final SurveyRecordEventBus.Dispatcher<ICellularSurveyRecordListener> NR_DISPATCHER = (l, record) -> l.onNrSurveyRecord((NrRecord) record);
+    @SuppressWarnings("unchecked")
+    private static final SurveyRecordEventBus.Dispatcher<ICellularSurveyRecordListener> CELLULAR_BATCH_DISPATCHER = (l, records) -> l.onCellularBatch((List<CellularRecordWrapper>) records);
+    private static final SurveyRecordEventBus.Dispatcher<ICellularSurveyRecordListener> NETWORK_TYPE_DISPATCHER = (l, types) -> l.onNetworkType(((String[]) types)[0], ((String[]) types)[1]);
+    @SuppressWarnings("unchecked")
+    private static final SurveyRecordEventBus.Dispatcher<IWifiSurveyRecordListener> WIFI_BEACONS_DISPATCHER = (l, records) -> l.onWifiBeaconSurveyRecords((List<WifiRecordWrapper>) records);
+    @SuppressWarnings("unchecked")
+    private static final SurveyRecordEventBus.Dispatcher<IWifiSurveyRecordListener> WIFI_CACHED_BEACONS_DISPATCHER = (l, records) -> l.onCachedWifiBeaconSurveyRecords((List<WifiRecordWrapper>) records);
+    private static final SurveyRecordEventBus.Dispatcher<IBluetoothSurveyRecordListener> BLUETOOTH_DISPATCHER = (l, record) -> l.onBluetoothSurveyRecord((BluetoothRecord) record);
+    @SuppressWarnings("unchecked")
+    private static final SurveyRecordEventBus.Dispatcher<IBluetoothSurveyRecordListener> BLUETOOTH_BATCH_DISPATCHER = (l, records) -> l.onBluetoothSurveyRecords((List<BluetoothRecord>) records);
+    private static final SurveyRecordEventBus.Dispatcher<IGnssSurveyRecordListener> GNSS_DISPATCHER = (l, record) -> l.onGnssSurveyRecord((GnssRecord) record);
+    private static final SurveyRecordEventBus.Dispatcher<IDeviceStatusListener> DEVICE_STATUS_DISPATCHER = (l, status) -> l.onDeviceStatus((DeviceStatus) status);
+    private static final SurveyRecordEventBus.Dispatcher<IDeviceStatusListener> PHONE_STATE_DISPATCHER = (l, state) -> l.onPhoneState((PhoneState) state);
+
     private final GpsListener gpsListener;
-    private final Set<ICellularSurveyRecordListener> cellularSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<IWifiSurveyRecordListener> wifiSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<IBluetoothSurveyRecordListener> bluetoothSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<IGnssSurveyRecordListener> gnssSurveyRecordListeners = new CopyOnWriteArraySet<>();
-    private final Set<IDeviceStatusListener> deviceStatusListeners = new CopyOnWriteArraySet<>();
+    private final SurveyRecordEventBus<ICellularSurveyRecordListener> cellularSurveyRecordBus = new SurveyRecordEventBus<>("CellularBus", 1024);
+    private final SurveyRecordEventBus<IWifiSurveyRecordListener> wifiSurveyRecordBus = new SurveyRecordEventBus<>("WifiBus", 256);
+    private final SurveyRecordEventBus<IBluetoothSurveyRecordListener> bluetoothSurveyRecordBus = new SurveyRecordEventBus<>("BluetoothBus", 1024);
+    private final SurveyRecordEventBus<IGnssSurveyRecordListener> gnssSurveyRecordBus = new SurveyRecordEventBus<>("GnssBus", 1024);
+    private final SurveyRecordEventBus<IDeviceStatusListener> deviceStatusBus = new SurveyRecordEventBus<>("DeviceStatusBus", 256);
     private volatile NetworkSurveyActivity networkSurveyActivity;
 
-    private final ExecutorService executorService;
+    // One bounded queue per scan type so that an overloaded scan type is visible and can't starve the others
+    private final ScanWorkQueue wifiWorkQueue;
+    private final ScanWorkQueue bluetoothWorkQueue;
+    private final ScanWorkQueue gnssWorkQueue;
+    private final ScanWorkQueue deviceStatusWorkQueue;
     private final String deviceId;
     private final String missionId;
+    private volatile String deviceName;
+
+    // The record and group numbers for each record type, which are allocated without locking so that the scan
+    // results for the different types (and even multiple batches of the same type) can be converted in parallel.
+    private final RecordSequenceAllocator cellularRecordSequence = new RecordSequenceAllocator(1);
+    private final RecordSequenceAllocator cellularGroupSequence = new RecordSequenceAllocator(1);
+
+    private final RecordSequenceAllocator wifiRecordSequence = new RecordSequenceAllocator(1);
+    private final RecordSequenceAllocator bluetoothRecordSequence = new RecordSequenceAllocator(1);
+
+    private final RecordSequenceAllocator gnssRecordSequence = new RecordSequenceAllocator(1);
+    private final RecordSequenceAllocator gnssGroupSequence = new RecordSequenceAllocator(1);
 
-    private int recordNumber = 1;
-    private int groupNumber = 0; // This will be incremented to 1 the first time it is used.
+    private final RecordSequenceAllocator phoneStateRecordSequence = new RecordSequenceAllocator(1);
 
-    private int wifiRecordNumber = 1;
-    private int bluetoothRecordNumber = 1;
+    // For each subscription, a newer cell info list replaces one that is still waiting behind the list that is being
+    // processed. Each subscription has its own coalescer so that one SIM's lists never replace the other SIM's lists.
+    private final Map<Integer, LatestWinsCoalescer<CellInfoUpdate>> cellInfoUpdateCoalescers = new ConcurrentHashMap<>();
+    private volatile int primarySubscriptionId = SubscriptionManager.INVALID_SUBSCRIPTION_ID;
 
-    private int gnssRecordNumber = 1;
-    private int gnssGroupNumber = 0; // This will be incremented to 1 the first time it is used.
+    // Only accessed while holding the cellInfoProcessingLock
+    private final CellularChangeDetector cellularChangeDetector = new CellularChangeDetector();
 
-    private int phoneStateRecordNumber = 1;
+    // Large Wi-Fi and BLE batches (e.g. several hundred BLE results in a crowded venue) are split across the cores
+    private final ParallelRecordConverter<ScanResult, WifiRecordWrapper> wifiRecordConverter;
+    private final ParallelRecordConverter<android.bluetooth.le.ScanResult, BluetoothRecord> bluetoothRecordConverter;
 
     private long lastGnssLogTimeMs;
     private int gnssScanRateMs;
 
+    // Only accessed from the GNSS work queue, which processes one event at a time
+    private final GnssMeasurementAggregator gnssMeasurementAggregator = new GnssMeasurementAggregator();
+    private volatile boolean gnssAggregationEnabled;
+
+    // Only accessed from the Bluetooth work queue, which processes one result at a time
+    private final BluetoothSightingMerger<BluetoothDevice> bluetoothSightingMerger = new BluetoothSightingMerger<>(UNSET_TX_POWER_LEVEL);
+    private volatile boolean bluetoothMergeEnabled;
+
+    // While the location fixes are batched, the cellular, Wi-Fi, and Bluetooth scans wait for the fixes from their time
+    private final LocationBackfillQueue locationBackfillQueue = new LocationBackfillQueue(256);
+    private final LocationListener locationBackfillListener = location -> {
+        if (location != null) locationBackfillQueue.onFixDelivered(location.getElapsedRealtimeNanos());
+    };
+
+    // Replaced as a whole when the filter settings change, so a scan is always checked against one consistent filter
+    private volatile RecordFilter recordFilter = RecordFilter.ACCEPT_ALL;
+
+    // The cellular, Wi-Fi, and Bluetooth records handed to the listeners, used to report the records per km
+    private final AtomicLong scanRecordCount = new AtomicLong();
+
     /**
      * Creates a new processor that can consume the raw survey records in Android format and convert them to the
      * protobuf defined formats.
      *
-     * @param gpsListener The GPS Listener that is used to retrieve the latest location.
-     * @param deviceId    The Device ID associated with this phone.
-     * @param context     The context that is used to get the app's default shared preferences.
+     * @param gpsListener     The GPS Listener that is used to retrieve the latest location.
+     * @param deviceId        The Device ID associated with this phone.
+     * @param context         The context that is used to get the app's default shared preferences.
+     * @param executorService The executor that the per scan type work queues are drained on.
+     * @param conversionPool  The pool that large Wi-Fi and Bluetooth batches are converted on. The owner of the pool
+     *                        is responsible for shutting it down.
      */
-    SurveyRecordProcessor(GpsListener gpsListener, String deviceId, Context context, ExecutorService executorService)
+    SurveyRecordProcessor(GpsListener gpsListener, String deviceId, Context context, ExecutorService executorService,
+                          ForkJoinPool conversionPool)
     {
         this.gpsListener = gpsListener;
         this.deviceId = deviceId;
-        this.executorService = executorService;
+
+        wifiRecordConverter = new ParallelRecordConverter<>("Wi-Fi", conversionPool);
+        bluetoothRecordConverter = new ParallelRecordConverter<>("Bluetooth", conversionPool, this::generateBluetoothSurveyRecord);
+
+        wifiWorkQueue = new ScanWorkQueue("Wi-Fi", 8, executorService);
+        bluetoothWorkQueue = new ScanWorkQueue("Bluetooth", 256, executorService);
+        gnssWorkQueue = new ScanWorkQueue("GNSS", 4, executorService);
+        deviceStatusWorkQueue = new ScanWorkQueue("Device Status", 16, executorService);
+
+        if (gpsListener != null) gpsListener.registerListener(locationBackfillListener);
 
         missionId = MISSION_ID_PREFIX + deviceId + " " + DATE_TIME_FORMATTER.format(LocalDateTime.now());
 
@@ -167,32 +240,32 @@ public class SurveyRecordProcessor
 
     void registerCellularSurveyRecordListener(ICellularSurveyRecordListener surveyRecordListener)
     {
-        cellularSurveyRecordListeners.add(surveyRecordListener);
+        cellularSurveyRecordBus.register(surveyRecordListener, isLossless(surveyRecordListener));
     }
 
     void unregisterCellularSurveyRecordListener(ICellularSurveyRecordListener surveyRecordListener)
     {
-        cellularSurveyRecordListeners.remove(surveyRecordListener);
+        cellularSurveyRecordBus.unregister(surveyRecordListener);
     }
 
     void registerWifiSurveyRecordListener(IWifiSurveyRecordListener surveyRecordListener)
     {
-        wifiSurveyRecordListeners.add(surveyRecordListener);
+        wifiSurveyRecordBus.register(surveyRecordListener, isLossless(surveyRecordListener));
     }
 
     void unregisterWifiSurveyRecordListener(IWifiSurveyRecordListener surveyRecordListener)
     {
-        wifiSurveyRecordListeners.remove(surveyRecordListener);
+        wifiSurveyRecordBus.unregister(surveyRecordListener);
     }
 
     void registerBluetoothSurveyRecordListener(IBluetoothSurveyRecordListener surveyRecordListener)
     {
-        bluetoothSurveyRecordListeners.add(surveyRecordListener);
+        bluetoothSurveyRecordBus.register(surveyRecordListener, isLossless(surveyRecordListener));
     }
 
     void unregisterBluetoothSurveyRecordListener(IBluetoothSurveyRecordListener surveyRecordListener)
     {
-        bluetoothSurveyRecordListeners.remove(surveyRecordListener);
+        bluetoothSurveyRecordBus.unregister(surveyRecordListener);
     }
 
     /**
@@ -203,7 +276,7 @@ public class SurveyRecordProcessor
      */
     void registerGnssSurveyRecordListener(IGnssSurveyRecordListener surveyRecordListener)
     {
-        gnssSurveyRecordListeners.add(surveyRecordListener);
+        gnssSurveyRecordBus.register(surveyRecordListener, isLossless(surveyRecordListener));
     }
 
     /**
@@ -214,7 +287,7 @@ public class SurveyRecordProcessor
      */
     void unregisterGnssSurveyRecordListener(IGnssSurveyRecordListener surveyRecordListener)
     {
-        gnssSurveyRecordListeners.remove(surveyRecordListener);
+        gnssSurveyRecordBus.unregister(surveyRecordListener);
     }
 
     /**
@@ -225,7 +298,7 @@ public class SurveyRecordProcessor
      */
     void registerDeviceStatusListener(IDeviceStatusListener deviceStatusListener)
     {
-        deviceStatusListeners.add(deviceStatusListener);
+        deviceStatusBus.register(deviceStatusListener, isLossless(deviceStatusListener));
     }
 
     /**
@@ -236,7 +309,106 @@ public class SurveyRecordProcessor
      */
     void unregisterDeviceStatusListener(IDeviceStatusListener deviceStatusListener)
     {
-        deviceStatusListeners.remove(deviceStatusListener);
+        deviceStatusBus.unregister(deviceStatusListener);
+    }
+
+    /**
+     * The file loggers must write every record, so they are registered as lossless consumers of the event buses and
+     * hold back the scan processing instead of skipping records when they can't keep up. All the other listeners (the
+     * UI, MQTT, and gRPC) only care about the latest records and skip ahead if they fall too far behind.
+     *
+     * @return True if the listener must receive every record.
+     * @since 1.7.0
+     */
+    private static boolean isLossless(Object listener)
+    {
+        return listener instanceof SurveyRecordLogger;
+    }
+
+    /**
+     * @return The total number of cellular, Wi-Fi, and Bluetooth records that have been handed to the listeners.
+     * @since 1.7.0
+     */
+    long getScanRecordCount()
+    {
+        return scanRecordCount.get();
+    }
+
+    /**
+     * Returns how far behind the provided listener is, which is the number of survey record events it has not consumed
+     * yet across all the event buses it is registered with.
+     *
+     * @param listener The survey record listener.
+     * @return The total number of events the listener still has to consume.
+     * @since 1.7.0
+     */
+    long getListenerLag(Object listener)
+    {
+        long lag = 0;
+        if (listener instanceof ICellularSurveyRecordListener) lag += cellularSurveyRecordBus.getLag((ICellularSurveyRecordListener) listener);
+        if (listener instanceof IWifiSurveyRecordListener) lag += wifiSurveyRecordBus.getLag((IWifiSurveyRecordListener) listener);
+        if (listener instanceof IBluetoothSurveyRecordListener) lag += bluetoothSurveyRecordBus.getLag((IBluetoothSurveyRecordListener) listener);
+        if (listener instanceof IGnssSurveyRecordListener) lag += gnssSurveyRecordBus.getLag((IGnssSurveyRecordListener) listener);
+        if (listener instanceof IDeviceStatusListener) lag += deviceStatusBus.getLag((IDeviceStatusListener) listener);
+        return lag;
+    }
+
+    /**
+     * Logs the lag, processed, and dropped counts for every listener of every event bus.
+     *
+     * @since 1.7.0
+     */
+    void logListenerStats()
+    {
+        cellularSurveyRecordBus.logConsumerStats();
+        wifiSurveyRecordBus.logConsumerStats();
+        bluetoothSurveyRecordBus.logConsumerStats();
+        gnssSurveyRecordBus.logConsumerStats();
+        deviceStatusBus.logConsumerStats();
+
+        wifiRecordConverter.logStatistics();
+        bluetoothRecordConverter.logStatistics();
+
+        cellInfoUpdateCoalescers.values().forEach(LatestWinsCoalescer::logStatistics);
+        wifiWorkQueue.logStatistics();
+        bluetoothWorkQueue.logStatistics();
+        gnssWorkQueue.logStatistics();
+        deviceStatusWorkQueue.logStatistics();
+        locationBackfillQueue.logStatistics();
+
+        if (bluetoothSightingMerger.getTotalMergedCount() > 0)
+        {
+            Timber.i("Bluetooth sighting merge: sightings=%d, records=%d", bluetoothSightingMerger.getTotalSightingCount(),
+                    bluetoothSightingMerger.getTotalMergedCount());
+        }
+
+        recordFilter.logStatistics();
+
+        if (cellularChangeDetector.isEnabled())
+        {
+            Timber.i("Cellular change detection: emitted=%d, suppressed=%d, trackedCells=%d",
+                    cellularChangeDetector.getTotalEmittedCount(), cellularChangeDetector.getTotalSuppressedCount(),
+                    cellularChangeDetector.getTrackedCellCount());
+        }
+    }
+
+    /**
+     * Stops all the listener threads. Should be called when the service that owns this processor is destroyed.
+     *
+     * @since 1.7.0
+     */
+    void shutdown()
+    {
+        logListenerStats();
+
+        if (gpsListener != null) gpsListener.unregisterListener(locationBackfillListener);
+        locationBackfillQueue.setMaxWait(0);
+
+        cellularSurveyRecordBus.shutdown();
+        wifiSurveyRecordBus.shutdown();
+        bluetoothSurveyRecordBus.shutdown();
+        gnssSurveyRecordBus.shutdown();
+        deviceStatusBus.shutdown();
     }
 
     /**
@@ -270,11 +442,11 @@ public class SurveyRecordProcessor
     boolean isBeingUsed()
     {
         return networkSurveyActivity != null
-                || !cellularSurveyRecordListeners.isEmpty()
-                || !wifiSurveyRecordListeners.isEmpty()
-                || !bluetoothSurveyRecordListeners.isEmpty()
-                || !gnssSurveyRecordListeners.isEmpty()
-                || !deviceStatusListeners.isEmpty();
+                || cellularSurveyRecordBus.hasConsumers()
+                || wifiSurveyRecordBus.hasConsumers()
+                || bluetoothSurveyRecordBus.hasConsumers()
+                || gnssSurveyRecordBus.hasConsumers()
+                || deviceStatusBus.hasConsumers();
     }
 
     /**
@@ -283,7 +455,7 @@ public class SurveyRecordProcessor
      */
     boolean isCellularBeingUsed()
     {
-        return !cellularSurveyRecordListeners.isEmpty() || networkSurveyActivity != null;
+        return cellularSurveyRecordBus.hasConsumers() || networkSurveyActivity != null;
     }
 
     /**
@@ -291,7 +463,7 @@ public class SurveyRecordProcessor
      */
     boolean isWifiBeingUsed()
     {
-        return !wifiSurveyRecordListeners.isEmpty();
+        return wifiSurveyRecordBus.hasConsumers();
     }
 
     /**
@@ -300,7 +472,7 @@ public class SurveyRecordProcessor
      */
     boolean isBluetoothBeingUsed()
     {
-        return !bluetoothSurveyRecordListeners.isEmpty();
+        return bluetoothSurveyRecordBus.hasConsumers();
     }
 
     /**
@@ -309,7 +481,7 @@ public class SurveyRecordProcessor
      */
     boolean isGnssBeingUsed()
     {
-        return !gnssSurveyRecordListeners.isEmpty();
+        return gnssSurveyRecordBus.hasConsumers();
     }
 
     /**
@@ -318,7 +490,7 @@ public class SurveyRecordProcessor
      */
     boolean isDeviceStatusBeingUsed()
     {
-        return !deviceStatusListeners.isEmpty();
+        return deviceStatusBus.hasConsumers();
     }
 
     /**
@@ -331,6 +503,60 @@ public class SurveyRecordProcessor
      */
     void onCellInfoUpdate(List<CellInfo> allCellInfo, String dataNetworkType, String voiceNetworkType) throws SecurityException
     {
+        onCellInfoUpdate(SubscriptionManager.INVALID_SUBSCRIPTION_ID, allCellInfo, dataNetworkType, voiceNetworkType);
+    }
+
+    /**
+     * Process the updated list of {@link CellInfo} objects from the {@link TelephonyManager} for a single SIM
+     * subscription. The records in the cellular batch for the UI are tagged with the subscription ID (the individual
+     * survey records have no field for it).
+     *
+     * @param subscriptionId   The ID of the subscription the cell info is from, or
+     *                         {@link SubscriptionManager#INVALID_SUBSCRIPTION_ID} on a single SIM device.
+     * @param allCellInfo      The List of {@link CellInfo} records to convert to survey records.
+     * @param dataNetworkType  The data network type (e.g. "LTE"), which might be different than the voice network type.
+     * @param voiceNetworkType The voice network type (e.g. "LTE").
+     * @since 1.7.0
+     */
+    void onCellInfoUpdate(int subscriptionId, List<CellInfo> allCellInfo, String dataNetworkType, String voiceNetworkType)
+    {
+        // When the cell info requests overlap (e.g. a fast scan rate or a slow modem), only the latest list is processed
+        // instead of processing every list in turn, which would process stale lists after newer ones.
+        final LatestWinsCoalescer<CellInfoUpdate> coalescer = cellInfoUpdateCoalescers.computeIfAbsent(subscriptionId, id -> new LatestWinsCoalescer<>(
+                id == SubscriptionManager.INVALID_SUBSCRIPTION_ID ? "Cell info" : "Cell info (subscription " + id + ")",
+                this::processCellInfoUpdate));
+        final CellInfoUpdate update = new CellInfoUpdate(subscriptionId, allCellInfo, dataNetworkType, voiceNetworkType);
+        locationBackfillQueue.runWhenLocated(SystemClock.elapsedRealtimeNanos(), () -> coalescer.offer(update));
+    }
+
+    /**
+     * Sets the subscription that is shown in the UI on a multi-SIM device. The records for every subscription are sent
+     * to the protocol specific listeners, but the network types and the cellular batches (which are only used to show
+     * the current serving and neighbor cells) are only sent for this subscription so the UI does not flip between the
+     * two SIMs.
+     *
+     * @param subscriptionId The default data subscription, or {@link SubscriptionManager#INVALID_SUBSCRIPTION_ID} to
+     *                       send the network types and batches for every subscription (i.e. on a single SIM device).
+     * @since 1.7.0
+     */
+    void setPrimarySubscriptionId(int subscriptionId)
+    {
+        primarySubscriptionId = subscriptionId;
+    }
+
+    /**
+     * Converts a single cell info list to survey records and notifies the listeners.
+     *
+     * @param update The cell info list and network types.
+     * @since 1.7.0
+     */
+    private void processCellInfoUpdate(CellInfoUpdate update)
+    {
+        final List<CellInfo> allCellInfo = update.allCellInfo;
+        final int primarySubscription = primarySubscriptionId;
+        final boolean notifyBatch = primarySubscription == SubscriptionManager.INVALID_SUBSCRIPTION_ID
+                || primarySubscription == update.subscriptionId;
+
         // synchronized to make sure that we are only processing one list of Cell Info objects at a time.
         synchronized (cellInfoProcessingLock)
         {
@@ -339,28 +565,31 @@ public class SurveyRecordProcessor
                 /* Timber.v("currentTechnology=%s", currentTechnology);
                 Timber.v("allCellInfo: ");
                 allCellInfo.forEach(cellInfo -> Timber.v(cellInfo.toString()));*/
-                notifyNetworkTypeListeners(dataNetworkType, voiceNetworkType);
+                if (notifyBatch) notifyNetworkTypeListeners(update.dataNetworkType, update.voiceNetworkType);
 
                 if (allCellInfo != null && !allCellInfo.isEmpty())
                 {
-                    groupNumber++; // Group all the records found in this scan iteration.
+                    final int groupNumber = cellularGroupSequence.next(); // Group all the records found in this scan iteration.
                     final List<CellularRecordWrapper> cellularRecords = new ArrayList<>(allCellInfo.size());
+                    cellularChangeDetector.startGroup(groupNumber);
 
                     for (CellInfo cellInfo : allCellInfo)
                     {
-                        final CellularRecordWrapper cellularRecord = processCellInfo(cellInfo);
+                        final CellularRecordWrapper cellularRecord = processCellInfo(cellInfo, groupNumber, update.subscriptionId, notifyBatch);
                         if (cellularRecord != null) cellularRecords.add(cellularRecord);
                     }
 
-                    notifyCellularListeners(cellularRecords);
-                } else
+                    cellularChangeDetector.endGroup();
+
+                    if (notifyBatch) notifyCellularListeners(cellularRecords);
+                } else if (notifyBatch)
                 {
                     notifyCellularListeners(Collections.emptyList());
                 }
             } catch (Exception e)
             {
                 Timber.e(e, "Unable to display and log Survey Record(s)");
-                notifyCellularListeners(Collections.emptyList());
+                if (notifyBatch) notifyCellularListeners(Collections.emptyList());
             }
         }
     }
@@ -369,15 +598,18 @@ public class SurveyRecordProcessor
      * Notification for when a new set of Wi-Fi scan results are available to process.
      *
      * @param apScanResults The list of results coming from the Android wifi scanning API.
+     * @param fresh         True if the results are from a new scan, false if the OS handed back the cached results of
+     *                      an earlier scan (e.g. because the scan was throttled).
      * @since 0.1.2
      */
-    void onWifiScanUpdate(List<ScanResult> apScanResults)
+    void onWifiScanUpdate(List<ScanResult> apScanResults, boolean fresh)
     {
         /*Timber.v("SCAN RESULTS:");
         apScanResults.forEach(scanResult -> Timber.v(scanResult.toString()));
         Timber.v("");*/
 
-        execute(() -> processAccessPoints(apScanResults));
+        locationBackfillQueue.runWhenLocated(SystemClock.elapsedRealtimeNanos(),
+                () -> wifiWorkQueue.submit(() -> processAccessPoints(apScanResults, fresh)));
     }
 
     /**
@@ -389,7 +621,8 @@ public class SurveyRecordProcessor
      */
     void onBluetoothClassicScanUpdate(BluetoothDevice device, int rssi)
     {
-        execute(() -> processBluetoothClassicResult(device, rssi));
+        locationBackfillQueue.runWhenLocated(SystemClock.elapsedRealtimeNanos(),
+                () -> bluetoothWorkQueue.submit(() -> processBluetoothClassicResult(device, rssi)));
     }
 
     /**
@@ -400,7 +633,8 @@ public class SurveyRecordProcessor
      */
     void onBluetoothScanUpdate(android.bluetooth.le.ScanResult result)
     {
-        execute(() -> processBluetoothResult(result));
+        locationBackfillQueue.runWhenLocated(SystemClock.elapsedRealtimeNanos(),
+                () -> bluetoothWorkQueue.submit(() -> processBluetoothResult(result)));
     }
 
     /**
@@ -415,7 +649,68 @@ public class SurveyRecordProcessor
         results.forEach(scanResult -> Timber.v(scanResult.toString()));
         Timber.v("");*/
 
-        execute(() -> processBluetoothResults(results));
+        // A newer batch replaces a batch that has not been processed yet, since it reflects the latest scan. When the
+        // sightings are merged every batch is kept, because each one adds sightings to the interval.
+        final boolean coalesce = !bluetoothMergeEnabled;
+        locationBackfillQueue.runWhenLocated(SystemClock.elapsedRealtimeNanos(),
+                () -> bluetoothWorkQueue.submit(() -> processBluetoothResults(results), coalesce));
+    }
+
+    /**
+     * Notification that a Bluetooth scan interval has ended (or that Bluetooth scanning is stopping). If the sighting
+     * merge mode is enabled, one merged record per device address is sent out for the interval.
+     *
+     * @since 1.7.0
+     */
+    void onBluetoothScanInterval()
+    {
+        // Waits behind the held back scans, so the merged records include the sightings from the whole interval
+        locationBackfillQueue.runWhenLocated(SystemClock.elapsedRealtimeNanos(), () -> bluetoothWorkQueue.submit(() -> {
+            if (bluetoothSightingMerger.getAddressCount() > 0) flushBluetoothSightings();
+        }));
+    }
+
+    /**
+     * Notification that a GNSS scan interval has elapsed (or that GNSS scanning is stopping). If the aggregation mode is
+     * enabled, the summary records are sent out for a window that is complete, so a window is not held back until the
+     * next measurement event arrives (which might never happen if the GNSS receiver stops reporting).
+     *
+     * @param stopping True if GNSS scanning is stopping, in which case a partial window is sent out as well.
+     * @since 1.7.0
+     */
+    void onGnssScanInterval(boolean stopping)
+    {
+        gnssWorkQueue.submit(() -> {
+            if (gnssMeasurementAggregator.getEventCount() == 0) return;
+
+            if (stopping || gnssMeasurementAggregator.isWindowComplete(System.currentTimeMillis(), gnssScanRateMs))
+            {
+                flushGnssAggregationWindow();
+            }
+        });
+    }
+
+    /**
+     * Waits until the GNSS work that was submitted so far (including the partial aggregation window that is sent out
+     * when GNSS scanning stops) has been processed, and the resulting records have been handed to every GNSS listener.
+     * This is called before the loggers and the MQTT connection are stopped so the last window is not lost.
+     *
+     * @param timeoutMs The maximum time to wait for the work queue, and then again for the listeners.
+     * @since 1.7.0
+     */
+    void awaitGnssRecords(long timeoutMs)
+    {
+        try
+        {
+            if (!gnssWorkQueue.awaitIdle(timeoutMs) || !gnssSurveyRecordBus.awaitConsumed(timeoutMs))
+            {
+                Timber.w("Timed out waiting for the last GNSS records to reach the listeners");
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            Timber.w("Interrupted while waiting for the last GNSS records to reach the listeners");
+        }
     }
 
     /**
@@ -426,7 +721,9 @@ public class SurveyRecordProcessor
      */
     void onGnssMeasurements(GnssMeasurementsEvent event)
     {
-        execute(() -> processGnssMeasurements(event));
+        // When throttling, only the latest event is of interest since most events are thrown away anyway. When
+        // aggregating, every event is folded into the window so none of them can be replaced.
+        gnssWorkQueue.submit(() -> processGnssMeasurements(event), !gnssAggregationEnabled);
     }
 
     /**
@@ -437,7 +734,7 @@ public class SurveyRecordProcessor
      */
     void onDeviceStatus(DeviceStatus deviceStatus)
     {
-        execute(() -> notifyDeviceStatusListeners(deviceStatus));
+        deviceStatusWorkQueue.submit(() -> notifyDeviceStatusListeners(deviceStatus));
     }
 
     /**
@@ -511,10 +808,11 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
 
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(phoneStateRecordNumber++);
+        dataBuilder.setRecordNumber(phoneStateRecordSequence.next());
 
         dataBuilder.setSimState(SimState.forNumber(telephonyManager.getSimState()));
         dataBuilder.setSimOperator(telephonyManager.getSimOperator());
@@ -541,58 +839,173 @@ public class SurveyRecordProcessor
         gnssScanRateMs = gnssScanIntervalMs;
     }
 
+    /**
+     * Configures the GNSS aggregation mode. When enabled, every GNSS measurement event within the GNSS scan interval is
+     * folded into running statistics for each satellite signal, and one summary {@link GnssRecord} (with the mean C/N0)
+     * is created per satellite signal at the end of each interval. When disabled, only the first event in each interval
+     * is converted and the rest are dropped.
+     *
+     * @param enabled True to aggregate the measurements, false to throttle them.
+     * @since 1.7.0
+     */
+    void setGnssAggregationEnabled(boolean enabled)
+    {
+        gnssAggregationEnabled = enabled;
+        Timber.i("GNSS measurement aggregation enabled=%b", enabled);
+    }
+
+    /**
+     * Configures the Bluetooth sighting merge mode. When enabled, every BLE scan result and classic discovery result in
+     * a Bluetooth scan interval is folded into one {@link BluetoothRecord} per device address, created at the end of the
+     * interval. When disabled, a record is created for every result.
+     *
+     * @param enabled True to merge the sightings, false to send a record for every sighting.
+     * @since 1.7.0
+     */
+    void setBluetoothMergeEnabled(boolean enabled)
+    {
+        bluetoothMergeEnabled = enabled;
+        Timber.i("Bluetooth sighting merge enabled=%b", enabled);
+    }
+
+    /**
+     * Sets how long the cellular, Wi-Fi, and Bluetooth scans wait for the batched location fixes from their time before
+     * they are converted to records. A scan is converted as soon as a fix from the time of the scan (or later) has been
+     * delivered, so it is matched with the fix from when it ran instead of the last fix of the previous batch.
+     *
+     * @param maxWaitMs The maximum time a scan waits for its fix, or zero if the location updates are not batched.
+     * @since 1.7.0
+     */
+    void setLocationBackfillMaxWaitMs(long maxWaitMs)
+    {
+        locationBackfillQueue.setMaxWait(TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+    }
+
+    /**
+     * Sets the filter that the raw cellular, Wi-Fi, and Bluetooth scan results are checked against before any record is
+     * created for them. The counters of the previous filter are logged before it is replaced.
+     *
+     * @param filter The compiled filter, or {@link RecordFilter#ACCEPT_ALL} to create a record for every result.
+     * @since 1.7.0
+     */
+    void setRecordFilter(RecordFilter filter)
+    {
+        recordFilter.logStatistics();
+        recordFilter = filter;
+        Timber.i("Record filter rules enabled=%b", filter.hasRules());
+    }
+
+    /**
+     * Configures the cellular change detection (delta) mode. When enabled, a cell is only sent to the loggers, MQTT, and
+     * gRPC if it is new, its primary signal value changed by more than the threshold, or the heartbeat interval has
+     * passed since a record was last sent for it. The UI still gets every cell in each cellular batch.
+     *
+     * @param enabled          True to suppress unchanged cells, false to send every cell on every scan.
+     * @param thresholdDb      The signal change in dB that causes a cell to be sent again.
+     * @param heartbeatSeconds A record is sent for every cell at least this often, even if it did not change.
+     * @since 1.7.0
+     */
+    void setCellularChangeDetection(boolean enabled, int thresholdDb, int heartbeatSeconds)
+    {
+        synchronized (cellInfoProcessingLock)
+        {
+            final boolean wasEnabled = cellularChangeDetector.isEnabled();
+            cellularChangeDetector.configure(enabled, thresholdDb, heartbeatSeconds * 1_000L);
+
+            // Start fresh so that the first scan after enabling the mode includes every cell
+            if (enabled && !wasEnabled) cellularChangeDetector.clear();
+        }
+
+        Timber.i("Cellular change detection enabled=%b, threshold=%d dB, heartbeat=%d s", enabled, thresholdDb, heartbeatSeconds);
+    }
+
+    /**
+     * Sets the device name that is stamped on every record this processor creates. The name is set on the data builder
+     * when each record is first built so that consumers (e.g. the MQTT connection) don't need to rebuild the record
+     * just to add it.
+     *
+     * @param deviceName The user entered device name (or the value provided via MDM), or null to leave it unset.
+     * @since 1.7.0
+     */
+    void setDeviceName(String deviceName)
+    {
+        this.deviceName = deviceName;
+    }
+
+    /**
+     * @return The device name that is set on new records, or null if one has not been set.
+     * @since 1.7.0
+     */
+    String getDeviceName()
+    {
+        return deviceName;
+    }
+
     /**
      * Given a {@link CellInfo} record, convert it to the appropriate ProtoBuf defined message.  Then, notify any
      * listeners so it can be written to a log file and/or sent to any servers if those services are enabled.
+     * <p>
+     * When the cellular change detection is enabled, a cell that has not changed is not sent to the individual protocol
+     * listener methods (the loggers, MQTT, and gRPC). It is still converted and returned if it is part of a batch, so
+     * that the UI always gets the full list of cells from the scan. Such a UI only record does not get a record number.
      *
-     * @param cellInfo The Cell Info object with the details.
+     * @param cellInfo       The Cell Info object with the details.
+     * @param groupNumber    The group number of the scan iteration the cell info is from.
+     * @param subscriptionId The subscription the cell info is from.
+     * @param inBatch        True if the record will be sent to the listeners as part of a cellular batch.
+     * @return The record for the cellular batch, or null if no record was created.
      * @since 0.0.5
      */
-    private CellularRecordWrapper processCellInfo(CellInfo cellInfo)
+    private CellularRecordWrapper processCellInfo(CellInfo cellInfo, int groupNumber, int subscriptionId, boolean inBatch)
     {
         // We only want to take the time to process a record if we are going to do something with it.  Currently, that
         // means logging, sending to a server, or updating the UI with the latest LTE information.
-        if (!cellularSurveyRecordListeners.isEmpty())
+        if (cellularSurveyRecordBus.hasConsumers())
         {
+            // Filtered before the change detection so the detector does not track cells that are never sent
+            if (!acceptCellInfo(cellInfo)) return null;
+            final boolean changed = !cellularChangeDetector.isEnabled() || shouldEmitCell(cellInfo, subscriptionId);
+            if (!changed && !inBatch) return null;
+
             if (cellInfo instanceof CellInfoLte)
             {
-                final LteRecord lteSurveyRecord = generateLteSurveyRecord((CellInfoLte) cellInfo);
+                final LteRecord lteSurveyRecord = generateLteSurveyRecord((CellInfoLte) cellInfo, groupNumber, changed);
                 if (lteSurveyRecord != null)
                 {
-                    notifyLteRecordListeners(lteSurveyRecord);
-                    return new CellularRecordWrapper(CellularProtocol.LTE, lteSurveyRecord);
+                    if (changed) notifyLteRecordListeners(lteSurveyRecord);
+                    return new CellularRecordWrapper(CellularProtocol.LTE, lteSurveyRecord, subscriptionId);
                 }
             } else if (cellInfo instanceof CellInfoGsm)
             {
-                final GsmRecord gsmRecord = generateGsmSurveyRecord((CellInfoGsm) cellInfo);
+                final GsmRecord gsmRecord = generateGsmSurveyRecord((CellInfoGsm) cellInfo, groupNumber, changed);
                 if (gsmRecord != null)
                 {
-                    notifyGsmRecordListeners(gsmRecord);
-                    return new CellularRecordWrapper(CellularProtocol.GSM, gsmRecord);
+                    if (changed) notifyGsmRecordListeners(gsmRecord);
+                    return new CellularRecordWrapper(CellularProtocol.GSM, gsmRecord, subscriptionId);
                 }
             } else if (cellInfo instanceof CellInfoCdma)
             {
-                final CdmaRecord cdmaRecord = generateCdmaSurveyRecord((CellInfoCdma) cellInfo);
+                final CdmaRecord cdmaRecord = generateCdmaSurveyRecord((CellInfoCdma) cellInfo, groupNumber, changed);
                 if (cdmaRecord != null)
                 {
-                    notifyCdmaRecordListeners(cdmaRecord);
-                    return new CellularRecordWrapper(CellularProtocol.CDMA, cdmaRecord);
+                    if (changed) notifyCdmaRecordListeners(cdmaRecord);
+                    return new CellularRecordWrapper(CellularProtocol.CDMA, cdmaRecord, subscriptionId);
                 }
             } else if (cellInfo instanceof CellInfoWcdma)
             {
-                final UmtsRecord umtsRecord = generateUmtsSurveyRecord((CellInfoWcdma) cellInfo);
+                final UmtsRecord umtsRecord = generateUmtsSurveyRecord((CellInfoWcdma) cellInfo, groupNumber, changed);
                 if (umtsRecord != null)
                 {
-                    notifyUmtsRecordListeners(umtsRecord);
-                    return new CellularRecordWrapper(CellularProtocol.UMTS, umtsRecord);
+                    if (changed) notifyUmtsRecordListeners(umtsRecord);
+                    return new CellularRecordWrapper(CellularProtocol.UMTS, umtsRecord, subscriptionId);
                 }
             } else if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && cellInfo instanceof CellInfoNr)
             {
-                final NrRecord nrRecord = generateNrSurveyRecord((CellInfoNr) cellInfo);
+                final NrRecord nrRecord = generateNrSurveyRecord((CellInfoNr) cellInfo, groupNumber, changed);
                 if (nrRecord != null)
                 {
-                    notifyNrRecordListeners(nrRecord);
-                    return new CellularRecordWrapper(CellularProtocol.NR, nrRecord);
+                    if (changed) notifyNrRecordListeners(nrRecord);
+                    return new CellularRecordWrapper(CellularProtocol.NR, nrRecord, subscriptionId);
                 }
             }
         }
@@ -600,18 +1013,129 @@ public class SurveyRecordProcessor
         return null;
     }
 
+    /**
+     * Checks the raw cell identity and signal fields against the {@link RecordFilter}.
+     *
+     * @param cellInfo The Cell Info object with the details.
+     * @return True if a record should be generated for the cell, false if the filter rejected it.
+     * @since 1.7.0
+     */
+    private boolean acceptCellInfo(CellInfo cellInfo)
+    {
+        final RecordFilter filter = recordFilter;
+        if (!filter.hasRules()) return true;
+
+        if (cellInfo instanceof CellInfoLte)
+        {
+            final CellIdentityLte identity = ((CellInfoLte) cellInfo).getCellIdentity();
+            return filter.acceptLteCell(identity.getMcc(), identity.getMnc(), identity.getEarfcn(),
+                    ((CellInfoLte) cellInfo).getCellSignalStrength().getRsrp());
+        } else if (cellInfo instanceof CellInfoGsm)
+        {
+            final CellIdentityGsm identity = ((CellInfoGsm) cellInfo).getCellIdentity();
+            return filter.acceptCell(identity.getMcc(), identity.getMnc());
+        } else if (cellInfo instanceof CellInfoWcdma)
+        {
+            final CellIdentityWcdma identity = ((CellInfoWcdma) cellInfo).getCellIdentity();
+            return filter.acceptCell(identity.getMcc(), identity.getMnc());
+        } else if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && cellInfo instanceof CellInfoNr)
+        {
+            final CellIdentityNr identity = (CellIdentityNr) cellInfo.getCellIdentity();
+            return filter.acceptNrCell(ParserUtils.parseInt(identity.getMccString(), CellInfo.UNAVAILABLE),
+                    ParserUtils.parseInt(identity.getMncString(), CellInfo.UNAVAILABLE),
+                    ((CellSignalStrengthNr) cellInfo.getCellSignalStrength()).getSsRsrp());
+        }
+
+        // CDMA cells don't have a PLMN, so none of the rules apply to them
+        return true;
+    }
+
+    /**
+     * Checks the cell against the {@link CellularChangeDetector} using the cell identity fields and the primary signal
+     * value for the cell's protocol.
+     *
+     * @param cellInfo       The Cell Info object with the details.
+     * @param subscriptionId The subscription the cell info is from.
+     * @return True if a record should be generated for the cell, false if it has not changed since the last record.
+     * @since 1.7.0
+     */
+    private boolean shouldEmitCell(CellInfo cellInfo, int subscriptionId)
+    {
+        final long key;
+        final int signal;
+        if (cellInfo instanceof CellInfoLte)
+        {
+            final CellIdentityLte identity = ((CellInfoLte) cellInfo).getCellIdentity();
+            key = CellularChangeDetector.cellKey(subscriptionId, CellularProtocol.LTE.ordinal(), cellInfo.isRegistered(), identity.getMcc(),
+                    identity.getMnc(), identity.getTac(), identity.getCi(), identity.getEarfcn(), identity.getPci());
+            signal = ((CellInfoLte) cellInfo).getCellSignalStrength().getRsrp();
+        } else if (cellInfo instanceof CellInfoGsm)
+        {
+            final CellIdentityGsm identity = ((CellInfoGsm) cellInfo).getCellIdentity();
+            key = CellularChangeDetector.cellKey(subscriptionId, CellularProtocol.GSM.ordinal(), cellInfo.isRegistered(), identity.getMcc(),
+                    identity.getMnc(), identity.getLac(), identity.getCid(), identity.getArfcn(), identity.getBsic());
+            signal = ((CellInfoGsm) cellInfo).getCellSignalStrength().getDbm();
+        } else if (cellInfo instanceof CellInfoCdma)
+        {
+            final CellIdentityCdma identity = ((CellInfoCdma) cellInfo).getCellIdentity();
+            key = CellularChangeDetector.cellKey(subscriptionId, CellularProtocol.CDMA.ordinal(), cellInfo.isRegistered(), identity.getSystemId(),
+                    identity.getNetworkId(), identity.getBasestationId(), 0, 0, 0);
+            signal = ((CellInfoCdma) cellInfo).getCellSignalStrength().getCdmaDbm();
+        } else if (cellInfo instanceof CellInfoWcdma)
+        {
+            final CellIdentityWcdma identity = ((CellInfoWcdma) cellInfo).getCellIdentity();
+            key = CellularChangeDetector.cellKey(subscriptionId, CellularProtocol.UMTS.ordinal(), cellInfo.isRegistered(), identity.getMcc(),
+                    identity.getMnc(), identity.getLac(), identity.getCid(), identity.getUarfcn(), identity.getPsc());
+            signal = ((CellInfoWcdma) cellInfo).getCellSignalStrength().getDbm();
+        } else if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && cellInfo instanceof CellInfoNr)
+        {
+            final CellIdentityNr identity = (CellIdentityNr) cellInfo.getCellIdentity();
+            key = CellularChangeDetector.cellKey(subscriptionId, CellularProtocol.NR.ordinal(), cellInfo.isRegistered(),
+                    ParserUtils.parseInt(identity.getMccString(), CellInfo.UNAVAILABLE),
+                    ParserUtils.parseInt(identity.getMncString(), CellInfo.UNAVAILABLE),
+                    identity.getTac(), identity.getNci(), identity.getNrarfcn(), identity.getPci());
+            signal = ((CellSignalStrengthNr) cellInfo.getCellSignalStrength()).getSsRsrp();
+        } else
+        {
+            return true;
+        }
+
+        final float signalDb = signal == CellInfo.UNAVAILABLE ? Float.NaN : signal;
+        return cellularChangeDetector.shouldEmit(key, signalDb, System.currentTimeMillis());
+    }
+
     /**
      * Given a group of 802.11 scan results, create the protobuf objects from it and notify any listeners.
      *
      * @param apScanResults The list of Scan Results.
+     * @param fresh         True if the results are from a new scan, false if they are cached.
      * @since 0.1.2
      */
-    private void processAccessPoints(List<ScanResult> apScanResults)
+    private void processAccessPoints(List<ScanResult> apScanResults, boolean fresh)
     {
-        final List<WifiRecordWrapper> wifiBeaconRecords = apScanResults.stream()
-                .map(this::generateWiFiBeaconSurveyRecord)
+        // Validate first so that a block of exactly the right size is reserved and the record numbers stay gap free
+        final RecordFilter filter = recordFilter;
+        final List<ScanResult> validResults = apScanResults.stream()
+                .filter(result -> validateWifiBeaconFields(result.BSSID, result.level))
+                .filter(result -> filter.acceptWifi(result.BSSID, result.SSID))
                 .collect(Collectors.toList());
-        notifyWifiBeaconRecordListeners(wifiBeaconRecords);
+
+        // Cached results are never logged, so they don't use up any record numbers
+        final int firstRecordNumber = fresh ? wifiRecordSequence.reserve(validResults.size()) : 0;
+
+        // The scan result timestamp is in microseconds since boot, the newest one is the closest to the end of the scan
+        long scanTimestampNanos = 0;
+        for (ScanResult result : validResults)
+        {
+            scanTimestampNanos = Math.max(scanTimestampNanos, TimeUnit.MICROSECONDS.toNanos(result.timestamp));
+        }
+
+        final WifiScanBatch batch = createWifiScanBatch(validResults.size(), firstRecordNumber, scanTimestampNanos);
+        batch.setFresh(fresh);
+
+        // Only the columns are filled here, the protobuf records are built later if a listener asks for them
+        notifyWifiBeaconRecordListeners(wifiRecordConverter.convert(validResults, firstRecordNumber,
+                (apScanResult, recordNumber) -> generateWiFiBeaconSurveyRecord(batch, recordNumber - firstRecordNumber, apScanResult)), fresh);
     }
 
     /**
@@ -623,7 +1147,12 @@ public class SurveyRecordProcessor
      */
     private void processBluetoothClassicResult(BluetoothDevice device, int rssi)
     {
-        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(device, rssi, UNSET_TX_POWER_LEVEL));
+        if (!validateBluetoothFields(device.getAddress()) || !acceptBluetoothDevice(recordFilter, device)) return;
+
+        if (mergeBluetoothSighting(device, rssi, UNSET_TX_POWER_LEVEL, true)) return;
+
+        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(device, rssi, UNSET_TX_POWER_LEVEL, 0,
+                bluetoothRecordSequence.next()));
     }
 
     /**
@@ -634,7 +1163,12 @@ public class SurveyRecordProcessor
      */
     private void processBluetoothResult(android.bluetooth.le.ScanResult result)
     {
-        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(result));
+        final BluetoothDevice device = result.getDevice();
+        if (!validateBluetoothFields(device.getAddress()) || !acceptBluetoothDevice(recordFilter, device)) return;
+
+        if (mergeBluetoothSighting(device, result.getRssi(), result.getTxPower(), false)) return;
+
+        notifyBluetoothRecordListeners(generateBluetoothSurveyRecord(result, bluetoothRecordSequence.next()));
     }
 
     /**
@@ -645,68 +1179,175 @@ public class SurveyRecordProcessor
      */
     private void processBluetoothResults(List<android.bluetooth.le.ScanResult> results)
     {
-        final List<BluetoothRecord> bluetoothRecords = results.stream()
-                .map(this::generateBluetoothSurveyRecord)
+        // Validate first so that a block of exactly the right size is reserved and the record numbers stay gap free
+        final RecordFilter filter = recordFilter;
+        final List<android.bluetooth.le.ScanResult> validResults = results.stream()
+                .filter(result -> validateBluetoothFields(result.getDevice().getAddress()))
+                .filter(result -> acceptBluetoothDevice(filter, result.getDevice()))
                 .collect(Collectors.toList());
-        notifyBluetoothRecordListeners(bluetoothRecords);
+
+        if (bluetoothMergeEnabled)
+        {
+            for (android.bluetooth.le.ScanResult result : validResults)
+            {
+                mergeBluetoothSighting(result.getDevice(), result.getRssi(), result.getTxPower(), false);
+            }
+            return;
+        }
+
+        final int firstRecordNumber = bluetoothRecordSequence.reserve(validResults.size());
+        notifyBluetoothRecordListeners(bluetoothRecordConverter.convert(validResults, firstRecordNumber));
+    }
+
+    /**
+     * Adds the sighting to the current Bluetooth interval if the merge mode is enabled. If it is not, any sightings
+     * collected before the merge mode was turned off are sent out.
+     *
+     * @return True if the sighting was merged, false if the caller needs to send a record for it.
+     * @since 1.7.0
+     */
+    private boolean mergeBluetoothSighting(BluetoothDevice device, int rssi, int txPowerLevel, boolean classic)
+    {
+        if (bluetoothMergeEnabled)
+        {
+            bluetoothSightingMerger.add(device.getAddress(), device, rssi, txPowerLevel, classic);
+            return true;
+        }
+
+        if (bluetoothSightingMerger.getAddressCount() > 0) flushBluetoothSightings();
+        return false;
+    }
+
+    /**
+     * Creates one {@link BluetoothRecord} for each device address seen in the current Bluetooth interval, notifies the
+     * listeners, and starts a new interval.
+     *
+     * @since 1.7.0
+     */
+    private void flushBluetoothSightings()
+    {
+        final int sightingCount = bluetoothSightingMerger.getSightingCount();
+        final int addressCount = bluetoothSightingMerger.getAddressCount();
+
+        final List<BluetoothRecord> records = new ArrayList<>(addressCount);
+        final int firstRecordNumber = bluetoothRecordSequence.reserve(addressCount);
+
+        // The messaging API only has a single signal strength field, so the merged record carries the strongest RSSI,
+        // which is the sighting least affected by fading. The rest of the statistics are only logged for now.
+        bluetoothSightingMerger.flush((index, device, maxRssi, meanRssi, count, txPower, classic, le) -> {
+            Timber.v("Bluetooth sighting for %s: count=%d, rssi max=%d mean=%.1f, classic=%b, le=%b",
+                    device.getAddress(), count, maxRssi, meanRssi, classic, le);
+
+            records.add(generateBluetoothSurveyRecord(device, maxRssi, txPower, 0, firstRecordNumber + index));
+        });
+
+        notifyBluetoothRecordListeners(records);
+        Timber.d("Merged %d Bluetooth sightings into %d records", sightingCount, addressCount);
     }
 
     /**
      * Given a {@link GnssMeasurementsEvent}, convert it to the appropriate ProtoBuf defined message.  Then,
      * notify any listeners so it can be written to a log file and/or sent to any servers if those services are enabled.
      * <p>
-     * This method does nothing if the user preference defined GNSS Scan Interval time has not elapsed since the last
-     * log time.
+     * If the aggregation mode is enabled, the measurements are added to the current aggregation window instead, and a
+     * summary record for each satellite signal is created once the GNSS Scan Interval has elapsed. Otherwise, this
+     * method does nothing if the user preference defined GNSS Scan Interval time has not elapsed since the last log
+     * time.
      *
      * @param event The event that contains all the GNSS measurement information.
      * @since 0.3.0
      */
     private void processGnssMeasurements(GnssMeasurementsEvent event)
     {
+        final long nowMs = System.currentTimeMillis();
+
+        if (gnssAggregationEnabled)
+        {
+            aggregateGnssMeasurements(event, nowMs);
+            return;
+        }
+
+        // Send out what was collected before the aggregation mode was turned off
+        if (gnssMeasurementAggregator.getEventCount() > 0) flushGnssAggregationWindow();
+
         // Ideally we would tell the Android OS that we only want GNSS Measurement Events every n seconds, but since
         // there does not seem to be any option for that we simply ignore any updates until the interval has been reached
-        if (lastGnssLogTimeMs + gnssScanRateMs > System.currentTimeMillis()) return;
+        if (lastGnssLogTimeMs + gnssScanRateMs > nowMs) return;
 
-        lastGnssLogTimeMs = System.currentTimeMillis();
+        lastGnssLogTimeMs = nowMs;
 
         final Collection<GnssMeasurement> gnssMeasurements = event.getMeasurements();
 
-        gnssGroupNumber++; // Group all the records found in this scan iteration.
+        final int groupNumber = gnssGroupSequence.next(); // Group all the records found in this scan iteration.
+        int recordNumber = gnssRecordSequence.reserve(gnssMeasurements.size());
 
         for (final GnssMeasurement gnssMeasurement : gnssMeasurements)
         {
-            final GnssRecord gnssRecord = generateGnssSurveyRecord(gnssMeasurement);
+            final GnssRecord gnssRecord = generateGnssSurveyRecord(gnssMeasurement, recordNumber++, groupNumber);
             notifyGnssRecordListeners(gnssRecord);
         }
     }
 
     /**
-     * Wraps the execute command for the executor service in a try catch to prevent the app from crashing if something
-     * goes wrong with submitting the runnable. The most common crash I am seeing seems to be from the executor service
-     * shutting down but some scan results are coming in. Hopefully that is the only case because otherwise we are
-     * losing some survey results.
+     * Adds all the measurements in the event to the current aggregation window, and sends out the summary records if
+     * the GNSS Scan Interval has elapsed since the window started.
      *
-     * @param runnable The runnable to execute on the executor service.
-     * @since 1.5.0
+     * @param event The event that contains all the GNSS measurement information.
+     * @param nowMs The current time in milliseconds.
+     * @since 1.7.0
      */
-    private void execute(Runnable runnable)
+    private void aggregateGnssMeasurements(GnssMeasurementsEvent event, long nowMs)
     {
-        try
-        {
-            executorService.execute(runnable);
-        } catch (Throwable t)
+        gnssMeasurementAggregator.startEvent(nowMs);
+
+        for (final GnssMeasurement gnss : event.getMeasurements())
         {
-            Timber.w(t, "Could not submit to the executor service");
+            gnssMeasurementAggregator.addMeasurement(gnss.getConstellationType(), gnss.getSvid(),
+                    gnss.hasCarrierFrequencyHz() ? gnss.getCarrierFrequencyHz() : Float.NaN,
+                    gnss.getCn0DbHz(), gnss.getPseudorangeRateMetersPerSecond(),
+                    gnss.hasAutomaticGainControlLevelDb() ? gnss.getAutomaticGainControlLevelDb() : Double.NaN);
         }
+
+        if (gnssMeasurementAggregator.isWindowComplete(nowMs, gnssScanRateMs)) flushGnssAggregationWindow();
+    }
+
+    /**
+     * Creates one summary {@link GnssRecord} for each satellite signal in the current aggregation window, notifies the
+     * listeners, and starts a new window.
+     *
+     * @since 1.7.0
+     */
+    private void flushGnssAggregationWindow()
+    {
+        final int eventCount = gnssMeasurementAggregator.getEventCount();
+        final int signalCount = gnssMeasurementAggregator.getSignalCount();
+
+        final int groupNumber = gnssGroupSequence.next();
+        final int firstRecordNumber = gnssRecordSequence.reserve(signalCount);
+
+        // The messaging API only has a single C/N0 field, so the summary record carries the mean. The rest of the
+        // statistics are only logged for now.
+        gnssMeasurementAggregator.flush((index, constellationType, svid, carrierFrequencyHz, sampleCount, meanCn0DbHz,
+                                         minCn0DbHz, maxCn0DbHz, pseudorangeRateVariance, agcDb) -> {
+            Timber.v("GNSS summary for constellation=%d, svid=%d: samples=%d, cn0 mean=%.1f min=%.1f max=%.1f, prrVariance=%.3f",
+                    constellationType, svid, sampleCount, meanCn0DbHz, minCn0DbHz, maxCn0DbHz, pseudorangeRateVariance);
+
+            notifyGnssRecordListeners(generateGnssSurveyRecord(constellationType, svid, carrierFrequencyHz, agcDb,
+                    meanCn0DbHz, firstRecordNumber + index, groupNumber));
+        });
+
+        Timber.d("Aggregated %d GNSS measurement events into %d satellite summaries (group %d)", eventCount, signalCount, groupNumber);
     }
 
     /**
      * Given a {@link CellInfoGsm} object, pull out the values and generate a {@link GsmRecord}.
      *
      * @param cellInfoGsm The object that contains the GSM Cell info.  This can be a serving cell or a neighbor cell.
+     * @param groupNumber The group number of the scan iteration the cell info is from.
+     * @param numbered    True to allocate a record number, false if the record is only for the UI and is not logged.
      * @return The survey record.
      */
-    private GsmRecord generateGsmSurveyRecord(CellInfoGsm cellInfoGsm)
+    private GsmRecord generateGsmSurveyRecord(CellInfoGsm cellInfoGsm, int groupNumber, boolean numbered)
     {
         final CellIdentityGsm cellIdentity = cellInfoGsm.getCellIdentity();
         final int mcc = cellIdentity.getMcc();
@@ -733,7 +1374,7 @@ public class SurveyRecordProcessor
 
         if (gpsListener != null)
         {
-            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLatestLocation();
+            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLocationAt(cellInfoGsm.getTimeStamp());
             if (lastKnownLocation != null)
             {
                 dataBuilder.setLatitude(lastKnownLocation.getLatitude());
@@ -744,11 +1385,12 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
+        if (numbered) dataBuilder.setRecordNumber(cellularRecordSequence.next());
         dataBuilder.setGroupNumber(groupNumber);
-        dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoGsm.isRegistered()).build());
+        dataBuilder.setServingCell(ProtobufValueCache.boolValue(cellInfoGsm.isRegistered()));
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
         // Even though the Android Javadocs indicate that an unset value is represented by Integer.MAX_VALUE, I found that a -1 is sometimes used for TA and CID.
@@ -756,28 +1398,28 @@ public class SurveyRecordProcessor
 
         if (mcc != Integer.MAX_VALUE && mcc != 0)
         {
-            dataBuilder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+            dataBuilder.setMcc(ProtobufValueCache.int32Value(mcc));
         }
         if (mnc != Integer.MAX_VALUE && mnc != 0)
         {
-            dataBuilder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+            dataBuilder.setMnc(ProtobufValueCache.int32Value(mnc));
         }
         if (lac != Integer.MAX_VALUE && lac != 0)
         {
-            dataBuilder.setLac(Int32Value.newBuilder().setValue(lac).build());
+            dataBuilder.setLac(ProtobufValueCache.int32Value(lac));
         }
         if (cid != Integer.MAX_VALUE && cid != -1)
         {
-            dataBuilder.setCi(Int32Value.newBuilder().setValue(cid).build());
+            dataBuilder.setCi(ProtobufValueCache.int32Value(cid));
         }
 
-        dataBuilder.setArfcn(Int32Value.newBuilder().setValue(arfcn).build());
-        dataBuilder.setBsic(Int32Value.newBuilder().setValue(bsic).build());
-        dataBuilder.setSignalStrength(FloatValue.newBuilder().setValue(signalStrength).build());
+        dataBuilder.setArfcn(ProtobufValueCache.int32Value(arfcn));
+        dataBuilder.setBsic(ProtobufValueCache.int32Value(bsic));
+        dataBuilder.setSignalStrength(ProtobufValueCache.floatValue(signalStrength));
 
         if (timingAdvance != Integer.MAX_VALUE && timingAdvance != -1)
         {
-            dataBuilder.setTa(Int32Value.newBuilder().setValue(timingAdvance).build());
+            dataBuilder.setTa(ProtobufValueCache.int32Value(timingAdvance));
         }
 
         final GsmRecord.Builder recordBuilder = GsmRecord.newBuilder();
@@ -792,9 +1434,11 @@ public class SurveyRecordProcessor
      * Given a {@link CellInfoCdma} object, pull out the values and generate a {@link CdmaRecord}.
      *
      * @param cellInfoCdma The object that contains the GSM Cell info.  This can be a serving cell or a neighbor cell.
+     * @param groupNumber The group number of the scan iteration the cell info is from.
+     * @param numbered    True to allocate a record number, false if the record is only for the UI and is not logged.
      * @return The survey record.
      */
-    private CdmaRecord generateCdmaSurveyRecord(CellInfoCdma cellInfoCdma)
+    private CdmaRecord generateCdmaSurveyRecord(CellInfoCdma cellInfoCdma, int groupNumber, boolean numbered)
     {
         final CellIdentityCdma cellIdentity = cellInfoCdma.getCellIdentity();
         final int sid = cellIdentity.getSystemId();
@@ -822,7 +1466,7 @@ public class SurveyRecordProcessor
 
         if (gpsListener != null)
         {
-            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLatestLocation();
+            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLocationAt(cellInfoCdma.getTimeStamp());
             if (lastKnownLocation != null)
             {
                 dataBuilder.setLatitude(lastKnownLocation.getLatitude());
@@ -833,28 +1477,29 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
+        if (numbered) dataBuilder.setRecordNumber(cellularRecordSequence.next());
         dataBuilder.setGroupNumber(groupNumber);
-        dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoCdma.isRegistered()).build());
+        dataBuilder.setServingCell(ProtobufValueCache.boolValue(cellInfoCdma.isRegistered()));
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
         if (sid != Integer.MAX_VALUE)
         {
-            dataBuilder.setSid(Int32Value.newBuilder().setValue(sid).build());
+            dataBuilder.setSid(ProtobufValueCache.int32Value(sid));
         }
         if (nid != Integer.MAX_VALUE)
         {
-            dataBuilder.setNid(Int32Value.newBuilder().setValue(nid).build());
+            dataBuilder.setNid(ProtobufValueCache.int32Value(nid));
         }
         if (bsid != Integer.MAX_VALUE)
         {
-            dataBuilder.setBsid(Int32Value.newBuilder().setValue(bsid).build());
+            dataBuilder.setBsid(ProtobufValueCache.int32Value(bsid));
         }
 
-        dataBuilder.setSignalStrength(FloatValue.newBuilder().setValue(signalStrength).build());
-        dataBuilder.setEcio(FloatValue.newBuilder().setValue(ecioFloat).build());
+        dataBuilder.setSignalStrength(ProtobufValueCache.floatValue(signalStrength));
+        dataBuilder.setEcio(ProtobufValueCache.floatValue(ecioFloat));
 
         final CdmaRecord.Builder recordBuilder = CdmaRecord.newBuilder();
         recordBuilder.setMessageType(CdmaMessageConstants.CDMA_RECORD_MESSAGE_TYPE);
@@ -868,9 +1513,11 @@ public class SurveyRecordProcessor
      * Given a {@link CellInfoWcdma} object, pull out the values and generate an {@link UmtsRecord}.
      *
      * @param cellInfoWcdma The object that contains the UMTS Cell info.  This can be a serving cell, or a neighbor cell.
+     * @param groupNumber The group number of the scan iteration the cell info is from.
+     * @param numbered    True to allocate a record number, false if the record is only for the UI and is not logged.
      * @return The survey record.
      */
-    private UmtsRecord generateUmtsSurveyRecord(CellInfoWcdma cellInfoWcdma)
+    private UmtsRecord generateUmtsSurveyRecord(CellInfoWcdma cellInfoWcdma, int groupNumber, boolean numbered)
     {
         final CellIdentityWcdma cellIdentity = cellInfoWcdma.getCellIdentity();
         final int mcc = cellIdentity.getMcc();
@@ -898,7 +1545,7 @@ public class SurveyRecordProcessor
 
         if (gpsListener != null)
         {
-            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLatestLocation();
+            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLocationAt(cellInfoWcdma.getTimeStamp());
             if (lastKnownLocation != null)
             {
                 dataBuilder.setLatitude(lastKnownLocation.getLatitude());
@@ -909,28 +1556,29 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
+        if (numbered) dataBuilder.setRecordNumber(cellularRecordSequence.next());
         dataBuilder.setGroupNumber(groupNumber);
-        dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoWcdma.isRegistered()).build());
+        dataBuilder.setServingCell(ProtobufValueCache.boolValue(cellInfoWcdma.isRegistered()));
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
         if (mcc != Integer.MAX_VALUE)
         {
-            dataBuilder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+            dataBuilder.setMcc(ProtobufValueCache.int32Value(mcc));
         }
         if (mnc != Integer.MAX_VALUE)
         {
-            dataBuilder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+            dataBuilder.setMnc(ProtobufValueCache.int32Value(mnc));
         }
         if (lac != Integer.MAX_VALUE)
         {
-            dataBuilder.setLac(Int32Value.newBuilder().setValue(lac).build());
+            dataBuilder.setLac(ProtobufValueCache.int32Value(lac));
         }
         if (ci != Integer.MAX_VALUE)
         {
-            dataBuilder.setCid(Int32Value.newBuilder().setValue(ci).build());
+            dataBuilder.setCid(ProtobufValueCache.int32Value(ci));
         }
 
         if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.R)
@@ -938,21 +1586,21 @@ public class SurveyRecordProcessor
             final int ecNo = cellSignalStrengthUmts.getEcNo();
             if (ecNo != CellInfo.UNAVAILABLE)
             {
-                dataBuilder.setEcno(FloatValue.newBuilder().setValue(ecNo).build());
+                dataBuilder.setEcno(ProtobufValueCache.floatValue(ecNo));
             }
         }
 
         if (signalStrength != Integer.MAX_VALUE)
         {
-            dataBuilder.setSignalStrength(FloatValue.newBuilder().setValue(signalStrength).build());
+            dataBuilder.setSignalStrength(ProtobufValueCache.floatValue(signalStrength));
         }
         if (rscp != Integer.MAX_VALUE)
         {
-            dataBuilder.setRscp(FloatValue.newBuilder().setValue(rscp).build());
+            dataBuilder.setRscp(ProtobufValueCache.floatValue(rscp));
         }
 
-        dataBuilder.setUarfcn(Int32Value.newBuilder().setValue(uarfcn).build());
-        dataBuilder.setPsc(Int32Value.newBuilder().setValue(psc).build());
+        dataBuilder.setUarfcn(ProtobufValueCache.int32Value(uarfcn));
+        dataBuilder.setPsc(ProtobufValueCache.int32Value(psc));
 
         final UmtsRecord.Builder recordBuilder = UmtsRecord.newBuilder();
         recordBuilder.setMessageType(UmtsMessageConstants.UMTS_RECORD_MESSAGE_TYPE);
@@ -966,9 +1614,11 @@ public class SurveyRecordProcessor
      * Given a {@link CellInfoLte} object, pull out the values and generate an {@link LteRecord}.
      *
      * @param cellInfoLte The object that contains the LTE Cell info.  This can be a serving cell, or a neighbor cell.
+     * @param groupNumber The group number of the scan iteration the cell info is from.
+     * @param numbered    True to allocate a record number, false if the record is only for the UI and is not logged.
      * @return The survey record.
      */
-    private LteRecord generateLteSurveyRecord(CellInfoLte cellInfoLte)
+    private LteRecord generateLteSurveyRecord(CellInfoLte cellInfoLte, int groupNumber, boolean numbered)
     {
         final CellIdentityLte cellIdentity = cellInfoLte.getCellIdentity();
         final int mcc = cellIdentity.getMcc();
@@ -996,7 +1646,7 @@ public class SurveyRecordProcessor
 
         if (gpsListener != null)
         {
-            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLatestLocation();
+            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLocationAt(cellInfoLte.getTimeStamp());
             if (lastKnownLocation != null)
             {
                 dataBuilder.setLatitude(lastKnownLocation.getLatitude());
@@ -1007,41 +1657,42 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
+        if (numbered) dataBuilder.setRecordNumber(cellularRecordSequence.next());
         dataBuilder.setGroupNumber(groupNumber);
-        dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoLte.isRegistered()).build());
+        dataBuilder.setServingCell(ProtobufValueCache.boolValue(cellInfoLte.isRegistered()));
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
         if (mcc != Integer.MAX_VALUE)
         {
-            dataBuilder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+            dataBuilder.setMcc(ProtobufValueCache.int32Value(mcc));
         }
         if (mnc != Integer.MAX_VALUE)
         {
-            dataBuilder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+            dataBuilder.setMnc(ProtobufValueCache.int32Value(mnc));
         }
         if (tac != Integer.MAX_VALUE)
         {
-            dataBuilder.setTac(Int32Value.newBuilder().setValue(tac).build());
+            dataBuilder.setTac(ProtobufValueCache.int32Value(tac));
         }
         if (ci != Integer.MAX_VALUE)
         {
-            dataBuilder.setEci(Int32Value.newBuilder().setValue(ci).build());
+            dataBuilder.setEci(ProtobufValueCache.int32Value(ci));
         }
 
-        dataBuilder.setEarfcn(Int32Value.newBuilder().setValue(earfcn).build());
-        dataBuilder.setPci(Int32Value.newBuilder().setValue(pci).build());
-        dataBuilder.setRsrp(FloatValue.newBuilder().setValue(rsrp).build());
+        dataBuilder.setEarfcn(ProtobufValueCache.int32Value(earfcn));
+        dataBuilder.setPci(ProtobufValueCache.int32Value(pci));
+        dataBuilder.setRsrp(ProtobufValueCache.floatValue(rsrp));
 
         if (rsrq != Integer.MAX_VALUE)
         {
-            dataBuilder.setRsrq(FloatValue.newBuilder().setValue(rsrq).build());
+            dataBuilder.setRsrq(ProtobufValueCache.floatValue(rsrq));
         }
         if (timingAdvance != Integer.MAX_VALUE)
         {
-            dataBuilder.setTa(Int32Value.newBuilder().setValue(timingAdvance).build());
+            dataBuilder.setTa(ProtobufValueCache.int32Value(timingAdvance));
         }
 
         setBandwidth(dataBuilder, cellIdentity);
@@ -1058,11 +1709,13 @@ public class SurveyRecordProcessor
      * Given a {@link CellInfoNr} object, pull out the values and generate a {@link NrRecord}.
      *
      * @param cellInfoNr The object that contains the NR(5G) Cell info.  This can be a serving cell, or a neighbor cell.
+     * @param groupNumber The group number of the scan iteration the cell info is from.
+     * @param numbered    True to allocate a record number, false if the record is only for the UI and is not logged.
      * @return The survey record.
      * @since 1.5.0
      */
     @RequiresApi(api = Build.VERSION_CODES.Q)
-    private NrRecord generateNrSurveyRecord(CellInfoNr cellInfoNr)
+    private NrRecord generateNrSurveyRecord(CellInfoNr cellInfoNr, int groupNumber, boolean numbered)
     {
         // safe to cast as per: https://developer.android.com/reference/android/telephony/CellInfoNr#getCellIdentity()
         final CellIdentityNr cellIdentity = (CellIdentityNr) cellInfoNr.getCellIdentity();
@@ -1096,7 +1749,7 @@ public class SurveyRecordProcessor
 
         if (gpsListener != null)
         {
-            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLatestLocation();
+            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLocationAt(cellInfoNr.getTimeStamp());
             if (lastKnownLocation != null)
             {
                 dataBuilder.setLatitude(lastKnownLocation.getLatitude());
@@ -1107,25 +1760,26 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(recordNumber++);
+        if (numbered) dataBuilder.setRecordNumber(cellularRecordSequence.next());
         dataBuilder.setGroupNumber(groupNumber);
-        dataBuilder.setServingCell(BoolValue.newBuilder().setValue(cellInfoNr.isRegistered()).build());
+        dataBuilder.setServingCell(ProtobufValueCache.boolValue(cellInfoNr.isRegistered()));
         if (provider != null) dataBuilder.setProvider(provider.toString());
 
         // vals from CellIdentity
         if (mcc != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+            dataBuilder.setMcc(ProtobufValueCache.int32Value(mcc));
         }
         if (mnc != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+            dataBuilder.setMnc(ProtobufValueCache.int32Value(mnc));
         }
         if (tac != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setTac(Int32Value.newBuilder().setValue(tac).build());
+            dataBuilder.setTac(ProtobufValueCache.int32Value(tac));
         }
         if (nci != CellInfo.UNAVAILABLE_LONG)
         {
@@ -1133,37 +1787,37 @@ public class SurveyRecordProcessor
         }
         if (nrarfcn != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setNarfcn(Int32Value.newBuilder().setValue(nrarfcn).build());
+            dataBuilder.setNarfcn(ProtobufValueCache.int32Value(nrarfcn));
         }
         if (pci != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setPci(Int32Value.newBuilder().setValue(pci).build());
+            dataBuilder.setPci(ProtobufValueCache.int32Value(pci));
         }
 
         // vals from CellSignalStrength
         if (ssRsrp != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setSsRsrp(FloatValue.newBuilder().setValue(ssRsrp).build());
+            dataBuilder.setSsRsrp(ProtobufValueCache.floatValue(ssRsrp));
         }
         if (ssRsrq != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setSsRsrq(FloatValue.newBuilder().setValue(ssRsrq).build());
+            dataBuilder.setSsRsrq(ProtobufValueCache.floatValue(ssRsrq));
         }
         if (ssSinr != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setSsSinr(FloatValue.newBuilder().setValue(ssSinr).build());
+            dataBuilder.setSsSinr(ProtobufValueCache.floatValue(ssSinr));
         }
         if (csiRsrp != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setCsiRsrp(FloatValue.newBuilder().setValue(csiRsrp).build());
+            dataBuilder.setCsiRsrp(ProtobufValueCache.floatValue(csiRsrp));
         }
         if (csiRsrq != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setCsiRsrq(FloatValue.newBuilder().setValue(csiRsrq).build());
+            dataBuilder.setCsiRsrq(ProtobufValueCache.floatValue(csiRsrq));
         }
         if (csiSinr != CellInfo.UNAVAILABLE)
         {
-            dataBuilder.setCsiSinr(FloatValue.newBuilder().setValue(csiSinr).build());
+            dataBuilder.setCsiSinr(ProtobufValueCache.floatValue(csiSinr));
         }
 
         final NrRecord.Builder recordBuilder = NrRecord.newBuilder();
@@ -1176,110 +1830,91 @@ public class SurveyRecordProcessor
     }
 
     /**
-     * Pull out the appropriate values from the {@link ScanResult}, and create a {@link WifiBeaconRecord}.
+     * Creates the columnar storage for a Wi-Fi scan batch, and fills in the fields that are shared by every record in
+     * the batch.
      *
-     * @param apScanResult The scan result to pull the Wi-Fi data from.
-     * @return The Wi-Fi record to send to any listeners.
-     * @since 0.1.2
+     * @param size               The number of access points in the batch.
+     * @param firstRecordNumber  The first number of the block of record numbers that was reserved for the batch.
+     * @param scanTimestampNanos The elapsed realtime of the scan, used to look up the location at the time of the scan,
+     *                           or 0 to use the latest location.
+     * @return The new, empty batch.
+     * @since 1.7.0
      */
-    private WifiRecordWrapper generateWiFiBeaconSurveyRecord(ScanResult apScanResult)
+    private WifiScanBatch createWifiScanBatch(int size, int firstRecordNumber, long scanTimestampNanos)
     {
-        final String bssid = apScanResult.BSSID;
-        final int signalStrength = apScanResult.level;
-
-        // Validate that the required fields are present before proceeding further
-        if (!validateWifiBeaconFields(bssid, signalStrength)) return null;
-
-        final WifiBeaconRecordData.Builder dataBuilder = WifiBeaconRecordData.newBuilder();
+        final ZonedDateTime now = ZonedDateTime.now();
+        final WifiScanBatch batch = new WifiScanBatch(size, firstRecordNumber, deviceId, deviceName, missionId,
+                now.toInstant().toEpochMilli(), IOUtils.getRfc3339String(now));
 
         if (gpsListener != null)
         {
-            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLatestLocation();
+            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLocationAt(scanTimestampNanos);
             if (lastKnownLocation != null)
             {
-                dataBuilder.setLatitude(lastKnownLocation.getLatitude());
-                dataBuilder.setLongitude(lastKnownLocation.getLongitude());
-                dataBuilder.setAltitude((float) lastKnownLocation.getAltitude());
-                dataBuilder.setAccuracy(MathUtils.roundAccuracy(lastKnownLocation.getAccuracy()));
+                batch.setLocation(lastKnownLocation.getLatitude(), lastKnownLocation.getLongitude(),
+                        (float) lastKnownLocation.getAltitude(), lastKnownLocation.getAccuracy());
             }
         }
 
-        dataBuilder.setDeviceSerialNumber(deviceId);
-        dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
-        dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(wifiRecordNumber++);
-
-        dataBuilder.setBssid(bssid);
-        dataBuilder.setSignalStrength(FloatValue.newBuilder().setValue(signalStrength).build());
-
-        final String ssid = apScanResult.SSID;
-        if (ssid != null) dataBuilder.setSsid(ssid);
-
-        final short channel = WifiBeaconMessageConstants.convertFrequencyToChannelNumber(apScanResult.frequency);
-        if (channel != -1)
-        {
-            dataBuilder.setChannel(Int32Value.newBuilder().setValue(channel).build());
-        }
-
-        final int frequency = apScanResult.frequency;
-        if (frequency != -1 && frequency != 0)
-        {
-            dataBuilder.setFrequencyMhz(Int32Value.newBuilder().setValue(frequency).build());
-        }
-
-        final String capabilities = apScanResult.capabilities;
-        if (capabilities != null && !capabilities.isEmpty())
-        {
-            // TODO At some point it would be nice to add the Cipher Suites and AKM Suites, but I can't seem to get
-            //  enough information for that.
-
-            final EncryptionType encryptionType = WifiCapabilitiesUtils.getEncryptionType(capabilities);
-            if (encryptionType != EncryptionType.UNKNOWN)
-            {
-                dataBuilder.setEncryptionType(encryptionType);
-            }
-
-            dataBuilder.setWps(BoolValue.newBuilder().setValue(WifiCapabilitiesUtils.supportsWps(capabilities)).build());
-        }
+        return batch;
+    }
 
-        final WifiBeaconRecord.Builder recordBuilder = WifiBeaconRecord.newBuilder();
-        recordBuilder.setMessageType(WifiBeaconMessageConstants.WIFI_BEACON_RECORD_MESSAGE_TYPE);
-        recordBuilder.setVersion(BuildConfig.MESSAGING_API_VERSION);
-        recordBuilder.setData(dataBuilder);
+    /**
+     * Pull out the appropriate values from the {@link ScanResult} and store them in the Wi-Fi scan batch. The
+     * {@link com.craxiom.messaging.WifiBeaconRecord} is only built if a listener asks the wrapper for it.
+     * <p>
+     * The caller must have already checked the scan result with {@link #validateWifiBeaconFields(String, int)}.
+     *
+     * @param batch        The batch to store the values in.
+     * @param index        The position of the scan result in the batch.
+     * @param apScanResult The scan result to pull the Wi-Fi data from.
+     * @return The Wi-Fi record to send to any listeners.
+     * @since 0.1.2
+     */
+    private WifiRecordWrapper generateWiFiBeaconSurveyRecord(WifiScanBatch batch, int index, ScanResult apScanResult)
+    {
+        batch.set(index, apScanResult.BSSID, apScanResult.SSID, apScanResult.level, apScanResult.frequency,
+                apScanResult.capabilities);
 
-        return new WifiRecordWrapper(recordBuilder.build(), apScanResult.capabilities);
+        return new WifiRecordWrapper(batch, index);
     }
 
     /**
      * Pull out the appropriate values from the {@link android.bluetooth.le.ScanResult}, and create a {@link BluetoothRecord}.
+     * <p>
+     * Batched scan results can be up to a report delay old, so the location is looked up from the time the result was
+     * seen rather than taken from the latest fix.
      *
-     * @param result The scan result to pull the Bluetooth data from.
+     * @param result       The scan result to pull the Bluetooth data from.
+     * @param recordNumber The record number that was allocated for this record.
      * @return The Bluetooth record to send to any listeners.
      * @since 1.0.0
      */
-    private BluetoothRecord generateBluetoothSurveyRecord(android.bluetooth.le.ScanResult result)
+    private BluetoothRecord generateBluetoothSurveyRecord(android.bluetooth.le.ScanResult result, int recordNumber)
     {
-        return generateBluetoothSurveyRecord(result.getDevice(), result.getRssi(), result.getTxPower());
+        return generateBluetoothSurveyRecord(result.getDevice(), result.getRssi(), result.getTxPower(),
+                result.getTimestampNanos(), recordNumber);
     }
 
     /**
      * Pull out the appropriate values, and create a {@link BluetoothRecord}.
+     * <p>
+     * The caller must have already checked the device address with {@link #validateBluetoothFields(String)}.
      *
+     * @param timestampNanos The elapsed realtime the device was seen at, or 0 to use the latest location.
      * @return The Bluetooth record to send to any listeners.
      * @since 1.0.0
      */
-    private BluetoothRecord generateBluetoothSurveyRecord(BluetoothDevice device, int rssi, int txPowerLevel)
+    private BluetoothRecord generateBluetoothSurveyRecord(BluetoothDevice device, int rssi, int txPowerLevel,
+                                                          long timestampNanos, int recordNumber)
     {
         final String sourceAddress = device.getAddress();
 
-        // Validate that the required fields are present before proceeding further
-        if (!validateBluetoothFields(sourceAddress)) return null;
-
         final BluetoothRecordData.Builder dataBuilder = BluetoothRecordData.newBuilder();
 
         if (gpsListener != null)
         {
-            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLatestLocation();
+            @SuppressLint("MissingPermission") final Location lastKnownLocation = gpsListener.getLocationAt(timestampNanos);
             if (lastKnownLocation != null)
             {
                 dataBuilder.setLatitude(lastKnownLocation.getLatitude());
@@ -1290,19 +1925,20 @@ public class SurveyRecordProcessor
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(bluetoothRecordNumber++);
+        dataBuilder.setRecordNumber(recordNumber);
 
         dataBuilder.setSourceAddress(sourceAddress);
-        dataBuilder.setSignalStrength(FloatValue.newBuilder().setValue(rssi).build());
+        dataBuilder.setSignalStrength(ProtobufValueCache.floatValue(rssi));
 
         // The TX Power seems to never be set (a value of 127 indicates unset). However, I am including
         // the code here in case it starts being populated in a future version of Android, or if a specific phone model
         // reports it.
         if (txPowerLevel != UNSET_TX_POWER_LEVEL)
         {
-            dataBuilder.setTxPower(FloatValue.newBuilder().setValue(txPowerLevel).build());
+            dataBuilder.setTxPower(ProtobufValueCache.floatValue(txPowerLevel));
         }
 
         final String otaDeviceName = device.getName();
@@ -1325,11 +1961,36 @@ public class SurveyRecordProcessor
     /**
      * Pull out the appropriate values from the {@link GnssMeasurement}, and create a {@link GnssRecord}.
      *
-     * @param gnss The GNSS measurement object to pull the data from.
+     * @param gnss         The GNSS measurement object to pull the data from.
+     * @param recordNumber The record number that was allocated for this record.
+     * @param groupNumber  The group number of the GNSS event the measurement is from.
      * @return The GNSS record to send to any listeners.
      * @since 0.3.0
      */
-    private GnssRecord generateGnssSurveyRecord(GnssMeasurement gnss)
+    private GnssRecord generateGnssSurveyRecord(GnssMeasurement gnss, int recordNumber, int groupNumber)
+    {
+        return generateGnssSurveyRecord(gnss.getConstellationType(), gnss.getSvid(),
+                gnss.hasCarrierFrequencyHz() ? gnss.getCarrierFrequencyHz() : Float.NaN,
+                gnss.hasAutomaticGainControlLevelDb() ? gnss.getAutomaticGainControlLevelDb() : Double.NaN,
+                gnss.getCn0DbHz(), recordNumber, groupNumber);
+    }
+
+    /**
+     * Create a {@link GnssRecord} for a single satellite signal. This is used for both the individual measurements and
+     * the aggregated summary of a satellite signal.
+     *
+     * @param constellationType  The Android {@code GnssStatus} constellation type.
+     * @param svid               The satellite ID.
+     * @param carrierFrequencyHz The carrier frequency, or {@link Float#NaN} if it is not available.
+     * @param agcDb              The AGC level, or {@link Double#NaN} if it is not available.
+     * @param cn0DbHz            The C/N0 in dB-Hz.
+     * @param recordNumber       The record number that was allocated for this record.
+     * @param groupNumber        The group number of the GNSS event or aggregation window the record is from.
+     * @return The GNSS record to send to any listeners.
+     * @since 1.7.0
+     */
+    private GnssRecord generateGnssSurveyRecord(int constellationType, int svid, float carrierFrequencyHz, double agcDb,
+                                                double cn0DbHz, int recordNumber, int groupNumber)
     {
         final GnssRecordData.Builder dataBuilder = GnssRecordData.newBuilder();
 
@@ -1345,46 +2006,46 @@ public class SurveyRecordProcessor
 
                 if (lastKnownLocation.hasAccuracy())
                 {
-                    final FloatValue.Builder accuracy = FloatValue.newBuilder().setValue(lastKnownLocation.getAccuracy());
+                    final FloatValue accuracy = ProtobufValueCache.floatValue(lastKnownLocation.getAccuracy());
                     dataBuilder.setLatitudeStdDevM(accuracy);
                     dataBuilder.setLongitudeStdDevM(accuracy);
                 }
 
                 if (lastKnownLocation.hasVerticalAccuracy())
                 {
-                    dataBuilder.setAltitudeStdDevM(FloatValue.newBuilder()
-                            .setValue(lastKnownLocation.getVerticalAccuracyMeters()));
+                    dataBuilder.setAltitudeStdDevM(ProtobufValueCache.floatValue(lastKnownLocation.getVerticalAccuracyMeters()));
                 }
             }
         }
 
         dataBuilder.setDeviceSerialNumber(deviceId);
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
         dataBuilder.setDeviceTime(IOUtils.getRfc3339String(ZonedDateTime.now()));
         dataBuilder.setMissionId(missionId);
-        dataBuilder.setRecordNumber(gnssRecordNumber++);
-        dataBuilder.setGroupNumber(gnssGroupNumber);
+        dataBuilder.setRecordNumber(recordNumber);
+        dataBuilder.setGroupNumber(groupNumber);
         dataBuilder.setDeviceModel(Build.MODEL);
 
-        final Constellation constellation = GnssMessageConstants.getProtobufConstellation(gnss.getConstellationType());
+        final Constellation constellation = GnssMessageConstants.getProtobufConstellation(constellationType);
         if (constellation != Constellation.UNKNOWN) dataBuilder.setConstellation(constellation);
 
-        dataBuilder.setSpaceVehicleId(UInt32Value.newBuilder().setValue(gnss.getSvid()));
+        dataBuilder.setSpaceVehicleId(UInt32Value.newBuilder().setValue(svid));
 
-        if (gnss.hasCarrierFrequencyHz())
+        if (!Float.isNaN(carrierFrequencyHz))
         {
-            dataBuilder.setCarrierFreqHz(UInt64Value.newBuilder().setValue((long) gnss.getCarrierFrequencyHz()));
+            dataBuilder.setCarrierFreqHz(UInt64Value.newBuilder().setValue((long) carrierFrequencyHz));
         }
 
         // TODO dataBuilder.setClockOffset(FloatValue.newBuilder().setValue());
         // TODO Can get this from the Satellite Status Changed call dataBuilder.setUsedInSolution(FloatValue.newBuilder().setValue());
         // TODO dataBuilder.setUndulationM(FloatValue.newBuilder().setValue());
 
-        if (gnss.hasAutomaticGainControlLevelDb())
+        if (!Double.isNaN(agcDb))
         {
-            dataBuilder.setAgcDb(FloatValue.newBuilder().setValue((float) gnss.getAutomaticGainControlLevelDb()));
+            dataBuilder.setAgcDb(ProtobufValueCache.floatValue((float) agcDb));
         }
 
-        dataBuilder.setCn0DbHz(FloatValue.newBuilder().setValue((float) gnss.getCn0DbHz()));
+        dataBuilder.setCn0DbHz(ProtobufValueCache.floatValue((float) cn0DbHz));
 
         // TODO dataBuilder.setHdop(FloatValue.newBuilder().setValue());
         // TODO dataBuilder.setVdop(FloatValue.newBuilder().setValue());
@@ -1608,6 +2269,18 @@ public class SurveyRecordProcessor
         return true;
     }
 
+    /**
+     * Checks the device against the record filter. The device type is only read (which is a binder call) if a device
+     * type rule is configured.
+     *
+     * @return True if a record should be created for the device.
+     * @since 1.7.0
+     */
+    private static boolean acceptBluetoothDevice(RecordFilter filter, BluetoothDevice device)
+    {
+        return !filter.hasBluetoothRule() || filter.acceptBluetooth(device.getType());
+    }
+
     /**
      * Notify all the listeners that we have a new GSM Record available.
      *
@@ -1616,16 +2289,7 @@ public class SurveyRecordProcessor
     private void notifyGsmRecordListeners(GsmRecord gsmRecord)
     {
         if (gsmRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onGsmSurveyRecord(gsmRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordBus.publish(GSM_DISPATCHER, gsmRecord);
     }
 
     /**
@@ -1636,16 +2300,7 @@ public class SurveyRecordProcessor
     private void notifyCdmaRecordListeners(CdmaRecord cdmaRecord)
     {
         if (cdmaRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onCdmaSurveyRecord(cdmaRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordBus.publish(CDMA_DISPATCHER, cdmaRecord);
     }
 
     /**
@@ -1656,16 +2311,7 @@ public class SurveyRecordProcessor
     private void notifyUmtsRecordListeners(UmtsRecord umtsRecord)
     {
         if (umtsRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onUmtsSurveyRecord(umtsRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordBus.publish(UMTS_DISPATCHER, umtsRecord);
     }
 
     /**
@@ -1676,20 +2322,11 @@ public class SurveyRecordProcessor
     private void notifyLteRecordListeners(LteRecord lteRecord)
     {
         if (lteRecord == null) return;
-        for (ICellularSurveyRecordListener listener : cellularSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onLteSurveyRecord(lteRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        }
+        cellularSurveyRecordBus.publish(LTE_DISPATCHER, lteRecord);
     }
 
     /**
-     * Notify {@link #cellularSurveyRecordListeners} of a new NR record
+     * Notify {@link #cellularSurveyRecordBus} of a new NR record
      *
      * @param nrRecord The new NR Survey Record to send to the listeners
      * @since 1.5.0
@@ -1698,15 +2335,7 @@ public class SurveyRecordProcessor
     {
         if (nrRecord == null) return;
 
-        cellularSurveyRecordListeners.forEach(l -> {
-            try
-            {
-                l.onNrSurveyRecord(nrRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        });
+        cellularSurveyRecordBus.publish(NR_DISPATCHER, nrRecord);
     }
 
     /**
@@ -1719,19 +2348,12 @@ public class SurveyRecordProcessor
      */
     private void notifyCellularListeners(List<CellularRecordWrapper> cellularRecords)
     {
-        cellularSurveyRecordListeners.forEach(l -> {
-            try
-            {
-                l.onCellularBatch(cellularRecords);
-            } catch (Throwable t)
-            {
-                Timber.e(t, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        });
+        scanRecordCount.addAndGet(cellularRecords.size());
+        cellularSurveyRecordBus.publish(CELLULAR_BATCH_DISPATCHER, cellularRecords);
     }
 
     /**
-     * Notify {@link #cellularSurveyRecordListeners} of a the current data and voice network types.
+     * Notify {@link #cellularSurveyRecordBus} of a the current data and voice network types.
      *
      * @param dataNetworkType  The data network type (e.g. "LTE"), which might be different than the voice network type.
      * @param voiceNetworkType The voice network type (e.g. "LTE").
@@ -1739,37 +2361,28 @@ public class SurveyRecordProcessor
      */
     private void notifyNetworkTypeListeners(String dataNetworkType, String voiceNetworkType)
     {
-        cellularSurveyRecordListeners.forEach(l -> {
-            try
-            {
-                l.onNetworkType(dataNetworkType, voiceNetworkType);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Cellular Survey Record Listener because of an exception");
-            }
-        });
+        cellularSurveyRecordBus.publish(NETWORK_TYPE_DISPATCHER, new String[]{dataNetworkType, voiceNetworkType});
     }
 
     /**
      * Notify all the listeners that we have a new group of 802.11 Beacon Records available.
      *
      * @param wifiBeaconRecords The new list 802.11 Beacon Survey Records to send to the listeners.
+     * @param fresh             True if the records are from a new scan, false if they are cached and only for display.
      * @since 0.1.2
      */
-    private void notifyWifiBeaconRecordListeners(List<WifiRecordWrapper> wifiBeaconRecords)
+    private void notifyWifiBeaconRecordListeners(List<WifiRecordWrapper> wifiBeaconRecords, boolean fresh)
     {
         if (wifiBeaconRecords == null || wifiBeaconRecords.isEmpty()) return;
 
-        for (IWifiSurveyRecordListener listener : wifiSurveyRecordListeners)
+        if (!fresh)
         {
-            try
-            {
-                listener.onWifiBeaconSurveyRecords(wifiBeaconRecords);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Wi-Fi Survey Record Listener because of an exception");
-            }
+            wifiSurveyRecordBus.publish(WIFI_CACHED_BEACONS_DISPATCHER, wifiBeaconRecords);
+            return;
         }
+
+        scanRecordCount.addAndGet(wifiBeaconRecords.size());
+        wifiSurveyRecordBus.publish(WIFI_BEACONS_DISPATCHER, wifiBeaconRecords);
     }
 
     /**
@@ -1782,16 +2395,8 @@ public class SurveyRecordProcessor
     {
         if (bluetoothRecord == null) return;
 
-        for (IBluetoothSurveyRecordListener listener : bluetoothSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onBluetoothSurveyRecord(bluetoothRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Bluetooth Survey Record Listener because of an exception");
-            }
-        }
+        scanRecordCount.incrementAndGet();
+        bluetoothSurveyRecordBus.publish(BLUETOOTH_DISPATCHER, bluetoothRecord);
     }
 
     /**
@@ -1804,16 +2409,8 @@ public class SurveyRecordProcessor
     {
         if (bluetoothRecords == null || bluetoothRecords.isEmpty()) return;
 
-        for (IBluetoothSurveyRecordListener listener : bluetoothSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onBluetoothSurveyRecords(bluetoothRecords);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Bluetooth Survey Record Listener because of an exception");
-            }
-        }
+        scanRecordCount.addAndGet(bluetoothRecords.size());
+        bluetoothSurveyRecordBus.publish(BLUETOOTH_BATCH_DISPATCHER, bluetoothRecords);
     }
 
     /**
@@ -1825,16 +2422,7 @@ public class SurveyRecordProcessor
     private void notifyGnssRecordListeners(GnssRecord gnssRecord)
     {
         if (gnssRecord == null) return;
-        for (IGnssSurveyRecordListener listener : gnssSurveyRecordListeners)
-        {
-            try
-            {
-                listener.onGnssSurveyRecord(gnssRecord);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a GNSS Survey Record Listener because of an exception");
-            }
-        }
+        gnssSurveyRecordBus.publish(GNSS_DISPATCHER, gnssRecord);
     }
 
     /**
@@ -1846,16 +2434,7 @@ public class SurveyRecordProcessor
     private void notifyDeviceStatusListeners(DeviceStatus deviceStatus)
     {
         if (deviceStatus == null) return;
-        for (IDeviceStatusListener listener : deviceStatusListeners)
-        {
-            try
-            {
-                listener.onDeviceStatus(deviceStatus);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Device Status Listener because of an exception");
-            }
-        }
+        deviceStatusBus.publish(DEVICE_STATUS_DISPATCHER, deviceStatus);
     }
 
     /**
@@ -1867,15 +2446,25 @@ public class SurveyRecordProcessor
     private void notifyPhoneStateListeners(PhoneState phoneState)
     {
         if (phoneState == null) return;
-        for (IDeviceStatusListener listener : deviceStatusListeners)
+        deviceStatusBus.publish(PHONE_STATE_DISPATCHER, phoneState);
+    }
+
+    /**
+     * A cell info list for one subscription and the network types at the time it was received.
+     */
+    private static final class CellInfoUpdate
+    {
+        private final int subscriptionId;
+        private final List<CellInfo> allCellInfo;
+        private final String dataNetworkType;
+        private final String voiceNetworkType;
+
+        private CellInfoUpdate(int subscriptionId, List<CellInfo> allCellInfo, String dataNetworkType, String voiceNetworkType)
         {
-            try
-            {
-                listener.onPhoneState(phoneState);
-            } catch (Exception e)
-            {
-                Timber.e(e, "Unable to notify a Phone State Listener because of an exception");
-            }
+            this.subscriptionId = subscriptionId;
+            this.allCellInfo = allCellInfo;
+            this.dataNetworkType = dataNetworkType;
+            this.voiceNetworkType = voiceNetworkType;
         }
     }
 }
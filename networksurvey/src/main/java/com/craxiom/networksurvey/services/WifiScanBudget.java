@@ -0,0 +1,118 @@
+package com.craxiom.networksurvey.services;
+
+import timber.log.Timber;
+
+/**
+ * Models the Wi-Fi scan throttling that Android applies to foreground apps as of Android 9, which allows a limited
+ * number of scans (4) in a sliding window (2 minutes). A scan that is requested beyond that budget is not run; the OS
+ * just hands back the cached results of the previous scan, so the request wastes a wakeup and produces duplicates.
+ * <p>
+ * Each granted scan is recorded, and a scan is only granted if fewer than the maximum number of scans were granted in
+ * the window, so the requests never run into the OS throttle. {@link #getIntervalMs(int)} spreads the scans evenly
+ * over the window rather than spending the whole budget in a burst and then waiting out the rest of the window.
+ * <p>
+ * The window check mirrors the OS check: a scan only leaves the window once it is strictly more than the window length
+ * old.
+ *
+ * @since 1.7.0
+ */
+class WifiScanBudget
+{
+    static final int DEFAULT_MAX_SCANS = 4;
+    static final long DEFAULT_WINDOW_MS = 120_000;
+
+    // Added to the even spacing so that clock differences with the OS never put a fifth scan in the same window
+    private static final long SPACING_MARGIN_MS = 1_000;
+
+    private final int maxScans;
+    private final long windowMs;
+
+    // A ring of the times of the most recent granted scans, oldest first starting at nextIndex
+    private final long[] scanTimesMs;
+    private int nextIndex;
+    private int scanCount;
+
+    private volatile boolean throttled;
+    private long grantedCount;
+    private long deniedCount;
+
+    WifiScanBudget()
+    {
+        this(DEFAULT_MAX_SCANS, DEFAULT_WINDOW_MS);
+    }
+
+    /**
+     * @param maxScans The number of scans allowed in the window.
+     * @param windowMs The length of the sliding window.
+     */
+    WifiScanBudget(int maxScans, long windowMs)
+    {
+        this.maxScans = Math.max(1, maxScans);
+        this.windowMs = windowMs;
+        scanTimesMs = new long[this.maxScans];
+    }
+
+    /**
+     * @param throttled True if the OS is throttling Wi-Fi scans. If false, every scan is granted.
+     */
+    void setThrottled(boolean throttled)
+    {
+        this.throttled = throttled;
+    }
+
+    boolean isThrottled()
+    {
+        return throttled;
+    }
+
+    /**
+     * Uses one scan from the budget if one is available.
+     *
+     * @param nowMs The current time in milliseconds.
+     * @return True if the scan should be requested, false if the OS would throttle it.
+     */
+    synchronized boolean tryAcquire(long nowMs)
+    {
+        if (throttled && scanCount == maxScans && nowMs - scanTimesMs[nextIndex] <= windowMs)
+        {
+            deniedCount++;
+            return false;
+        }
+
+        scanTimesMs[nextIndex] = nowMs;
+        nextIndex = (nextIndex + 1) % maxScans;
+        if (scanCount < maxScans) scanCount++;
+        grantedCount++;
+        return true;
+    }
+
+    /**
+     * @param requestedIntervalMs The scan interval from the settings.
+     * @return The requested interval, or the even spacing of the budget over the window if that is longer and the OS
+     * is throttling scans.
+     */
+    int getIntervalMs(int requestedIntervalMs)
+    {
+        if (!throttled) return requestedIntervalMs;
+
+        return (int) Math.max(requestedIntervalMs, windowMs / maxScans + SPACING_MARGIN_MS);
+    }
+
+    synchronized long getGrantedCount()
+    {
+        return grantedCount;
+    }
+
+    /**
+     * @return The number of scans that were not requested because they would have been throttled.
+     */
+    synchronized long getDeniedCount()
+    {
+        return deniedCount;
+    }
+
+    synchronized void logStatistics()
+    {
+        Timber.i("Wi-Fi scan budget: throttled=%b, granted=%d, denied=%d", throttled, grantedCount, deniedCount);
+    }
+}
@@ -0,0 +1,135 @@
+package com.craxiom.networksurvey.util;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * A fixed size, time indexed history of location fixes, used to look up where the device was when a scan result was
+ * seen instead of using whatever fix happens to be the latest when the record is created.
+ * <p>
+ * This matters when either side is delivered late: batched BLE results can be a whole scan interval old, and batched
+ * location fixes are delivered in bulk after the fact. The fixes are kept in a ring buffer in time order, and a lookup
+ * is a binary search, so both adding and looking up a fix are cheap enough for every record.
+ *
+ * @param <T> The type of the fixes (an Android {@code Location} in the app).
+ * @since 1.7.0
+ */
+public class FixHistory<T>
+{
+    private final Object[] fixes;
+    private final long[] timestampsNanos;
+    private final ToLongFunction<T> timestampFunction;
+
+    private int start;
+    private int size;
+    private long outOfOrderCount;
+
+    /**
+     * @param capacity          The maximum number of fixes kept. The oldest fix is dropped when a new one is added to a
+     *                          full history.
+     * @param timestampFunction Returns the time of a fix in nanoseconds (the elapsed realtime for an Android fix).
+     */
+    public FixHistory(int capacity, ToLongFunction<T> timestampFunction)
+    {
+        fixes = new Object[Math.max(1, capacity)];
+        timestampsNanos = new long[fixes.length];
+        this.timestampFunction = timestampFunction;
+    }
+
+    /**
+     * Adds a fix. Fixes must be added in time order; a fix that is not newer than the newest fix in the history is
+     * ignored.
+     *
+     * @param fix The fix to add.
+     */
+    public synchronized void add(T fix)
+    {
+        final long timestampNanos = timestampFunction.applyAsLong(fix);
+        if (size > 0 && timestampNanos <= timestampsNanos[physicalIndex(size - 1)])
+        {
+            outOfOrderCount++;
+            return;
+        }
+
+        final int index;
+        if (size == fixes.length)
+        {
+            index = start;
+            start = (start + 1) % fixes.length;
+        } else
+        {
+            index = physicalIndex(size++);
+        }
+
+        fixes[index] = fix;
+        timestampsNanos[index] = timestampNanos;
+    }
+
+    /**
+     * @param timestampNanos The time to look up, in the same time base as the fixes.
+     * @param maxGapNanos    The maximum time between the requested time and the fix.
+     * @return The fix closest in time to the requested time, or null if there is no fix within the maximum gap.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T getNearest(long timestampNanos, long maxGapNanos)
+    {
+        if (size == 0) return null;
+
+        // Find the first fix at or after the requested time
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (timestampsNanos[physicalIndex(mid)] < timestampNanos)
+            {
+                low = mid + 1;
+            } else
+            {
+                high = mid;
+            }
+        }
+
+        int nearest = -1;
+        long nearestGapNanos = Long.MAX_VALUE;
+        if (low < size)
+        {
+            nearest = low;
+            nearestGapNanos = timestampsNanos[physicalIndex(low)] - timestampNanos;
+        }
+        if (low > 0 && timestampNanos - timestampsNanos[physicalIndex(low - 1)] <= nearestGapNanos)
+        {
+            nearest = low - 1;
+            nearestGapNanos = timestampNanos - timestampsNanos[physicalIndex(low - 1)];
+        }
+
+        return nearestGapNanos <= maxGapNanos ? (T) fixes[physicalIndex(nearest)] : null;
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return The number of fixes that were ignored because they were not newer than the newest fix.
+     */
+    public synchronized long getOutOfOrderCount()
+    {
+        return outOfOrderCount;
+    }
+
+    public synchronized void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            fixes[physicalIndex(i)] = null;
+        }
+        start = 0;
+        size = 0;
+    }
+
+    private int physicalIndex(int logicalIndex)
+    {
+        return (start + logicalIndex) % fixes.length;
+    }
+}
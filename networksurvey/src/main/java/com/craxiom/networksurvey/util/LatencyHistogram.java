@@ -0,0 +1,53 @@
+package com.craxiom.networksurvey.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free, fixed size latency histogram with power of two microsecond buckets. It is cheap enough to update on
+ * every publish acknowledgement or executor task, and precise enough to report the p50 and p99 latency.
+ *
+ * @since 1.7.0
+ */
+public class LatencyHistogram
+{
+    // Bucket i holds latencies in [2^(i-1), 2^i) microseconds, and the last bucket holds everything above ~67 seconds
+    private static final int BUCKET_COUNT = 28;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long latencyNanos)
+    {
+        final long latencyMicros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        final int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(latencyMicros));
+        buckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * @param percentile The percentile to get, between 0 and 100.
+     * @return The upper bound in microseconds of the bucket that contains the requested percentile, or 0 if no
+     * latencies have been recorded.
+     */
+    public long getPercentileMicros(double percentile)
+    {
+        long total = 0;
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        if (total == 0) return 0;
+
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank) return 1L << i;
+        }
+
+        return 1L << (BUCKET_COUNT - 1);
+    }
+}
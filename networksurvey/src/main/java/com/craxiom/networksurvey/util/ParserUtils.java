@@ -16,8 +16,6 @@ import com.craxiom.messaging.NetworkRegistrationInfo;
 import com.craxiom.messaging.phonestate.Domain;
 import com.craxiom.messaging.phonestate.NetworkType;
 import com.craxiom.networksurvey.constants.DeviceStatusMessageConstants;
-import com.google.protobuf.BoolValue;
-import com.google.protobuf.Int32Value;
 import com.google.protobuf.Int64Value;
 
 import timber.log.Timber;
@@ -125,12 +123,12 @@ public class ParserUtils
 
         if (roaming != null)
         {
-            regInfoBuilder.setRoaming(BoolValue.newBuilder().setValue(roaming).build());
+            regInfoBuilder.setRoaming(ProtobufValueCache.boolValue(roaming));
         }
 
         if (causeCode != Integer.MAX_VALUE)
         {
-            regInfoBuilder.setRejectCause(Int32Value.newBuilder().setValue(causeCode).build());
+            regInfoBuilder.setRejectCause(ProtobufValueCache.int32Value(causeCode));
         }
 
         // For whatever reason, casting a cellIdentity object requires Android 8 or higher
@@ -143,33 +141,33 @@ public class ParserUtils
                 com.craxiom.messaging.CellIdentityGsm.Builder builder = com.craxiom.messaging.CellIdentityGsm.newBuilder();
 
                 final int mcc = parseInt(cellIdentityGsm.getMccString(), -1);
-                if (mcc != -1) builder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+                if (mcc != -1) builder.setMcc(ProtobufValueCache.int32Value(mcc));
 
                 final int mnc = parseInt(cellIdentityGsm.getMncString(), -1);
-                if (mnc != -1) builder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+                if (mnc != -1) builder.setMnc(ProtobufValueCache.int32Value(mnc));
 
                 final int lac = cellIdentityGsm.getLac();
                 if (lac != CellInfo.UNAVAILABLE)
                 {
-                    builder.setLac(Int32Value.newBuilder().setValue(lac).build());
+                    builder.setLac(ProtobufValueCache.int32Value(lac));
                 }
 
                 final int cid = cellIdentityGsm.getCid();
                 if (cid != CellInfo.UNAVAILABLE)
                 {
-                    builder.setCi(Int32Value.newBuilder().setValue(cid).build());
+                    builder.setCi(ProtobufValueCache.int32Value(cid));
                 }
 
                 final int arfcn = cellIdentityGsm.getArfcn();
                 if (arfcn != CellInfo.UNAVAILABLE)
                 {
-                    builder.setArfcn(Int32Value.newBuilder().setValue(arfcn).build());
+                    builder.setArfcn(ProtobufValueCache.int32Value(arfcn));
                 }
 
                 final int bsic = cellIdentityGsm.getBsic();
                 if (bsic != CellInfo.UNAVAILABLE)
                 {
-                    builder.setBsic(Int32Value.newBuilder().setValue(bsic).build());
+                    builder.setBsic(ProtobufValueCache.int32Value(bsic));
                 }
 
                 regInfoBuilder.setCellIdentityGsm(builder);
@@ -182,19 +180,19 @@ public class ParserUtils
                 final int sid = cellIdentityCdma.getSystemId();
                 if (sid != CellInfo.UNAVAILABLE)
                 {
-                    builder.setSid(Int32Value.newBuilder().setValue(sid).build());
+                    builder.setSid(ProtobufValueCache.int32Value(sid));
                 }
 
                 final int nid = cellIdentityCdma.getNetworkId();
                 if (nid != CellInfo.UNAVAILABLE)
                 {
-                    builder.setNid(Int32Value.newBuilder().setValue(nid).build());
+                    builder.setNid(ProtobufValueCache.int32Value(nid));
                 }
 
                 final int bsid = cellIdentityCdma.getBasestationId();
                 if (bsid != CellInfo.UNAVAILABLE)
                 {
-                    builder.setBsid(Int32Value.newBuilder().setValue(bsid).build());
+                    builder.setBsid(ProtobufValueCache.int32Value(bsid));
                 }
 
                 regInfoBuilder.setCellIdentityCdma(builder);
@@ -205,33 +203,33 @@ public class ParserUtils
                 com.craxiom.messaging.CellIdentityUmts.Builder builder = com.craxiom.messaging.CellIdentityUmts.newBuilder();
 
                 final int mcc = parseInt(cellIdentityWcdma.getMccString(), -1);
-                if (mcc != -1) builder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+                if (mcc != -1) builder.setMcc(ProtobufValueCache.int32Value(mcc));
 
                 final int mnc = parseInt(cellIdentityWcdma.getMncString(), -1);
-                if (mnc != -1) builder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+                if (mnc != -1) builder.setMnc(ProtobufValueCache.int32Value(mnc));
 
                 final int lac = cellIdentityWcdma.getLac();
                 if (lac != CellInfo.UNAVAILABLE)
                 {
-                    builder.setLac(Int32Value.newBuilder().setValue(lac).build());
+                    builder.setLac(ProtobufValueCache.int32Value(lac));
                 }
 
                 final int cid = cellIdentityWcdma.getCid();
                 if (cid != CellInfo.UNAVAILABLE)
                 {
-                    builder.setCid(Int32Value.newBuilder().setValue(cid).build());
+                    builder.setCid(ProtobufValueCache.int32Value(cid));
                 }
 
                 final int uarfcn = cellIdentityWcdma.getUarfcn();
                 if (uarfcn != CellInfo.UNAVAILABLE)
                 {
-                    builder.setUarfcn(Int32Value.newBuilder().setValue(uarfcn).build());
+                    builder.setUarfcn(ProtobufValueCache.int32Value(uarfcn));
                 }
 
                 final int psc = cellIdentityWcdma.getPsc();
                 if (psc != CellInfo.UNAVAILABLE)
                 {
-                    builder.setPsc(Int32Value.newBuilder().setValue(psc).build());
+                    builder.setPsc(ProtobufValueCache.int32Value(psc));
                 }
 
                 regInfoBuilder.setCellIdentityUmts(builder);
@@ -242,33 +240,33 @@ public class ParserUtils
                 com.craxiom.messaging.CellIdentityLte.Builder builder = com.craxiom.messaging.CellIdentityLte.newBuilder();
 
                 final int mcc = parseInt(cellIdentityLte.getMccString(), -1);
-                if (mcc != -1) builder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+                if (mcc != -1) builder.setMcc(ProtobufValueCache.int32Value(mcc));
 
                 final int mnc = parseInt(cellIdentityLte.getMncString(), -1);
-                if (mnc != -1) builder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+                if (mnc != -1) builder.setMnc(ProtobufValueCache.int32Value(mnc));
 
                 final int tac = cellIdentityLte.getTac();
                 if (tac != CellInfo.UNAVAILABLE)
                 {
-                    builder.setTac(Int32Value.newBuilder().setValue(tac).build());
+                    builder.setTac(ProtobufValueCache.int32Value(tac));
                 }
 
                 final int eci = cellIdentityLte.getCi();
                 if (eci != CellInfo.UNAVAILABLE)
                 {
-                    builder.setEci(Int32Value.newBuilder().setValue(eci).build());
+                    builder.setEci(ProtobufValueCache.int32Value(eci));
                 }
 
                 final int earfcn = cellIdentityLte.getEarfcn();
                 if (earfcn != CellInfo.UNAVAILABLE)
                 {
-                    builder.setEarfcn(Int32Value.newBuilder().setValue(earfcn).build());
+                    builder.setEarfcn(ProtobufValueCache.int32Value(earfcn));
                 }
 
                 final int pci = cellIdentityLte.getPci();
                 if (pci != CellInfo.UNAVAILABLE)
                 {
-                    builder.setPci(Int32Value.newBuilder().setValue(pci).build());
+                    builder.setPci(ProtobufValueCache.int32Value(pci));
                 }
 
                 regInfoBuilder.setCellIdentityLte(builder);
@@ -279,15 +277,15 @@ public class ParserUtils
                 com.craxiom.messaging.CellIdentityNr.Builder builder = com.craxiom.messaging.CellIdentityNr.newBuilder();
 
                 final int mcc = parseInt(cellIdentityNr.getMccString(), -1);
-                if (mcc != -1) builder.setMcc(Int32Value.newBuilder().setValue(mcc).build());
+                if (mcc != -1) builder.setMcc(ProtobufValueCache.int32Value(mcc));
 
                 final int mnc = parseInt(cellIdentityNr.getMncString(), -1);
-                if (mnc != -1) builder.setMnc(Int32Value.newBuilder().setValue(mnc).build());
+                if (mnc != -1) builder.setMnc(ProtobufValueCache.int32Value(mnc));
 
                 final int tac = cellIdentityNr.getTac();
                 if (tac != CellInfo.UNAVAILABLE)
                 {
-                    builder.setTac(Int32Value.newBuilder().setValue(tac).build());
+                    builder.setTac(ProtobufValueCache.int32Value(tac));
                 }
 
                 final long nci = cellIdentityNr.getNci();
@@ -299,13 +297,13 @@ public class ParserUtils
                 final int narfcn = cellIdentityNr.getNrarfcn();
                 if (narfcn != CellInfo.UNAVAILABLE)
                 {
-                    builder.setNarfcn(Int32Value.newBuilder().setValue(narfcn).build());
+                    builder.setNarfcn(ProtobufValueCache.int32Value(narfcn));
                 }
 
                 final int pci = cellIdentityNr.getPci();
                 if (pci != CellInfo.UNAVAILABLE)
                 {
-                    builder.setPci(Int32Value.newBuilder().setValue(pci).build());
+                    builder.setPci(ProtobufValueCache.int32Value(pci));
                 }
 
                 regInfoBuilder.setCellIdentityNr(builder);
@@ -65,15 +65,10 @@ public class PreferenceUtils
      */
     public static int getScanRatePreferenceMs(String scanRatePreferenceKey, int defaultScanRateSeconds, Context context)
     {
-        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
-
-        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
-
         // First try to use the MDM provided value.
-        if (restrictionsManager != null && !mdmOverride)
+        final Bundle mdmProperties = getMdmProperties(context);
+        if (mdmProperties != null)
         {
-            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
-
             final int scanRateSeconds = mdmProperties.getInt(scanRatePreferenceKey);
             if (scanRateSeconds > 0)
             {
@@ -116,15 +111,10 @@ public class PreferenceUtils
      */
     public static boolean getAutoStartPreference(String autoStartPreferenceKey, boolean defaultAutoStart, Context context)
     {
-        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
-
-        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
-
         // First try to use the MDM provided value.
-        if (restrictionsManager != null && !mdmOverride)
+        final Bundle mdmProperties = getMdmProperties(context);
+        if (mdmProperties != null)
         {
-            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
-
             if (mdmProperties.containsKey(autoStartPreferenceKey))
             {
                 return mdmProperties.getBoolean(autoStartPreferenceKey);
@@ -155,15 +145,10 @@ public class PreferenceUtils
      */
     public static int getRolloverSizePreference(Context context)
     {
-        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
-
-        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
-
         // First try to use the MDM provided value.
-        if (restrictionsManager != null && !mdmOverride)
+        final Bundle mdmProperties = getMdmProperties(context);
+        if (mdmProperties != null)
         {
-            final Bundle mdmProperties = restrictionsManager.getApplicationRestrictions();
-
             if (mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_LOG_ROLLOVER_SIZE_MB))
             {
                 final int logRolloverSizeMb = mdmProperties.getInt(NetworkSurveyConstants.PROPERTY_LOG_ROLLOVER_SIZE_MB);
@@ -205,14 +190,9 @@ public class PreferenceUtils
     public static boolean getMqttStartOnBootPreference(Context context)
     {
         final SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
-        final boolean mdmOverride = sharedPreferences.getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
-
-        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
-        Bundle mdmProperties = null;
-        if (restrictionsManager != null) mdmProperties = restrictionsManager.getApplicationRestrictions();
+        final Bundle mdmProperties = getMdmProperties(context);
 
-        if (!mdmOverride
-                && mdmProperties != null
+        if (mdmProperties != null
                 && mdmProperties.containsKey(NetworkSurveyConstants.PROPERTY_MQTT_START_ON_BOOT))
         {
             Timber.i("Using the MDM MQTT auto start preference");
@@ -225,6 +205,149 @@ public class PreferenceUtils
         }
     }
 
+    /**
+     * Gets the MQTT topic rate limit / sampling policy associated with the provided preference key, from MDM or the
+     * user settings (see {@link #getStringPreference(String, String, Context)}). If it is not set in either then every
+     * message is published.
+     *
+     * @param policyPreferenceKey The preference key to use when pulling the policy from MDM and Shared Preferences.
+     * @param context             The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return The policy specification, see {@link com.craxiom.networksurvey.mqtt.MqttTopicPolicy#parse(String)}.
+     * @since 1.7.0
+     */
+    public static String getMqttTopicPolicyPreference(String policyPreferenceKey, Context context)
+    {
+        return getStringPreference(policyPreferenceKey, NetworkSurveyConstants.DEFAULT_MQTT_TOPIC_POLICY, context);
+    }
+
+    /**
+     * Gets a string preference associated with the provided preference key.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the provided default
+     * value is used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param preferenceKey The preference key to use when pulling the value from MDM and Shared Preferences.
+     * @param defaultValue  The default value to fall back on if it could not be found.
+     * @param context       The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return The preference value to use.
+     * @since 1.7.0
+     */
+    public static String getStringPreference(String preferenceKey, String defaultValue, Context context)
+    {
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // First try to use the MDM provided value.
+        final Bundle mdmProperties = getMdmProperties(context);
+        if (mdmProperties != null)
+        {
+            if (mdmProperties.containsKey(preferenceKey)) return mdmProperties.getString(preferenceKey, defaultValue);
+        }
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getString(preferenceKey, defaultValue);
+    }
+
+    /**
+     * Gets a boolean preference associated with the provided preference key.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there then the provided default
+     * value is used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param preferenceKey The preference key to use when pulling the value from MDM and Shared Preferences.
+     * @param defaultValue  The default value to fall back on if it could not be found.
+     * @param context       The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return The preference value to use.
+     * @since 1.7.0
+     */
+    public static boolean getBooleanPreference(String preferenceKey, boolean defaultValue, Context context)
+    {
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // First try to use the MDM provided value.
+        final Bundle mdmProperties = getMdmProperties(context);
+        if (mdmProperties != null)
+        {
+            if (mdmProperties.containsKey(preferenceKey)) return mdmProperties.getBoolean(preferenceKey);
+        }
+
+        // Next, try to use the value from user preferences, with a default fallback
+        return preferences.getBoolean(preferenceKey, defaultValue);
+    }
+
+    /**
+     * Gets a non-negative integer preference associated with the provided preference key. The user preference is
+     * stored as a string because it is entered in an EditTextPreference.
+     * <p>
+     * First, this method tries to pull the MDM provided value. If it is not set (either because the device is not
+     * under MDM control, or if that specific value is not set by the MDM administrator) then the value is pulled from
+     * the Android Shared Preferences (aka from the user settings). If it is not set there (or it is invalid) then the
+     * provided default value is used.
+     * <p>
+     * The only exception to this sequence is that if the user has toggled the MDM override switch in user settings,
+     * then the user preference value will be used instead of the MDM value.
+     *
+     * @param preferenceKey The preference key to use when pulling the value from MDM and Shared Preferences.
+     * @param defaultValue  The default value to fall back on if it could not be found.
+     * @param context       The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return The preference value to use.
+     * @since 1.7.0
+     */
+    public static int getIntPreference(String preferenceKey, int defaultValue, Context context)
+    {
+        final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // First try to use the MDM provided value.
+        final Bundle mdmProperties = getMdmProperties(context);
+        if (mdmProperties != null)
+        {
+            if (mdmProperties.containsKey(preferenceKey))
+            {
+                final int value = mdmProperties.getInt(preferenceKey);
+                if (value >= 0) return value;
+            }
+        }
+
+        // Next, try to use the value from user preferences.
+        final String preferenceString = preferences.getString(preferenceKey, String.valueOf(defaultValue));
+        try
+        {
+            final int value = Integer.parseInt(preferenceString);
+            if (value >= 0) return value;
+        } catch (Exception e)
+        {
+            Timber.e(e, "Could not convert the %s user preference (%s) to an int", preferenceKey, preferenceString);
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Gets the MDM provided app restrictions, which take precedence over the user preferences.
+     *
+     * @param context The context to use when getting the Shared Preferences and Restriction Manager.
+     * @return The MDM properties, or null if the device is not under MDM control or the user has toggled the MDM
+     * override switch in user settings.
+     * @since 1.7.0
+     */
+    private static Bundle getMdmProperties(Context context)
+    {
+        final boolean mdmOverride = PreferenceManager.getDefaultSharedPreferences(context).getBoolean(NetworkSurveyConstants.PROPERTY_MDM_OVERRIDE_KEY, false);
+        if (mdmOverride) return null;
+
+        final RestrictionsManager restrictionsManager = (RestrictionsManager) context.getSystemService(Context.RESTRICTIONS_SERVICE);
+        return restrictionsManager == null ? null : restrictionsManager.getApplicationRestrictions();
+    }
+
     @TargetApi(9)
     public static void saveString(SharedPreferences prefs, String key, String value)
     {
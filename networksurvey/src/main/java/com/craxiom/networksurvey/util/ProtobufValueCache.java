@@ -0,0 +1,106 @@
+package com.craxiom.networksurvey.util;
+
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Int32Value;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded intern cache for the protobuf wrapper values that are set on almost every survey record (MCC, MNC, EARFCN,
+ * PCI, RSRP, channel, etc.). The protobuf wrapper messages are immutable, so the same instance can safely be shared by
+ * any number of records and threads. Since the same values show up scan after scan, reusing the instances means that
+ * steady state scanning allocates far fewer objects.
+ * <p>
+ * Small integers and whole or half dB signal values are cached in pre-sized arrays. Other integer values (e.g. cell
+ * IDs and large ARFCNs) are cached in a fixed size, hash indexed array where a new value replaces whatever value was
+ * in its slot. This keeps the memory bounded while the cache follows the cells that are currently being surveyed,
+ * instead of filling up once with the cells seen first. Any other float value is always allocated.
+ *
+ * @since 1.7.0
+ */
+public class ProtobufValueCache
+{
+    public static final BoolValue TRUE = BoolValue.newBuilder().setValue(true).build();
+    public static final BoolValue FALSE = BoolValue.newBuilder().setValue(false).build();
+
+    private static final int MIN_CACHED_INT32 = -256;
+    private static final int MAX_CACHED_INT32 = 4_096; // Exclusive
+    private static final int INT32_OVERFLOW_SLOTS = 8_192; // Must be a power of two
+
+    // Floats are cached in half steps, which covers the dBm, dB, and dB-Hz values reported by Android
+    private static final int FLOAT_STEPS_PER_UNIT = 2;
+    private static final int MIN_CACHED_FLOAT = -256;
+    private static final int MAX_CACHED_FLOAT = 256; // Exclusive
+
+    private static final AtomicReferenceArray<Int32Value> INT32_VALUES = new AtomicReferenceArray<>(MAX_CACHED_INT32 - MIN_CACHED_INT32);
+    private static final AtomicReferenceArray<Int32Value> INT32_OVERFLOW_VALUES = new AtomicReferenceArray<>(INT32_OVERFLOW_SLOTS);
+    private static final AtomicReferenceArray<FloatValue> FLOAT_VALUES = new AtomicReferenceArray<>((MAX_CACHED_FLOAT - MIN_CACHED_FLOAT) * FLOAT_STEPS_PER_UNIT);
+
+    private ProtobufValueCache()
+    {
+    }
+
+    /**
+     * @return A shared {@link Int32Value} instance for the provided value.
+     */
+    public static Int32Value int32Value(int value)
+    {
+        if (value >= MIN_CACHED_INT32 && value < MAX_CACHED_INT32)
+        {
+            final int index = value - MIN_CACHED_INT32;
+            Int32Value cached = INT32_VALUES.get(index);
+            if (cached == null)
+            {
+                // Racing threads might both create the value, which is harmless since the instances are equal
+                cached = Int32Value.newBuilder().setValue(value).build();
+                INT32_VALUES.lazySet(index, cached);
+            }
+            return cached;
+        }
+
+        // Spread the bits first, since cell IDs often only differ in their low sector bits or their high bits
+        final int hash = value * 0x9E3779B9;
+        final int slot = (hash ^ (hash >>> 16)) & (INT32_OVERFLOW_SLOTS - 1);
+        final Int32Value cached = INT32_OVERFLOW_VALUES.get(slot);
+        if (cached != null && cached.getValue() == value) return cached;
+
+        final Int32Value int32Value = Int32Value.newBuilder().setValue(value).build();
+        INT32_OVERFLOW_VALUES.lazySet(slot, int32Value);
+        return int32Value;
+    }
+
+    /**
+     * @return A shared {@link FloatValue} instance for the provided value if it is a whole or half value within the
+     * cached range, otherwise a new instance.
+     */
+    public static FloatValue floatValue(float value)
+    {
+        final float scaled = value * FLOAT_STEPS_PER_UNIT;
+        final int step = (int) scaled;
+
+        // Negative zero is excluded so that the cached 0 does not change the sign bit of the value
+        if (step == scaled && step >= MIN_CACHED_FLOAT * FLOAT_STEPS_PER_UNIT && step < MAX_CACHED_FLOAT * FLOAT_STEPS_PER_UNIT
+                && Float.floatToRawIntBits(value) != Float.floatToRawIntBits(-0.0f))
+        {
+            final int index = step - MIN_CACHED_FLOAT * FLOAT_STEPS_PER_UNIT;
+            FloatValue cached = FLOAT_VALUES.get(index);
+            if (cached == null)
+            {
+                cached = FloatValue.newBuilder().setValue(value).build();
+                FLOAT_VALUES.lazySet(index, cached);
+            }
+            return cached;
+        }
+
+        return FloatValue.newBuilder().setValue(value).build();
+    }
+
+    /**
+     * @return The shared {@link #TRUE} or {@link #FALSE} instance.
+     */
+    public static BoolValue boolValue(boolean value)
+    {
+        return value ? TRUE : FALSE;
+    }
+}
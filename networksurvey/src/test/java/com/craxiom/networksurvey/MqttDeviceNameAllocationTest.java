@@ -0,0 +1,121 @@
+package com.craxiom.networksurvey;
+
+import com.craxiom.messaging.LteRecord;
+import com.craxiom.messaging.LteRecordData;
+import com.google.protobuf.BoolValue;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Int32Value;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A small allocation benchmark that compares the old MQTT publish path, where every record was rebuilt to add the
+ * device name, against stamping the device name once when the record is first created.
+ *
+ * @since 1.7.0
+ */
+public class MqttDeviceNameAllocationTest
+{
+    private static final String DEVICE_NAME = "Pixel3a";
+    private static final int WARMUP_ITERATIONS = 10_000;
+    private static final int MEASURED_ITERATIONS = 100_000;
+    private static final long MIN_REBUILD_BYTES = 64;
+
+    @Test
+    public void validateDeviceNameStampedAtCreation()
+    {
+        final LteRecord record = createLteRecord(DEVICE_NAME);
+
+        assertEquals(DEVICE_NAME, record.getData().getDeviceName());
+        assertEquals(rebuildWithDeviceName(createLteRecord(null)), record);
+    }
+
+    @Test
+    public void measureAllocationSavedPerPublishedMessage()
+    {
+        final com.sun.management.ThreadMXBean threadMxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Thread allocation counting is not supported by this JVM",
+                threadMxBean.isThreadAllocatedMemorySupported());
+        threadMxBean.setThreadAllocatedMemoryEnabled(true);
+
+        final LteRecord unnamedRecord = createLteRecord(null);
+        final LteRecord namedRecord = createLteRecord(DEVICE_NAME);
+
+        final long rebuildBytes = measureBytesPerMessage(threadMxBean, () -> rebuildWithDeviceName(unnamedRecord));
+        final long stampedBytes = measureBytesPerMessage(threadMxBean, () -> namedRecord);
+
+        // Rebuilding copies at least the record and its data message, while publishing the record as is copies nothing
+        assertTrue("Rebuilding each record should allocate a copy of it, but allocated " + rebuildBytes + " bytes",
+                rebuildBytes >= MIN_REBUILD_BYTES);
+        assertTrue("Publishing a record that already has the device name should not allocate, but allocated "
+                + stampedBytes + " bytes", stampedBytes < MIN_REBUILD_BYTES);
+    }
+
+    /**
+     * Mirrors what the MQTT connection used to do for every record before it was published.
+     */
+    private static LteRecord rebuildWithDeviceName(LteRecord lteRecord)
+    {
+        final LteRecord.Builder recordBuilder = lteRecord.toBuilder();
+        return recordBuilder.setData(recordBuilder.getDataBuilder().setDeviceName(DEVICE_NAME)).build();
+    }
+
+    private static long measureBytesPerMessage(com.sun.management.ThreadMXBean threadMxBean, Supplier<LteRecord> publishPath)
+    {
+        final long threadId = Thread.currentThread().getId();
+
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            checksum += publishPath.get().getData().getRecordNumber();
+        }
+
+        final long startBytes = threadMxBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++)
+        {
+            checksum += publishPath.get().getData().getRecordNumber();
+        }
+        final long allocatedBytes = threadMxBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        assertTrue(checksum > 0);
+
+        return allocatedBytes / MEASURED_ITERATIONS;
+    }
+
+    private static LteRecord createLteRecord(String deviceName)
+    {
+        final LteRecordData.Builder dataBuilder = LteRecordData.newBuilder()
+                .setDeviceSerialNumber("7c2d5a1e9b0f3c44")
+                .setDeviceTime("2022-06-01T12:00:00.000-04:00")
+                .setLatitude(51.470334)
+                .setLongitude(-0.486594)
+                .setAltitude(184.08124f)
+                .setMissionId("NS 7c2d5a1e9b0f3c44 20220601-120000")
+                .setRecordNumber(1)
+                .setGroupNumber(1)
+                .setServingCell(BoolValue.newBuilder().setValue(true).build())
+                .setMcc(Int32Value.newBuilder().setValue(310).build())
+                .setMnc(Int32Value.newBuilder().setValue(410).build())
+                .setTac(Int32Value.newBuilder().setValue(31299).build())
+                .setEci(Int32Value.newBuilder().setValue(4222977).build())
+                .setEarfcn(Int32Value.newBuilder().setValue(5110).build())
+                .setPci(Int32Value.newBuilder().setValue(421).build())
+                .setRsrp(FloatValue.newBuilder().setValue(-98).build())
+                .setRsrq(FloatValue.newBuilder().setValue(-10).build());
+
+        if (deviceName != null) dataBuilder.setDeviceName(deviceName);
+
+        return LteRecord.newBuilder()
+                .setMessageType("LteRecord")
+                .setVersion("0.8.0")
+                .setData(dataBuilder)
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.craxiom.networksurvey;
+
+import com.craxiom.messaging.DeviceStatus;
+import com.craxiom.messaging.DeviceStatusData;
+import com.craxiom.messaging.LteRecord;
+import com.craxiom.messaging.LteRecordData;
+import com.craxiom.networksurvey.mqtt.MqttTopicPolicy;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Int32Value;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the MQTT topic rate limit and sampling policies.
+ *
+ * @since 1.7.0
+ */
+public class MqttTopicPolicyTest
+{
+    @Test
+    public void validateParse()
+    {
+        assertEquals(MqttTopicPolicy.Mode.ALL, MqttTopicPolicy.parse(null).getMode());
+        assertEquals(MqttTopicPolicy.Mode.ALL, MqttTopicPolicy.parse("all").getMode());
+        assertEquals(MqttTopicPolicy.Mode.RATE_LIMIT, MqttTopicPolicy.parse("rate:2:5").getMode());
+        assertEquals(MqttTopicPolicy.Mode.SAMPLE, MqttTopicPolicy.parse("Sample:10").getMode());
+        assertEquals(MqttTopicPolicy.Mode.ON_CHANGE, MqttTopicPolicy.parse("change").getMode());
+        assertEquals(MqttTopicPolicy.Mode.ON_CHANGE, MqttTopicPolicy.parse("change:300").getMode());
+        assertEquals(MqttTopicPolicy.Mode.ALL, MqttTopicPolicy.parse("change:abc").getMode());
+        assertEquals(MqttTopicPolicy.Mode.ALL, MqttTopicPolicy.parse("rate:abc").getMode());
+        assertEquals(MqttTopicPolicy.Mode.ALL, MqttTopicPolicy.parse("bogus").getMode());
+    }
+
+    @Test
+    public void validateSampling()
+    {
+        final MqttTopicPolicy policy = MqttTopicPolicy.sample(4);
+        final LteRecord record = createLteRecord(1, 421, -98);
+
+        int kept = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            if (policy.shouldPublish(record)) kept++;
+        }
+
+        assertEquals(25, kept);
+        assertEquals(25, policy.getKeptCount());
+        assertEquals(75, policy.getSuppressedCount());
+    }
+
+    @Test
+    public void validateRateLimitBurst()
+    {
+        final MqttTopicPolicy policy = MqttTopicPolicy.rateLimit(0.001, 3);
+        final LteRecord record = createLteRecord(1, 421, -98);
+
+        assertTrue(policy.shouldPublish(record));
+        assertTrue(policy.shouldPublish(record));
+        assertTrue(policy.shouldPublish(record));
+        assertFalse(policy.shouldPublish(record));
+        assertEquals(1, policy.getSuppressedCount());
+    }
+
+    @Test
+    public void validateOnlyOnChange()
+    {
+        final MqttTopicPolicy policy = MqttTopicPolicy.onChange();
+
+        assertTrue(policy.shouldPublish(createLteRecord(1, 421, -98)));
+        assertTrue(policy.shouldPublish(createLteRecord(2, 100, -105)));
+
+        // Same cells, only the record number, time, and signal measurements changed
+        assertFalse(policy.shouldPublish(createLteRecord(3, 421, -98)));
+        assertFalse(policy.shouldPublish(createLteRecord(4, 100, -105)));
+        assertFalse(policy.shouldPublish(createLteRecord(5, 421, -97)));
+        assertFalse(policy.shouldPublish(createLteRecord(6, 100, -91)));
+
+        // A configuration change for a known cell, and a new cell
+        final LteRecord providerChanged = createLteRecord(7, 421, -97);
+        assertTrue(policy.shouldPublish(providerChanged.toBuilder()
+                .setData(providerChanged.getData().toBuilder().setProvider("Verizon"))
+                .build()));
+        assertTrue(policy.shouldPublish(createLteRecord(8, 57, -97)));
+
+        assertEquals(4, policy.getKeptCount());
+        assertEquals(4, policy.getSuppressedCount());
+    }
+
+    @Test
+    public void validateOnChangeHeartbeat() throws InterruptedException
+    {
+        final MqttTopicPolicy policy = MqttTopicPolicy.onChange(1);
+        final DeviceStatus deviceStatus = createDeviceStatus(1);
+
+        // The device status has no identity fields, so every message is for the same entity
+        assertTrue(policy.shouldPublish(deviceStatus));
+        assertFalse(policy.shouldPublish(createDeviceStatus(2)));
+        assertFalse(policy.shouldPublish(createDeviceStatus(3)));
+
+        // Nothing changed, but it has been longer than the heartbeat since the last published message
+        Thread.sleep(1_100);
+        assertTrue(policy.shouldPublish(createDeviceStatus(4)));
+        assertFalse(policy.shouldPublish(createDeviceStatus(5)));
+
+        assertEquals(2, policy.getKeptCount());
+        assertEquals(3, policy.getSuppressedCount());
+    }
+
+    @Test
+    public void validateOnChangeTracksManyEntities()
+    {
+        final MqttTopicPolicy policy = MqttTopicPolicy.onChange(0);
+
+        for (int pci = 0; pci < 256; pci++)
+        {
+            assertTrue(policy.shouldPublish(createLteRecord(1, pci, -98)));
+        }
+
+        // Every cell is still tracked, so nothing is published again when only the measurements change
+        for (int pci = 0; pci < 256; pci++)
+        {
+            policy.shouldPublish(createLteRecord(2, pci, -100));
+        }
+        assertEquals(256, policy.getKeptCount());
+        assertEquals(256, policy.getSuppressedCount());
+    }
+
+    private static DeviceStatus createDeviceStatus(int batteryLevelPercent)
+    {
+        return DeviceStatus.newBuilder()
+                .setMessageType("DeviceStatus")
+                .setVersion("0.8.0")
+                .setData(DeviceStatusData.newBuilder()
+                        .setDeviceSerialNumber("7c2d5a1e9b0f3c44")
+                        .setDeviceTime("2022-06-01T12:00:0" + batteryLevelPercent + ".000-04:00")
+                        .setBatteryLevelPercent(Int32Value.newBuilder().setValue(100 - batteryLevelPercent).build()))
+                .build();
+    }
+
+    private static LteRecord createLteRecord(int recordNumber, int pci, float rsrp)
+    {
+        return LteRecord.newBuilder()
+                .setMessageType("LteRecord")
+                .setVersion("0.8.0")
+                .setData(LteRecordData.newBuilder()
+                        .setDeviceSerialNumber("7c2d5a1e9b0f3c44")
+                        .setDeviceTime("2022-06-01T12:00:0" + recordNumber + ".000-04:00")
+                        .setRecordNumber(recordNumber)
+                        .setMcc(Int32Value.newBuilder().setValue(310).build())
+                        .setMnc(Int32Value.newBuilder().setValue(410).build())
+                        .setEarfcn(Int32Value.newBuilder().setValue(5110).build())
+                        .setPci(Int32Value.newBuilder().setValue(pci).build())
+                        .setRsrp(FloatValue.newBuilder().setValue(rsrp).build()))
+                .build();
+    }
+}
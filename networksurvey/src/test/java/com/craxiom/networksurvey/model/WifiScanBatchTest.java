@@ -0,0 +1,108 @@
+package com.craxiom.networksurvey.model;
+
+import com.craxiom.messaging.WifiBeaconRecord;
+import com.craxiom.messaging.WifiBeaconRecordData;
+import com.craxiom.messaging.wifi.EncryptionType;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the columnar Wi-Fi scan batch and the protobuf records that are built from it on demand.
+ *
+ * @since 1.7.0
+ */
+public class WifiScanBatchTest
+{
+    @Test
+    public void validateColumns()
+    {
+        final WifiScanBatch batch = createBatch();
+
+        assertEquals(2, batch.size());
+        assertEquals(101, batch.getRecordNumber(1));
+        assertEquals(6, batch.getChannel(0));
+        assertEquals(EncryptionType.WPA2, batch.getEncryptionType(0));
+        assertTrue(batch.supportsWps(0));
+
+        assertEquals(0, batch.getFrequencyMhz(1));
+        assertEquals(-1, batch.getChannel(1));
+        assertEquals(EncryptionType.UNKNOWN, batch.getEncryptionType(1));
+        assertFalse(batch.hasWps(1));
+    }
+
+    @Test
+    public void validateRecordIsBuiltOnDemand()
+    {
+        final WifiScanBatch batch = createBatch();
+        final WifiRecordWrapper wrapper = new WifiRecordWrapper(batch, 0);
+
+        assertEquals("[WPA2-PSK-CCMP][WPS][ESS]", wrapper.getCapabilitiesString());
+
+        final WifiBeaconRecord record = wrapper.getWifiBeaconRecord();
+        assertSame("The record is only built once", record, wrapper.getWifiBeaconRecord());
+
+        final WifiBeaconRecordData data = record.getData();
+        assertEquals(51.470334, data.getLatitude(), 0);
+        assertEquals(-0.486594, data.getLongitude(), 0);
+        assertEquals(5, data.getAccuracy());
+        assertEquals("7c2d5a1e9b0f3c44", data.getDeviceSerialNumber());
+        assertEquals("Pixel3a", data.getDeviceName());
+        assertEquals("2022-06-01T12:00:00.000-04:00", data.getDeviceTime());
+        assertEquals(100, data.getRecordNumber());
+        assertEquals("a4:2b:b0:e6:6f:10", data.getBssid());
+        assertEquals("Craxiom", data.getSsid());
+        assertEquals(-62f, data.getSignalStrength().getValue(), 0);
+        assertEquals(6, data.getChannel().getValue());
+        assertEquals(2437, data.getFrequencyMhz().getValue());
+        assertEquals(EncryptionType.WPA2, data.getEncryptionType());
+        assertTrue(data.getWps().getValue());
+    }
+
+    @Test
+    public void validateBatchFromRecord()
+    {
+        final WifiBeaconRecord record = createBatch().toWifiBeaconRecord(0);
+        final WifiRecordWrapper wrapper = new WifiRecordWrapper(record, "[WPA2-PSK-CCMP][WPS][ESS]");
+
+        assertSame(record, wrapper.getWifiBeaconRecord());
+
+        final WifiScanBatch batch = wrapper.getBatch();
+        assertEquals(1, batch.size());
+        assertEquals(0, wrapper.getBatchIndex());
+        assertEquals(100, batch.getRecordNumber(0));
+        assertEquals(1654099200000L, batch.getDeviceTimeMs());
+        assertEquals(5, batch.getAccuracy());
+        assertEquals("Craxiom", batch.getSsid(0));
+        assertEquals(-62, batch.getSignalStrength(0));
+        assertEquals(6, batch.getChannel(0));
+        assertEquals(EncryptionType.WPA2, batch.getEncryptionType(0));
+        assertEquals(record, batch.toWifiBeaconRecord(0));
+    }
+
+    @Test
+    public void validateOptionalFieldsAreNotSet()
+    {
+        final WifiBeaconRecordData data = createBatch().toWifiBeaconRecord(1).getData();
+
+        assertEquals("", data.getSsid());
+        assertFalse(data.hasChannel());
+        assertFalse(data.hasFrequencyMhz());
+        assertFalse(data.hasWps());
+        assertEquals(EncryptionType.UNKNOWN, data.getEncryptionType());
+    }
+
+    private static WifiScanBatch createBatch()
+    {
+        final WifiScanBatch batch = new WifiScanBatch(2, 100, "7c2d5a1e9b0f3c44", "Pixel3a",
+                "NS 7c2d5a1e9b0f3c44 20220601-120000", 1654099200000L, "2022-06-01T12:00:00.000-04:00");
+        batch.setLocation(51.470334, -0.486594, 184.08124f, 4.6f);
+        batch.set(0, "a4:2b:b0:e6:6f:10", "Craxiom", -62, 2437, "[WPA2-PSK-CCMP][WPS][ESS]");
+        batch.set(1, "a4:2b:b0:e6:6f:11", null, -80, -1, null);
+        return batch;
+    }
+}
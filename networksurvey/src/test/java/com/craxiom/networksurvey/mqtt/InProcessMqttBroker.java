@@ -0,0 +1,102 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.amazonaws.services.iot.client.AWSIotMessage;
+import com.amazonaws.services.iot.client.AWSIotQos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-process stand-in for an MQTT broker. It accepts the publish packets from an {@link InProcessMqttClient},
+ * counts the packets and the bytes they would take on the wire, and acknowledges each publish on a separate thread
+ * after an optional simulated network delay.
+ *
+ * @since 1.7.0
+ */
+class InProcessMqttBroker
+{
+    private final long ackDelayNanos;
+    private final ExecutorService ackExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "In-Process MQTT Broker"));
+
+    private final AtomicLong packetCount = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private volatile AWSIotMessage lastMessage;
+
+    /**
+     * @param ackDelayMicros The simulated round trip time before a publish is acknowledged.
+     */
+    InProcessMqttBroker(long ackDelayMicros)
+    {
+        ackDelayNanos = TimeUnit.MICROSECONDS.toNanos(ackDelayMicros);
+    }
+
+    /**
+     * Accepts a publish packet and acknowledges it asynchronously, the same way the AWS IoT client reports the outcome
+     * of a non-blocking publish.
+     */
+    void receive(AWSIotMessage message)
+    {
+        final byte[] payload = message.getPayload();
+        packetCount.incrementAndGet();
+        payloadBytes.addAndGet(payload.length);
+        wireBytes.addAndGet(getPublishPacketSize(message.getTopic(), message.getQos(), payload.length));
+        lastMessage = message;
+
+        ackExecutor.execute(() -> {
+            if (ackDelayNanos > 0) LockSupport.parkNanos(ackDelayNanos);
+            message.onSuccess();
+        });
+    }
+
+    long getPacketCount()
+    {
+        return packetCount.get();
+    }
+
+    long getPayloadBytes()
+    {
+        return payloadBytes.get();
+    }
+
+    /**
+     * @return The total size of the MQTT PUBLISH packets, including the fixed and variable headers.
+     */
+    long getWireBytes()
+    {
+        return wireBytes.get();
+    }
+
+    AWSIotMessage getLastMessage()
+    {
+        return lastMessage;
+    }
+
+    void shutdown()
+    {
+        ackExecutor.shutdownNow();
+    }
+
+    /**
+     * Calculates the size of an MQTT 3.1.1 PUBLISH packet: the fixed header (packet type plus the variable length
+     * "remaining length" field), the topic name, the packet identifier for QoS 1 and 2, and the payload.
+     */
+    static int getPublishPacketSize(String topic, AWSIotQos qos, int payloadLength)
+    {
+        final int remainingLength = 2 + topic.getBytes(StandardCharsets.UTF_8).length
+                + (qos == AWSIotQos.QOS0 ? 0 : 2)
+                + payloadLength;
+
+        int remainingLengthFieldSize = 1;
+        for (int value = remainingLength; value > 127; value >>= 7)
+        {
+            remainingLengthFieldSize++;
+        }
+
+        return 1 + remainingLengthFieldSize + remainingLength;
+    }
+}
@@ -0,0 +1,38 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.amazonaws.services.iot.client.AWSIotMessage;
+
+/**
+ * An AWS IoT client that talks to an {@link InProcessMqttBroker} instead of AWS IoT Core, so that the
+ * {@link MqttConnection} can be driven end to end in a plain JVM test.
+ *
+ * @since 1.7.0
+ */
+class InProcessMqttClient extends StateTrackingMqttClient
+{
+    private final InProcessMqttBroker broker;
+
+    InProcessMqttClient(MqttConnection mqttConnection, InProcessMqttBroker broker)
+    {
+        super(mqttConnection, "localhost.iot.us-east-1.amazonaws.com", "in-process", "AWS_ACCESS_KEY_ID", "AWS_SECRET_ACCESS_KEY");
+        this.broker = broker;
+    }
+
+    @Override
+    public void connect()
+    {
+        onConnectionSuccess();
+    }
+
+    @Override
+    public void disconnect()
+    {
+        onConnectionClosed();
+    }
+
+    @Override
+    public void publish(AWSIotMessage message, long timeout)
+    {
+        broker.receive(message);
+    }
+}
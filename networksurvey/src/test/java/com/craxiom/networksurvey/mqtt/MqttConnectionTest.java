@@ -0,0 +1,119 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.amazonaws.services.iot.client.AWSIotMqttClient;
+import com.craxiom.messaging.BluetoothRecord;
+import com.craxiom.messaging.LteRecord;
+import com.craxiom.mqttlibrary.connection.BrokerConnectionInfo;
+import com.craxiom.mqttlibrary.connection.ConnectionState;
+import com.google.protobuf.util.JsonFormat;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the {@link MqttConnection} with synthetic LTE, Wi-Fi, and Bluetooth record streams against an
+ * {@link InProcessMqttBroker}, and checks that every record is published on its own as JSON and decodes back to the
+ * original record.
+ *
+ * @since 1.7.0
+ */
+public class MqttConnectionTest
+{
+    private static final int RECORDS_PER_TYPE = 250;
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final long ACK_DELAY_MICROS = 50;
+    private static final long COMPLETION_TIMEOUT_MS = 10_000;
+
+    @Test
+    public void validateRecordsArriveIntact() throws Exception
+    {
+        final InProcessMqttBroker broker = new InProcessMqttBroker(0);
+        final MqttConnection connection = createConnection(broker, new MqttPublisher());
+        try
+        {
+            connection.connect(createConnectionInfo());
+            assertEquals(ConnectionState.CONNECTED, connection.getConnectionState());
+
+            final LteRecord lteRecord = SyntheticRecordStreams.createLteRecord(1);
+            connection.onLteSurveyRecord(lteRecord);
+            waitForPublished(connection, 1, COMPLETION_TIMEOUT_MS);
+
+            final LteRecord.Builder received = LteRecord.newBuilder();
+            JsonFormat.parser().merge(new String(broker.getLastMessage().getPayload(), StandardCharsets.UTF_8), received);
+            assertEquals(lteRecord, received.build());
+
+            connection.disconnect();
+            assertEquals(ConnectionState.DISCONNECTED, connection.getConnectionState());
+
+            // Records received while disconnected are skipped before they are encoded
+            connection.onLteSurveyRecord(lteRecord);
+            assertEquals(1, broker.getPacketCount());
+        } finally
+        {
+            broker.shutdown();
+        }
+    }
+
+    @Test
+    public void validateEachRecordIsPublishedOnItsOwn() throws Exception
+    {
+        final SyntheticRecordStreams records = new SyntheticRecordStreams(RECORDS_PER_TYPE);
+        final int totalRecords = records.getTotalRecords();
+
+        final InProcessMqttBroker broker = new InProcessMqttBroker(ACK_DELAY_MICROS);
+        final MqttConnection connection = createConnection(broker, new MqttPublisher(totalRecords, MAX_IN_FLIGHT));
+        try
+        {
+            connection.connect(createConnectionInfo());
+            records.deliverTo(connection);
+            waitForPublished(connection, totalRecords, COMPLETION_TIMEOUT_MS);
+
+            final MqttPublishMetrics metrics = connection.getPublishMetrics();
+            assertEquals(totalRecords, metrics.getPublishedCount());
+            assertEquals(0, metrics.getDroppedCount());
+            assertEquals(totalRecords, metrics.getPacketCount());
+            assertEquals(broker.getPacketCount(), metrics.getPacketCount());
+            assertEquals(broker.getPayloadBytes(), metrics.getPayloadBytes());
+
+            // The Bluetooth records are the last ones queued, so the last packet is the last Bluetooth record
+            final BluetoothRecord.Builder lastRecord = BluetoothRecord.newBuilder();
+            JsonFormat.parser().merge(new String(broker.getLastMessage().getPayload(), StandardCharsets.UTF_8), lastRecord);
+            assertEquals(records.getLastRecord(), lastRecord.build());
+        } finally
+        {
+            connection.disconnect();
+            broker.shutdown();
+        }
+    }
+
+    static MqttConnection createConnection(InProcessMqttBroker broker, MqttPublisher publisher)
+    {
+        return new MqttConnection(publisher)
+        {
+            @Override
+            AWSIotMqttClient createMqttClient(BrokerConnectionInfo connectionInfo)
+            {
+                return new InProcessMqttClient(this, broker);
+            }
+        };
+    }
+
+    static MqttConnectionInfo createConnectionInfo()
+    {
+        return new MqttConnectionInfo("localhost", 8883, true, "Pixel3a", "", "", true, true, true, false, false);
+    }
+
+    static void waitForPublished(MqttConnection connection, long expectedCount, long timeoutMs) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        while (connection.getPublishMetrics().getPublishedCount() < expectedCount)
+        {
+            assertTrue("Timed out waiting for the MQTT messages to be published", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
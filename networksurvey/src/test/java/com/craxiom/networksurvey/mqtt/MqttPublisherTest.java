@@ -0,0 +1,94 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.amazonaws.services.iot.client.AWSIotMessage;
+import com.amazonaws.services.iot.client.AWSIotMqttClient;
+import com.google.protobuf.Any;
+import com.google.protobuf.Int32Value;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the MQTT publish stage metrics.
+ *
+ * @since 1.7.0
+ */
+public class MqttPublisherTest
+{
+    private static final long TIMEOUT_MS = 5_000;
+
+    @Test
+    public void validateInFlightCountIsRestoredWhenEncodingFails() throws Exception
+    {
+        final MqttPublisher publisher = new MqttPublisher();
+        publisher.setConnectionUp(true);
+        publisher.start(new TestClient(false));
+        try
+        {
+            // An Any with a type that is not in the JSON type registry can't be printed
+            publisher.enqueue("test", Any.pack(Int32Value.newBuilder().setValue(1).build()));
+            waitForFailures(publisher, 1);
+
+            final MqttPublishMetrics metrics = publisher.getMetrics();
+            assertEquals(0, metrics.getInFlightCount());
+            assertEquals(0, metrics.getPublishedCount());
+        } finally
+        {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    public void validateInFlightCountIsRestoredWhenPublishThrows() throws Exception
+    {
+        final MqttPublisher publisher = new MqttPublisher();
+        publisher.setConnectionUp(true);
+        publisher.start(new TestClient(true));
+        try
+        {
+            publisher.enqueue("test", Int32Value.newBuilder().setValue(1).build());
+            publisher.enqueue("test", Int32Value.newBuilder().setValue(2).build());
+            waitForFailures(publisher, 2);
+
+            assertEquals(0, publisher.getMetrics().getInFlightCount());
+        } finally
+        {
+            publisher.stop();
+        }
+    }
+
+    private static void waitForFailures(MqttPublisher publisher, long expectedCount) throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (publisher.getMetrics().getFailedCount() < expectedCount)
+        {
+            assertTrue("Timed out waiting for the failed publish", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * A client that either acknowledges every message right away or throws from publish.
+     */
+    private static final class TestClient extends AWSIotMqttClient
+    {
+        private final boolean failPublish;
+
+        private TestClient(boolean failPublish)
+        {
+            super("localhost.iot.us-east-1.amazonaws.com", "test", "AWS_ACCESS_KEY_ID", "AWS_SECRET_ACCESS_KEY");
+            this.failPublish = failPublish;
+        }
+
+        @Override
+        public void publish(AWSIotMessage message, long timeout)
+        {
+            if (failPublish) throw new IllegalStateException("The client is not connected");
+            message.onSuccess();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.craxiom.networksurvey.util.BenchmarkReport;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.util.JsonFormat;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * An opt-in benchmark that drives the {@link MqttConnection} with synthetic LTE, Wi-Fi, and Bluetooth record streams
+ * against an {@link InProcessMqttBroker}, and reports the uplink throughput, publish latency, and bytes on the wire.
+ * <p>
+ * The app publishes each record on its own as JSON. The other configurations plug alternative payload encoders into the
+ * {@link MqttPublisher} to see what batching the records, or sending them as binary Protobuf, would buy.
+ * <p>
+ * Run it with {@code ./gradlew testDebugUnitTest -Pbenchmark --tests '*MqttUplinkBenchmarkTest'}; the results are
+ * written to {@code build/reports/benchmarks/mqtt-uplink.txt}.
+ *
+ * @since 1.7.0
+ */
+public class MqttUplinkBenchmarkTest
+{
+    private static final int RECORDS_PER_TYPE = 5_000;
+    private static final int MAX_IN_FLIGHT = 32;
+    private static final long ACK_DELAY_MICROS = 50;
+    private static final long COMPLETION_TIMEOUT_MS = 60_000;
+
+    private static final int[] BATCH_SIZES = {1, 10, 50};
+
+    @Test
+    public void measureUplinkThroughput() throws Exception
+    {
+        try (BenchmarkReport report = BenchmarkReport.open("mqtt-uplink"))
+        {
+            final SyntheticRecordStreams records = new SyntheticRecordStreams(RECORDS_PER_TYPE);
+
+            report.println("%-9s %6s %12s %9s %9s %12s %12s %9s",
+                    "Encoding", "Batch", "Records/s", "p50 (us)", "p99 (us)", "Packets", "Wire bytes", "B/record");
+
+            for (int batchSize : BATCH_SIZES)
+            {
+                runConfiguration(report, "JSON", batchSize, new JsonEncoder(batchSize), records);
+            }
+            for (int batchSize : BATCH_SIZES)
+            {
+                runConfiguration(report, "Protobuf", batchSize, new ProtobufEncoder(batchSize), records);
+            }
+        }
+    }
+
+    private static void runConfiguration(BenchmarkReport report, String encoding, int batchSize,
+                                         MqttPayloadEncoder encoder, SyntheticRecordStreams records) throws Exception
+    {
+        final int totalRecords = records.getTotalRecords();
+        final InProcessMqttBroker broker = new InProcessMqttBroker(ACK_DELAY_MICROS);
+        final MqttConnection connection = MqttConnectionTest.createConnection(broker,
+                new MqttPublisher(totalRecords, MAX_IN_FLIGHT, encoder));
+        try
+        {
+            connection.connect(MqttConnectionTest.createConnectionInfo());
+
+            final long startNanos = System.nanoTime();
+            records.deliverTo(connection);
+            MqttConnectionTest.waitForPublished(connection, totalRecords, COMPLETION_TIMEOUT_MS);
+            final long elapsedNanos = System.nanoTime() - startNanos;
+
+            final String configuration = encoding + ", batch size " + batchSize;
+            final MqttPublishMetrics metrics = connection.getPublishMetrics();
+            assertEquals(configuration, totalRecords, metrics.getPublishedCount());
+            assertEquals(configuration, 0, metrics.getDroppedCount());
+            assertEquals(configuration, broker.getPacketCount(), metrics.getPacketCount());
+            assertEquals(configuration, broker.getPayloadBytes(), metrics.getPayloadBytes());
+
+            report.println("%-9s %6d %12.0f %9d %9d %12d %12d %9.1f",
+                    encoding, batchSize,
+                    totalRecords / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)),
+                    metrics.getP50LatencyMicros(), metrics.getP99LatencyMicros(),
+                    broker.getPacketCount(), broker.getWireBytes(),
+                    broker.getWireBytes() / (double) totalRecords);
+        } finally
+        {
+            connection.disconnect();
+            broker.shutdown();
+        }
+    }
+
+    /**
+     * The app's JSON format for a single record, and a JSON array of the records when batching.
+     */
+    private static final class JsonEncoder implements MqttPayloadEncoder
+    {
+        private final JsonFormat.Printer jsonFormatter = JsonFormat.printer()
+                .preservingProtoFieldNames()
+                .omittingInsignificantWhitespace();
+        private final int maxBatchSize;
+
+        private JsonEncoder(int maxBatchSize)
+        {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public int getMaxBatchSize()
+        {
+            return maxBatchSize;
+        }
+
+        @Override
+        public byte[] encode(List<MessageOrBuilder> messages) throws IOException
+        {
+            if (maxBatchSize == 1) return jsonFormatter.print(messages.get(0)).getBytes(StandardCharsets.UTF_8);
+
+            final StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < messages.size(); i++)
+            {
+                if (i > 0) json.append(',');
+                json.append(jsonFormatter.print(messages.get(i)));
+            }
+            return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Binary Protobuf for a single record, and length delimited Protobuf records when batching.
+     */
+    private static final class ProtobufEncoder implements MqttPayloadEncoder
+    {
+        private final int maxBatchSize;
+
+        private ProtobufEncoder(int maxBatchSize)
+        {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public int getMaxBatchSize()
+        {
+            return maxBatchSize;
+        }
+
+        @Override
+        public byte[] encode(List<MessageOrBuilder> messages) throws IOException
+        {
+            if (maxBatchSize == 1) return toMessage(messages.get(0)).toByteArray();
+
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            for (MessageOrBuilder message : messages)
+            {
+                toMessage(message).writeDelimitedTo(outputStream);
+            }
+            return outputStream.toByteArray();
+        }
+
+        private static Message toMessage(MessageOrBuilder message)
+        {
+            return message instanceof Message ? (Message) message : ((Message.Builder) message).build();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.craxiom.networksurvey.mqtt;
+
+import com.craxiom.messaging.BluetoothRecord;
+import com.craxiom.messaging.BluetoothRecordData;
+import com.craxiom.messaging.LteRecord;
+import com.craxiom.messaging.LteRecordData;
+import com.craxiom.messaging.WifiBeaconRecord;
+import com.craxiom.messaging.WifiBeaconRecordData;
+import com.craxiom.networksurvey.model.WifiRecordWrapper;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Int32Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Synthetic LTE, Wi-Fi, and Bluetooth record streams for driving an {@link MqttConnection} in the tests and the uplink
+ * benchmark. The records are delivered in scans, interleaving the record types the same way the survey would.
+ *
+ * @since 1.7.0
+ */
+final class SyntheticRecordStreams
+{
+    private static final int RECORDS_PER_SCAN = 25;
+
+    private final int recordsPerType;
+    private final List<LteRecord> lteRecords;
+    private final List<List<WifiRecordWrapper>> wifiScans = new ArrayList<>();
+    private final List<List<BluetoothRecord>> bluetoothScans = new ArrayList<>();
+
+    /**
+     * @param recordsPerType The number of records of each type, which must be a multiple of the scan size (25).
+     */
+    SyntheticRecordStreams(int recordsPerType)
+    {
+        this.recordsPerType = recordsPerType;
+        lteRecords = new ArrayList<>(recordsPerType);
+        for (int i = 0; i < recordsPerType; i++)
+        {
+            lteRecords.add(createLteRecord(i));
+        }
+
+        for (int scan = 0; scan < recordsPerType / RECORDS_PER_SCAN; scan++)
+        {
+            final List<WifiRecordWrapper> wifiScan = new ArrayList<>(RECORDS_PER_SCAN);
+            final List<BluetoothRecord> bluetoothScan = new ArrayList<>(RECORDS_PER_SCAN);
+            for (int i = 0; i < RECORDS_PER_SCAN; i++)
+            {
+                final int recordNumber = scan * RECORDS_PER_SCAN + i;
+                wifiScan.add(new WifiRecordWrapper(createWifiRecord(recordNumber), "[WPA2-PSK-CCMP][ESS]"));
+                bluetoothScan.add(createBluetoothRecord(recordNumber));
+            }
+            wifiScans.add(Collections.unmodifiableList(wifiScan));
+            bluetoothScans.add(Collections.unmodifiableList(bluetoothScan));
+        }
+    }
+
+    /**
+     * @return The total number of records across all the record types.
+     */
+    int getTotalRecords()
+    {
+        return recordsPerType * 3;
+    }
+
+    /**
+     * @return The last record that {@link #deliverTo(MqttConnection)} hands to the connection.
+     */
+    BluetoothRecord getLastRecord()
+    {
+        final List<BluetoothRecord> lastScan = bluetoothScans.get(bluetoothScans.size() - 1);
+        return lastScan.get(lastScan.size() - 1);
+    }
+
+    /**
+     * Hands every record to the connection, one scan at a time.
+     */
+    void deliverTo(MqttConnection connection)
+    {
+        for (int scan = 0; scan < wifiScans.size(); scan++)
+        {
+            for (int i = scan * RECORDS_PER_SCAN; i < (scan + 1) * RECORDS_PER_SCAN; i++)
+            {
+                connection.onLteSurveyRecord(lteRecords.get(i));
+            }
+            connection.onWifiBeaconSurveyRecords(wifiScans.get(scan));
+            connection.onBluetoothSurveyRecords(bluetoothScans.get(scan));
+        }
+    }
+
+    static LteRecord createLteRecord(int recordNumber)
+    {
+        return LteRecord.newBuilder()
+                .setMessageType("LteRecord")
+                .setVersion("0.8.0")
+                .setData(LteRecordData.newBuilder()
+                        .setDeviceSerialNumber("7c2d5a1e9b0f3c44")
+                        .setDeviceName("Pixel3a")
+                        .setDeviceTime("2022-06-01T12:00:00.000-04:00")
+                        .setLatitude(51.470334 + recordNumber * 1e-6)
+                        .setLongitude(-0.486594)
+                        .setAltitude(184.08124f)
+                        .setMissionId("NS 7c2d5a1e9b0f3c44 20220601-120000")
+                        .setRecordNumber(recordNumber)
+                        .setGroupNumber(recordNumber / 4)
+                        .setMcc(Int32Value.newBuilder().setValue(310).build())
+                        .setMnc(Int32Value.newBuilder().setValue(410).build())
+                        .setTac(Int32Value.newBuilder().setValue(31299).build())
+                        .setEci(Int32Value.newBuilder().setValue(4222977 + recordNumber % 4).build())
+                        .setEarfcn(Int32Value.newBuilder().setValue(5110).build())
+                        .setPci(Int32Value.newBuilder().setValue(421 + recordNumber % 4).build())
+                        .setRsrp(FloatValue.newBuilder().setValue(-98 - recordNumber % 20).build())
+                        .setRsrq(FloatValue.newBuilder().setValue(-10).build()))
+                .build();
+    }
+
+    private static WifiBeaconRecord createWifiRecord(int recordNumber)
+    {
+        return WifiBeaconRecord.newBuilder()
+                .setMessageType("WifiBeaconRecord")
+                .setVersion("0.8.0")
+                .setData(WifiBeaconRecordData.newBuilder()
+                        .setDeviceSerialNumber("7c2d5a1e9b0f3c44")
+                        .setDeviceName("Pixel3a")
+                        .setDeviceTime("2022-06-01T12:00:00.000-04:00")
+                        .setLatitude(51.470334)
+                        .setLongitude(-0.486594)
+                        .setAltitude(184.08124f)
+                        .setMissionId("NS 7c2d5a1e9b0f3c44 20220601-120000")
+                        .setRecordNumber(recordNumber)
+                        .setBssid(String.format("68:7f:74:%02x:%02x:%02x", (recordNumber >> 16) & 0xff, (recordNumber >> 8) & 0xff, recordNumber & 0xff))
+                        .setSsid("Survey-" + recordNumber % 50)
+                        .setSignalStrength(FloatValue.newBuilder().setValue(-40 - recordNumber % 50).build())
+                        .setChannel(Int32Value.newBuilder().setValue(1 + recordNumber % 11).build())
+                        .setFrequencyMhz(Int32Value.newBuilder().setValue(2412 + 5 * (recordNumber % 11)).build()))
+                .build();
+    }
+
+    private static BluetoothRecord createBluetoothRecord(int recordNumber)
+    {
+        return BluetoothRecord.newBuilder()
+                .setMessageType("BluetoothRecord")
+                .setVersion("0.8.0")
+                .setData(BluetoothRecordData.newBuilder()
+                        .setDeviceSerialNumber("7c2d5a1e9b0f3c44")
+                        .setDeviceName("Pixel3a")
+                        .setDeviceTime("2022-06-01T12:00:00.000-04:00")
+                        .setLatitude(51.470334)
+                        .setLongitude(-0.486594)
+                        .setAltitude(184.08124f)
+                        .setMissionId("NS 7c2d5a1e9b0f3c44 20220601-120000")
+                        .setRecordNumber(recordNumber)
+                        .setSourceAddress(String.format("E4:5F:01:%02X:%02X:%02X", (recordNumber >> 16) & 0xff, (recordNumber >> 8) & 0xff, recordNumber & 0xff))
+                        .setSignalStrength(FloatValue.newBuilder().setValue(-60 - recordNumber % 30).build())
+                        .setTxPower(FloatValue.newBuilder().setValue(-12).build()))
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for merging the Bluetooth sightings in a scan interval into one sighting per address.
+ *
+ * @since 1.7.0
+ */
+public class BluetoothSightingMergerTest
+{
+    private static final int UNSET_TX_POWER = 127;
+
+    @Test
+    public void validateSightingsAreMergedPerAddress()
+    {
+        final BluetoothSightingMerger<String> merger = new BluetoothSightingMerger<>(UNSET_TX_POWER);
+
+        merger.add("AA", "device-a1", -70, UNSET_TX_POWER, false);
+        merger.add("BB", "device-b", -90, UNSET_TX_POWER, true);
+        merger.add("AA", "device-a2", -60, 4, false);
+        merger.add("AA", "device-a3", -80, UNSET_TX_POWER, true);
+
+        assertEquals(2, merger.getAddressCount());
+        assertEquals(4, merger.getSightingCount());
+
+        final List<String> flushed = new ArrayList<>();
+        merger.flush((index, device, maxRssi, meanRssi, count, txPower, classic, le) ->
+                flushed.add(device + " " + maxRssi + " " + meanRssi + " " + count + " " + txPower + " " + classic + " " + le));
+
+        // In the order first seen, with the latest device object and the last reported TX power
+        assertEquals(2, flushed.size());
+        assertEquals("device-a3 -60 -70.0 3 4 true true", flushed.get(0));
+        assertEquals("device-b -90 -90.0 1 127 true false", flushed.get(1));
+
+        assertEquals(0, merger.getAddressCount());
+        assertEquals(0, merger.getSightingCount());
+        assertEquals(4, merger.getTotalSightingCount());
+        assertEquals(2, merger.getTotalMergedCount());
+    }
+
+    @Test
+    public void validateIntervalsDoNotLeakIntoEachOther()
+    {
+        final BluetoothSightingMerger<String> merger = new BluetoothSightingMerger<>(UNSET_TX_POWER);
+
+        merger.add("AA", "device-a", -40, 8, true);
+        merger.flush((index, device, maxRssi, meanRssi, count, txPower, classic, le) -> {
+        });
+
+        // The reused sighting must not keep the statistics from the last interval
+        merger.add("CC", "device-c", -75, UNSET_TX_POWER, false);
+
+        final List<String> flushed = new ArrayList<>();
+        merger.flush((index, device, maxRssi, meanRssi, count, txPower, classic, le) ->
+                flushed.add(device + " " + maxRssi + " " + count + " " + txPower + " " + classic + " " + le));
+
+        assertEquals(1, flushed.size());
+        assertEquals("device-c -75 1 127 false true", flushed.get(0));
+    }
+}
@@ -0,0 +1,96 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the cellular change detection (delta) mode.
+ *
+ * @since 1.7.0
+ */
+public class CellularChangeDetectorTest
+{
+    private static final int LTE = 4;
+
+    @Test
+    public void validateThresholdAndHeartbeat()
+    {
+        final CellularChangeDetector detector = new CellularChangeDetector();
+        detector.configure(true, 3, 10_000);
+
+        final long servingCell = CellularChangeDetector.cellKey(LTE, true, 310, 410, 31299, 4222977, 5110, 421);
+        final long neighborCell = CellularChangeDetector.cellKey(LTE, false, 0, 0, 0, 0, 5110, 100);
+
+        detector.startGroup(1);
+        assertTrue(detector.shouldEmit(servingCell, -98, 0));
+        assertTrue(detector.shouldEmit(neighborCell, -110, 0));
+        detector.endGroup();
+
+        detector.startGroup(2);
+        assertFalse(detector.shouldEmit(servingCell, -98, 1_000));
+        assertFalse("A change of exactly the threshold is suppressed", detector.shouldEmit(neighborCell, -107, 1_000));
+        assertEquals(2, detector.getGroupSuppressedCount());
+        detector.endGroup();
+
+        detector.startGroup(3);
+        assertTrue(detector.shouldEmit(neighborCell, -106, 2_000));
+        assertFalse("The last emitted value is the reference", detector.shouldEmit(neighborCell, -105, 3_000));
+        assertTrue("The heartbeat expired", detector.shouldEmit(servingCell, -98, 10_000));
+        assertTrue("The signal became unavailable", detector.shouldEmit(neighborCell, Float.NaN, 4_000));
+        assertFalse(detector.shouldEmit(neighborCell, Float.NaN, 5_000));
+        assertEquals(2, detector.getGroupSuppressedCount());
+        detector.endGroup();
+
+        assertEquals(5, detector.getTotalEmittedCount());
+        assertEquals(4, detector.getTotalSuppressedCount());
+    }
+
+    @Test
+    public void validateDisabledEmitsEverything()
+    {
+        final CellularChangeDetector detector = new CellularChangeDetector();
+        final long cell = CellularChangeDetector.cellKey(LTE, true, 310, 410, 31299, 4222977, 5110, 421);
+
+        for (int i = 0; i < 10; i++)
+        {
+            assertTrue(detector.shouldEmit(cell, -98, i));
+        }
+        assertEquals(0, detector.getTrackedCellCount());
+    }
+
+    @Test
+    public void validateServingFlagIsPartOfTheKey()
+    {
+        assertNotEquals(CellularChangeDetector.cellKey(LTE, true, 310, 410, 31299, 4222977, 5110, 421),
+                CellularChangeDetector.cellKey(LTE, false, 310, 410, 31299, 4222977, 5110, 421));
+    }
+
+    @Test
+    public void validateSubscriptionIsPartOfTheKey()
+    {
+        assertNotEquals(CellularChangeDetector.cellKey(1, LTE, true, 310, 410, 31299, 4222977, 5110, 421),
+                CellularChangeDetector.cellKey(2, LTE, true, 310, 410, 31299, 4222977, 5110, 421));
+        assertEquals(CellularChangeDetector.cellKey(-1, LTE, true, 310, 410, 31299, 4222977, 5110, 421),
+                CellularChangeDetector.cellKey(LTE, true, 310, 410, 31299, 4222977, 5110, 421));
+    }
+
+    @Test
+    public void validateManyCellsAreTracked()
+    {
+        final CellularChangeDetector detector = new CellularChangeDetector();
+        detector.configure(true, 3, 60_000);
+
+        for (int pci = 0; pci < 20_000; pci++)
+        {
+            assertTrue(detector.shouldEmit(CellularChangeDetector.cellKey(LTE, false, 0, 0, 0, 0, 5110, pci), -100, pci));
+        }
+        assertTrue(detector.getTrackedCellCount() <= 8_192);
+
+        // The most recently seen cells are still tracked
+        assertFalse(detector.shouldEmit(CellularChangeDetector.cellKey(LTE, false, 0, 0, 0, 0, 5110, 19_999), -100, 20_000));
+    }
+}
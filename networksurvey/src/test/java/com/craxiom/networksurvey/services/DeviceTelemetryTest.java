@@ -0,0 +1,55 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the immutable device telemetry snapshot.
+ *
+ * @since 1.7.0
+ */
+public class DeviceTelemetryTest
+{
+    @Test
+    public void validateBatteryValuesAreConverted()
+    {
+        final DeviceTelemetry telemetry = DeviceTelemetry.EMPTY.withBattery(37, 50, true, 312, 1_000);
+
+        assertEquals(74, telemetry.getBatteryPercent());
+        assertTrue(telemetry.isCharging());
+        assertEquals(31.2f, telemetry.getBatteryTemperatureC(), 0.001f);
+        assertEquals(1_000, telemetry.getUpdateTimeMs());
+    }
+
+    @Test
+    public void validateUnknownBatteryValues()
+    {
+        final DeviceTelemetry telemetry = DeviceTelemetry.EMPTY.withBattery(-1, -1, false, Integer.MIN_VALUE, 1_000);
+
+        assertEquals(DeviceTelemetry.UNKNOWN, telemetry.getBatteryPercent());
+        assertTrue(Float.isNaN(telemetry.getBatteryTemperatureC()));
+        assertEquals(DeviceTelemetry.UNKNOWN, DeviceTelemetry.EMPTY.getBatteryPercent());
+    }
+
+    @Test
+    public void validateUpdatesKeepTheOtherValues()
+    {
+        final DeviceTelemetry battery = DeviceTelemetry.EMPTY.withBattery(80, 100, false, 250, 1_000);
+        final DeviceTelemetry storage = battery.withStorage(5_000_000L, true, 2_000);
+        final DeviceTelemetry thermal = storage.withThermalStatus(2, 3_000);
+
+        assertEquals(80, thermal.getBatteryPercent());
+        assertEquals(25f, thermal.getBatteryTemperatureC(), 0.001f);
+        assertEquals(5_000_000L, thermal.getFreeStorageBytes());
+        assertTrue(thermal.isStorageLow());
+        assertEquals(2, thermal.getThermalStatus());
+
+        // The earlier snapshots are not changed
+        assertEquals(DeviceTelemetry.UNKNOWN, battery.getFreeStorageBytes());
+        assertFalse(battery.isStorageLow());
+        assertEquals(DeviceTelemetry.UNKNOWN, storage.getThermalStatus());
+    }
+}
@@ -0,0 +1,105 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the executor registry and its instrumented pools.
+ *
+ * @since 1.7.0
+ */
+public class ExecutorRegistryTest
+{
+    @Test
+    public void validateThreadsAreNamedAfterThePool() throws Exception
+    {
+        final ExecutorRegistry registry = new ExecutorRegistry("Test");
+        final InstrumentedExecutor executor = registry.newFixedPool("Survey", 2);
+        final ForkJoinPool forkJoinPool = registry.newForkJoinPool("Conversion", 2);
+
+        final AtomicReference<String> threadName = new AtomicReference<>();
+        executor.submit(() -> threadName.set(Thread.currentThread().getName())).get(5, TimeUnit.SECONDS);
+        assertEquals("Test Survey-1", threadName.get());
+        assertEquals("Test Survey", executor.getName());
+
+        final String forkJoinThreadName = forkJoinPool.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        assertTrue(forkJoinThreadName, forkJoinThreadName.startsWith("Test Conversion-"));
+
+        registry.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(forkJoinPool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void validateQueueDepthAndLatencyAreMeasured() throws Exception
+    {
+        final ExecutorRegistry registry = new ExecutorRegistry("Test");
+        final InstrumentedExecutor executor = registry.newFixedPool("Survey", 1);
+
+        // Block the only thread so the other tasks queue up behind it
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        executor.execute(() -> {
+            try
+            {
+                release.await();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        for (int i = 0; i < 3; i++)
+        {
+            executor.execute(done::countDown);
+        }
+
+        assertEquals(3, executor.getQueueDepth());
+        Thread.sleep(20);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(3, executor.getMaxQueueDepth());
+        // The queued tasks waited at least as long as the first task was blocked
+        assertTrue(executor.getQueueLatencyPercentileMicros(99) >= TimeUnit.MILLISECONDS.toMicros(20));
+        assertTrue(executor.getRunLatencyPercentileMicros(99) >= TimeUnit.MILLISECONDS.toMicros(20));
+
+        registry.shutdown();
+    }
+
+    @Test
+    public void validateTasksAreRejectedAndCountedAfterShutdown()
+    {
+        final ExecutorRegistry registry = new ExecutorRegistry("Test");
+        final InstrumentedExecutor executor = registry.newFixedPool("Survey", 1);
+        registry.shutdown();
+
+        try
+        {
+            executor.execute(() -> {
+            });
+            fail("A task was accepted after the shutdown");
+        } catch (RejectedExecutionException expected)
+        {
+            assertEquals(1, executor.getRejectedCount());
+        }
+
+        try
+        {
+            registry.newFixedPool("Late", 1);
+            fail("A pool was created after the shutdown");
+        } catch (IllegalStateException expected)
+        {
+            // Expected
+        }
+    }
+}
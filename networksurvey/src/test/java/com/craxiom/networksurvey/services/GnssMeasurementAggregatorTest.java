@@ -0,0 +1,88 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the GNSS measurement aggregation window.
+ *
+ * @since 1.7.0
+ */
+public class GnssMeasurementAggregatorTest
+{
+    private static final int GPS = 1;
+    private static final int GALILEO = 6;
+    private static final float L1_HZ = 1_575_420_030f;
+    private static final float L5_HZ = 1_176_450_050f;
+
+    @Test
+    public void validateSummaryStatistics()
+    {
+        final GnssMeasurementAggregator aggregator = new GnssMeasurementAggregator();
+
+        aggregator.startEvent(0);
+        aggregator.addMeasurement(GPS, 12, L1_HZ, 40, 100, Double.NaN);
+        aggregator.addMeasurement(GPS, 12, L5_HZ, 35, 100, 1.5);
+        aggregator.startEvent(1_000);
+        aggregator.addMeasurement(GPS, 12, L1_HZ, 44, 102, Double.NaN);
+        aggregator.addMeasurement(GALILEO, 12, Float.NaN, 30, 50, Double.NaN);
+        aggregator.startEvent(2_000);
+        aggregator.addMeasurement(GPS, 12, L1_HZ, 42, 104, Double.NaN);
+
+        assertFalse(aggregator.isWindowComplete(2_000, 5_000));
+        assertTrue(aggregator.isWindowComplete(5_000, 5_000));
+        assertEquals(3, aggregator.getEventCount());
+        assertEquals("L1 and L5 are separate signals", 3, aggregator.getSignalCount());
+
+        final List<double[]> summaries = new ArrayList<>();
+        aggregator.flush((index, constellationType, svid, carrierFrequencyHz, sampleCount, meanCn0DbHz, minCn0DbHz,
+                          maxCn0DbHz, pseudorangeRateVariance, agcDb) ->
+                summaries.add(new double[]{constellationType, svid, sampleCount, meanCn0DbHz, minCn0DbHz, maxCn0DbHz,
+                        pseudorangeRateVariance, agcDb}));
+
+        assertEquals(3, summaries.size());
+
+        final double[] gpsL1 = summaries.get(0);
+        assertEquals(GPS, gpsL1[0], 0);
+        assertEquals(3, gpsL1[2], 0);
+        assertEquals(42, gpsL1[3], 1e-9);
+        assertEquals(40, gpsL1[4], 0);
+        assertEquals(44, gpsL1[5], 0);
+        assertEquals(4, gpsL1[6], 1e-9);
+        assertTrue(Double.isNaN(gpsL1[7]));
+
+        final double[] gpsL5 = summaries.get(1);
+        assertEquals(1, gpsL5[2], 0);
+        assertEquals(35, gpsL5[3], 0);
+        assertEquals("The variance of a single sample is 0", 0, gpsL5[6], 0);
+        assertEquals(1.5, gpsL5[7], 0);
+
+        assertEquals(GALILEO, summaries.get(2)[0], 0);
+
+        // The flush starts a new window
+        assertEquals(0, aggregator.getSignalCount());
+        assertEquals(0, aggregator.getEventCount());
+        assertFalse(aggregator.isWindowComplete(10_000, 5_000));
+    }
+
+    @Test
+    public void validateSignalLimit()
+    {
+        final GnssMeasurementAggregator aggregator = new GnssMeasurementAggregator();
+        aggregator.startEvent(0);
+
+        for (int svid = 0; svid < GnssMeasurementAggregator.MAX_SIGNALS + 10; svid++)
+        {
+            aggregator.addMeasurement(GPS, svid, L1_HZ, 40, 0, Double.NaN);
+        }
+
+        assertEquals(GnssMeasurementAggregator.MAX_SIGNALS, aggregator.getSignalCount());
+        assertEquals(10, aggregator.getIgnoredCount());
+    }
+}
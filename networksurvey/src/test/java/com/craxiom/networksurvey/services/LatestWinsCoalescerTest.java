@@ -0,0 +1,78 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the latest-wins coalescing of the cell info updates.
+ *
+ * @since 1.7.0
+ */
+public class LatestWinsCoalescerTest
+{
+    @Test
+    public void validateUpdatesAreProcessedWhenIdle()
+    {
+        final List<Integer> processed = new ArrayList<>();
+        final LatestWinsCoalescer<Integer> coalescer = new LatestWinsCoalescer<>("Test", processed::add);
+
+        coalescer.offer(1);
+        coalescer.offer(2);
+        coalescer.offer(3);
+
+        assertEquals(Arrays.asList(1, 2, 3), processed);
+        assertEquals(0, coalescer.getCoalescedCount());
+        assertEquals(3, coalescer.getProcessedCount());
+    }
+
+    @Test
+    public void validateOnlyTheLatestWaitingUpdateIsProcessed() throws InterruptedException
+    {
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch processingStarted = new CountDownLatch(1);
+        final CountDownLatch releaseProcessing = new CountDownLatch(1);
+
+        final LatestWinsCoalescer<Integer> coalescer = new LatestWinsCoalescer<>("Test", update -> {
+            if (update == 1)
+            {
+                processingStarted.countDown();
+                try
+                {
+                    releaseProcessing.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            processed.add(update);
+        });
+
+        final Thread slowUpdateThread = new Thread(() -> coalescer.offer(1));
+        slowUpdateThread.start();
+        assertTrue(processingStarted.await(5, TimeUnit.SECONDS));
+
+        // These return right away since the first update is still being processed
+        coalescer.offer(2);
+        coalescer.offer(3);
+        coalescer.offer(4);
+        assertEquals(0, processed.size());
+
+        releaseProcessing.countDown();
+        slowUpdateThread.join(5_000);
+
+        assertEquals(Arrays.asList(1, 4), processed);
+        assertEquals(4, coalescer.getOfferedCount());
+        assertEquals(2, coalescer.getProcessedCount());
+        assertEquals(2, coalescer.getCoalescedCount());
+        assertTrue(coalescer.getMaxAgeMs() >= coalescer.getLastAgeMs());
+    }
+}
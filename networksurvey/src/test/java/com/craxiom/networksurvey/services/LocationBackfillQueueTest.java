@@ -0,0 +1,105 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for holding back the scans until the batched location fixes from their time have been delivered.
+ *
+ * @since 1.7.0
+ */
+public class LocationBackfillQueueTest
+{
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    @Test
+    public void validateScansRunImmediatelyWhenNotBatching()
+    {
+        final List<Integer> processed = new ArrayList<>();
+        final LocationBackfillQueue queue = new LocationBackfillQueue(8);
+
+        queue.runWhenLocated(10 * SECOND_NANOS, () -> processed.add(1));
+
+        assertEquals(Collections.singletonList(1), processed);
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void validateScansWaitForTheFixFromTheirTime()
+    {
+        final List<Integer> processed = new ArrayList<>();
+        final LocationBackfillQueue queue = new LocationBackfillQueue(8);
+        queue.setMaxWait(60 * SECOND_NANOS);
+
+        queue.runWhenLocated(10 * SECOND_NANOS, () -> processed.add(1));
+        queue.runWhenLocated(20 * SECOND_NANOS, () -> processed.add(2));
+        queue.runWhenLocated(30 * SECOND_NANOS, () -> processed.add(3));
+        assertEquals(Collections.emptyList(), processed);
+
+        // A batch that ends between the second and third scan only releases the first two
+        queue.onFixDelivered(25 * SECOND_NANOS);
+        assertEquals(Arrays.asList(1, 2), processed);
+        assertEquals(1, queue.getPendingCount());
+
+        queue.onFixDelivered(31 * SECOND_NANOS);
+        assertEquals(Arrays.asList(1, 2, 3), processed);
+
+        // A scan that is already covered by a delivered fix does not wait
+        queue.runWhenLocated(30 * SECOND_NANOS, () -> processed.add(4));
+        assertEquals(Arrays.asList(1, 2, 3, 4), processed);
+    }
+
+    @Test
+    public void validateScansAreReleasedAfterTheMaxWait()
+    {
+        final List<Integer> processed = new ArrayList<>();
+        final LocationBackfillQueue queue = new LocationBackfillQueue(8);
+        queue.setMaxWait(60 * SECOND_NANOS);
+
+        queue.runWhenLocated(10 * SECOND_NANOS, () -> processed.add(1));
+        queue.runWhenLocated(50 * SECOND_NANOS, () -> processed.add(2));
+        queue.runWhenLocated(71 * SECOND_NANOS, () -> processed.add(3));
+
+        assertEquals(Collections.singletonList(1), processed);
+        assertEquals(2, queue.getPendingCount());
+    }
+
+    @Test
+    public void validateTheOldestScanIsReleasedWhenFull()
+    {
+        final List<Integer> processed = new ArrayList<>();
+        final LocationBackfillQueue queue = new LocationBackfillQueue(2);
+        queue.setMaxWait(60 * SECOND_NANOS);
+
+        queue.runWhenLocated(1 * SECOND_NANOS, () -> processed.add(1));
+        queue.runWhenLocated(2 * SECOND_NANOS, () -> processed.add(2));
+        queue.runWhenLocated(3 * SECOND_NANOS, () -> processed.add(3));
+
+        assertEquals(Collections.singletonList(1), processed);
+        assertEquals(2, queue.getPendingCount());
+    }
+
+    @Test
+    public void validateTurningOffBatchingReleasesEverything()
+    {
+        final List<Integer> processed = new ArrayList<>();
+        final LocationBackfillQueue queue = new LocationBackfillQueue(8);
+        queue.setMaxWait(60 * SECOND_NANOS);
+
+        queue.runWhenLocated(1 * SECOND_NANOS, () -> processed.add(1));
+        queue.runWhenLocated(2 * SECOND_NANOS, () -> processed.add(2));
+        queue.setMaxWait(0);
+
+        assertEquals(Arrays.asList(1, 2), processed);
+        assertEquals(0, queue.getPendingCount());
+
+        queue.runWhenLocated(3 * SECOND_NANOS, () -> processed.add(3));
+        assertEquals(Arrays.asList(1, 2, 3), processed);
+    }
+}
@@ -0,0 +1,84 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for working out the scan interval from the speed of the device.
+ *
+ * @since 1.7.0
+ */
+public class MotionAdaptiveScanRateTest
+{
+    @Test
+    public void validateConfiguredRateIsUsedWhenDisabled()
+    {
+        final MotionAdaptiveScanRate adaptiveScanRate = new MotionAdaptiveScanRate();
+        adaptiveScanRate.configure(false, 50, 2_000, 60_000);
+
+        assertFalse(adaptiveScanRate.onMotion(30, 0));
+        assertEquals(8_000, adaptiveScanRate.getIntervalMs(8_000));
+    }
+
+    @Test
+    public void validateIntervalFollowsTheSpeed()
+    {
+        final MotionAdaptiveScanRate adaptiveScanRate = new MotionAdaptiveScanRate();
+        adaptiveScanRate.configure(true, 50, 2_000, 60_000);
+
+        // Stationary until a speed is known
+        assertEquals(60_000, adaptiveScanRate.getIntervalMs(8_000));
+
+        // 10 m/s is one scan every 5 seconds to cover 50 meters
+        assertTrue(adaptiveScanRate.onMotion(10, 0));
+        assertEquals(5_000, adaptiveScanRate.getIntervalMs(8_000));
+
+        // Highway speeds are capped at the minimum interval
+        adaptiveScanRate.onMotion(40, 0);
+        adaptiveScanRate.onMotion(40, 0);
+        adaptiveScanRate.onMotion(40, 0);
+        assertEquals(2_000, adaptiveScanRate.getIntervalMs(8_000));
+    }
+
+    @Test
+    public void validateStationaryUsesTheMaximumInterval()
+    {
+        final MotionAdaptiveScanRate adaptiveScanRate = new MotionAdaptiveScanRate();
+        adaptiveScanRate.configure(true, 50, 2_000, 60_000);
+
+        adaptiveScanRate.onMotion(10, 0);
+        for (int i = 0; i < 10; i++)
+        {
+            adaptiveScanRate.onMotion(0, 0);
+        }
+
+        assertEquals(60_000, adaptiveScanRate.getIntervalMs(8_000));
+    }
+
+    @Test
+    public void validateSmallChangesAreNotReported()
+    {
+        final MotionAdaptiveScanRate adaptiveScanRate = new MotionAdaptiveScanRate();
+        adaptiveScanRate.configure(true, 50, 2_000, 60_000);
+
+        assertTrue(adaptiveScanRate.onMotion(10, 0));
+
+        // Smoothed to 10.1 m/s, which is less than 1 second different from 5 seconds
+        assertFalse(adaptiveScanRate.onMotion(10.2, 0));
+        assertFalse(adaptiveScanRate.onMotion(Double.NaN, 0));
+    }
+
+    @Test
+    public void validateRecordsPerKm()
+    {
+        final MotionAdaptiveScanRate adaptiveScanRate = new MotionAdaptiveScanRate();
+
+        assertEquals(0, adaptiveScanRate.getRecordsPerKm(100), 0.001);
+
+        adaptiveScanRate.onMotion(10, 2_500);
+        assertEquals(40, adaptiveScanRate.getRecordsPerKm(100), 0.001);
+    }
+}
@@ -0,0 +1,203 @@
+package com.craxiom.networksurvey.services;
+
+import com.craxiom.messaging.BluetoothRecord;
+import com.craxiom.messaging.BluetoothRecordData;
+import com.craxiom.networksurvey.util.BenchmarkReport;
+import com.google.protobuf.FloatValue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Converts synthetic BLE scan batches of different sizes with the {@link ParallelRecordConverter}, and checks that the
+ * output order and record numbers match a plain sequential conversion of the same batch.
+ * <p>
+ * An opt-in benchmark (run with {@code -Pbenchmark}) also compares the conversion time of the large batches against the
+ * plain sequential loop, and writes it to {@code build/reports/benchmarks/parallel-record-converter.txt}.
+ *
+ * @since 1.7.0
+ */
+public class ParallelRecordConverterTest
+{
+    // Largest first, so the first batch is split into chunks based on the initial per record estimate
+    private static final int[] BATCH_SIZES = {2_000, 800, 100, 10, 1};
+
+    // The batch sizes where a busy BLE environment makes the conversion worth splitting up
+    private static final int[] BENCHMARK_BATCH_SIZES = {800, 2_000, 5_000};
+    private static final int BENCHMARK_ITERATIONS = 200;
+    private static final int BENCHMARK_WARM_UP_ITERATIONS = 50;
+
+    @Test
+    public void validateOutputMatchesSequentialConversion()
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            final ParallelRecordConverter<SyntheticScanResult, BluetoothRecord> converter =
+                    new ParallelRecordConverter<>("Bluetooth", pool, ParallelRecordConverterTest::createRecord);
+
+            int firstRecordNumber = 1;
+            for (int batchSize : BATCH_SIZES)
+            {
+                final List<SyntheticScanResult> scanResults = createScanResults(batchSize);
+
+                // Repeated so that each batch size is also converted with the measured per record estimate
+                for (int iteration = 0; iteration < 5; iteration++)
+                {
+                    final List<BluetoothRecord> records = converter.convert(scanResults, firstRecordNumber);
+                    assertEquals(convertSequentially(scanResults, firstRecordNumber), records);
+                    firstRecordNumber += batchSize;
+                }
+            }
+
+            assertTrue("Large batches should have been converted in parallel", converter.getParallelBatchCount() > 0);
+            assertEquals(BATCH_SIZES.length * 5, converter.getBatchCount());
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void validateSmallBatchesStaySequential()
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            final ParallelRecordConverter<SyntheticScanResult, BluetoothRecord> converter =
+                    new ParallelRecordConverter<>("Bluetooth", pool, ParallelRecordConverterTest::createRecord);
+
+            assertEquals(10, converter.getChunkSize(10));
+            assertEquals(ParallelRecordConverter.MIN_CHUNK_SIZE, converter.getChunkSize(ParallelRecordConverter.MIN_CHUNK_SIZE));
+
+            converter.convert(createScanResults(10), 1);
+            assertEquals(1, converter.getBatchCount());
+            assertEquals(0, converter.getParallelBatchCount());
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void measureConversionTime() throws Exception
+    {
+        try (BenchmarkReport report = BenchmarkReport.open("parallel-record-converter"))
+        {
+            final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            try
+            {
+                report.println("%-7s %16s %16s %8s %10s", "Batch", "Sequential (us)", "Chunked (us)", "Speedup", "Chunked");
+
+                for (int batchSize : BENCHMARK_BATCH_SIZES)
+                {
+                    final List<SyntheticScanResult> scanResults = createScanResults(batchSize);
+                    final ParallelRecordConverter<SyntheticScanResult, BluetoothRecord> converter =
+                            new ParallelRecordConverter<>("Bluetooth", pool, ParallelRecordConverterTest::createRecord);
+
+                    for (int i = 0; i < BENCHMARK_WARM_UP_ITERATIONS; i++)
+                    {
+                        convertSequentially(scanResults, 1);
+                        converter.convert(scanResults, 1);
+                    }
+
+                    long startNanos = System.nanoTime();
+                    for (int i = 0; i < BENCHMARK_ITERATIONS; i++)
+                    {
+                        convertSequentially(scanResults, 1);
+                    }
+                    final long sequentialNanos = (System.nanoTime() - startNanos) / BENCHMARK_ITERATIONS;
+
+                    final long parallelBatchesBefore = converter.getParallelBatchCount();
+                    startNanos = System.nanoTime();
+                    for (int i = 0; i < BENCHMARK_ITERATIONS; i++)
+                    {
+                        converter.convert(scanResults, 1);
+                    }
+                    final long chunkedNanos = (System.nanoTime() - startNanos) / BENCHMARK_ITERATIONS;
+                    final long parallelBatches = converter.getParallelBatchCount() - parallelBatchesBefore;
+
+                    assertEquals(convertSequentially(scanResults, 1), converter.convert(scanResults, 1));
+
+                    report.println("%-7d %16d %16d %8.2f %9d%%", batchSize,
+                            TimeUnit.NANOSECONDS.toMicros(sequentialNanos), TimeUnit.NANOSECONDS.toMicros(chunkedNanos),
+                            sequentialNanos / (double) Math.max(1, chunkedNanos), parallelBatches * 100 / BENCHMARK_ITERATIONS);
+                }
+            } finally
+            {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static List<BluetoothRecord> convertSequentially(List<SyntheticScanResult> scanResults, int firstRecordNumber)
+    {
+        final List<BluetoothRecord> records = new ArrayList<>(scanResults.size());
+        for (int i = 0; i < scanResults.size(); i++)
+        {
+            records.add(createRecord(scanResults.get(i), firstRecordNumber + i));
+        }
+        return records;
+    }
+
+    private static List<SyntheticScanResult> createScanResults(int count)
+    {
+        final List<SyntheticScanResult> scanResults = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            scanResults.add(new SyntheticScanResult(
+                    String.format("E4:5F:01:%02X:%02X:%02X", (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff),
+                    -60 - i % 30, i % 3 == 0 ? "Beacon " + i : null));
+        }
+        return scanResults;
+    }
+
+    /**
+     * Builds the record the same way {@code SurveyRecordProcessor} does for a BLE scan result.
+     */
+    private static BluetoothRecord createRecord(SyntheticScanResult scanResult, int recordNumber)
+    {
+        final BluetoothRecordData.Builder dataBuilder = BluetoothRecordData.newBuilder()
+                .setDeviceSerialNumber("7c2d5a1e9b0f3c44")
+                .setDeviceName("Pixel3a")
+                .setDeviceTime(String.format("2022-06-01T12:00:%02d.000-04:00", recordNumber % 60))
+                .setLatitude(51.470334)
+                .setLongitude(-0.486594)
+                .setAltitude(184.08124f)
+                .setMissionId("NS 7c2d5a1e9b0f3c44 20220601-120000")
+                .setRecordNumber(recordNumber)
+                .setSourceAddress(scanResult.address)
+                .setSignalStrength(FloatValue.newBuilder().setValue(scanResult.rssi).build());
+        if (scanResult.name != null) dataBuilder.setOtaDeviceName(scanResult.name);
+
+        return BluetoothRecord.newBuilder()
+                .setMessageType("BluetoothRecord")
+                .setVersion("0.8.0")
+                .setData(dataBuilder)
+                .build();
+    }
+
+    /**
+     * Stands in for the Android BLE scan result, which can't be created in a local unit test.
+     */
+    private static final class SyntheticScanResult
+    {
+        private final String address;
+        private final int rssi;
+        private final String name;
+
+        private SyntheticScanResult(String address, int rssi, String name)
+        {
+            this.address = address;
+            this.rssi = rssi;
+            this.name = name;
+        }
+    }
+}
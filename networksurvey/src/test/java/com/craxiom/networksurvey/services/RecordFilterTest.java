@@ -0,0 +1,94 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the record filter rules and their counters.
+ *
+ * @since 1.7.0
+ */
+public class RecordFilterTest
+{
+    private static final int UNAVAILABLE = Integer.MAX_VALUE;
+
+    @Test
+    public void validateCellsAreFilteredByPlmnEarfcnAndRsrp()
+    {
+        final RecordFilter filter = RecordFilter.compile("310-410, 311-480, bogus", "66486-67335, 5230, 700-800, 750-900",
+                "-110", null, null, null);
+        assertTrue(filter.hasRules());
+
+        assertTrue(filter.acceptCell(310, 410));
+        assertFalse(filter.acceptCell(310, 260));
+        // Neighbor cells often don't report their PLMN
+        assertTrue(filter.acceptCell(UNAVAILABLE, UNAVAILABLE));
+
+        assertTrue(filter.acceptLteCell(311, 480, 5230, -100));
+        assertTrue(filter.acceptLteCell(311, 480, 66486, -100));
+        assertTrue(filter.acceptLteCell(311, 480, 850, -100));
+        assertFalse(filter.acceptLteCell(311, 480, 5110, -100));
+        assertFalse(filter.acceptLteCell(311, 480, 67336, -100));
+        assertFalse(filter.acceptLteCell(311, 480, 5230, -115));
+        assertTrue(filter.acceptLteCell(311, 480, 5230, UNAVAILABLE));
+
+        assertTrue(filter.acceptNrCell(310, 410, -90));
+        assertFalse(filter.acceptNrCell(310, 410, -120));
+
+        final RecordFilter.Rule plmnRule = filter.getRules().get(0);
+        assertEquals("PLMN", plmnRule.getName());
+        assertEquals(10, plmnRule.getMatchedCount());
+        assertEquals(1, plmnRule.getRejectedCount());
+
+        final RecordFilter.Rule earfcnRule = filter.getRules().get(1);
+        assertEquals(5, earfcnRule.getMatchedCount());
+        assertEquals(2, earfcnRule.getRejectedCount());
+
+        final RecordFilter.Rule rsrpRule = filter.getRules().get(2);
+        assertEquals(4, rsrpRule.getMatchedCount());
+        assertEquals(2, rsrpRule.getRejectedCount());
+    }
+
+    @Test
+    public void validateWifiAndBluetoothAreFilteredByPrefixAndType()
+    {
+        final RecordFilter filter = RecordFilter.compile(null, null, null, "Corp, Lab-", "00:11:22", "le, dual, warp");
+
+        assertTrue(filter.acceptWifi("00:11:22:33:44:55", "Corp-Guest"));
+        assertTrue(filter.acceptWifi("00:11:22:33:44:55", "Lab-5G"));
+        assertFalse(filter.acceptWifi("00:11:22:33:44:55", "corp"));
+        assertTrue(filter.acceptWifi("00:11:22:AA:BB:CC".toLowerCase(), "Corp"));
+        assertFalse(filter.acceptWifi("66:77:88:99:AA:BB", "Corp"));
+
+        assertTrue(filter.hasBluetoothRule());
+        assertTrue(filter.acceptBluetooth(2));
+        assertTrue(filter.acceptBluetooth(3));
+        assertFalse(filter.acceptBluetooth(1));
+        assertFalse(filter.acceptBluetooth(0));
+
+        final RecordFilter.Rule bluetoothTypeRule = filter.getRules().get(5);
+        assertEquals(2, bluetoothTypeRule.getMatchedCount());
+        assertEquals(2, bluetoothTypeRule.getRejectedCount());
+    }
+
+    @Test
+    public void validateAnEmptyFilterAcceptsEverything()
+    {
+        final RecordFilter filter = RecordFilter.compile(" ", "", null, ",", null, "");
+        assertFalse(filter.hasRules());
+        assertFalse(RecordFilter.ACCEPT_ALL.hasRules());
+        assertFalse(filter.hasBluetoothRule());
+
+        assertTrue(filter.acceptLteCell(1, 1, 1, -140));
+        assertTrue(filter.acceptWifi("00:00:00:00:00:00", "Anything"));
+        assertTrue(filter.acceptBluetooth(1));
+
+        for (RecordFilter.Rule rule : filter.getRules())
+        {
+            assertEquals(0, rule.getMatchedCount() + rule.getRejectedCount());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for the lock free record and group number allocation.
+ *
+ * @since 1.7.0
+ */
+public class RecordSequenceAllocatorTest
+{
+    @Test
+    public void validateSequentialAllocation()
+    {
+        final RecordSequenceAllocator allocator = new RecordSequenceAllocator(1);
+
+        assertEquals(1, allocator.next());
+        assertEquals(2, allocator.reserve(5));
+        assertEquals(7, allocator.reserve(0));
+        assertEquals(7, allocator.next());
+        assertEquals(8, allocator.peek());
+    }
+
+    @Test
+    public void validateConcurrentBlocksAreUniqueAndGapFree() throws Exception
+    {
+        final int threadCount = 8;
+        final int batchesPerThread = 1_000;
+        final RecordSequenceAllocator allocator = new RecordSequenceAllocator(1);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final List<Future<int[]>> futures = new ArrayList<>(threadCount);
+        final int[] batchSizes = new int[threadCount];
+        int expectedTotal = 0;
+        try
+        {
+            for (int thread = 0; thread < threadCount; thread++)
+            {
+                // Mix of batch sizes: empty batches, single records, and larger blocks
+                final int batchSize = thread == 0 ? 0 : thread % 4 == 0 ? 1 : thread * 3;
+                batchSizes[thread] = batchSize;
+                expectedTotal += batchSize * batchesPerThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+
+                    // Only the allocation runs on the worker threads, the results are checked on the test thread
+                    final int[] firstNumbers = new int[batchesPerThread];
+                    for (int i = 0; i < batchesPerThread; i++)
+                    {
+                        firstNumbers[i] = allocator.reserve(batchSize);
+                    }
+                    return firstNumbers;
+                }));
+            }
+
+            start.countDown();
+        } finally
+        {
+            executor.shutdown();
+        }
+
+        final BitSet allocated = new BitSet();
+        for (int thread = 0; thread < threadCount; thread++)
+        {
+            for (int first : futures.get(thread).get(30, TimeUnit.SECONDS))
+            {
+                for (int recordNumber = first; recordNumber < first + batchSizes[thread]; recordNumber++)
+                {
+                    assertFalse("Duplicate record number " + recordNumber, allocated.get(recordNumber));
+                    allocated.set(recordNumber);
+                }
+            }
+        }
+
+        assertEquals(expectedTotal, allocated.cardinality());
+        assertEquals(1, allocated.nextSetBit(0));
+        assertEquals(expectedTotal + 1, allocated.nextClearBit(1));
+        assertEquals(expectedTotal + 1, allocator.peek());
+    }
+}
@@ -0,0 +1,246 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the shared wakeup scheduling of the periodic scans.
+ *
+ * @since 1.7.0
+ */
+public class ScanSchedulerTest
+{
+    @Test
+    public void validateTasksShareWakeups()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final List<String> runs = new ArrayList<>();
+        scheduler.schedule("Two", () -> 2_000, 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> runs.add("2@" + wakeups.nowMs));
+        scheduler.schedule("Four", () -> 4_000, 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> runs.add("4@" + wakeups.nowMs));
+
+        wakeups.runUntil(8_000);
+
+        // Both tasks run from the same wakeup at 0, 4, and 8 seconds, so there are only 5 wakeups for 8 runs
+        assertEquals(5, scheduler.getWakeupCount());
+        assertEquals(8, runs.size());
+        assertTrue(runs.contains("4@4000"));
+        assertTrue(runs.contains("2@4000"));
+    }
+
+    @Test
+    public void validatePeriodsAreRoundedToTheTick()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final ScanScheduler.Task task = scheduler.schedule("Odd", () -> 1_500, 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> {
+        });
+
+        assertEquals(2_000, task.getPeriodMs());
+    }
+
+    @Test
+    public void validateRateChangesAreUsedForTheNextRun()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final int[] periodMs = {2_000};
+        final ScanScheduler.Task task = scheduler.schedule("Task", () -> periodMs[0], 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> {
+        });
+
+        wakeups.runUntil(0);
+        periodMs[0] = 5_000;
+        wakeups.runUntil(9_000);
+
+        // Runs at 0, 2 (scheduled before the change), 5
+        assertEquals(3, task.getRunCount());
+        assertEquals(5_000, task.getLastRunMs());
+    }
+
+    @Test
+    public void validateShorterPeriodsTakeEffectImmediately()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final int[] periodMs = {60_000};
+        final ScanScheduler.Task task = scheduler.schedule("Task", () -> periodMs[0], 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> {
+        });
+
+        wakeups.runUntil(10_000);
+        periodMs[0] = 4_000;
+        scheduler.onPeriodsChanged();
+        wakeups.runUntil(12_000);
+
+        // Runs at 0, then at 12 seconds instead of waiting until 60 seconds
+        assertEquals(2, task.getRunCount());
+        assertEquals(12_000, task.getLastRunMs());
+    }
+
+    @Test
+    public void validateLateWakeupPolicies()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final ScanScheduler.Task runLate = scheduler.schedule("RunLate", () -> 4_000, 1_000, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> {
+        });
+        final ScanScheduler.Task skip = scheduler.schedule("Skip", () -> 4_000, 1_000, 0, ScanScheduler.MissedTickPolicy.SKIP, () -> {
+        });
+
+        // The first run is due at 4 seconds, but the device was asleep until 7 seconds
+        wakeups.nowMs = 7_000;
+        wakeups.runDue();
+
+        assertEquals(1, runLate.getRunCount());
+        assertEquals(3_000, runLate.getLastLatenessMs());
+        assertEquals(0, skip.getRunCount());
+        assertEquals(1, skip.getSkippedCount());
+
+        // Both are back on the aligned schedule afterwards
+        wakeups.runUntil(8_000);
+        assertEquals(2, runLate.getRunCount());
+        assertEquals(1, skip.getRunCount());
+        assertEquals(0, skip.getLastLatenessMs());
+    }
+
+    @Test
+    public void validateJitterIsWholeTicks()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(7));
+
+        final List<Long> runTimes = new ArrayList<>();
+        scheduler.schedule("Jittered", () -> 10_000, 0, 3_000, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> runTimes.add(wakeups.nowMs));
+
+        wakeups.runUntil(100_000);
+
+        assertTrue(runTimes.size() >= 9);
+        for (long runTimeMs : runTimes)
+        {
+            assertEquals(0, runTimeMs % 1_000);
+            assertTrue(runTimeMs % 10_000 <= 3_000);
+        }
+    }
+
+    @Test
+    public void validateCancelledTasksDoNotRun()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final int[] runs = {0};
+        final ScanScheduler.Task task = scheduler.schedule("Task", () -> 1_000, 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> runs[0]++);
+
+        wakeups.runUntil(2_000);
+        scheduler.cancel(task);
+        wakeups.runUntil(10_000);
+
+        assertEquals(3, runs[0]);
+        assertEquals(null, wakeups.pending);
+    }
+
+    @Test
+    public void validateRunsAreMovedIntoTheDutyCycleBursts()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final List<String> events = new ArrayList<>();
+        scheduler.setBurstListener(burstActive -> events.add((burstActive ? "start@" : "end@") + wakeups.nowMs));
+        scheduler.setDutyCycle(30_000, 300_000);
+
+        final List<Long> runTimes = new ArrayList<>();
+        scheduler.schedule("Task", () -> 20_000, 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> runTimes.add(wakeups.nowMs));
+
+        wakeups.runUntil(600_000);
+
+        // Runs at 0 and 20 seconds in each burst, and nothing in the idle periods
+        assertEquals(Arrays.asList(0L, 20_000L, 300_000L, 320_000L, 600_000L), runTimes);
+        assertEquals(Arrays.asList("end@30000", "start@300000", "end@330000", "start@600000"), events);
+        assertTrue(scheduler.isInBurst());
+        assertEquals(2, scheduler.getBurstCount());
+
+        // One wakeup for each run that does not start a burst, plus one to start and one to end each burst
+        assertEquals(7, scheduler.getWakeupCount());
+    }
+
+    @Test
+    public void validateTurningTheDutyCycleOffResumesImmediately()
+    {
+        final FakeWakeups wakeups = new FakeWakeups();
+        final ScanScheduler scheduler = new ScanScheduler("Test", wakeups, () -> wakeups.nowMs, 1_000, new Random(1));
+
+        final List<Boolean> events = new ArrayList<>();
+        scheduler.setBurstListener(events::add);
+        scheduler.setDutyCycle(10_000, 60_000);
+
+        final ScanScheduler.Task task = scheduler.schedule("Task", () -> 5_000, 0, 0, ScanScheduler.MissedTickPolicy.RUN_LATE, () -> {
+        });
+
+        wakeups.runUntil(30_000);
+        assertFalse(scheduler.isInBurst());
+        assertEquals(2, task.getRunCount());
+
+        scheduler.setDutyCycle(0, 0);
+        wakeups.runUntil(35_000);
+
+        assertTrue(scheduler.isInBurst());
+        assertEquals(Arrays.asList(false, true), events);
+        assertEquals(35_000, task.getLastRunMs());
+    }
+
+    /**
+     * A single slot fake of an Android Handler with a manually advanced clock.
+     */
+    private static final class FakeWakeups implements ScanScheduler.WakeupPoster
+    {
+        private long nowMs;
+        private Runnable pending;
+        private long pendingAtMs;
+
+        @Override
+        public void postDelayed(Runnable wakeup, long delayMs)
+        {
+            pending = wakeup;
+            pendingAtMs = nowMs + delayMs;
+        }
+
+        @Override
+        public void removeCallbacks(Runnable wakeup)
+        {
+            if (pending == wakeup) pending = null;
+        }
+
+        void runDue()
+        {
+            if (pending != null && pendingAtMs <= nowMs)
+            {
+                final Runnable wakeup = pending;
+                pending = null;
+                wakeup.run();
+            }
+        }
+
+        void runUntil(long endMs)
+        {
+            while (pending != null && pendingAtMs <= endMs)
+            {
+                nowMs = Math.max(nowMs, pendingAtMs);
+                runDue();
+            }
+            nowMs = endMs;
+        }
+    }
+}
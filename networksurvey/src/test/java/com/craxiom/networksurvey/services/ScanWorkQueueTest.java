@@ -0,0 +1,98 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the bounded per scan type work queues.
+ *
+ * @since 1.7.0
+ */
+public class ScanWorkQueueTest
+{
+    @Test
+    public void validateDropOldestWhenFull()
+    {
+        final List<Runnable> executorTasks = new ArrayList<>();
+        final List<Integer> processed = new ArrayList<>();
+        final ScanWorkQueue queue = new ScanWorkQueue("Wi-Fi", 3, executorTasks::add);
+
+        for (int i = 0; i < 5; i++)
+        {
+            final int value = i;
+            queue.submit(() -> processed.add(value));
+        }
+
+        // Only one drain task is handed to the executor no matter how much work is queued
+        assertEquals(1, executorTasks.size());
+        assertEquals(3, queue.getDepth());
+        assertEquals(2, queue.getDroppedCount());
+
+        executorTasks.remove(0).run();
+
+        assertEquals(Arrays.asList(2, 3, 4), processed);
+        assertEquals(0, queue.getDepth());
+        assertEquals(3, queue.getProcessedCount());
+        assertEquals(3, queue.getMaxDepth());
+    }
+
+    @Test
+    public void validateCoalescing()
+    {
+        final List<Runnable> executorTasks = new ArrayList<>();
+        final List<String> processed = new ArrayList<>();
+        final ScanWorkQueue queue = new ScanWorkQueue("Bluetooth", 16, executorTasks::add);
+
+        queue.submit(() -> processed.add("batch 1"), true);
+        queue.submit(() -> processed.add("single 1"));
+        queue.submit(() -> processed.add("batch 2"), true);
+        queue.submit(() -> processed.add("batch 3"), true);
+
+        executorTasks.remove(0).run();
+
+        assertEquals(Arrays.asList("single 1", "batch 3"), processed);
+        assertEquals(2, queue.getCoalescedCount());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void validateAwaitIdleWaitsForTheSubmittedWork() throws InterruptedException
+    {
+        final List<Runnable> executorTasks = new ArrayList<>();
+        final List<Integer> processed = new ArrayList<>();
+        final ScanWorkQueue queue = new ScanWorkQueue("GNSS", 4, executorTasks::add);
+
+        queue.submit(() -> processed.add(1));
+        assertFalse(queue.awaitIdle(10));
+
+        executorTasks.remove(0).run();
+
+        assertTrue(queue.awaitIdle(10));
+        assertEquals(Collections.singletonList(1), processed);
+    }
+
+    @Test
+    public void validateRejectedExecutionDropsThePendingWork()
+    {
+        final List<Integer> processed = new ArrayList<>();
+        final ScanWorkQueue queue = new ScanWorkQueue("GNSS", 4, task -> {
+            throw new RejectedExecutionException("The executor has been shut down");
+        });
+
+        queue.submit(() -> processed.add(1));
+        queue.submit(() -> processed.add(2));
+
+        assertEquals(0, processed.size());
+        assertEquals(0, queue.getDepth());
+        assertEquals(2, queue.getDroppedCount());
+    }
+}
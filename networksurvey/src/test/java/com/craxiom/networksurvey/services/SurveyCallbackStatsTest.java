@@ -0,0 +1,48 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the survey callback timing statistics.
+ *
+ * @since 1.7.0
+ */
+public class SurveyCallbackStatsTest
+{
+    @Test
+    public void validateMainThreadTimeIsTrackedSeparately()
+    {
+        final SurveyCallbackStats stats = new SurveyCallbackStats(() -> false);
+
+        stats.record(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS, TimeUnit.MILLISECONDS.toNanos(2), false);
+        stats.record(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS, TimeUnit.MILLISECONDS.toNanos(30), true);
+        stats.record(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS, TimeUnit.MILLISECONDS.toNanos(5), true);
+
+        assertEquals(3, stats.getCount(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS));
+        assertEquals(2, stats.getMainThreadCount(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(35), stats.getMainThreadNanos(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(30), stats.getMaxNanos(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS));
+        assertEquals(1, stats.getMainThreadOverFrameBudgetCount(SurveyCallbackStats.Callback.WIFI_SCAN_RESULTS));
+
+        // The other callbacks are not affected
+        assertEquals(0, stats.getCount(SurveyCallbackStats.Callback.BLUETOOTH_LE));
+    }
+
+    @Test
+    public void validateBeginAndEndUseTheThreadCheck()
+    {
+        final boolean[] mainThread = {true};
+        final SurveyCallbackStats stats = new SurveyCallbackStats(() -> mainThread[0]);
+
+        stats.end(SurveyCallbackStats.Callback.CELL_INFO, stats.begin());
+        mainThread[0] = false;
+        stats.end(SurveyCallbackStats.Callback.CELL_INFO, stats.begin());
+
+        assertEquals(2, stats.getCount(SurveyCallbackStats.Callback.CELL_INFO));
+        assertEquals(1, stats.getMainThreadCount(SurveyCallbackStats.Callback.CELL_INFO));
+    }
+}
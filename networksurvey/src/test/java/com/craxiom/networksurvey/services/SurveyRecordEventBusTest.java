@@ -0,0 +1,290 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@link SurveyRecordEventBus} ring buffer.
+ *
+ * @since 1.7.0
+ */
+public class SurveyRecordEventBusTest
+{
+    private static final SurveyRecordEventBus.Dispatcher<RecordingListener> DISPATCHER = (l, payload) -> l.onEvent((Integer) payload);
+
+    @Test
+    public void validateSlowListenerDoesNotHoldBackOthers() throws InterruptedException
+    {
+        final SurveyRecordEventBus<RecordingListener> bus = new SurveyRecordEventBus<>("TestBus", 64);
+        final CountDownLatch releaseSlowListener = new CountDownLatch(1);
+        final RecordingListener fastListener = new RecordingListener(null);
+        final RecordingListener slowListener = new RecordingListener(releaseSlowListener);
+        try
+        {
+            bus.register(fastListener);
+            bus.register(slowListener);
+
+            for (int i = 0; i < 10; i++)
+            {
+                bus.publish(DISPATCHER, i);
+            }
+
+            assertTrue(fastListener.awaitCount(10));
+            assertTrue(bus.getLag(slowListener) > 0);
+
+            releaseSlowListener.countDown();
+            assertTrue(slowListener.awaitCount(10));
+            assertEquals(fastListener.getEvents(), slowListener.getEvents());
+            assertEquals(0, bus.getLag(slowListener));
+        } finally
+        {
+            releaseSlowListener.countDown();
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void validateLappedListenerSkipsAhead() throws InterruptedException
+    {
+        final SurveyRecordEventBus<RecordingListener> bus = new SurveyRecordEventBus<>("TestBus", 8);
+        final CountDownLatch releaseSlowListener = new CountDownLatch(1);
+        final RecordingListener slowListener = new RecordingListener(releaseSlowListener);
+        try
+        {
+            bus.register(slowListener);
+
+            // The first event blocks the listener, and the rest lap it several times
+            bus.publish(DISPATCHER, 0);
+            assertTrue(slowListener.entered.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < 100; i++)
+            {
+                bus.publish(DISPATCHER, i);
+            }
+            assertEquals(100, bus.getLag(slowListener));
+
+            releaseSlowListener.countDown();
+
+            // The listener gets the first event, and then only the 8 events that are still in the ring
+            assertTrue(slowListener.awaitCount(9));
+            assertEquals(Arrays.asList(0, 92, 93, 94, 95, 96, 97, 98, 99), slowListener.getEvents());
+            assertEquals(0, bus.getLag(slowListener));
+        } finally
+        {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void validateLosslessListenerHoldsBackThePublisher() throws Exception
+    {
+        final SurveyRecordEventBus<RecordingListener> bus = new SurveyRecordEventBus<>("TestBus", 8);
+        final CountDownLatch releaseSlowListener = new CountDownLatch(1);
+        final RecordingListener slowListener = new RecordingListener(releaseSlowListener);
+        final ExecutorService publisher = Executors.newSingleThreadExecutor();
+        try
+        {
+            bus.register(slowListener, true);
+
+            bus.publish(DISPATCHER, 0);
+            assertTrue(slowListener.entered.await(10, TimeUnit.SECONDS));
+
+            final Future<?> publishing = publisher.submit(() -> {
+                for (int i = 1; i < 100; i++)
+                {
+                    bus.publish(DISPATCHER, i);
+                }
+            });
+
+            // The publisher fills the ring and then waits for the listener instead of lapping it
+            try
+            {
+                publishing.get(200, TimeUnit.MILLISECONDS);
+                fail("The publisher should be blocked by the lossless listener");
+            } catch (TimeoutException expected)
+            {
+                assertEquals(8, bus.getLag(slowListener));
+            }
+
+            releaseSlowListener.countDown();
+            publishing.get(10, TimeUnit.SECONDS);
+
+            assertTrue(slowListener.awaitCount(100));
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+            {
+                expected.add(i);
+            }
+            assertEquals(expected, slowListener.getEvents());
+        } finally
+        {
+            releaseSlowListener.countDown();
+            publisher.shutdownNow();
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void validateAwaitConsumedWaitsForTheSlowestListener() throws InterruptedException
+    {
+        final SurveyRecordEventBus<RecordingListener> bus = new SurveyRecordEventBus<>("TestBus", 64);
+        final CountDownLatch releaseSlowListener = new CountDownLatch(1);
+        final RecordingListener fastListener = new RecordingListener(null);
+        final RecordingListener slowListener = new RecordingListener(releaseSlowListener);
+        try
+        {
+            bus.register(fastListener);
+            bus.register(slowListener, true);
+
+            bus.publish(DISPATCHER, 1);
+            bus.publish(DISPATCHER, 2);
+            assertTrue(slowListener.entered.await(10, TimeUnit.SECONDS));
+
+            assertFalse(bus.awaitConsumed(50));
+
+            releaseSlowListener.countDown();
+            assertTrue(bus.awaitConsumed(10_000));
+            assertEquals(Arrays.asList(1, 2), fastListener.getEvents());
+            assertEquals(Arrays.asList(1, 2), slowListener.getEvents());
+        } finally
+        {
+            releaseSlowListener.countDown();
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void validateUnregisterDrainsALosslessListener() throws Exception
+    {
+        final SurveyRecordEventBus<RecordingListener> bus = new SurveyRecordEventBus<>("TestBus", 64);
+        final CountDownLatch releaseSlowListener = new CountDownLatch(1);
+        final RecordingListener slowListener = new RecordingListener(releaseSlowListener);
+        final ExecutorService unregistering = Executors.newSingleThreadExecutor();
+        try
+        {
+            bus.register(slowListener, true);
+            for (int i = 0; i < 5; i++)
+            {
+                bus.publish(DISPATCHER, i);
+            }
+            assertTrue(slowListener.entered.await(10, TimeUnit.SECONDS));
+
+            final Future<?> unregistered = unregistering.submit(() -> bus.unregister(slowListener));
+
+            // Unregistering waits for the listener to work through the events that were already published
+            try
+            {
+                unregistered.get(200, TimeUnit.MILLISECONDS);
+                fail("Unregistering should wait for the lossless listener to drain");
+            } catch (TimeoutException expected)
+            {
+                assertTrue(bus.hasConsumers());
+            }
+
+            releaseSlowListener.countDown();
+            unregistered.get(10, TimeUnit.SECONDS);
+
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4), slowListener.getEvents());
+            assertFalse(bus.hasConsumers());
+
+            // Nothing published after the listener was removed reaches it
+            bus.publish(DISPATCHER, 5);
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4), slowListener.getEvents());
+        } finally
+        {
+            releaseSlowListener.countDown();
+            unregistering.shutdownNow();
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void validateUnregisterDiscardsTheBacklogOfALossyListener() throws Exception
+    {
+        final SurveyRecordEventBus<RecordingListener> bus = new SurveyRecordEventBus<>("TestBus", 64);
+        final CountDownLatch releaseSlowListener = new CountDownLatch(1);
+        final RecordingListener slowListener = new RecordingListener(releaseSlowListener);
+        try
+        {
+            bus.register(slowListener);
+            for (int i = 0; i < 5; i++)
+            {
+                bus.publish(DISPATCHER, i);
+            }
+            assertTrue(slowListener.entered.await(10, TimeUnit.SECONDS));
+
+            // Returns right away, without waiting for the listener to finish its current event
+            bus.unregister(slowListener);
+            assertFalse(bus.hasConsumers());
+
+            releaseSlowListener.countDown();
+            Thread.sleep(50);
+            assertEquals(Collections.singletonList(0), slowListener.getEvents());
+        } finally
+        {
+            releaseSlowListener.countDown();
+            bus.shutdown();
+        }
+    }
+
+    private static final class RecordingListener
+    {
+        private final CountDownLatch blockUntil;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final List<Integer> events = Collections.synchronizedList(new ArrayList<>());
+
+        private RecordingListener(CountDownLatch blockUntil)
+        {
+            this.blockUntil = blockUntil;
+        }
+
+        void onEvent(int event)
+        {
+            entered.countDown();
+            if (blockUntil != null)
+            {
+                try
+                {
+                    blockUntil.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event);
+        }
+
+        List<Integer> getEvents()
+        {
+            synchronized (events)
+            {
+                return new ArrayList<>(events);
+            }
+        }
+
+        boolean awaitCount(int count) throws InterruptedException
+        {
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (events.size() < count)
+            {
+                if (System.currentTimeMillis() > deadline) return false;
+                Thread.sleep(5);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.craxiom.networksurvey.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the sliding window model of the Android Wi-Fi scan throttling.
+ *
+ * @since 1.7.0
+ */
+public class WifiScanBudgetTest
+{
+    @Test
+    public void validateBudgetIsEnforcedOverTheWindow()
+    {
+        final WifiScanBudget budget = new WifiScanBudget(4, 120_000);
+        budget.setThrottled(true);
+
+        assertTrue(budget.tryAcquire(0));
+        assertTrue(budget.tryAcquire(10_000));
+        assertTrue(budget.tryAcquire(20_000));
+        assertTrue(budget.tryAcquire(30_000));
+        assertFalse(budget.tryAcquire(40_000));
+
+        // The first scan is still in the window at exactly the window length, just like the OS check
+        assertFalse(budget.tryAcquire(120_000));
+        assertTrue(budget.tryAcquire(120_001));
+
+        // The second scan (at 10 seconds) is now the oldest in the window
+        assertFalse(budget.tryAcquire(125_000));
+        assertTrue(budget.tryAcquire(130_001));
+
+        assertEquals(6, budget.getGrantedCount());
+        assertEquals(3, budget.getDeniedCount());
+    }
+
+    @Test
+    public void validateEverythingIsGrantedWhenNotThrottled()
+    {
+        final WifiScanBudget budget = new WifiScanBudget(4, 120_000);
+
+        for (int i = 0; i < 20; i++)
+        {
+            assertTrue(budget.tryAcquire(i * 1_000L));
+        }
+        assertEquals(2_000, budget.getIntervalMs(2_000));
+    }
+
+    @Test
+    public void validateScansAreSpreadEvenly()
+    {
+        final WifiScanBudget budget = new WifiScanBudget(4, 120_000);
+        budget.setThrottled(true);
+
+        final int intervalMs = budget.getIntervalMs(2_000);
+        assertEquals(31_000, intervalMs);
+        assertEquals(60_000, budget.getIntervalMs(60_000));
+
+        // Scanning at the spread interval never runs into the budget
+        for (int i = 0; i < 100; i++)
+        {
+            assertTrue(budget.tryAcquire((long) i * intervalMs));
+        }
+        assertEquals(0, budget.getDeniedCount());
+    }
+}
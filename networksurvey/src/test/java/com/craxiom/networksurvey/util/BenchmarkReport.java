@@ -0,0 +1,70 @@
+package com.craxiom.networksurvey.util;
+
+import org.junit.Assume;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the results of an opt-in benchmark to a text report under {@code build/reports/benchmarks}.
+ * <p>
+ * The benchmarks are skipped unless the {@code networksurvey.benchmark} system property is set, which the Gradle build
+ * does when it is run with {@code -Pbenchmark} (e.g. {@code ./gradlew testDebugUnitTest -Pbenchmark}).
+ *
+ * @since 1.7.0
+ */
+public class BenchmarkReport implements AutoCloseable
+{
+    private static final String BENCHMARK_PROPERTY = "networksurvey.benchmark";
+    private static final String REPORT_DIRECTORY = "build/reports/benchmarks";
+
+    private final File reportFile;
+    private final PrintWriter writer;
+
+    private BenchmarkReport(File reportFile) throws IOException
+    {
+        this.reportFile = reportFile;
+        writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Skips the calling test unless the benchmarks were requested, and otherwise opens a new report for it.
+     *
+     * @param name The name of the report file, without the extension.
+     */
+    public static BenchmarkReport open(String name) throws IOException
+    {
+        Assume.assumeTrue("Benchmarks only run with -Pbenchmark", Boolean.getBoolean(BENCHMARK_PROPERTY));
+
+        final File directory = new File(REPORT_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Could not create the benchmark report directory " + directory.getAbsolutePath());
+        }
+
+        return new BenchmarkReport(new File(directory, name + ".txt"));
+    }
+
+    /**
+     * Adds a formatted line to the report.
+     */
+    public void println(String format, Object... args)
+    {
+        writer.println(String.format(format, args));
+    }
+
+    public File getReportFile()
+    {
+        return reportFile;
+    }
+
+    @Override
+    public void close()
+    {
+        writer.close();
+    }
+}
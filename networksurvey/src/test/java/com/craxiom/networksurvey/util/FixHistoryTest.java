@@ -0,0 +1,61 @@
+package com.craxiom.networksurvey.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the time indexed location fix history.
+ *
+ * @since 1.7.0
+ */
+public class FixHistoryTest
+{
+    @Test
+    public void validateTheNearestFixIsFound()
+    {
+        final FixHistory<Long> history = new FixHistory<>(8, fix -> fix);
+        history.add(1_000L);
+        history.add(2_000L);
+        history.add(4_000L);
+
+        assertEquals(Long.valueOf(1_000), history.getNearest(500, 1_000));
+        assertEquals(Long.valueOf(2_000), history.getNearest(2_900, 1_000));
+        assertEquals(Long.valueOf(4_000), history.getNearest(3_100, 1_000));
+        assertEquals(Long.valueOf(4_000), history.getNearest(4_000, 0));
+
+        // Nothing within the maximum gap
+        assertEquals(null, history.getNearest(9_000, 1_000));
+    }
+
+    @Test
+    public void validateTheOldestFixIsDroppedWhenFull()
+    {
+        final FixHistory<Long> history = new FixHistory<>(3, fix -> fix);
+        for (long timestamp = 1; timestamp <= 5; timestamp++)
+        {
+            history.add(timestamp * 1_000);
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(Long.valueOf(3_000), history.getNearest(1_000, 10_000));
+        assertEquals(Long.valueOf(5_000), history.getNearest(6_000, 10_000));
+        assertEquals(Long.valueOf(4_000), history.getNearest(4_200, 10_000));
+    }
+
+    @Test
+    public void validateOutOfOrderFixesAreIgnored()
+    {
+        final FixHistory<Long> history = new FixHistory<>(4, fix -> fix);
+        history.add(2_000L);
+        history.add(1_000L);
+        history.add(2_000L);
+
+        assertEquals(1, history.size());
+        assertEquals(2, history.getOutOfOrderCount());
+
+        history.clear();
+        assertEquals(0, history.size());
+        assertEquals(null, history.getNearest(2_000, 10_000));
+    }
+}
@@ -0,0 +1,61 @@
+package com.craxiom.networksurvey.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Basic unit tests for the {@link ProtobufValueCache} class.
+ *
+ * @since 1.7.0
+ */
+public class ProtobufValueCacheTest
+{
+    @Test
+    public void validateInt32ValuesAreShared()
+    {
+        assertSame(ProtobufValueCache.int32Value(310), ProtobufValueCache.int32Value(310));
+        assertSame(ProtobufValueCache.int32Value(-140), ProtobufValueCache.int32Value(-140));
+        assertSame(ProtobufValueCache.int32Value(66486), ProtobufValueCache.int32Value(66486));
+
+        assertEquals(310, ProtobufValueCache.int32Value(310).getValue());
+        assertEquals(Integer.MAX_VALUE, ProtobufValueCache.int32Value(Integer.MAX_VALUE).getValue());
+    }
+
+    @Test
+    public void validateOverflowValuesAreReplacedInsteadOfFillingUp()
+    {
+        // Far more distinct cell IDs than there are overflow slots
+        for (int cellId = 100_000_000; cellId < 100_100_000; cellId++)
+        {
+            assertEquals(cellId, ProtobufValueCache.int32Value(cellId).getValue());
+        }
+
+        // A cell seen after the cache was churned through is still cached
+        assertSame(ProtobufValueCache.int32Value(268_435_455), ProtobufValueCache.int32Value(268_435_455));
+        assertEquals(268_435_455, ProtobufValueCache.int32Value(268_435_455).getValue());
+    }
+
+    @Test
+    public void validateFloatValues()
+    {
+        assertSame(ProtobufValueCache.floatValue(-98f), ProtobufValueCache.floatValue(-98f));
+        assertSame(ProtobufValueCache.floatValue(-10.5f), ProtobufValueCache.floatValue(-10.5f));
+        assertEquals(-10.5f, ProtobufValueCache.floatValue(-10.5f).getValue(), 0f);
+
+        // Values outside of the cached steps are still correct, just not shared
+        assertNotSame(ProtobufValueCache.floatValue(35.27f), ProtobufValueCache.floatValue(35.27f));
+        assertEquals(35.27f, ProtobufValueCache.floatValue(35.27f).getValue(), 0f);
+        assertEquals(Float.floatToRawIntBits(-0.0f), Float.floatToRawIntBits(ProtobufValueCache.floatValue(-0.0f).getValue()));
+        assertEquals(1000f, ProtobufValueCache.floatValue(1000f).getValue(), 0f);
+    }
+
+    @Test
+    public void validateBoolValues()
+    {
+        assertSame(ProtobufValueCache.TRUE, ProtobufValueCache.boolValue(true));
+        assertSame(ProtobufValueCache.FALSE, ProtobufValueCache.boolValue(false));
+    }
+}